@@ -0,0 +1,132 @@
+import com.zc.othello.bench.Workload;
+
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The {@link Workload} on the game classes, see there why it is in the default package.
+ */
+public class BoardWorkload implements Workload {
+
+    /* The position before each move of the corpus, the player to move and the move */
+    private Board[] boards;
+    private char[] players;
+    private Disk[] moves;
+
+    /* Every move of the corpus as it is written there */
+    private String[] userMoves;
+
+    private String[] games;
+
+    private List<Disk> allDisks;
+
+    @Override
+    public void setUp(List<String> corpus) {
+        List<Board> boards = new ArrayList<>();
+        List<Character> players = new ArrayList<>();
+        List<Disk> moves = new ArrayList<>();
+        List<String> userMoves = new ArrayList<>();
+        for (String game : corpus) {
+            Board board = new Board();
+            char player = Board.DARK;
+            for (String move : game.split(",")) {
+                if (!board.hasAvailableMove(player)) {
+                    player = Board.getOpponent(player);
+                }
+                Disk disk = Disk.getDisk(move);
+                if (!board.validateMove(player, move)) {
+                    throw new IllegalStateException("Invalid move " + move + " in game " + game);
+                }
+                boards.add(new Board(board));
+                players.add(player);
+                moves.add(disk);
+                userMoves.add(move);
+                board.flip(player, disk);
+                player = Board.getOpponent(player);
+            }
+        }
+        if (boards.size() != POSITIONS) {
+            throw new IllegalStateException("Expected " + POSITIONS + " positions but found " + boards.size());
+        }
+        this.boards = boards.toArray(new Board[0]);
+        this.players = new char[players.size()];
+        for (int i = 0; i < this.players.length; i++) {
+            this.players[i] = players.get(i);
+        }
+        this.moves = moves.toArray(new Disk[0]);
+        this.userMoves = userMoves.toArray(new String[0]);
+        this.games = corpus.toArray(new String[0]);
+        this.allDisks = Disk.getAllDisksOnBoard();
+    }
+
+    @Override
+    public long updateAvailableMoves() {
+        long count = 0;
+        for (int i = 0; i < boards.length; i++) {
+            count += boards[i].updateAvailableMoves().get(players[i]).size();
+        }
+        return count;
+    }
+
+    @Override
+    public long canFlip() {
+        long count = 0;
+        for (int i = 0; i < boards.length; i++) {
+            Board board = boards[i];
+            for (Disk disk : allDisks) {
+                if (board.getPlayer(disk) == Board.NO_PIECE && board.canFlip(players[i], disk)) {
+                    count++;
+                }
+            }
+        }
+        return count;
+    }
+
+    @Override
+    public long flip() {
+        long count = 0;
+        for (int i = 0; i < boards.length; i++) {
+            boards[i].flip(players[i], moves[i]);
+            count += boards[i].getMoveCount();
+            boards[i].undoMove();
+        }
+        return count;
+    }
+
+    @Override
+    public long evaluate() {
+        long sum = 0;
+        for (int i = 0; i < boards.length; i++) {
+            char player = players[i];
+            sum += Evaluator.evaluate(boards[i].getDisks(player), boards[i].getDisks(Board.getOpponent(player)));
+        }
+        return sum;
+    }
+
+    @Override
+    public long getDisk() {
+        long count = 0;
+        for (String move : userMoves) {
+            count += Disk.getDisk(move).getY();
+        }
+        return count;
+    }
+
+    @Override
+    public long getUserMove() {
+        long count = 0;
+        for (Disk move : moves) {
+            count += Disk.getUserMove(move).length();
+        }
+        return count;
+    }
+
+    @Override
+    public long playGames() {
+        long count = 0;
+        for (String game : games) {
+            count += Othello.playGame(game).length();
+        }
+        return count;
+    }
+}
@@ -0,0 +1,48 @@
+package com.zc.othello.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Move generation, flipping and evaluation, measured per position of the corpus.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class BoardBenchmark {
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workload.load();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Workload.POSITIONS)
+    public long updateAvailableMoves() {
+        return workload.updateAvailableMoves();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Workload.POSITIONS)
+    public long canFlip() {
+        return workload.canFlip();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Workload.POSITIONS)
+    public long flip() {
+        return workload.flip();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Workload.POSITIONS)
+    public long evaluate() {
+        return workload.evaluate();
+    }
+}
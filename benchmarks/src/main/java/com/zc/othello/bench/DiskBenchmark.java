@@ -0,0 +1,36 @@
+package com.zc.othello.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Parsing and formatting of coordinates, measured per move of the corpus.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class DiskBenchmark {
+
+    private Workload workload;
+
+    @Setup
+    public void setUp() {
+        workload = Workload.load();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Workload.POSITIONS)
+    public long getDisk() {
+        return workload.getDisk();
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Workload.POSITIONS)
+    public long getUserMove() {
+        return workload.getUserMove();
+    }
+}
@@ -0,0 +1,50 @@
+package com.zc.othello.bench;
+
+import org.openjdk.jmh.annotations.*;
+
+import java.io.OutputStream;
+import java.io.PrintStream;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Full replay of the games of the corpus by Othello.playGame(String), measured per game.
+ */
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+@State(Scope.Thread)
+public class ReplayBenchmark {
+
+    private Workload workload;
+
+    private PrintStream out;
+
+    @Setup
+    public void setUp() {
+        workload = Workload.load();
+        //the game prints every pass and its result, which is not what is measured here
+        out = System.out;
+        System.setOut(new PrintStream(new OutputStream() {
+            @Override
+            public void write(int b) {
+            }
+
+            @Override
+            public void write(byte[] b, int off, int len) {
+            }
+        }));
+    }
+
+    @TearDown
+    public void tearDown() {
+        System.setOut(out);
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(Workload.GAMES)
+    public long playGame() {
+        return workload.playGames();
+    }
+}
@@ -0,0 +1,107 @@
+package com.zc.othello.bench;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The operations measured by the benchmarks, each one over every position of the game corpus.
+ *
+ * <p>The game classes live in the default package, which JMH does not accept for benchmarks and
+ * which cannot be imported from a named package, so the benchmarks call them through this interface.
+ * It is implemented by <code>BoardWorkload</code> in the default package.
+ */
+public interface Workload {
+
+    /* The corpus, one game per line as comma separated moves */
+    String CORPUS = "/games.csv";
+
+    /* Number of games in the corpus */
+    int GAMES = 64;
+
+    /* Number of positions (moves) in all games of the corpus */
+    int POSITIONS = 3837;
+
+    /**
+     * Replay the games and keep the position before each move.
+     *
+     * @param games the games of the corpus
+     */
+    void setUp(List<String> games);
+
+    /**
+     * Board.updateAvailableMoves() on every position.
+     */
+    long updateAvailableMoves();
+
+    /**
+     * Board.canFlip(player, disk) on every empty square of every position.
+     */
+    long canFlip();
+
+    /**
+     * Board.flip(player, disk) with the move played in every position, then taken back.
+     */
+    long flip();
+
+    /**
+     * Evaluator.evaluate(own, opp) on every position, for the player to move.
+     */
+    long evaluate();
+
+    /**
+     * Disk.getDisk(move) on every move of the corpus.
+     */
+    long getDisk();
+
+    /**
+     * Disk.getUserMove(disk) on every move of the corpus.
+     */
+    long getUserMove();
+
+    /**
+     * Othello.playGame(moves) on every game of the corpus.
+     */
+    long playGames();
+
+    /**
+     * Return the workload prepared with all games of the corpus.
+     *
+     * @return the workload
+     */
+    static Workload load() {
+        try {
+            Workload workload = (Workload) Class.forName("BoardWorkload").getDeclaredConstructor().newInstance();
+            workload.setUp(readCorpus());
+            return workload;
+        } catch (ReflectiveOperationException e) {
+            throw new IllegalStateException("Cannot create BoardWorkload", e);
+        }
+    }
+
+    /**
+     * @return the games of the corpus
+     */
+    static List<String> readCorpus() {
+        List<String> games = new ArrayList<>();
+        try (BufferedReader reader = new BufferedReader(new InputStreamReader(
+                Workload.class.getResourceAsStream(CORPUS), StandardCharsets.UTF_8))) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (!line.trim().isEmpty()) {
+                    games.add(line.trim());
+                }
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        if (games.size() != GAMES) {
+            throw new IllegalStateException("Expected " + GAMES + " games in " + CORPUS + " but found " + games.size());
+        }
+        return games;
+    }
+}
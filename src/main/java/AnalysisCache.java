@@ -0,0 +1,249 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Positions searched before, kept in a file so they are not searched again by the next run (see
+ * {@link Search#setAnalysisCache(AnalysisCache)}).
+ *
+ * <p>The file is a fixed-size hash table, memory-mapped read-write, so several threads and several processes
+ * on the same machine can use one cache at the same time: they all see the pages of the same file.
+ * <pre>
+ * header, 64 bytes: magic "OAC1", version (int each), number of buckets (long), unused
+ * bucket, 64 bytes: 4 slots of 16 bytes, the position hash XOR-ed with the data and the data (long each)
+ * </pre>
+ * The data is packed like in the {@link TranspositionTable}: score, depth, bound and best move. Like in the
+ * {@link OpeningBook}, a position is stored once for all its symmetric positions: the hash is the canonical
+ * hash of the disks of the player to move and of the opponent (see {@link Symmetry#canonicalHash(long, long)})
+ * and the move is transformed the same way. Numbers are big-endian.
+ *
+ * <p>There are no locks. A slot is written as two longs and is only read back if its two halves match, so
+ * a slot half written when a process crashed, or written by two processes at once, reads as a miss, never
+ * as a wrong result. A new file is written in full to a temporary file first and then linked into place,
+ * so a cache file is never seen without its header.
+ */
+public class AnalysisCache implements Closeable {
+
+    private static final int MAGIC = 0x4F414331;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 64;
+    private static final int SLOT_BYTES = 16;
+    private static final int SLOTS_PER_BUCKET = 4;
+    private static final int BUCKET_BYTES = SLOTS_PER_BUCKET * SLOT_BYTES;
+
+    /* The most buckets, a mapped file is at most 2 GB */
+    private static final long MAX_BUCKETS = Long.highestOneBit((Integer.MAX_VALUE - HEADER_BYTES) / BUCKET_BYTES);
+
+    /* Size of a new cache file in megabytes */
+    public static final int DEFAULT_MEGABYTES = 64;
+
+    private final Path path;
+    private final MappedByteBuffer buffer;
+
+    /* Number of buckets minus one, the number of buckets is a power of two */
+    private final long bucketMask;
+
+    /* Statistics of this process */
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder stores = new LongAdder();
+
+    private AnalysisCache(Path path, MappedByteBuffer buffer) throws IOException {
+        this.path = path;
+        this.buffer = buffer;
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an analysis cache: " + path);
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unknown analysis cache version: " + buffer.getInt(4));
+        }
+        long buckets = buffer.getLong(8);
+        if (buckets <= 0 || buckets > MAX_BUCKETS || Long.bitCount(buckets) != 1
+                || HEADER_BYTES + buckets * BUCKET_BYTES != buffer.capacity()) {
+            throw new IOException("Analysis cache is truncated: " + path);
+        }
+        bucketMask = buckets - 1;
+    }
+
+    /**
+     * Open a cache file, and create it first if it does not exist.
+     *
+     * @param path      the cache file
+     * @param megabytes the size of a new file, the size of an existing file is kept
+     * @return the cache
+     * @throws IOException if the file cannot be created or read, or is not a cache
+     */
+    public static AnalysisCache open(Path path, int megabytes) throws IOException {
+        if (!Files.exists(path)) {
+            create(path, megabytes);
+        }
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            if (channel.size() > Integer.MAX_VALUE) {
+                throw new IOException("Analysis cache is too big: " + path);
+            }
+            return new AnalysisCache(path, channel.map(FileChannel.MapMode.READ_WRITE, 0, channel.size()));
+        }
+    }
+
+    /**
+     * Write an empty cache to a temporary file and link it into place, unless another process was first.
+     */
+    private static void create(Path path, int megabytes) throws IOException {
+        long buckets = Long.highestOneBit(Math.max(1, (long) megabytes * 1024 * 1024 / BUCKET_BYTES));
+        buckets = Math.min(buckets, MAX_BUCKETS);
+        Path directory = path.toAbsolutePath().getParent();
+        Path temp = Files.createTempFile(directory, path.getFileName().toString(), ".tmp");
+        try {
+            try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+                ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+                header.putInt(MAGIC).putInt(VERSION).putLong(buckets).rewind();
+                channel.write(header, 0);
+                //the buckets are zeros, written as a hole up to the last byte
+                channel.write(ByteBuffer.allocate(1), HEADER_BYTES + buckets * BUCKET_BYTES - 1);
+                channel.force(true);
+            }
+            try {
+                Files.createLink(path, temp);
+            } catch (FileAlreadyExistsException e) {
+                //created by another process meanwhile, use that one
+            } catch (UnsupportedOperationException e) {
+                Files.move(temp, path, StandardCopyOption.ATOMIC_MOVE);
+            }
+        } finally {
+            Files.deleteIfExists(temp);
+        }
+    }
+
+    /**
+     * Return the data stored for the position, or for a symmetric position.
+     *
+     * @param own the disks of the player to move
+     * @param opp the disks of the opponent
+     * @return the data of the entry, read with the {@link TranspositionTable} methods, with the move
+     * on this board; 0 if the position is not stored
+     */
+    public long probe(long own, long opp) {
+        int transform = Symmetry.canonicalTransform(own, opp);
+        long hash = Symmetry.hash(transform, own, opp);
+        probes.increment();
+        int index = bucket(hash);
+        for (int slot = index; slot < index + BUCKET_BYTES; slot += SLOT_BYTES) {
+            long data = buffer.getLong(slot + Long.BYTES);
+            if (data != 0 && (buffer.getLong(slot) ^ data) == hash) {
+                hits.increment();
+                int move = TranspositionTable.move(data);
+                return TranspositionTable.data(TranspositionTable.depth(data), TranspositionTable.bound(data),
+                        TranspositionTable.score(data), move < 0 ? -1 : Symmetry.square(Symmetry.inverse(transform),
+                                move), 0);
+            }
+        }
+        return 0;
+    }
+
+    /**
+     * Store the result of a search. An entry of the same position is only replaced by an equal or deeper
+     * search, else the shallowest entry of the bucket is replaced.
+     *
+     * @param own   the disks of the player to move
+     * @param opp   the disks of the opponent
+     * @param depth the depth of the search
+     * @param bound UPPER, LOWER or EXACT, see {@link TranspositionTable}
+     * @param score the score
+     * @param move  the square index of the best move, -1 for none
+     */
+    public void store(long own, long opp, int depth, int bound, int score, int move) {
+        int transform = Symmetry.canonicalTransform(own, opp);
+        long hash = Symmetry.hash(transform, own, opp);
+        long data = TranspositionTable.data(depth, bound, score, move < 0 ? -1 : Symmetry.square(transform, move), 0);
+        int index = bucket(hash);
+        int replaced = index;
+        int replacedDepth = Integer.MAX_VALUE;
+        for (int slot = index; slot < index + BUCKET_BYTES; slot += SLOT_BYTES) {
+            long slotData = buffer.getLong(slot + Long.BYTES);
+            if (slotData == 0) {
+                if (replacedDepth >= 0) {
+                    replaced = slot;
+                    replacedDepth = -1;
+                }
+            } else if ((buffer.getLong(slot) ^ slotData) == hash) {
+                if (TranspositionTable.depth(slotData) > depth) {
+                    return;
+                }
+                replaced = slot;
+                break;
+            } else if (TranspositionTable.depth(slotData) < replacedDepth) {
+                replaced = slot;
+                replacedDepth = TranspositionTable.depth(slotData);
+            }
+        }
+        buffer.putLong(replaced, hash ^ data);
+        buffer.putLong(replaced + Long.BYTES, data);
+        stores.increment();
+    }
+
+    private int bucket(long hash) {
+        return HEADER_BYTES + (int) ((hash ^ (hash >>> 32)) & bucketMask) * BUCKET_BYTES;
+    }
+
+    /**
+     * Write the stored entries to the disk now. The operating system writes them anyway, also if this
+     * process crashes, but not if the machine does.
+     */
+    public void force() {
+        buffer.force();
+    }
+
+    /**
+     * Write the stored entries to the disk. The file stays mapped until the cache is garbage collected.
+     */
+    @Override
+    public void close() {
+        force();
+    }
+
+    public Path getPath() {
+        return path;
+    }
+
+    /**
+     * @return the number of entries the cache can hold
+     */
+    public long getCapacity() {
+        return (bucketMask + 1) * SLOTS_PER_BUCKET;
+    }
+
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    public long getStores() {
+        return stores.sum();
+    }
+
+    /**
+     * @return the share of probes of this process which found their position
+     */
+    public double getHitRate() {
+        long probeCount = probes.sum();
+        return probeCount == 0 ? 0 : (double) hits.sum() / probeCount;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("AnalysisCache{path=%s, capacity=%d, hits=%.1f%%, stores=%d}",
+                path, getCapacity(), 100 * getHitRate(), getStores());
+    }
+
+}
@@ -0,0 +1,24 @@
+import java.util.List;
+
+/**
+ * Receives the results of {@link Search#analyze(Board, char, AnalysisListener)} while the analysis runs,
+ * e.g. to show them at once. The methods are called by the searching thread, between two searches.
+ */
+public interface AnalysisListener {
+
+    /**
+     * One legal move was searched to a new depth.
+     *
+     * @param analysis the score and principal variation of the move
+     */
+    void moveAnalyzed(MoveAnalysis analysis);
+
+    /**
+     * All legal moves were searched to <code>depth</code>. Does nothing by default.
+     *
+     * @param depth    the depth
+     * @param analyses the results of all moves at that depth, best first
+     */
+    default void depthCompleted(int depth, List<MoveAnalysis> analyses) {
+    }
+}
@@ -0,0 +1,153 @@
+/**
+ * Bit-parallel move generation for an 8*8 board.
+ *
+ * <p>Each side is kept as a 64-bit mask where bit <code>x * 8 + y</code> stands for the disk
+ * in row <code>x</code> and column <code>y</code> (see {@link Disk}), so "1a" is bit 0 and "8h" is bit 63.
+ * Legal moves and flipped disks are found by shifting whole masks along the eight
+ * {@link Disk#ALL_DIRECTIONS} instead of walking the board square by square.
+ */
+public final class BitBoard {
+
+    /* Number of squares on the board. */
+    public static final int SQUARES = Board.BOARD_SIZE * Board.BOARD_SIZE;
+
+    /* Bit mask of the first column ('a'). */
+    public static final long COLUMN_A = 0x0101010101010101L;
+
+    /* Bit mask of the last column ('h'). */
+    public static final long COLUMN_H = 0x8080808080808080L;
+
+    /* Position of the four disks at game start, see {@link Board#Board()} */
+    public static final long INITIAL_DARK = (1L << 28) | (1L << 35);
+    public static final long INITIAL_LIGHT = (1L << 27) | (1L << 36);
+
+    /**
+     * Shift for each of {@link Disk#ALL_DIRECTIONS}, positive means towards higher bits.
+     */
+    private static final int[] SHIFTS = new int[Disk.ALL_DIRECTIONS.length];
+
+    /**
+     * Mask applied after the shift of each direction, so disks do not wrap from one row to the next.
+     */
+    private static final long[] MASKS = new long[Disk.ALL_DIRECTIONS.length];
+
+    /**
+     * The squares passed from each square towards each direction as bit mask,
+     * <code>RAY_MASKS[direction][square]</code> (see {@link Disk#RAYS}).
+     */
+    private static final long[][] RAY_MASKS = new long[Disk.ALL_DIRECTIONS.length][SQUARES];
+
+    static {
+        for (int direction = 0; direction < Disk.ALL_DIRECTIONS.length; direction++) {
+            for (int square = 0; square < SQUARES; square++) {
+                for (int next : Disk.RAYS[direction][square]) {
+                    RAY_MASKS[direction][square] |= 1L << next;
+                }
+            }
+        }
+        for (int i = 0; i < Disk.ALL_DIRECTIONS.length; i++) {
+            Disk direction = Disk.ALL_DIRECTIONS[i];
+            SHIFTS[i] = direction.getX() * Board.BOARD_SIZE + direction.getY();
+            if (direction.getY() > 0) {
+                MASKS[i] = ~COLUMN_A;
+            } else if (direction.getY() < 0) {
+                MASKS[i] = ~COLUMN_H;
+            } else {
+                MASKS[i] = -1L;
+            }
+        }
+    }
+
+    private BitBoard() {
+    }
+
+    /**
+     * Return the square index (0..63) of the disk.
+     *
+     * @param disk the disk on the board
+     * @return the square index
+     */
+    public static int square(Disk disk) {
+        return disk.getX() * Board.BOARD_SIZE + disk.getY();
+    }
+
+    /**
+     * Move all disks of <code>bits</code> one step towards <code>direction</code>.
+     *
+     * @param bits      the disks to move
+     * @param direction index in {@link Disk#ALL_DIRECTIONS}
+     * @return the moved disks, disks leaving the board are dropped
+     */
+    public static long shift(long bits, int direction) {
+        int shift = SHIFTS[direction];
+        long shifted = shift > 0 ? bits << shift : bits >>> -shift;
+        return shifted & MASKS[direction];
+    }
+
+    /**
+     * Return all legal moves for the player owning <code>own</code>.<p>
+     * The eight directions are handled as four pairs of opposite shifts (1, 7, 8, 9 squares),
+     * the opponent's disks on column 'a' and 'h' are left out for all but the vertical lines
+     * so that no line wraps around the board edge.
+     *
+     * @param own the disks of the current player
+     * @param opp the disks of the opponent
+     * @return a mask of all empty squares which flip at least one opponent's disk
+     */
+    public static long moves(long own, long opp) {
+        long inner = opp & ~(COLUMN_A | COLUMN_H);
+        long moves = lines(own, inner, 1) | lines(own, opp, 8) | lines(own, inner, 7) | lines(own, inner, 9);
+        return moves & ~(own | opp);
+    }
+
+    /**
+     * Return the squares after a line of <code>opp</code> disks starting next to an <code>own</code> disk,
+     * in both directions along <code>shift</code>.
+     */
+    private static long lines(long own, long opp, int shift) {
+        int doubleShift = shift << 1;
+        long up = opp & (own << shift);
+        up |= opp & (up << shift);
+        long upPairs = opp & (opp << shift);
+        up |= upPairs & (up << doubleShift);
+        up |= upPairs & (up << doubleShift);
+
+        long down = opp & (own >>> shift);
+        down |= opp & (down >>> shift);
+        long downPairs = opp & (opp >>> shift);
+        down |= downPairs & (down >>> doubleShift);
+        down |= downPairs & (down >>> doubleShift);
+        return (up << shift) | (down >>> shift);
+    }
+
+    /**
+     * Return the opponent's disks turned over when the current player puts a disk on <code>square</code>.<p>
+     * Each ray from the square is cut at its first square which is not the opponent's:
+     * the opponent's disks before it are flipped if that square holds a disk of the current player.
+     *
+     * @param own    the disks of the current player
+     * @param opp    the disks of the opponent
+     * @param square the square index of the new disk
+     * @return a mask of the flipped disks, 0 if the move flips nothing
+     */
+    public static long flips(long own, long opp, int square) {
+        long flipped = 0;
+        for (int direction = 0; direction < SHIFTS.length; direction++) {
+            long ray = RAY_MASKS[direction][square];
+            long end;
+            long between;
+            if (SHIFTS[direction] > 0) {
+                end = Long.lowestOneBit(ray & ~opp);
+                between = ray & (end - 1);
+            } else {
+                end = Long.highestOneBit(ray & ~opp);
+                between = ray & -(end << 1);
+            }
+            if ((end & own) != 0) {
+                flipped |= between;
+            }
+        }
+        return flipped;
+    }
+
+}
@@ -21,6 +21,9 @@ public class Board {
     /* The value to represent LIGHT player */
     public static final char LIGHT = 'O';
 
+    /* Both players, DARK first */
+    private static final char[] PLAYERS = {DARK, LIGHT};
+
     /* Size of the board. */
     public static final int BOARD_SIZE = 8;
 
@@ -28,14 +31,42 @@ public class Board {
      * The map to keep all the available moves for both players.<p>
      * Key is the player and the value (List) contains
      * all available moves for the player.
+     * It is only filled by {@link #updateAvailableMoves()}.
      */
     private Map<Character, List<Disk>> allAvailableMoves;
 
-    /* the game history*/
-    private List<String> history;
+    /* Maximum number of moves kept in the undo log, one per square */
+    public static final int MAX_MOVES = BitBoard.SQUARES;
+
+    /* The undo log: player, square and flipped disks of each move, preallocated for MAX_MOVES */
+    private final char[] movePlayers = new char[MAX_MOVES];
+    private final int[] moveSquares = new int[MAX_MOVES];
+    private final long[] moveFlips = new long[MAX_MOVES];
+
+    /* The hash before each move of the undo log */
+    private final long[] moveHashes = new long[MAX_MOVES];
+
+    /* Number of moves in the undo log */
+    private int moveCount;
+
+    /* The disks of DARK player, one bit per square (see {@link BitBoard}) */
+    private long dark;
+
+    /* The disks of LIGHT player, one bit per square (see {@link BitBoard}) */
+    private long light;
 
-    /* The array to keep the status for each disk on the board */
-    private char disks[][];
+    /* The Zobrist hash of the disks, kept up to date by every change (see {@link Zobrist}) */
+    private long hash;
+
+    /* The legal moves of DARK player, only valid while darkMovesValid is true */
+    private long darkMoves;
+
+    /* The legal moves of LIGHT player, only valid while lightMovesValid is true */
+    private long lightMoves;
+
+    private boolean darkMovesValid;
+
+    private boolean lightMovesValid;
 
 
     /**
@@ -53,22 +84,47 @@ public class Board {
      * </pre>
      */
     public Board() {
-        this.history = new ArrayList<>();
         allAvailableMoves = new HashMap<>();
         allAvailableMoves.put(DARK, new ArrayList<>());
         allAvailableMoves.put(LIGHT, new ArrayList<>());
 
-        disks = new char[BOARD_SIZE][BOARD_SIZE];
-        for (char[] chars : disks) {
-            Arrays.fill(chars, NO_PIECE);
-        }
-        disks[3][3] = LIGHT;
-        disks[3][4] = DARK;
-        disks[4][3] = DARK;
-        disks[4][4] = LIGHT;
-        this.updateAvailableMoves();
+        dark = BitBoard.INITIAL_DARK;
+        light = BitBoard.INITIAL_LIGHT;
+        hash = Zobrist.hash(dark, light);
+    }
+
+
+    /**
+     * Create a copy of the board, including its undo log.
+     *
+     * @param board the board to copy
+     */
+    public Board(Board board) {
+        allAvailableMoves = new HashMap<>();
+        allAvailableMoves.put(DARK, new ArrayList<>());
+        allAvailableMoves.put(LIGHT, new ArrayList<>());
+
+        dark = board.dark;
+        light = board.light;
+        hash = board.hash;
+        moveCount = board.moveCount;
+        System.arraycopy(board.movePlayers, 0, movePlayers, 0, moveCount);
+        System.arraycopy(board.moveSquares, 0, moveSquares, 0, moveCount);
+        System.arraycopy(board.moveFlips, 0, moveFlips, 0, moveCount);
+        System.arraycopy(board.moveHashes, 0, moveHashes, 0, moveCount);
     }
 
+    /**
+     * Put the board back to the start of the game and empty the undo log,
+     * so one board can be used for many games.
+     */
+    public void reset() {
+        dark = BitBoard.INITIAL_DARK;
+        light = BitBoard.INITIAL_LIGHT;
+        hash = Zobrist.hash(dark, light);
+        moveCount = 0;
+        invalidateMoves();
+    }
 
     /**
      * Return current status of board.
@@ -76,16 +132,20 @@ public class Board {
      * @return The current result of board as String.
      */
     public String getBoardInfo() {
-        StringBuffer boardInfo = new StringBuffer();
+        StringBuilder boardInfo = new StringBuilder();
 
-        for (int i = 0; i < disks.length; i++) {
-            boardInfo.append(i + 1).append(" ");
-            for (char disk : disks[i]) {
-                boardInfo.append(disk).append(" ");
+        for (int x = 0; x < BOARD_SIZE; x++) {
+            boardInfo.append(x + 1).append(" ");
+            for (int y = 0; y < BOARD_SIZE; y++) {
+                boardInfo.append(getPlayer(x * BOARD_SIZE + y)).append(" ");
             }
             boardInfo.append(System.lineSeparator());
         }
-        boardInfo.append("  a b c d e f g h").append(System.lineSeparator());
+        boardInfo.append(" ");
+        for (int y = 0; y < BOARD_SIZE; y++) {
+            boardInfo.append(' ').append((char) ('a' + y));
+        }
+        boardInfo.append(System.lineSeparator());
         return boardInfo.toString();
     }
 
@@ -96,7 +156,7 @@ public class Board {
      * @return true if there is any possible valid move for given player on current board.
      */
     public boolean hasAvailableMove(char player) {
-        return allAvailableMoves.get(player).size() > 0;
+        return getMoves(player) != 0;
     }
 
     /**
@@ -106,14 +166,8 @@ public class Board {
      */
     public boolean validateMove(char player, String move) {
         Disk targetDisk = Disk.getDisk(move);
-        if (null != targetDisk && getPlayer(targetDisk) == NO_PIECE
-                && allAvailableMoves.get(player).contains(targetDisk)) {
-            return true;
-        } else {
-            System.out.printf("Invalid move: %s !  %n", move);
-            return false;
-        }
-
+        return null != targetDisk && isDiskInBoard(targetDisk)
+                && (getMoves(player) & (1L << BitBoard.square(targetDisk))) != 0;
     }
 
     /**
@@ -126,25 +180,69 @@ public class Board {
      * @param disk   the disk to put by current player
      */
     public void flip(char player, Disk disk) {
-        char nextPlayOnBoard;
-        Disk nextDisk;
-        setPlayer(player, disk);
-        addHistory(player, disk);
-        for (Disk direction : Disk.ALL_DIRECTIONS) {
-            if (canFlip(player, disk, direction)) {
-                nextDisk = disk.nextDisk(direction);
-                while (true) {
-                    nextPlayOnBoard = getPlayer(nextDisk);
-                    if (nextPlayOnBoard == NO_PIECE || nextPlayOnBoard == player) {
-                        break;
-                    } else {
-                        setPlayer(player, nextDisk);
-                    }
-                    nextDisk.move(direction);
-                }
-            }
+        makeMove(player, BitBoard.square(disk));
+    }
+
+    /**
+     * Put a disk of the player on <code>square</code>, turn over the opponent's disks and
+     * record the move in the undo log, so it can be taken back by {@link #undoMove()}.<p>
+     * The square is expected to be empty, the move itself is not validated.
+     *
+     * @param player the current player
+     * @param square the square index of the new disk (see {@link BitBoard})
+     * @return the flipped disks as bit mask
+     */
+    public long makeMove(char player, int square) {
+        long placed = 1L << square;
+        long flipped = BitBoard.flips(getDisks(player), getDisks(getOpponent(player)), square);
+        if (player == DARK) {
+            dark |= placed | flipped;
+            light &= ~flipped;
+        } else {
+            light |= placed | flipped;
+            dark &= ~flipped;
+        }
+        movePlayers[moveCount] = player;
+        moveSquares[moveCount] = square;
+        moveFlips[moveCount] = flipped;
+        moveHashes[moveCount] = hash;
+        moveCount++;
+        hash ^= Zobrist.key(player, square) ^ Zobrist.flipKey(flipped);
+        invalidateMoves();
+        if (Metrics.ENABLED) {
+            Metrics.moveMade(Long.bitCount(flipped));
+        }
+        return flipped;
+    }
+
+    /**
+     * Take back the last move made by {@link #makeMove(char, int)} or {@link #flip(char, Disk)}.
+     */
+    public void undoMove() {
+        if (moveCount == 0) {
+            throw new IllegalStateException("No move to undo");
+        }
+        moveCount--;
+        long placed = 1L << moveSquares[moveCount];
+        long flipped = moveFlips[moveCount];
+        if (movePlayers[moveCount] == DARK) {
+            dark &= ~(placed | flipped);
+            light |= flipped;
+        } else {
+            light &= ~(placed | flipped);
+            dark |= flipped;
         }
-        this.updateAvailableMoves();
+        hash = moveHashes[moveCount];
+        invalidateMoves();
+    }
+
+    /**
+     * Return the number of moves which can be taken back by {@link #undoMove()}.
+     *
+     * @return the number of moves in the undo log
+     */
+    public int getMoveCount() {
+        return moveCount;
     }
 
     /**
@@ -156,40 +254,27 @@ public class Board {
      * @return true if the game if over.
      */
     public boolean isGameOver() {
-        int countOccupiedDisk = 0;
-        boolean isGameOver = false;
-        for (Disk disk : Disk.getAllDisksOnBoard()) {
-            char player = getPlayer(disk);
-            if (player == DARK || player == LIGHT) {
-                countOccupiedDisk++;
-            }
-        }
-        if (countOccupiedDisk == BOARD_SIZE * BOARD_SIZE ||
-                allAvailableMoves.get(DARK).size() == 0 && allAvailableMoves.get(LIGHT).size() == 0) {
-            System.out.println("No further moves available");
-            isGameOver = true;
-        }
-        return isGameOver;
+        return Long.bitCount(dark | light) == BitBoard.SQUARES ||
+                getMoves(DARK) == 0 && getMoves(LIGHT) == 0;
     }
 
     /**
-     * Update and return all available moves for both players on current board
+     * Update and return all available moves for both players on current board.<p>
+     * Only needed when the moves are wanted as {@link Disk} lists, the board itself
+     * keeps the moves as bit masks (see {@link #getMoves(char)}).
      *
      * @return all available moves for both players on current board
      */
     public Map<Character, List<Disk>> updateAvailableMoves() {
-        allAvailableMoves.get(DARK).clear();
-        allAvailableMoves.get(LIGHT).clear();
-
-        for (Disk disk : Disk.getAllDisksOnBoard()) {
-            //No need to check occupied disk
-            if (getPlayer(disk) != NO_PIECE) {
-                continue;
-            }
-            for (char player : Arrays.asList(DARK, LIGHT)) {
-                if (canFlip(player, disk)) {
-                    allAvailableMoves.get(player).add(disk);
-                }
+        if (Metrics.ENABLED) {
+            Metrics.availableMovesUpdated();
+        }
+        for (char player : PLAYERS) {
+            List<Disk> moves = allAvailableMoves.get(player);
+            moves.clear();
+            for (long bits = getMoves(player); bits != 0; bits &= bits - 1) {
+                int square = Long.numberOfTrailingZeros(bits);
+                moves.add(Disk.getDisk(square));
             }
         }
         return allAvailableMoves;
@@ -202,39 +287,58 @@ public class Board {
      * @return true if the disk for current player can flip in one of eight directions
      */
     public boolean canFlip(char player, Disk disk) {
-        for (Disk direction : Disk.ALL_DIRECTIONS) {
-            if (canFlip(player, disk, direction)) {
-                return true;
-            }
+        if (Metrics.ENABLED) {
+            Metrics.flipChecked();
         }
-        return false;
+        return isDiskInBoard(disk)
+                && BitBoard.flips(getDisks(player), getDisks(getOpponent(player)), BitBoard.square(disk)) != 0;
     }
 
-
     /**
-     * Return true if the current player can flip any opponent's disk under <code>direction</code>
+     * Return all legal moves of the player as a bit mask (see {@link BitBoard}).
      *
-     * @param player    the current player
-     * @param disk      the disk to check
-     * @param direction the direction to check
-     * @return true if the current player can flip any opponent's disk
+     * @param player the current player
+     * @return all legal moves of the player
      */
-    private boolean canFlip(char player, Disk disk, Disk direction) {
-        char next_player;
-        boolean nextDiskIsOpponent = false;
-        Disk nextDisk = disk.nextDisk(direction);
-        while (isDiskInBoard(nextDisk)) {
-            next_player = getPlayer(nextDisk);
-            if (next_player == NO_PIECE) {
-                return false;
-            } else if (next_player == Board.getOpponent(player)) {
-                nextDiskIsOpponent = true;
-            } else if (next_player == player) {
-                return nextDiskIsOpponent;
+    public long getMoves(char player) {
+        if (player == DARK) {
+            if (!darkMovesValid) {
+                darkMoves = BitBoard.moves(dark, light);
+                darkMovesValid = true;
+                if (Metrics.ENABLED) {
+                    Metrics.movesGenerated(Long.bitCount(darkMoves));
+                }
+            }
+            return darkMoves;
+        } else {
+            if (!lightMovesValid) {
+                lightMoves = BitBoard.moves(light, dark);
+                lightMovesValid = true;
+                if (Metrics.ENABLED) {
+                    Metrics.movesGenerated(Long.bitCount(lightMoves));
+                }
             }
-            nextDisk.move(direction);
+            return lightMoves;
         }
-        return false;
+    }
+
+    /**
+     * Forget the cached moves of both players after the disks changed.
+     * They are computed again the next time they are asked for.
+     */
+    private void invalidateMoves() {
+        darkMovesValid = false;
+        lightMovesValid = false;
+    }
+
+    /**
+     * Return all disks of the player as a bit mask (see {@link BitBoard}).
+     *
+     * @param player the player
+     * @return all disks of the player
+     */
+    public long getDisks(char player) {
+        return player == DARK ? dark : light;
     }
 
     /**
@@ -248,22 +352,34 @@ public class Board {
     }
 
     /**
-     * End the game and print the result.
+     * Return the Zobrist hash of the position with <code>player</code> to move (see {@link Zobrist}).
+     *
+     * @param player the player to move
+     * @return the hash of the position
      */
-    public void endGame() {
-        String boardInfo = this.getBoardInfo();
-        long count_dark = boardInfo.chars().filter(ch -> ch == DARK).count();
-        long count_light = boardInfo.chars().filter(ch -> ch == LIGHT).count();
-        if (count_dark != count_light) {
-            char winner = count_dark > count_light ? DARK : LIGHT;
-            System.out.printf("Game over. Player '%s' wins.", winner);
-        } else {
-            System.out.print("The game ends in a tie.");
-        }
-        System.out.printf(" (%s vs %s) %n", Math.max(count_dark, count_light),
-                Math.min(count_dark, count_light));
+    public long getHash(char player) {
+        return player == DARK ? hash : hash ^ Zobrist.LIGHT_TO_MOVE;
     }
 
+    /**
+     * Return the hash of the position with <code>player</code> to move, the same for all positions symmetric
+     * to it (see {@link Symmetry#canonicalHash(long, long)}).
+     *
+     * @param player the player to move
+     * @return the hash of the canonical position
+     */
+    public long getCanonicalHash(char player) {
+        return Symmetry.canonicalHash(getDisks(player), getDisks(getOpponent(player)));
+    }
+
+    /**
+     * Return the disks of both players, the result of the game once it is over.
+     *
+     * @return the result
+     */
+    public GameResult getResult() {
+        return new GameResult(Long.bitCount(dark), Long.bitCount(light));
+    }
 
     /**
      * Reture true if the coordinate of disk is in current board.
@@ -288,24 +404,38 @@ public class Board {
      */
     public void setPlayer(char player, Disk disk) {
         if (isDiskInBoard(disk)) {
-            disks[disk.getX()][disk.getY()] = player;
+            long bit = 1L << BitBoard.square(disk);
+            dark = player == DARK ? dark | bit : dark & ~bit;
+            light = player == LIGHT ? light | bit : light & ~bit;
+            hash = Zobrist.hash(dark, light);
+            invalidateMoves();
         }
     }
 
     /**
-     * Record the history of game
+     * Return the history of game (eg: "X-3d"), formatted from the undo log.
      *
-     * @param player the current player
-     * @param disk   the current disk to move
      * @return history of the game
      */
-    public List<String> addHistory(char player, Disk disk) {
+    public List<String> getHistory() {
+        List<String> history = new ArrayList<>(moveCount);
+        for (int i = 0; i < moveCount; i++) {
+            history.add(movePlayers[i] + "-" + Disk.getUserMove(moveSquares[i]));
+        }
+        return history;
+    }
 
-        String userMove = Disk.getUserMove(disk);
-        if (null != userMove) {
-            this.history.add(player + "-" + userMove);
+    /**
+     * Return the square indexes of the moves in the undo log, one byte per move (see {@link GameRecord}).
+     *
+     * @return the moves of the game
+     */
+    public byte[] getMoveSquares() {
+        byte[] squares = new byte[moveCount];
+        for (int i = 0; i < moveCount; i++) {
+            squares[i] = (byte) moveSquares[i];
         }
-        return this.history;
+        return squares;
     }
 
     /**
@@ -316,10 +446,20 @@ public class Board {
      */
     public char getPlayer(Disk disk) {
         if (isDiskInBoard(disk)) {
-            return disks[disk.getX()][disk.getY()];
+            return getPlayer(BitBoard.square(disk));
         } else {
             return NO_PIECE;
         }
     }
 
+    private char getPlayer(int square) {
+        long bit = 1L << square;
+        if ((dark & bit) != 0) {
+            return DARK;
+        } else if ((light & bit) != 0) {
+            return LIGHT;
+        }
+        return NO_PIECE;
+    }
+
 }
\ No newline at end of file
@@ -0,0 +1,42 @@
+import java.io.PrintStream;
+
+/**
+ * Print the events of a game for the console game of {@link Othello}.
+ */
+public class ConsoleListener implements GameListener {
+
+    private final PrintStream out;
+    private String lastMove;
+
+    public ConsoleListener() {
+        this(System.out);
+    }
+
+    /**
+     * @param out where to print the events
+     */
+    public ConsoleListener(PrintStream out) {
+        this.out = out;
+    }
+
+    @Override
+    public void moveMade(char player, int square, Board board) {
+        lastMove = Disk.getUserMove(square);
+    }
+
+    @Override
+    public void invalidMove(char player, String move) {
+        out.printf("Invalid move: %s !  %n", move);
+    }
+
+    @Override
+    public void passed(char player) {
+        out.printf("No valid move after '%s', give turn to %s %n", lastMove, Board.getOpponent(player));
+    }
+
+    @Override
+    public void gameOver(GameResult result) {
+        out.println("No further moves available");
+        out.printf("%s %n", result);
+    }
+}
@@ -1,6 +1,4 @@
 import java.util.*;
-import java.util.Map.Entry;
-import java.util.stream.Collectors;
 
 /**
  * This class represents a disk on game board.
@@ -67,7 +65,7 @@ public class Disk {
 
 
     /**
-     * Key is the coordinate (eg: 1a 3b)  and value is the disk on the board.<p>
+     * The disk on each square of the game board, by square index (see {@link BitBoard}).<p>
      * For example, '4c' and 'c4' represents the disk in the fourth row  and third column on the game board.
      * <pre>
      * 1 - - - - - - - -
@@ -81,30 +79,71 @@ public class Disk {
      *   a b c d e f g h
      * </pre>
      */
-    private static final HashMap<String, Disk> ALL_DISKS = new LinkedHashMap<>();
+    private static final Disk[] SQUARE_DISKS = new Disk[Board.BOARD_SIZE * Board.BOARD_SIZE];
 
     /**
-     * Initialize ALL_DISKS
+     * The coordinate of each square (row first, eg: 1a 3b), by square index.
+     */
+    private static final String[] SQUARE_NAMES = new String[SQUARE_DISKS.length];
+
+    /* All disks on the game board, row by row */
+    private static final List<Disk> ALL_DISKS;
+
+    /**
+     * The squares passed from each square towards each of {@link #ALL_DIRECTIONS}, nearest first.<p>
+     * <code>RAYS[direction][square]</code> is empty when the square is on the edge in that direction.
+     */
+    public static final int[][][] RAYS = new int[ALL_DIRECTIONS.length][SQUARE_DISKS.length][];
+
+    /**
+     * Initialize SQUARE_DISKS, SQUARE_NAMES and RAYS
      */
     static {
-        for (int row = 1; row <= 8; row++) {
-            for (char column = 'a'; column <= 'h'; ++column) {
+        for (int row = 1; row <= Board.BOARD_SIZE; row++) {
+            for (char column = 'a'; column < 'a' + Board.BOARD_SIZE; ++column) {
                 Disk p = new Disk(row - 1, column - 'a');
-                ALL_DISKS.put(row + String.valueOf(column), p);
-                ALL_DISKS.put(String.valueOf(column) + row, p);
+                SQUARE_DISKS[square(p.x, p.y)] = p;
+                SQUARE_NAMES[square(p.x, p.y)] = row + String.valueOf(column);
+            }
+        }
+        ALL_DISKS = Collections.unmodifiableList(Arrays.asList(SQUARE_DISKS));
+
+        int[] ray = new int[Board.BOARD_SIZE];
+        for (int direction = 0; direction < ALL_DIRECTIONS.length; direction++) {
+            for (Disk disk : SQUARE_DISKS) {
+                int length = 0;
+                Disk next = disk.nextDisk(ALL_DIRECTIONS[direction]);
+                while (Board.isDiskInBoard(next)) {
+                    ray[length++] = square(next.x, next.y);
+                    next.move(ALL_DIRECTIONS[direction]);
+                }
+                RAYS[direction][square(disk.x, disk.y)] = Arrays.copyOf(ray, length);
             }
         }
     }
 
+    private static int square(int x, int y) {
+        return x * Board.BOARD_SIZE + y;
+    }
 
+    /**
+     * Return the coordinate of the disk (row first, eg: 3d).
+     *
+     * @param disk the disk
+     * @return the coordinate, null if the disk is not on the game board
+     */
     public static String getUserMove(Disk disk) {
-        for (Map.Entry<String, Disk> entry : ALL_DISKS.entrySet()) {
-            if (disk.equals(entry.getValue())) {
-                return entry.getKey();
-            }
-        }
-        return null;
+        return Board.isDiskInBoard(disk) ? SQUARE_NAMES[square(disk.x, disk.y)] : null;
+    }
 
+    /**
+     * Return the coordinate of the square (row first, eg: 3d).
+     *
+     * @param square the square index
+     * @return the coordinate
+     */
+    public static String getUserMove(int square) {
+        return SQUARE_NAMES[square];
     }
 
     /**
@@ -113,7 +152,49 @@ public class Disk {
      * @return  the disk on game board
      */
     public static Disk getDisk(String playerInput) {
-        return ALL_DISKS.get(playerInput.trim().toLowerCase());
+        int start = 0;
+        int end = playerInput.length();
+        while (start < end && playerInput.charAt(start) <= ' ') {
+            start++;
+        }
+        while (end > start && playerInput.charAt(end - 1) <= ' ') {
+            end--;
+        }
+        if (end - start != 2) {
+            return null;
+        }
+        int square = parseSquare(playerInput.charAt(start), playerInput.charAt(start + 1));
+        return square < 0 ? null : SQUARE_DISKS[square];
+    }
+
+    /**
+     * Return the disk on the square.
+     *
+     * @param square the square index
+     * @return the disk on the game board
+     */
+    public static Disk getDisk(int square) {
+        return SQUARE_DISKS[square];
+    }
+
+    /**
+     * Return the square index of a coordinate written as column+row or row+column (e.g. 3d or d3).
+     *
+     * @param first  the first character of the coordinate
+     * @param second the second character of the coordinate
+     * @return the square index, -1 if it is no coordinate on the game board
+     */
+    public static int parseSquare(int first, int second) {
+        int row = first - '1';
+        int column = Character.toLowerCase(second) - 'a';
+        if (row < 0 || row >= Board.BOARD_SIZE) {
+            row = second - '1';
+            column = Character.toLowerCase(first) - 'a';
+        }
+        if (row < 0 || row >= Board.BOARD_SIZE || column < 0 || column >= Board.BOARD_SIZE) {
+            return -1;
+        }
+        return square(row, column);
     }
 
     /**
@@ -121,9 +202,7 @@ public class Disk {
      * @return  all disks on the game board
      */
     public static List<Disk> getAllDisksOnBoard() {
-        return ALL_DISKS.entrySet().stream()
-                .filter(entry -> Character.isDigit(entry.getKey().charAt(0)))
-                .map(Entry::getValue).collect(Collectors.toList());
+        return ALL_DISKS;
     }
 
     @Override
@@ -0,0 +1,408 @@
+/**
+ * Perfect play for the end of a game.
+ *
+ * <p>The solver searches every move to the end of the game and answers the exact final disk
+ * difference (own disks minus opponent's disks, like {@link Board#getResult()} counts them) and the move
+ * which reaches it. With {@link #solveWinLossDraw(Board, char)} it only proves the sign of the result,
+ * which is much faster. It is meant for positions with up to about 20-24 empty squares.
+ *
+ * <p>The search works on the two disk masks directly (see {@link BitBoard}). Far from the end, moves
+ * which leave the opponent fewest replies are searched first (fastest-first) and positions are kept in
+ * a {@link TranspositionTable}; closer to the end, moves in regions with an odd number of empty squares
+ * come first (parity). The last four empty squares are solved without generating moves at all:
+ * each empty square is tried directly, and the last one is filled by whoever can flip from it.
+ */
+public class EndgameSolver implements Engine {
+
+    /* Bigger than any disk difference */
+    private static final int INFINITY = 100;
+
+    /* From this many empty squares moves are ordered by the opponent's mobility, below by parity */
+    private static final int FASTEST_FIRST_EMPTIES = 7;
+
+    /* From this many empty squares positions are stored in the transposition table */
+    private static final int HASH_EMPTIES = 10;
+
+    /* Number of empty squares solved by the special code without move generation */
+    private static final int LAST_EMPTIES = 4;
+
+    /* The four 4*4 quadrants of the board, the regions of the parity ordering */
+    private static final long[] QUADRANTS = {
+            0x000000000F0F0F0FL, 0x00000000F0F0F0F0L, 0x0F0F0F0F00000000L, 0xF0F0F0F000000000L,
+    };
+
+    /* Corners are played first among equal moves */
+    private static final long CORNERS = 0x8100000000000081L;
+
+    private static final int MAX_EMPTIES = BitBoard.SQUARES;
+
+    private final TranspositionTable transpositionTable;
+
+    /* Move lists of each number of empty squares, preallocated so the search does not allocate */
+    private final int[][] moves = new int[MAX_EMPTIES + 1][BitBoard.SQUARES];
+    private final int[][] moveScores = new int[MAX_EMPTIES + 1][BitBoard.SQUARES];
+
+    /* Result of the last search */
+    private int bestMove;
+    private int score;
+    private int empties;
+    private long nodes;
+    private long elapsedNanos;
+
+    public EndgameSolver() {
+        this(new TranspositionTable(Search.DEFAULT_HASH_MEGABYTES));
+    }
+
+    /**
+     * @param transpositionTable the table for solved positions, it must not be shared with {@link Search}
+     *                           since the scores and hashes are different
+     */
+    public EndgameSolver(TranspositionTable transpositionTable) {
+        this.transpositionTable = transpositionTable;
+    }
+
+    /**
+     * Return the exact final disk difference with perfect play of both players.
+     *
+     * @param board  the current board, it is not changed
+     * @param player the player to move
+     * @return the final disk difference from the point of view of <code>player</code>
+     */
+    public int solve(Board board, char player) {
+        return solveRoot(board, player, -INFINITY, INFINITY);
+    }
+
+    /**
+     * Return the result of the game with perfect play of both players.
+     *
+     * @param board  the current board, it is not changed
+     * @param player the player to move
+     * @return 1 if <code>player</code> wins, 0 for a tie and -1 if <code>player</code> loses
+     */
+    public int solveWinLossDraw(Board board, char player) {
+        return Integer.signum(solveRoot(board, player, -1, 1));
+    }
+
+    @Override
+    public int findBestMove(Board board, char player) {
+        solve(board, player);
+        Metrics.searchFinished("EndgameSolver", bestMove, empties, score, nodes, elapsedNanos);
+        return bestMove;
+    }
+
+    private int solveRoot(Board board, char player, int alpha, int beta) {
+        long start = System.nanoTime();
+        long own = board.getDisks(player);
+        long opp = board.getDisks(Board.getOpponent(player));
+        empties = Long.bitCount(~(own | opp));
+        nodes = 1;
+        bestMove = -1;
+        transpositionTable.newSearch();
+
+        long legalMoves = BitBoard.moves(own, opp);
+        if (legalMoves == 0) {
+            score = BitBoard.moves(opp, own) == 0 ? diff(own, opp)
+                    : -solve(opp, own, -beta, -alpha, empties);
+        } else {
+            int count = orderMoves(own, opp, legalMoves, empties, -1);
+            int best = -INFINITY;
+            for (int i = 0; i < count; i++) {
+                int square = moves[empties][i];
+                long placed = 1L << square;
+                long flipped = BitBoard.flips(own, opp, square);
+                int lower = Math.max(alpha, best);
+                int value;
+                if (i == 0) {
+                    value = -solve(opp & ~flipped, own | flipped | placed, -beta, -lower, empties - 1);
+                } else {
+                    value = -solve(opp & ~flipped, own | flipped | placed, -lower - 1, -lower, empties - 1);
+                    if (value > lower && value < beta) {
+                        value = -solve(opp & ~flipped, own | flipped | placed, -beta, -value, empties - 1);
+                    }
+                }
+                if (value > best) {
+                    best = value;
+                    bestMove = square;
+                    if (best >= beta) {
+                        break;
+                    }
+                }
+            }
+            score = best;
+        }
+        elapsedNanos = System.nanoTime() - start;
+        return score;
+    }
+
+    private int solve(long own, long opp, int alpha, int beta, int empties) {
+        if (empties <= LAST_EMPTIES) {
+            return solveLast(own, opp, alpha, beta, ~(own | opp), empties, false);
+        }
+        nodes++;
+        long legalMoves = BitBoard.moves(own, opp);
+        if (legalMoves == 0) {
+            if (BitBoard.moves(opp, own) == 0) {
+                return diff(own, opp);
+            }
+            return -solve(opp, own, -beta, -alpha, empties);
+        }
+
+        long hash = 0;
+        int hashMove = -1;
+        if (empties >= HASH_EMPTIES) {
+            hash = positionHash(own, opp);
+            long entry = transpositionTable.probe(hash);
+            if (entry != 0) {
+                hashMove = TranspositionTable.move(entry);
+                int bound = TranspositionTable.bound(entry);
+                int value = TranspositionTable.score(entry);
+                if (bound == TranspositionTable.EXACT
+                        || bound == TranspositionTable.LOWER && value >= beta
+                        || bound == TranspositionTable.UPPER && value <= alpha) {
+                    return value;
+                }
+                if (bound == TranspositionTable.LOWER) {
+                    alpha = Math.max(alpha, value);
+                } else if (bound == TranspositionTable.UPPER) {
+                    beta = Math.min(beta, value);
+                }
+            }
+        }
+
+        int originalAlpha = alpha;
+        int count = orderMoves(own, opp, legalMoves, empties, hashMove);
+        int best = -INFINITY;
+        int bestSquare = -1;
+        for (int i = 0; i < count; i++) {
+            int square = moves[empties][i];
+            long placed = 1L << square;
+            long flipped = BitBoard.flips(own, opp, square);
+            int value;
+            if (i == 0) {
+                value = -solve(opp & ~flipped, own | flipped | placed, -beta, -alpha, empties - 1);
+            } else {
+                value = -solve(opp & ~flipped, own | flipped | placed, -alpha - 1, -alpha, empties - 1);
+                if (value > alpha && value < beta) {
+                    value = -solve(opp & ~flipped, own | flipped | placed, -beta, -value, empties - 1);
+                }
+            }
+            if (value > best) {
+                best = value;
+                bestSquare = square;
+                if (value > alpha) {
+                    alpha = value;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        if (empties >= HASH_EMPTIES) {
+            int bound = best <= originalAlpha ? TranspositionTable.UPPER
+                    : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+            transpositionTable.store(hash, empties, bound, best, bestSquare);
+        }
+        return best;
+    }
+
+    /**
+     * Solve the last few empty squares: try each empty square in parity order without generating moves.
+     *
+     * @param empty  the empty squares
+     * @param passed true if the opponent has just passed
+     */
+    private int solveLast(long own, long opp, int alpha, int beta, long empty, int empties, boolean passed) {
+        if (empties == 1) {
+            return solveLast1(own, opp, Long.numberOfTrailingZeros(empty));
+        }
+        nodes++;
+        int best = -INFINITY;
+        long odd = oddRegions(empty);
+        for (int round = 0; round < 2; round++) {
+            long candidates = empty & (round == 0 ? odd : ~odd);
+            for (; candidates != 0; candidates &= candidates - 1) {
+                int square = Long.numberOfTrailingZeros(candidates);
+                long flipped = BitBoard.flips(own, opp, square);
+                if (flipped == 0) {
+                    continue;
+                }
+                long placed = 1L << square;
+                int value = -solveLast(opp & ~flipped, own | flipped | placed, -beta, -Math.max(alpha, best),
+                        empty & ~placed, empties - 1, false);
+                if (value > best) {
+                    best = value;
+                    if (best >= beta) {
+                        return best;
+                    }
+                }
+            }
+        }
+        if (best == -INFINITY) {
+            if (passed) {
+                return diff(own, opp);
+            }
+            return -solveLast(opp, own, -beta, -alpha, empty, empties, true);
+        }
+        return best;
+    }
+
+    /**
+     * Solve the last empty square: the player to move fills it if possible, otherwise the opponent.
+     */
+    private int solveLast1(long own, long opp, int square) {
+        nodes++;
+        long placed = 1L << square;
+        long flipped = BitBoard.flips(own, opp, square);
+        if (flipped != 0) {
+            return diff(own | flipped | placed, opp & ~flipped);
+        }
+        flipped = BitBoard.flips(opp, own, square);
+        if (flipped != 0) {
+            return diff(own & ~flipped, opp | flipped | placed);
+        }
+        return diff(own, opp);
+    }
+
+    /**
+     * Fill the move list for <code>empties</code> empty squares, most promising moves first.
+     *
+     * @return the number of moves
+     */
+    private int orderMoves(long own, long opp, long legalMoves, int empties, int hashMove) {
+        int[] squares = moves[empties];
+        int[] scores = moveScores[empties];
+        long odd = oddRegions(~(own | opp));
+        int count = 0;
+        for (long bits = legalMoves; bits != 0; bits &= bits - 1) {
+            int square = Long.numberOfTrailingZeros(bits);
+            long placed = 1L << square;
+            int value = 0;
+            if (square == hashMove) {
+                value = INFINITY * INFINITY;
+            } else {
+                if ((placed & odd) != 0) {
+                    value += 1;
+                }
+                if ((placed & CORNERS) != 0) {
+                    value += 2;
+                }
+                if (empties >= FASTEST_FIRST_EMPTIES) {
+                    long flipped = BitBoard.flips(own, opp, square);
+                    long replies = BitBoard.moves(opp & ~flipped, own | flipped | placed);
+                    value -= 4 * (Long.bitCount(replies) + Long.bitCount(replies & CORNERS));
+                }
+            }
+            //insertion sort, best first
+            int i = count++;
+            while (i > 0 && scores[i - 1] < value) {
+                squares[i] = squares[i - 1];
+                scores[i] = scores[i - 1];
+                i--;
+            }
+            squares[i] = square;
+            scores[i] = value;
+        }
+        return count;
+    }
+
+    /**
+     * Return the quadrants with an odd number of empty squares.
+     */
+    private static long oddRegions(long empty) {
+        long odd = 0;
+        for (long quadrant : QUADRANTS) {
+            if ((Long.bitCount(empty & quadrant) & 1) != 0) {
+                odd |= quadrant;
+            }
+        }
+        return odd;
+    }
+
+    private static int diff(long own, long opp) {
+        return Long.bitCount(own) - Long.bitCount(opp);
+    }
+
+    /**
+     * Return a hash of the position with the owner of <code>own</code> to move. The solver works on the
+     * disk masks without a {@link Board}, so the hash is mixed from the masks instead of Zobrist keys.
+     */
+    private static long positionHash(long own, long opp) {
+        return mix(own ^ mix(opp + 0x9E3779B97F4A7C15L));
+    }
+
+    private static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * @return the square index of the best move found by the last search, -1 if there was none
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * @return the final disk difference found by the last search
+     */
+    @Override
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return the number of empty squares of the last solved position
+     */
+    @Override
+    public int getDepth() {
+        return empties;
+    }
+
+    @Override
+    public long getNodes() {
+        return nodes;
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000L;
+    }
+
+    /**
+     * @return the nodes visited per second by the last search
+     */
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+    }
+
+    /**
+     * Usage: EndgameSolver moves [--wld]<p>
+     * Solve the position after <code>moves</code> and print the result, the best move,
+     * the nodes searched and the time.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        Board board = new Board();
+        char player = Board.DARK;
+        for (String move : args[0].split(",")) {
+            if (!board.hasAvailableMove(player)) {
+                player = Board.getOpponent(player);
+            }
+            board.flip(player, Disk.getDisk(move));
+            player = Board.getOpponent(player);
+        }
+        if (!board.hasAvailableMove(player)) {
+            player = Board.getOpponent(player);
+        }
+        EndgameSolver solver = new EndgameSolver();
+        boolean winLossDraw = args.length > 1 && "--wld".equals(args[1]);
+        int result = winLossDraw ? solver.solveWinLossDraw(board, player) : solver.solve(board, player);
+        System.out.printf("%d empties, %s to move: %s %d, best move %s (%d nodes in %d ms, %d nodes/s) %n",
+                solver.getDepth(), player, winLossDraw ? "result" : "disk difference", result,
+                solver.getBestMove() < 0 ? "pass" : Disk.getUserMove(solver.getBestMove()),
+                solver.getNodes(), solver.getElapsedMillis(), solver.getNodesPerSecond());
+    }
+
+}
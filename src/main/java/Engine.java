@@ -0,0 +1,49 @@
+/**
+ * A computer player for {@link Othello#playGame(String, Engine, String)}.
+ */
+public interface Engine {
+
+    /**
+     * Return the best move for the player on current board.
+     *
+     * @param board  the current board, it is not changed
+     * @param player the player to move
+     * @return the square index of the best move (see {@link BitBoard}), -1 if the player has no valid move
+     */
+    int findBestMove(Board board, char player);
+
+    /**
+     * @return the score of the best move found by the last search, from the point of view of the player to move
+     */
+    int getScore();
+
+    /**
+     * @return the depth reached by the last search
+     */
+    int getDepth();
+
+    /**
+     * @return the number of positions visited by the last search
+     */
+    long getNodes();
+
+    /**
+     * @return the duration of the last search in milliseconds
+     */
+    long getElapsedMillis();
+
+    /**
+     * Set the time budget of the next searches, e.g. from a game clock. Engines without a time budget ignore it.
+     *
+     * @param maxMillis the time budget per move in milliseconds
+     */
+    default void setMaxMillis(long maxMillis) {
+    }
+
+    /**
+     * Stop the threads of the engine, if it has its own. Does nothing by default.
+     */
+    default void shutdown() {
+    }
+
+}
@@ -0,0 +1,449 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Static evaluation of a position for the engine (see {@link Search}).
+ *
+ * <p>The score is from the point of view of the player owning <code>own</code>:
+ * positive is good for that player, negative is good for the opponent.
+ *
+ * <p>The score is the sum of table weights of the patterns of the position. A pattern is a line of squares,
+ * read as a number in base 3 (0 empty, 1 own disk, 2 opponent's disk) which indexes its weight table:
+ * <UL>
+ * <LI>edge: the 8 squares of an edge and its two X squares (b2 and g2 for the edge 1a-1h)
+ * <LI>corner: the 3*3 squares of a corner
+ * <LI>the second, third and fourth rows and columns from each edge
+ * <LI>the diagonals of 4 to 8 squares
+ * <LI>mobility: the number of legal moves of each player
+ * </UL>
+ * The symmetric instances of a pattern share its table, and there is one set of tables per game phase
+ * of 4 plies. The board is mirrored and transposed once per evaluation (see {@link Symmetry}), then every
+ * instance is read as the first instance of one of these boards with a few shifts, so an evaluation
+ * allocates nothing and costs a few dozen table reads.
+ *
+ * <p>The weights load from a binary file (see {@link #load(Path)}), written by {@link #save(Path)}:
+ * <pre>
+ * header, 16 bytes: magic "OEV1", version, number of phases, weights per phase
+ * weights: a short per weight, phase after phase, big-endian
+ * </pre>
+ * Until a file is loaded the weights reproduce a plain table of square values and mobility. These weights
+ * are shared by every search; a {@link Search} can also evaluate with weights of its own, read with
+ * {@link #read(Path)} (see {@link Search#setWeights(short[])}), so engines with different weights can play
+ * each other.
+ */
+public final class Evaluator {
+
+    /**
+     * The value of a disk on each square. Corners are stable and worth most,
+     * the squares next to an empty corner hand the corner to the opponent.
+     */
+    private static final int[] SQUARE_WEIGHTS = {
+            100, -20, 10, 5, 5, 10, -20, 100,
+            -20, -50, -2, -2, -2, -2, -50, -20,
+            10, -2, -1, -1, -1, -1, -2, 10,
+            5, -2, -1, -1, -1, -1, -2, 5,
+            5, -2, -1, -1, -1, -1, -2, 5,
+            10, -2, -1, -1, -1, -1, -2, 10,
+            -20, -50, -2, -2, -2, -2, -50, -20,
+            100, -20, 10, 5, 5, 10, -20, 100,
+    };
+
+    /* The value of each legal move more than the opponent has, in the default weights */
+    private static final int MOBILITY_WEIGHT = 8;
+
+    /* Number of game phases, each of PHASE_PLIES plies, with their own weights */
+    public static final int PHASES = 15;
+    private static final int PHASE_PLIES = 4;
+
+    /* Mobility counts with their own weight, more moves count as the last one */
+    private static final int MOBILITY_COUNTS = 64;
+
+    /* Offsets of the weight tables of the patterns in a phase, each 3^squares long */
+    private static final int EDGE = 0;
+    private static final int CORNER = EDGE + 59049;
+    private static final int LINE2 = CORNER + 19683;
+    private static final int LINE3 = LINE2 + 6561;
+    private static final int LINE4 = LINE3 + 6561;
+    private static final int DIAGONAL8 = LINE4 + 6561;
+    private static final int DIAGONAL7 = DIAGONAL8 + 6561;
+    private static final int DIAGONAL6 = DIAGONAL7 + 2187;
+    private static final int DIAGONAL5 = DIAGONAL6 + 729;
+    private static final int DIAGONAL4 = DIAGONAL5 + 243;
+    private static final int MOBILITY_OWN = DIAGONAL4 + 81;
+    private static final int MOBILITY_OPP = MOBILITY_OWN + MOBILITY_COUNTS;
+
+    /* Number of weights of one phase */
+    public static final int PHASE_SIZE = MOBILITY_OPP + MOBILITY_COUNTS;
+
+    /* Number of features of a position: the pattern instances and the two mobility counts */
+    public static final int FEATURES = 4 + 4 + 3 * 4 + 2 + 4 * 4 + 2;
+
+    private static final int MAGIC = 0x4F455631;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+
+    /* TERNARY[bits] is the number with the base 3 digits of the binary digits of bits */
+    private static final int[] TERNARY = new int[1 << 10];
+
+    /* The phase of each number of disks on the board */
+    private static final int[] PHASE_OF_DISKS = new int[BitBoard.SQUARES + 1];
+
+    /* DIAGONALS[length]: the squares (i, i + 8 - length), the diagonal from row 1 to length h, e.g. 1e to 4h */
+    private static final long[] DIAGONALS = new long[Board.BOARD_SIZE + 1];
+
+    /* Multiplier moving the squares of a diagonal to the last row, each in its own column */
+    private static final long DIAGONAL_TO_ROW = 0x0101010101010101L;
+
+    /* The weights of all phases, PHASE_SIZE per phase */
+    private static short[] weights;
+
+    static {
+        for (int bits = 0; bits < TERNARY.length; bits++) {
+            int ternary = 0;
+            for (int digit = 9; digit >= 0; digit--) {
+                ternary = ternary * 3 + ((bits >>> digit) & 1);
+            }
+            TERNARY[bits] = ternary;
+        }
+        for (int disks = 0; disks <= BitBoard.SQUARES; disks++) {
+            PHASE_OF_DISKS[disks] = Math.min(PHASES - 1, Math.max(0, disks - 4) / PHASE_PLIES);
+        }
+        for (int length = 4; length <= Board.BOARD_SIZE; length++) {
+            for (int i = 0; i < length; i++) {
+                DIAGONALS[length] |= 1L << (i * Board.BOARD_SIZE + i + Board.BOARD_SIZE - length);
+            }
+        }
+        weights = defaultWeights();
+    }
+
+    private Evaluator() {
+    }
+
+    /**
+     * Return the value of a disk on the square, as used for move ordering.
+     *
+     * @param square the square index
+     * @return the value of a disk on the square
+     */
+    public static int squareWeight(int square) {
+        return SQUARE_WEIGHTS[square];
+    }
+
+    /**
+     * Return the score of the position for the player owning <code>own</code>, with the shared weights.
+     *
+     * @param own the disks of the current player
+     * @param opp the disks of the opponent
+     * @return the score of the position
+     */
+    public static int evaluate(long own, long opp) {
+        return evaluate(weights, own, opp);
+    }
+
+    /**
+     * Return the score of the position for the player owning <code>own</code>.
+     *
+     * @param w   the weights of all phases, PHASE_SIZE per phase
+     * @param own the disks of the current player
+     * @param opp the disks of the opponent
+     * @return the score of the position
+     */
+    public static int evaluate(short[] w, long own, long opp) {
+        int base = phase(own, opp) * PHASE_SIZE;
+        //H: columns mirrored, V: rows mirrored, T: transposed
+        long ownH = Symmetry.mirrorColumns(own);
+        long oppH = Symmetry.mirrorColumns(opp);
+        long ownV = Symmetry.mirrorRows(own);
+        long oppV = Symmetry.mirrorRows(opp);
+        long ownHV = Symmetry.mirrorRows(ownH);
+        long oppHV = Symmetry.mirrorRows(oppH);
+        long ownT = Symmetry.transpose(own);
+        long oppT = Symmetry.transpose(opp);
+        long ownTV = Symmetry.mirrorRows(ownT);
+        long oppTV = Symmetry.mirrorRows(oppT);
+
+        int score = w[base + EDGE + edge(own, opp)]
+                + w[base + EDGE + edge(ownT, oppT)]
+                + w[base + EDGE + edge(ownV, oppV)]
+                + w[base + EDGE + edge(ownTV, oppTV)]
+                + w[base + CORNER + corner(own, opp)]
+                + w[base + CORNER + corner(ownH, oppH)]
+                + w[base + CORNER + corner(ownV, oppV)]
+                + w[base + CORNER + corner(ownHV, oppHV)];
+        for (int line = 1, table = base + LINE2; line <= 3; line++, table += 6561) {
+            score += w[table + index(row(own, line), row(opp, line))]
+                    + w[table + index(row(ownV, line), row(oppV, line))]
+                    + w[table + index(row(ownT, line), row(oppT, line))]
+                    + w[table + index(row(ownTV, line), row(oppTV, line))];
+        }
+        score += w[base + DIAGONAL8 + diagonal(own, opp, 8)]
+                + w[base + DIAGONAL8 + diagonal(ownV, oppV, 8)];
+        for (int length = 7, table = base + DIAGONAL7; length >= 4; table += pow3(length--)) {
+            score += w[table + diagonal(own, opp, length)]
+                    + w[table + diagonal(ownT, oppT, length)]
+                    + w[table + diagonal(ownV, oppV, length)]
+                    + w[table + diagonal(ownH, oppH, length)];
+        }
+        score += w[base + MOBILITY_OWN + mobility(own, opp)]
+                + w[base + MOBILITY_OPP + mobility(opp, own)];
+        return score;
+    }
+
+    /**
+     * Return the game phase of the position, which selects the weights.
+     *
+     * @param own the disks of the current player
+     * @param opp the disks of the opponent
+     * @return the phase, from 0 to PHASES - 1
+     */
+    public static int phase(long own, long opp) {
+        return PHASE_OF_DISKS[Long.bitCount(own | opp)];
+    }
+
+    /**
+     * Return the index of each feature of the position in the weights of its phase, so that the score
+     * is the sum of the weights of the features. Used to fit the weights to positions.
+     *
+     * @param own      the disks of the current player
+     * @param opp      the disks of the opponent
+     * @param features filled with FEATURES indexes from 0 to PHASE_SIZE - 1
+     */
+    public static void features(long own, long opp, int[] features) {
+        long ownH = Symmetry.mirrorColumns(own);
+        long oppH = Symmetry.mirrorColumns(opp);
+        long ownV = Symmetry.mirrorRows(own);
+        long oppV = Symmetry.mirrorRows(opp);
+        long ownHV = Symmetry.mirrorRows(ownH);
+        long oppHV = Symmetry.mirrorRows(oppH);
+        long ownT = Symmetry.transpose(own);
+        long oppT = Symmetry.transpose(opp);
+        long ownTV = Symmetry.mirrorRows(ownT);
+        long oppTV = Symmetry.mirrorRows(oppT);
+
+        int n = 0;
+        features[n++] = EDGE + edge(own, opp);
+        features[n++] = EDGE + edge(ownT, oppT);
+        features[n++] = EDGE + edge(ownV, oppV);
+        features[n++] = EDGE + edge(ownTV, oppTV);
+        features[n++] = CORNER + corner(own, opp);
+        features[n++] = CORNER + corner(ownH, oppH);
+        features[n++] = CORNER + corner(ownV, oppV);
+        features[n++] = CORNER + corner(ownHV, oppHV);
+        for (int line = 1, table = LINE2; line <= 3; line++, table += 6561) {
+            features[n++] = table + index(row(own, line), row(opp, line));
+            features[n++] = table + index(row(ownV, line), row(oppV, line));
+            features[n++] = table + index(row(ownT, line), row(oppT, line));
+            features[n++] = table + index(row(ownTV, line), row(oppTV, line));
+        }
+        features[n++] = DIAGONAL8 + diagonal(own, opp, 8);
+        features[n++] = DIAGONAL8 + diagonal(ownV, oppV, 8);
+        for (int length = 7, table = DIAGONAL7; length >= 4; table += pow3(length--)) {
+            features[n++] = table + diagonal(own, opp, length);
+            features[n++] = table + diagonal(ownT, oppT, length);
+            features[n++] = table + diagonal(ownV, oppV, length);
+            features[n++] = table + diagonal(ownH, oppH, length);
+        }
+        features[n++] = MOBILITY_OWN + mobility(own, opp);
+        features[n] = MOBILITY_OPP + mobility(opp, own);
+    }
+
+    private static int index(int ownBits, int oppBits) {
+        return TERNARY[ownBits] + 2 * TERNARY[oppBits];
+    }
+
+    private static int pow3(int exponent) {
+        return TERNARY[(1 << exponent) - 1] * 2 + 1;
+    }
+
+    private static int row(long bits, int row) {
+        return (int) (bits >>> (row * 8)) & 0xFF;
+    }
+
+    /**
+     * Return the index of the edge pattern of the first row: 1a to 1h, then the X squares b2 and g2.
+     */
+    private static int edge(long own, long opp) {
+        return index(edgeBits(own), edgeBits(opp));
+    }
+
+    private static int edgeBits(long bits) {
+        return (int) bits & 0xFF | (int) (bits >>> 1) & 0x100 | (int) (bits >>> 5) & 0x200;
+    }
+
+    /**
+     * Return the index of the corner pattern of 1a: 1a to 1c, 2a to 2c, 3a to 3c.
+     */
+    private static int corner(long own, long opp) {
+        return index(cornerBits(own), cornerBits(opp));
+    }
+
+    private static int cornerBits(long bits) {
+        return (int) bits & 0x7 | (int) (bits >>> 5) & 0x38 | (int) (bits >>> 10) & 0x1C0;
+    }
+
+    /**
+     * Return the index of the diagonal pattern of <code>length</code> squares from row 1 to column h, ending
+     * in row <code>length</code>, from its first row.
+     * The diagonal is moved to the last row, each square in its own column.
+     */
+    private static int diagonal(long own, long opp, int length) {
+        long mask = DIAGONALS[length];
+        int shift = 56 + Board.BOARD_SIZE - length;
+        return index((int) (((own & mask) * DIAGONAL_TO_ROW) >>> shift),
+                (int) (((opp & mask) * DIAGONAL_TO_ROW) >>> shift));
+    }
+
+    private static int mobility(long own, long opp) {
+        return Math.min(MOBILITY_COUNTS - 1, Long.bitCount(BitBoard.moves(own, opp)));
+    }
+
+    /**
+     * Return the weights reproducing the square values and mobility: the value of each square is shared
+     * by the pattern instances it belongs to.
+     */
+    private static short[] defaultWeights() {
+        //without disks every feature is the first weight of its table
+        int[] tables = new int[FEATURES];
+        features(0, 0, tables);
+        //the square of each digit of each pattern instance, and the number of instances of each square
+        int[][] squares = new int[FEATURES][10];
+        int[] lengths = new int[FEATURES];
+        int[] coverage = new int[BitBoard.SQUARES];
+        int[] features = new int[FEATURES];
+        for (int square = 0; square < BitBoard.SQUARES; square++) {
+            features(1L << square, 0, features);
+            for (int f = 0; f < FEATURES - 2; f++) {
+                int digit = features[f] - tables[f];
+                if (digit != 0) {
+                    squares[f][log3(digit)] = square;
+                    lengths[f]++;
+                    coverage[square]++;
+                }
+            }
+        }
+
+        short[] result = new short[PHASES * PHASE_SIZE];
+        for (int f = 0; f < FEATURES - 2; f++) {
+            //the symmetric instances have the same weights, take the first
+            if (f > 0 && tables[f] == tables[f - 1]) {
+                continue;
+            }
+            for (int index = 0; index < pow3(lengths[f]); index++) {
+                double value = 0;
+                for (int digit = 0, rest = index; rest != 0; digit++, rest /= 3) {
+                    int square = squares[f][digit];
+                    double squareValue = (double) SQUARE_WEIGHTS[square] / coverage[square];
+                    value += rest % 3 == 1 ? squareValue : rest % 3 == 2 ? -squareValue : 0;
+                }
+                result[tables[f] + index] = (short) Math.round(value);
+            }
+        }
+        for (int count = 0; count < MOBILITY_COUNTS; count++) {
+            result[MOBILITY_OWN + count] = (short) (MOBILITY_WEIGHT * count);
+            result[MOBILITY_OPP + count] = (short) (-MOBILITY_WEIGHT * count);
+        }
+        for (int phase = 1; phase < PHASES; phase++) {
+            System.arraycopy(result, 0, result, phase * PHASE_SIZE, PHASE_SIZE);
+        }
+        return result;
+    }
+
+    private static int log3(int power) {
+        int exponent = 0;
+        while (power > 1) {
+            power /= 3;
+            exponent++;
+        }
+        return exponent;
+    }
+
+    /**
+     * @return a copy of the weights of all phases, PHASE_SIZE per phase
+     */
+    public static short[] getWeights() {
+        return weights.clone();
+    }
+
+    /**
+     * Replace the weights of all phases.
+     *
+     * @param weights PHASES * PHASE_SIZE weights, PHASE_SIZE per phase
+     */
+    public static void setWeights(short[] weights) {
+        checkWeights(weights);
+        Evaluator.weights = weights.clone();
+    }
+
+    /**
+     * @param weights weights of all phases
+     * @throws IllegalArgumentException if there are not PHASES * PHASE_SIZE weights
+     */
+    static void checkWeights(short[] weights) {
+        if (weights.length != PHASES * PHASE_SIZE) {
+            throw new IllegalArgumentException("Expected " + PHASES * PHASE_SIZE + " weights: " + weights.length);
+        }
+    }
+
+    /**
+     * Load the shared weights from a file written by {@link #save(Path)}.
+     *
+     * @param path the weights file
+     * @throws IOException if the file cannot be read or does not match the patterns
+     */
+    public static void load(Path path) throws IOException {
+        weights = read(path);
+    }
+
+    /**
+     * Read weights from a file written by {@link #save(Path)}, without changing the shared weights.
+     *
+     * @param path the weights file
+     * @return the weights of all phases, PHASE_SIZE per phase
+     * @throws IOException if the file cannot be read or does not match the patterns
+     */
+    public static short[] read(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            ByteBuffer buffer = ByteBuffer.allocate((int) channel.size());
+            while (buffer.hasRemaining() && channel.read(buffer) >= 0) {
+                //read the whole file
+            }
+            buffer.flip();
+            if (buffer.remaining() < HEADER_BYTES || buffer.getInt() != MAGIC) {
+                throw new IOException("Not a weights file");
+            }
+            if (buffer.getInt() != VERSION || buffer.getInt() != PHASES || buffer.getInt() != PHASE_SIZE) {
+                throw new IOException("The weights file does not match the patterns");
+            }
+            if (buffer.remaining() != PHASES * PHASE_SIZE * Short.BYTES) {
+                throw new IOException("The weights file is truncated");
+            }
+            short[] loaded = new short[PHASES * PHASE_SIZE];
+            buffer.asShortBuffer().get(loaded);
+            return loaded;
+        }
+    }
+
+    /**
+     * Write the weights to a file.
+     *
+     * @param path the weights file
+     * @throws IOException if the file cannot be written
+     */
+    public static void save(Path path) throws IOException {
+        short[] w = weights;
+        ByteBuffer buffer = ByteBuffer.allocate(HEADER_BYTES + w.length * Short.BYTES);
+        buffer.putInt(MAGIC).putInt(VERSION).putInt(PHASES).putInt(PHASE_SIZE);
+        buffer.asShortBuffer().put(w);
+        buffer.clear();
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,41 @@
+/**
+ * A small and fast random number generator for the random games of {@link MonteCarloSearch}.
+ *
+ * <p>The numbers are the SplitMix64 sequence (the algorithm of {@link java.util.SplittableRandom}): one
+ * addition and three multiply-xorshift steps per number, and a bounded int takes the high bits of a
+ * multiplication instead of a division. It is not thread safe and never shared: every thread has its own.
+ */
+public final class FastRandom {
+
+    private static final long GOLDEN_GAMMA = 0x9E3779B97F4A7C15L;
+
+    private long state;
+
+    /**
+     * @param seed the seed, the same seed gives the same numbers
+     */
+    public FastRandom(long seed) {
+        this.state = seed;
+    }
+
+    /**
+     * @return the next 64 random bits
+     */
+    public long nextLong() {
+        long z = state += GOLDEN_GAMMA;
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Return a number from 0 to <code>bound</code> - 1. The numbers are uniform to within bound / 2^32,
+     * far below what a game can notice.
+     *
+     * @param bound the number of values, positive
+     * @return the random number
+     */
+    public int nextInt(int bound) {
+        return (int) (((nextLong() >>> 32) * bound) >>> 32);
+    }
+}
@@ -0,0 +1,87 @@
+import jdk.jfr.Category;
+import jdk.jfr.Description;
+import jdk.jfr.Event;
+import jdk.jfr.Label;
+import jdk.jfr.Name;
+import jdk.jfr.Timespan;
+
+/**
+ * The JDK Flight Recorder events of the game.
+ *
+ * <p>This class is only loaded when the JVM has a Flight Recorder (see {@link Metrics#FLIGHT_RECORDER}),
+ * so the game still runs on a JVM without <code>jdk.jfr</code>. An event is only filled and committed
+ * while a recording enables it.
+ */
+final class FlightEvents {
+
+    @Name("othello.Search")
+    @Label("Search")
+    @Category("Othello")
+    @Description("One search for the best move")
+    static class SearchEvent extends Event {
+        @Label("Engine")
+        String engine;
+
+        @Label("Move")
+        String move;
+
+        @Label("Depth")
+        int depth;
+
+        @Label("Score")
+        int score;
+
+        @Label("Nodes")
+        long nodes;
+
+        @Label("Search Time")
+        @Timespan(Timespan.NANOSECONDS)
+        long searchTime;
+    }
+
+    @Name("othello.Game")
+    @Label("Game")
+    @Category("Othello")
+    @Description("One completed game")
+    static class GameEvent extends Event {
+        @Label("Dark Disks")
+        int darkDisks;
+
+        @Label("Light Disks")
+        int lightDisks;
+
+        @Label("Winner")
+        String winner;
+
+        @Label("Moves")
+        int moves;
+    }
+
+    private FlightEvents() {
+    }
+
+    static void search(String engine, int move, int depth, int score, long nodes, long nanos) {
+        SearchEvent event = new SearchEvent();
+        if (event.shouldCommit()) {
+            event.engine = engine;
+            event.move = move < 0 ? "-" : Disk.getUserMove(move);
+            event.depth = depth;
+            event.score = score;
+            event.nodes = nodes;
+            event.searchTime = nanos;
+            event.commit();
+        }
+    }
+
+    static void game(int darkDisks, int lightDisks, int moves) {
+        GameEvent event = new GameEvent();
+        if (event.shouldCommit()) {
+            event.darkDisks = darkDisks;
+            event.lightDisks = lightDisks;
+            event.winner = String.valueOf(darkDisks > lightDisks ? Board.DARK
+                    : lightDisks > darkDisks ? Board.LIGHT : Board.NO_PIECE);
+            event.moves = moves;
+            event.commit();
+        }
+    }
+}
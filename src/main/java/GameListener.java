@@ -0,0 +1,41 @@
+/**
+ * Receives the events of a game played by a {@link Referee}, e.g. to show them to the players.
+ * All methods do nothing by default.
+ */
+public interface GameListener {
+
+    /**
+     * A valid move was made.
+     *
+     * @param player the player who moved
+     * @param square the square index of the move (see {@link BitBoard})
+     * @param board  the board after the move
+     */
+    default void moveMade(char player, int square, Board board) {
+    }
+
+    /**
+     * A move was refused, the player is still to move.
+     *
+     * @param player the player to move
+     * @param move   the refused move as given
+     */
+    default void invalidMove(char player, String move) {
+    }
+
+    /**
+     * The player has no valid move, the opponent moves again.
+     *
+     * @param player the player who passes
+     */
+    default void passed(char player) {
+    }
+
+    /**
+     * Neither player has a valid move any more.
+     *
+     * @param result the disks of both players
+     */
+    default void gameOver(GameResult result) {
+    }
+}
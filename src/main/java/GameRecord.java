@@ -0,0 +1,287 @@
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+
+/**
+ * One game in the compact binary form of a game record file: a small header and one byte per move.
+ * <pre>
+ * header, 12 bytes: date yyyymmdd (int), tournament, dark player, light player (unsigned short each),
+ *                   dark disks at the end (byte), number of moves (byte)
+ * moves, 1 byte each: the square index of the move (see {@link BitBoard})
+ * </pre>
+ * Passes are not stored, the player to move passes when it has no valid move. The players and tournaments
+ * are numbers, like in the WTHOR databases (see {@link Wthor}), 0 if unknown; an unknown day or month is 0.
+ * Files of records are written by {@link GameRecordWriter} and read by {@link GameRecordReader}.
+ */
+public final class GameRecord {
+
+    public static final int HEADER_BYTES = 12;
+
+    /* The most moves of a game, every empty square of the initial position */
+    public static final int MAX_MOVES = BitBoard.SQUARES - 4;
+
+    private final int date;
+    private final int tournament;
+    private final int darkPlayer;
+    private final int lightPlayer;
+    private final int darkDisks;
+    private final byte[] moves;
+
+    /**
+     * @param date        the date as yyyymmdd
+     * @param tournament  the tournament number, 0 to 65535
+     * @param darkPlayer  the number of the dark player, 0 to 65535
+     * @param lightPlayer the number of the light player, 0 to 65535
+     * @param darkDisks   the disks of the dark player at the end of the game
+     * @param moves       the square indexes of the moves, at most {@link #MAX_MOVES}
+     */
+    public GameRecord(int date, int tournament, int darkPlayer, int lightPlayer, int darkDisks, byte[] moves) {
+        if (moves.length > MAX_MOVES) {
+            throw new IllegalArgumentException("Too many moves: " + moves.length);
+        }
+        this.date = date;
+        this.tournament = tournament;
+        this.darkPlayer = darkPlayer;
+        this.lightPlayer = lightPlayer;
+        this.darkDisks = darkDisks;
+        this.moves = moves;
+    }
+
+    /**
+     * Return the record of the moves made on the board (see {@link Board#getMoveSquares()}).
+     *
+     * @param board       the board after the game
+     * @param date        the date as yyyymmdd
+     * @param darkPlayer  the number of the dark player
+     * @param lightPlayer the number of the light player
+     * @return the record
+     */
+    public static GameRecord of(Board board, int date, int darkPlayer, int lightPlayer) {
+        return new GameRecord(date, 0, darkPlayer, lightPlayer, Long.bitCount(board.getDisks(Board.DARK)),
+                board.getMoveSquares());
+    }
+
+    /**
+     * Replay comma separated moves and return their record.
+     *
+     * @param moves the moves, e.g. "f5,6f,f7"
+     * @return the record, null if a move is not valid
+     */
+    public static GameRecord parse(String moves) {
+        Board board = new Board();
+        char player = Board.DARK;
+        for (String move : moves.split(",")) {
+            if (move.trim().isEmpty()) {
+                continue;
+            }
+            if (!board.hasAvailableMove(player)) {
+                player = Board.getOpponent(player);
+            }
+            if (board.getMoveCount() == MAX_MOVES || !board.validateMove(player, move)) {
+                return null;
+            }
+            board.flip(player, Disk.getDisk(move));
+            player = Board.getOpponent(player);
+        }
+        return of(board, 0, 0, 0);
+    }
+
+    public int getDate() {
+        return date;
+    }
+
+    public int getTournament() {
+        return tournament;
+    }
+
+    public int getDarkPlayer() {
+        return darkPlayer;
+    }
+
+    public int getLightPlayer() {
+        return lightPlayer;
+    }
+
+    public int getDarkDisks() {
+        return darkDisks;
+    }
+
+    public int getMoveCount() {
+        return moves.length;
+    }
+
+    /**
+     * @param index the number of the move, from 0
+     * @return the square index of the move
+     */
+    public int getMove(int index) {
+        return moves[index];
+    }
+
+    /**
+     * Replay the game on the board.
+     *
+     * @param board the board, it is reset first
+     * @return true if all moves are valid, else the board stops before the first invalid move
+     */
+    public boolean play(Board board) {
+        board.reset();
+        char player = Board.DARK;
+        for (byte move : moves) {
+            long legalMoves = board.getMoves(player);
+            if (legalMoves == 0) {
+                player = Board.getOpponent(player);
+                legalMoves = board.getMoves(player);
+            }
+            if (move < 0 || move >= BitBoard.SQUARES || (legalMoves & (1L << move)) == 0) {
+                return false;
+            }
+            board.makeMove(player, move);
+            player = Board.getOpponent(player);
+        }
+        return true;
+    }
+
+    /**
+     * @return the moves comma separated, e.g. "5f,6f,7f"
+     */
+    public String toMoves() {
+        StringBuilder text = new StringBuilder(3 * moves.length);
+        for (int i = 0; i < moves.length; i++) {
+            if (i > 0) {
+                text.append(',');
+            }
+            text.append(Disk.getUserMove(moves[i]));
+        }
+        return text.toString();
+    }
+
+    /**
+     * @return the bytes of the record
+     */
+    int size() {
+        return HEADER_BYTES + moves.length;
+    }
+
+    void write(ByteBuffer buffer) {
+        buffer.putInt(date)
+                .putShort((short) tournament)
+                .putShort((short) darkPlayer)
+                .putShort((short) lightPlayer)
+                .put((byte) darkDisks)
+                .put((byte) moves.length)
+                .put(moves);
+    }
+
+    /**
+     * Read a record whose header and moves are all in the buffer.
+     */
+    static GameRecord read(ByteBuffer buffer) {
+        int date = buffer.getInt();
+        int tournament = buffer.getShort() & 0xFFFF;
+        int darkPlayer = buffer.getShort() & 0xFFFF;
+        int lightPlayer = buffer.getShort() & 0xFFFF;
+        int darkDisks = buffer.get();
+        byte[] moves = new byte[buffer.get()];
+        buffer.get(moves);
+        return new GameRecord(date, tournament, darkPlayer, lightPlayer, darkDisks, moves);
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof GameRecord)) {
+            return false;
+        }
+        GameRecord record = (GameRecord) o;
+        return date == record.date && tournament == record.tournament && darkPlayer == record.darkPlayer
+                && lightPlayer == record.lightPlayer && darkDisks == record.darkDisks
+                && Arrays.equals(moves, record.moves);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * (31 * (31 * date + tournament) + darkPlayer) + lightPlayer) + Arrays.hashCode(moves);
+    }
+
+    @Override
+    public String toString() {
+        return date + " " + darkPlayer + "-" + lightPlayer + " " + darkDisks + ": " + toMoves();
+    }
+
+    /**
+     * Usage: GameRecord pack games.csv games.ogr | unpack games.ogr games.csv | replay games.ogr<p>
+     * <code>pack</code> writes the valid games of a file of comma separated games, one per line, as records;
+     * <code>unpack</code> writes records back as comma separated games; <code>replay</code> plays all records
+     * on a {@link Board} and prints the number of valid games and the games per second.
+     *
+     * @param args the command line arguments
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length != 3 && !(args.length == 2 && args[0].equals("replay"))) {
+            System.err.println("Usage: GameRecord pack games.csv games.ogr | unpack games.ogr games.csv"
+                    + " | replay games.ogr");
+            return;
+        }
+        long start = System.nanoTime();
+        long games = 0;
+        long invalid = 0;
+        switch (args[0]) {
+            case "pack":
+                try (BufferedReader reader = Files.newBufferedReader(Paths.get(args[1]), StandardCharsets.US_ASCII);
+                     GameRecordWriter writer = new GameRecordWriter(Paths.get(args[2]))) {
+                    for (String line = reader.readLine(); line != null; line = reader.readLine()) {
+                        GameRecord record = parse(line);
+                        if (record == null) {
+                            invalid++;
+                        } else {
+                            writer.write(record);
+                            games++;
+                        }
+                    }
+                }
+                break;
+            case "unpack":
+                try (GameRecordReader reader = new GameRecordReader(Paths.get(args[1]));
+                     BufferedWriter writer = Files.newBufferedWriter(Paths.get(args[2]), StandardCharsets.US_ASCII)) {
+                    for (GameRecord record = reader.read(); record != null; record = reader.read()) {
+                        writer.write(record.toMoves());
+                        writer.newLine();
+                        games++;
+                    }
+                }
+                break;
+            case "replay":
+                Board board = new Board();
+                try (GameRecordReader reader = new GameRecordReader(Paths.get(args[1]))) {
+                    for (GameRecord record = reader.read(); record != null; record = reader.read()) {
+                        long replayStart = Metrics.ENABLED ? System.nanoTime() : 0;
+                        boolean valid = record.play(board);
+                        if (Metrics.ENABLED) {
+                            Metrics.gameReplayed(System.nanoTime() - replayStart);
+                        }
+                        if (valid) {
+                            games++;
+                        } else {
+                            invalid++;
+                        }
+                    }
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command: " + args[0]);
+        }
+        long nanos = Math.max(1, System.nanoTime() - start);
+        System.out.printf("%d games, %d invalid in %d ms, %d games/s %n", games, invalid, nanos / 1_000_000L,
+                (games + invalid) * 1_000_000_000L / nanos);
+    }
+}
@@ -0,0 +1,116 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Read the {@link GameRecord}s of a file written by {@link GameRecordWriter}, one after the other,
+ * through a buffer of {@link GameRecordWriter#BUFFER_BYTES}.
+ */
+public class GameRecordReader implements Closeable {
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(GameRecordWriter.BUFFER_BYTES);
+    private final long games;
+
+    /**
+     * @param path the file
+     * @throws IOException if the file cannot be read or is no game record file
+     */
+    public GameRecordReader(Path path) throws IOException {
+        channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            buffer.flip();
+            if (!fill(GameRecordWriter.HEADER_BYTES) || buffer.getInt() != GameRecordWriter.MAGIC) {
+                throw new IOException("Not a game record file");
+            }
+            int version = buffer.getInt();
+            if (version != GameRecordWriter.VERSION) {
+                throw new IOException("Unknown game record version: " + version);
+            }
+            games = buffer.getLong();
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @return the number of games in the file
+     */
+    public long getGames() {
+        return games;
+    }
+
+    /**
+     * @return the next game, null at the end of the file
+     * @throws IOException if the file cannot be read or is truncated
+     */
+    public GameRecord read() throws IOException {
+        if (!fill(GameRecord.HEADER_BYTES)) {
+            if (buffer.hasRemaining()) {
+                throw new IOException("The game record file is truncated");
+            }
+            return null;
+        }
+        int moves = buffer.get(buffer.position() + GameRecord.HEADER_BYTES - 1);
+        if (moves < 0 || moves > GameRecord.MAX_MOVES) {
+            throw new IOException("Invalid game record: " + moves + " moves");
+        }
+        if (!fill(GameRecord.HEADER_BYTES + moves)) {
+            throw new IOException("The game record file is truncated");
+        }
+        return GameRecord.read(buffer);
+    }
+
+    /**
+     * @return the position in the file of the next game
+     * @throws IOException if the file cannot be read
+     */
+    public long getOffset() throws IOException {
+        return channel.position() - buffer.remaining();
+    }
+
+    /**
+     * Go on reading at a position returned by {@link #getOffset()}, e.g. skip the games read before.
+     *
+     * @param offset the position in the file of a game
+     * @throws IOException if the file cannot be read or is shorter
+     */
+    public void seek(long offset) throws IOException {
+        if (offset < GameRecordWriter.HEADER_BYTES || offset > channel.size()) {
+            throw new IOException("No game at " + offset + " of the game record file");
+        }
+        channel.position(offset);
+        buffer.clear().flip();
+    }
+
+    /**
+     * Read from the file until the buffer holds <code>bytes</code>.
+     *
+     * @return false if the file ends before
+     */
+    private boolean fill(int bytes) throws IOException {
+        if (buffer.remaining() >= bytes) {
+            return true;
+        }
+        buffer.compact();
+        try {
+            while (buffer.position() < bytes) {
+                if (channel.read(buffer) < 0) {
+                    return false;
+                }
+            }
+            return true;
+        } finally {
+            buffer.flip();
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        channel.close();
+    }
+}
@@ -0,0 +1,114 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Write {@link GameRecord}s to a file, buffered and in order.
+ * <pre>
+ * header, 16 bytes: magic "OGR1", version (int each), number of games (long)
+ * records, one after the other
+ * </pre>
+ * The number of games is written by {@link #close()}. New games can be appended to an existing file, which
+ * keeps the games and the position of each game before them. Numbers are big-endian.
+ */
+public class GameRecordWriter implements Closeable {
+
+    static final int MAGIC = 0x4F475231;
+    static final int VERSION = 1;
+    static final int HEADER_BYTES = 16;
+
+    /* Bytes written at once */
+    static final int BUFFER_BYTES = 1 << 16;
+
+    private final FileChannel channel;
+    private final ByteBuffer buffer = ByteBuffer.allocateDirect(BUFFER_BYTES);
+    private long games;
+
+    /**
+     * @param path the file, replaced if it exists
+     * @throws IOException if the file cannot be written
+     */
+    public GameRecordWriter(Path path) throws IOException {
+        this(path, false);
+    }
+
+    /**
+     * @param path   the file
+     * @param append true to write the games after those of the file if it exists, false to replace it
+     * @throws IOException if the file cannot be written, or cannot be read or is no game record file
+     *                     when appending
+     */
+    public GameRecordWriter(Path path, boolean append) throws IOException {
+        if (!append || !Files.exists(path) || Files.size(path) == 0) {
+            channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING,
+                    StandardOpenOption.WRITE);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(0);
+            return;
+        }
+        channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        try {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (header.hasRemaining() && channel.read(header) >= 0) {
+                //read the whole header
+            }
+            if (header.hasRemaining() || header.getInt(0) != MAGIC) {
+                throw new IOException("Not a game record file");
+            }
+            if (header.getInt(4) != VERSION) {
+                throw new IOException("Unknown game record version: " + header.getInt(4));
+            }
+            games = header.getLong(8);
+            channel.position(channel.size());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * @param record the next game
+     * @throws IOException if the file cannot be written
+     */
+    public void write(GameRecord record) throws IOException {
+        if (buffer.remaining() < record.size()) {
+            flush();
+        }
+        record.write(buffer);
+        games++;
+    }
+
+    /**
+     * @return the number of games in the file, with those before when appending
+     */
+    public long getGames() {
+        return games;
+    }
+
+    private void flush() throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Write the buffered games and the number of games, and close the file.
+     *
+     * @throws IOException if the file cannot be written
+     */
+    @Override
+    public void close() throws IOException {
+        try {
+            flush();
+            ByteBuffer count = ByteBuffer.allocate(Long.BYTES).putLong(0, games);
+            channel.write(count, HEADER_BYTES - Long.BYTES);
+        } finally {
+            channel.close();
+        }
+    }
+}
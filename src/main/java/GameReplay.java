@@ -0,0 +1,321 @@
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Validate and score many games at once.
+ *
+ * <p>The input file has one game per line, written as comma separated moves like the argument
+ * of {@link Othello#playGame(String)}. The file is memory-mapped in chunks of whole lines, the chunks
+ * are replayed in parallel, each thread with its own {@link Board}, and one result per game is
+ * written in input order:
+ * <pre>
+ * line,status,ply,dark,light,winner
+ * </pre>
+ * <UL>
+ * <LI><code>VALID</code>: the game is played to its end, <code>ply</code> is the number of moves
+ * <LI><code>INCOMPLETE</code>: all moves are valid but the game is not over yet
+ * <LI><code>INVALID</code>: <code>ply</code> is the first invalid move (from 1), counted before that move
+ * </ul>
+ * The winner is <code>X</code>, <code>O</code> or <code>-</code> for a tie, and empty unless the game is over.
+ * Empty lines are skipped.
+ *
+ * <p>A result is packed into one int, see {@link #status(int)}, {@link #ply(int)},
+ * {@link #darkCount(int)} and {@link #lightCount(int)}.
+ */
+public class GameReplay {
+
+    public static final int VALID = 0;
+    public static final int INCOMPLETE = 1;
+    public static final int INVALID = 2;
+
+    /* The result of an empty line, which is not written */
+    private static final int EMPTY = 3;
+
+    private static final String[] STATUS_NAMES = {"VALID", "INCOMPLETE", "INVALID"};
+
+    /* Chunks are at most this size, and there are a few per thread so all threads stay busy */
+    private static final long MAX_CHUNK_BYTES = 64L * 1024 * 1024;
+    private static final int CHUNKS_PER_THREAD = 4;
+
+    /**
+     * The counts of the results of a replayed file.
+     */
+    public static class Summary {
+        private final long[] counts = new long[3];
+        private long elapsedNanos;
+
+        public long getGames() {
+            return counts[VALID] + counts[INCOMPLETE] + counts[INVALID];
+        }
+
+        public long getCount(int status) {
+            return counts[status];
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000L;
+        }
+
+        public long getGamesPerSecond() {
+            return elapsedNanos == 0 ? 0 : getGames() * 1_000_000_000L / elapsedNanos;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%d games (%d valid, %d incomplete, %d invalid) in %d ms, %d games/s",
+                    getGames(), counts[VALID], counts[INCOMPLETE], counts[INVALID],
+                    getElapsedMillis(), getGamesPerSecond());
+        }
+    }
+
+    private GameReplay() {
+    }
+
+    public static int status(int result) {
+        return result & 0x3;
+    }
+
+    public static int ply(int result) {
+        return (result >>> 2) & 0x7F;
+    }
+
+    public static int darkCount(int result) {
+        return (result >>> 9) & 0x7F;
+    }
+
+    public static int lightCount(int result) {
+        return (result >>> 16) & 0x7F;
+    }
+
+    private static int result(int status, int ply, Board board) {
+        return status | ply << 2
+                | Long.bitCount(board.getDisks(Board.DARK)) << 9
+                | Long.bitCount(board.getDisks(Board.LIGHT)) << 16;
+    }
+
+    /**
+     * Replay one game.
+     *
+     * @param moves the comma separated moves
+     * @return the packed result
+     */
+    public static int replay(String moves) {
+        byte[] bytes = moves.getBytes(StandardCharsets.US_ASCII);
+        return replay(new Board(), ByteBuffer.wrap(bytes), 0, bytes.length);
+    }
+
+    /**
+     * Replay the game written in <code>buffer</code> from <code>start</code> to <code>end</code> (exclusive).
+     *
+     * @param board  the board to play on, it is reset first
+     * @param buffer the moves as ASCII text
+     * @param start  the first byte of the game
+     * @param end    the end of the game
+     * @return the packed result
+     */
+    public static int replay(Board board, ByteBuffer buffer, int start, int end) {
+        board.reset();
+        char player = Board.DARK;
+        int ply = 0;
+        int i = skipBlanks(buffer, start, end);
+        while (i < end) {
+            int square = -1;
+            if (i + 1 < end) {
+                square = Disk.parseSquare(buffer.get(i), buffer.get(i + 1));
+            }
+            i = skipBlanks(buffer, i + 2, end);
+            if (i < end) {
+                if (buffer.get(i) != ',') {
+                    square = -1;
+                }
+                i = skipBlanks(buffer, i + 1, end);
+            }
+            long moves = board.getMoves(player);
+            if (moves == 0) {
+                player = Board.getOpponent(player);
+                moves = board.getMoves(player);
+            }
+            if (square < 0 || (moves & (1L << square)) == 0) {
+                return result(INVALID, ply + 1, board);
+            }
+            board.makeMove(player, square);
+            player = Board.getOpponent(player);
+            ply++;
+        }
+        boolean gameOver = board.getMoves(Board.DARK) == 0 && board.getMoves(Board.LIGHT) == 0;
+        return result(gameOver ? VALID : INCOMPLETE, ply, board);
+    }
+
+    private static int skipBlanks(ByteBuffer buffer, int i, int end) {
+        while (i < end) {
+            byte b = buffer.get(i);
+            if (b != ' ' && b != '\t') {
+                break;
+            }
+            i++;
+        }
+        return i;
+    }
+
+    /**
+     * Replay every line of the chunk and return the result of each line.
+     */
+    private static int[] replayChunk(ByteBuffer chunk) {
+        Board board = new Board();
+        int[] results = new int[1024];
+        int count = 0;
+        int limit = chunk.limit();
+        int start = 0;
+        while (start < limit) {
+            int end = start;
+            while (end < limit && chunk.get(end) != '\n') {
+                end++;
+            }
+            int lineEnd = end > start && chunk.get(end - 1) == '\r' ? end - 1 : end;
+            if (count == results.length) {
+                results = Arrays.copyOf(results, count * 2);
+            }
+            if (skipBlanks(chunk, start, lineEnd) == lineEnd) {
+                results[count++] = EMPTY;
+            } else {
+                long replayStart = Metrics.ENABLED ? System.nanoTime() : 0;
+                results[count++] = replay(board, chunk, start, lineEnd);
+                if (Metrics.ENABLED) {
+                    Metrics.gameReplayed(System.nanoTime() - replayStart);
+                }
+            }
+            start = end + 1;
+        }
+        return Arrays.copyOf(results, count);
+    }
+
+    /**
+     * Replay all games of <code>input</code> on <code>threads</code> threads and write the results.
+     *
+     * @param input   the games, one per line
+     * @param output  where the results are written
+     * @param threads the number of threads
+     * @return the counts of the results
+     * @throws IOException if the input cannot be read or the output cannot be written
+     */
+    public static Summary replayFile(Path input, Writer output, int threads) throws IOException {
+        long start = System.nanoTime();
+        Summary summary = new Summary();
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            List<ForkJoinTask<int[]>> chunks = new ArrayList<>();
+            for (long[] range : chunkRanges(channel, threads)) {
+                MappedByteBuffer chunk = channel.map(FileChannel.MapMode.READ_ONLY, range[0], range[1] - range[0]);
+                chunks.add(pool.submit(() -> replayChunk(chunk)));
+            }
+            long line = 0;
+            StringBuilder record = new StringBuilder();
+            for (ForkJoinTask<int[]> chunk : chunks) {
+                for (int result : chunk.join()) {
+                    line++;
+                    int status = status(result);
+                    if (status == EMPTY) {
+                        continue;
+                    }
+                    summary.counts[status]++;
+                    record.setLength(0);
+                    record.append(line).append(',').append(STATUS_NAMES[status]).append(',')
+                            .append(ply(result)).append(',')
+                            .append(darkCount(result)).append(',').append(lightCount(result)).append(',');
+                    if (status == VALID) {
+                        int diff = darkCount(result) - lightCount(result);
+                        record.append(diff > 0 ? Board.DARK : diff < 0 ? Board.LIGHT : Board.NO_PIECE);
+                    }
+                    record.append('\n');
+                    output.append(record);
+                }
+            }
+            output.flush();
+        } finally {
+            pool.shutdown();
+        }
+        summary.elapsedNanos = System.nanoTime() - start;
+        return summary;
+    }
+
+    /**
+     * Split the file into ranges of whole lines.
+     */
+    private static List<long[]> chunkRanges(FileChannel channel, int threads) throws IOException {
+        long size = channel.size();
+        long chunkBytes = Math.max(1, Math.min(MAX_CHUNK_BYTES, size / ((long) threads * CHUNKS_PER_THREAD)));
+        List<long[]> ranges = new ArrayList<>();
+        ByteBuffer probe = ByteBuffer.allocate(256);
+        long start = 0;
+        while (start < size) {
+            long end = Math.min(size, start + chunkBytes);
+            //move the end after the next line break
+            while (end < size) {
+                probe.clear();
+                int read = channel.read(probe, end);
+                int i = 0;
+                while (i < read && probe.get(i) != '\n') {
+                    i++;
+                }
+                end += i;
+                if (i < read) {
+                    end++;
+                    break;
+                }
+            }
+            ranges.add(new long[]{start, end});
+            start = end;
+        }
+        return ranges;
+    }
+
+    /**
+     * Usage: GameReplay input [output] [--threads count]<p>
+     * The results are written to <code>output</code>, or to the console if it is left out.
+     *
+     * @param args the command line arguments
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        List<String> files = new ArrayList<>();
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            if ("--threads".equals(args[i])) {
+                threads = Integer.parseInt(args[++i]);
+            } else {
+                files.add(args[i]);
+            }
+        }
+        if (files.isEmpty()) {
+            System.err.println("Usage: GameReplay input [output] [--threads count]");
+            return;
+        }
+        Writer output = files.size() > 1
+                ? Files.newBufferedWriter(Paths.get(files.get(1)), StandardCharsets.US_ASCII)
+                : new BufferedWriter(new OutputStreamWriter(System.out, StandardCharsets.US_ASCII));
+        try {
+            Summary summary = replayFile(Paths.get(files.get(0)), output, threads);
+            System.err.println(summary);
+        } finally {
+            if (files.size() > 1) {
+                output.close();
+            }
+        }
+    }
+
+}
@@ -0,0 +1,43 @@
+/**
+ * The disks of both players at the end of a game.
+ */
+public final class GameResult {
+
+    private final int darkDisks;
+    private final int lightDisks;
+
+    public GameResult(int darkDisks, int lightDisks) {
+        this.darkDisks = darkDisks;
+        this.lightDisks = lightDisks;
+    }
+
+    public int getDarkDisks() {
+        return darkDisks;
+    }
+
+    public int getLightDisks() {
+        return lightDisks;
+    }
+
+    /**
+     * @return the dark disks minus the light disks
+     */
+    public int getDiskDifference() {
+        return darkDisks - lightDisks;
+    }
+
+    /**
+     * @return the player with more disks, {@link Board#NO_PIECE} for a tie
+     */
+    public char getWinner() {
+        return darkDisks > lightDisks ? Board.DARK : darkDisks < lightDisks ? Board.LIGHT : Board.NO_PIECE;
+    }
+
+    @Override
+    public String toString() {
+        String result = getWinner() == Board.NO_PIECE ? "The game ends in a tie."
+                : String.format("Game over. Player '%s' wins.", getWinner());
+        return String.format("%s (%s vs %s)", result, Math.max(darkDisks, lightDisks),
+                Math.min(darkDisks, lightDisks));
+    }
+}
@@ -0,0 +1,556 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.Map;
+import java.util.Timer;
+import java.util.TimerTask;
+
+/**
+ * Host many games at once over a line protocol on TCP.
+ *
+ * <p>One thread serves all connections with a {@link Selector}, so a connection costs two small buffers,
+ * not a thread, and a game a {@link Referee} with its {@link Board}. Each connection can play one game
+ * at a time; a game is played by one connection for both players or by two connections, one for each.
+ * Commands and replies are lines of ASCII text:
+ * <pre>
+ * NEW [X|O|XO]   start a game playing dark, light or both (dark by default)   GAME id colors
+ * JOIN id        play the other color of a game                                GAME id colors,
+ *                                                                              the other connection gets JOINED colors
+ * MOVE 3d        make a move for the player to move                            MOVED player move next to both connections,
+ *                                                                              OVER dark light when the game has ended
+ * BOARD          show the board                                                BOARD 64 squares next
+ * STATS          show the server statistics                                    STATS sessions games moves p50 p99 max
+ * QUIT           leave the game and close the connection
+ * </pre>
+ * <code>next</code> is the player to move, <code>-</code> when the game has ended; a player without
+ * a valid move is passed. Invalid commands get <code>ERROR message</code>. A connection which does not read
+ * its replies is closed with an ERROR once {@link #MAX_QUEUED_BYTES} of them wait. A connection which cannot
+ * be accepted, for example when the process is out of file descriptors, is closed and counted in
+ * {@link #getAcceptFailures()} while the other connections are still served. A connection which leaves
+ * or is closed after <code>idleMillis</code> without a command sends LEFT to the other connection of its game.
+ *
+ * <p>The time from reading a MOVE to queueing its replies is recorded in a {@link LatencyHistogram},
+ * see {@link #getLatency()}; {@link LoadGenerator} measures the round trip from the client.
+ */
+public class GameServer implements Runnable, Closeable {
+
+    public static final int DEFAULT_PORT = 7777;
+
+    public static final long DEFAULT_IDLE_MILLIS = 60_000;
+
+    /* The longest command, longer lines close the connection */
+    private static final int MAX_LINE = 128;
+
+    /* The most reply bytes waiting for a connection which does not read them, more close the connection */
+    static final int MAX_QUEUED_BYTES = 64 * 1024;
+
+    /* The longest wait for the selector, so idle connections are found in time */
+    private static final long MAX_SELECT_MILLIS = 1000;
+
+    private final Selector selector;
+    private final ServerSocketChannel serverChannel;
+    private final long idleMillis;
+
+    private final Map<Integer, Game> games = new HashMap<>();
+    private int nextGameId = 1;
+
+    private volatile int sessions;
+    private volatile int gameCount;
+    private volatile long moves;
+    private volatile long acceptFailures;
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    private volatile boolean running = true;
+
+    /**
+     * One game and the connections playing it.
+     */
+    private static class Game {
+        final int id;
+        final Referee referee = new Referee();
+        Session dark;
+        Session light;
+
+        Game(int id) {
+            this.id = id;
+        }
+    }
+
+    /**
+     * One connection.
+     */
+    private static class Session {
+        final SocketChannel channel;
+        final SelectionKey key;
+        final ByteBuffer input = ByteBuffer.allocate(MAX_LINE);
+        final ArrayDeque<ByteBuffer> output = new ArrayDeque<>();
+        int queuedBytes;
+        Game game;
+        long lastActive;
+        boolean closed;
+
+        Session(SocketChannel channel, SelectionKey key, long now) {
+            this.channel = channel;
+            this.key = key;
+            this.lastActive = now;
+        }
+
+        String getColors() {
+            return game == null ? "" : (game.dark == this ? "" + Board.DARK : "")
+                    + (game.light == this ? "" + Board.LIGHT : "");
+        }
+    }
+
+    /**
+     * Open the server socket, {@link #run()} serves the connections.
+     *
+     * @param address    the address to listen on, port 0 picks a free port
+     * @param idleMillis the time after which a connection without commands is closed
+     * @throws IOException if the socket cannot be opened
+     */
+    public GameServer(InetSocketAddress address, long idleMillis) throws IOException {
+        this.idleMillis = idleMillis;
+        selector = Selector.open();
+        serverChannel = ServerSocketChannel.open();
+        serverChannel.bind(address, 1024);
+        serverChannel.configureBlocking(false);
+        serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+    }
+
+    /**
+     * @return the port the server listens on
+     */
+    public int getPort() {
+        return serverChannel.socket().getLocalPort();
+    }
+
+    /**
+     * @return the number of open connections
+     */
+    public int getSessionCount() {
+        return sessions;
+    }
+
+    /**
+     * @return the number of games with at least one connection
+     */
+    public int getGameCount() {
+        return gameCount;
+    }
+
+    /**
+     * @return the number of moves made
+     */
+    public long getMoveCount() {
+        return moves;
+    }
+
+    /**
+     * @return the number of connections which could not be accepted
+     */
+    public long getAcceptFailures() {
+        return acceptFailures;
+    }
+
+    /**
+     * @return the time from reading a move to queueing its replies
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    /**
+     * Serve the connections until {@link #close()}.
+     */
+    @Override
+    public void run() {
+        long nextEviction = System.currentTimeMillis() + idleMillis;
+        try {
+            while (running) {
+                selector.select(Math.max(1, Math.min(MAX_SELECT_MILLIS, idleMillis / 4)));
+                long now = System.currentTimeMillis();
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    if (!key.isValid()) {
+                        continue;
+                    }
+                    if (key.isAcceptable()) {
+                        accept(now);
+                        continue;
+                    }
+                    Session session = (Session) key.attachment();
+                    try {
+                        if (key.isWritable()) {
+                            write(session);
+                        }
+                        if (key.isValid() && key.isReadable()) {
+                            read(session, now);
+                        }
+                    } catch (IOException e) {
+                        close(session);
+                    }
+                }
+                if (now >= nextEviction) {
+                    evictIdle(now);
+                    nextEviction = now + Math.max(1, idleMillis / 4);
+                }
+            }
+        } catch (IOException e) {
+            throw new IllegalStateException("Server failed", e);
+        } finally {
+            for (SelectionKey key : selector.keys().toArray(new SelectionKey[0])) {
+                if (key.attachment() instanceof Session) {
+                    close((Session) key.attachment());
+                }
+            }
+            try {
+                serverChannel.close();
+                selector.close();
+            } catch (IOException e) {
+                //nothing left to close
+            }
+        }
+    }
+
+    /**
+     * Stop serving, {@link #run()} closes all connections and returns.
+     */
+    @Override
+    public void close() {
+        running = false;
+        selector.wakeup();
+    }
+
+    /**
+     * Accept the waiting connections. A connection which cannot be accepted or set up, most often because
+     * the process is out of file descriptors, is closed and counted, the others are still served.
+     */
+    private void accept(long now) {
+        while (true) {
+            SocketChannel channel;
+            try {
+                channel = serverChannel.accept();
+            } catch (IOException e) {
+                //the connection stays in the backlog, the next select tries again
+                acceptFailures++;
+                return;
+            }
+            if (channel == null) {
+                return;
+            }
+            try {
+                configure(channel);
+                SelectionKey key = channel.register(selector, SelectionKey.OP_READ);
+                key.attach(new Session(channel, key, now));
+                sessions++;
+            } catch (IOException e) {
+                acceptFailures++;
+                try {
+                    channel.close();
+                } catch (IOException closeFailed) {
+                    //already closed
+                }
+            }
+        }
+    }
+
+    /**
+     * Set up an accepted connection before it is registered.
+     *
+     * @param channel the connection
+     * @throws IOException if the connection cannot be set up
+     */
+    void configure(SocketChannel channel) throws IOException {
+        channel.configureBlocking(false);
+        channel.socket().setTcpNoDelay(true);
+    }
+
+    private void read(Session session, long now) throws IOException {
+        ByteBuffer input = session.input;
+        if (session.channel.read(input) < 0) {
+            close(session);
+            return;
+        }
+        session.lastActive = now;
+        input.flip();
+        int start = 0;
+        for (int i = 0; i < input.limit() && !session.closed; i++) {
+            if (input.get(i) == '\n') {
+                int end = i > start && input.get(i - 1) == '\r' ? i - 1 : i;
+                handle(session, new String(input.array(), start, end - start, StandardCharsets.US_ASCII).trim());
+                start = i + 1;
+            }
+        }
+        if (session.closed) {
+            return;
+        }
+        input.position(start);
+        input.compact();
+        if (!input.hasRemaining()) {
+            send(session, "ERROR line too long");
+            close(session);
+        }
+    }
+
+    private void handle(Session session, String line) {
+        if (line.isEmpty()) {
+            return;
+        }
+        String[] words = line.split("\\s+");
+        switch (words[0].toUpperCase()) {
+            case "NEW":
+                newGame(session, words.length > 1 ? words[1].toUpperCase() : "" + Board.DARK);
+                break;
+            case "JOIN":
+                join(session, words.length > 1 ? words[1] : "");
+                break;
+            case "MOVE":
+                long start = System.nanoTime();
+                move(session, words.length > 1 ? words[1] : "");
+                latency.record(System.nanoTime() - start);
+                break;
+            case "BOARD":
+                board(session);
+                break;
+            case "STATS":
+                send(session, "STATS " + sessions + " " + gameCount + " " + moves + " "
+                        + latency.getPercentile(50) / 1000 + " " + latency.getPercentile(99) / 1000
+                        + " " + latency.getMax() / 1000);
+                break;
+            case "QUIT":
+                close(session);
+                break;
+            default:
+                send(session, "ERROR unknown command " + words[0]);
+        }
+    }
+
+    private void newGame(Session session, String colors) {
+        if (!colors.equals("" + Board.DARK) && !colors.equals("" + Board.LIGHT)
+                && !colors.equals("" + Board.DARK + Board.LIGHT) && !colors.equals("" + Board.LIGHT + Board.DARK)) {
+            send(session, "ERROR invalid colors " + colors);
+            return;
+        }
+        leave(session);
+        Game game = new Game(nextGameId++);
+        if (colors.indexOf(Board.DARK) >= 0) {
+            game.dark = session;
+        }
+        if (colors.indexOf(Board.LIGHT) >= 0) {
+            game.light = session;
+        }
+        session.game = game;
+        games.put(game.id, game);
+        gameCount = games.size();
+        send(session, "GAME " + game.id + " " + session.getColors());
+    }
+
+    private void join(Session session, String id) {
+        Game game;
+        try {
+            game = games.get(Integer.parseInt(id));
+        } catch (NumberFormatException e) {
+            game = null;
+        }
+        if (game == null || game == session.game) {
+            send(session, "ERROR no game " + id);
+            return;
+        }
+        if (game.dark != null && game.light != null) {
+            send(session, "ERROR game " + id + " is full");
+            return;
+        }
+        leave(session);
+        Session other = game.dark != null ? game.dark : game.light;
+        if (game.dark == null) {
+            game.dark = session;
+        } else {
+            game.light = session;
+        }
+        session.game = game;
+        send(session, "GAME " + game.id + " " + session.getColors());
+        send(other, "JOINED " + session.getColors());
+    }
+
+    private void move(Session session, String move) {
+        Game game = session.game;
+        if (game == null) {
+            send(session, "ERROR no game");
+            return;
+        }
+        Referee referee = game.referee;
+        if (referee.isGameOver()) {
+            send(session, "ERROR game over");
+            return;
+        }
+        char player = referee.getPlayer();
+        if ((player == Board.DARK ? game.dark : game.light) != session) {
+            send(session, "ERROR not your move");
+            return;
+        }
+        Referee.Outcome outcome = referee.play(move);
+        if (outcome == Referee.Outcome.INVALID) {
+            send(session, "ERROR invalid move " + move);
+            return;
+        }
+        moves++;
+        sendToGame(game, "MOVED " + player + " " + Disk.getUserMove(Disk.getDisk(move)) + " "
+                + referee.getPlayer());
+        if (outcome == Referee.Outcome.GAME_OVER) {
+            GameResult result = referee.getResult();
+            sendToGame(game, "OVER " + result.getDarkDisks() + " " + result.getLightDisks());
+        }
+    }
+
+    private void board(Session session) {
+        Game game = session.game;
+        if (game == null) {
+            send(session, "ERROR no game");
+            return;
+        }
+        StringBuilder squares = new StringBuilder("BOARD ");
+        for (int square = 0; square < BitBoard.SQUARES; square++) {
+            squares.append(game.referee.getBoard().getPlayer(Disk.getDisk(square)));
+        }
+        send(session, squares.append(' ').append(game.referee.getPlayer()).toString());
+    }
+
+    private void sendToGame(Game game, String line) {
+        send(game.dark, line);
+        if (game.light != game.dark) {
+            send(game.light, line);
+        }
+    }
+
+    /**
+     * Leave the game of the session, the game ends when its last connection has left.
+     */
+    private void leave(Session session) {
+        Game game = session.game;
+        if (game == null) {
+            return;
+        }
+        session.game = null;
+        if (game.dark == session) {
+            game.dark = null;
+        }
+        if (game.light == session) {
+            game.light = null;
+        }
+        if (game.dark == null && game.light == null) {
+            games.remove(game.id);
+            gameCount = games.size();
+        } else {
+            send(game.dark != null ? game.dark : game.light, "LEFT");
+        }
+    }
+
+    private void evictIdle(long now) {
+        for (SelectionKey key : selector.keys().toArray(new SelectionKey[0])) {
+            Object attachment = key.attachment();
+            if (attachment instanceof Session && now - ((Session) attachment).lastActive >= idleMillis) {
+                Session session = (Session) attachment;
+                send(session, "ERROR idle");
+                close(session);
+            }
+        }
+    }
+
+    private void send(Session session, String line) {
+        if (session == null || session.closed) {
+            return;
+        }
+        ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.US_ASCII));
+        try {
+            if (session.output.isEmpty()) {
+                session.channel.write(buffer);
+            }
+            if (buffer.hasRemaining()) {
+                session.output.add(buffer);
+                session.queuedBytes += buffer.remaining();
+                session.key.interestOps(SelectionKey.OP_READ | SelectionKey.OP_WRITE);
+                if (session.queuedBytes > MAX_QUEUED_BYTES) {
+                    //the client sends commands but does not read the replies
+                    session.output.add(ByteBuffer.wrap("ERROR too many replies not read\n"
+                            .getBytes(StandardCharsets.US_ASCII)));
+                    write(session);
+                    close(session);
+                }
+            }
+        } catch (IOException e) {
+            close(session);
+        }
+    }
+
+    private void write(Session session) throws IOException {
+        while (!session.output.isEmpty()) {
+            ByteBuffer buffer = session.output.peek();
+            session.queuedBytes -= session.channel.write(buffer);
+            if (buffer.hasRemaining()) {
+                return;
+            }
+            session.output.poll();
+        }
+        session.key.interestOps(SelectionKey.OP_READ);
+    }
+
+    private void close(Session session) {
+        if (session.closed) {
+            return;
+        }
+        session.closed = true;
+        leave(session);
+        session.key.cancel();
+        try {
+            session.channel.close();
+        } catch (IOException e) {
+            //already closed
+        }
+        sessions--;
+    }
+
+    /**
+     * Usage: GameServer [--port port] [--idle seconds]<p>
+     * Serve games until the process is stopped, printing the statistics every 10 seconds.
+     *
+     * @param args the command line arguments
+     * @throws IOException if the socket cannot be opened
+     */
+    public static void main(String[] args) throws IOException {
+        int port = DEFAULT_PORT;
+        long idleMillis = DEFAULT_IDLE_MILLIS;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--idle":
+                    idleMillis = Long.parseLong(args[++i]) * 1000;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        GameServer server = new GameServer(new InetSocketAddress(port), idleMillis);
+        System.out.printf("Listening on port %d %n", server.getPort());
+        new Timer(true).scheduleAtFixedRate(new TimerTask() {
+            @Override
+            public void run() {
+                System.out.printf("%d sessions, %d games, %d moves, move latency %s %n", server.getSessionCount(),
+                        server.getGameCount(), server.getMoveCount(), server.getLatency());
+            }
+        }, 10_000, 10_000);
+        server.run();
+    }
+}
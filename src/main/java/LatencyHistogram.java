@@ -0,0 +1,100 @@
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Count durations in nanoseconds to read their percentiles.
+ *
+ * <p>The durations are counted in buckets of about 6% width: the values below 32 have a bucket each,
+ * above that every power of two is split into 16 buckets. So a value is read back with at most 6%
+ * too much, from a fixed array of counters without any allocation. The counters are atomic, one thread
+ * can record while another one reads.
+ */
+public class LatencyHistogram {
+
+    private static final int SUB_BUCKET_BITS = 4;
+    private static final int SUB_BUCKETS = 1 << SUB_BUCKET_BITS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(Long.SIZE * SUB_BUCKETS);
+
+    /**
+     * @param nanos a duration, negative durations are counted as 0
+     */
+    public void record(long nanos) {
+        counts.incrementAndGet(bucket(Math.max(0, nanos)));
+    }
+
+    /**
+     * @return the number of durations recorded
+     */
+    public long getCount() {
+        long count = 0;
+        for (int bucket = 0; bucket < counts.length(); bucket++) {
+            count += counts.get(bucket);
+        }
+        return count;
+    }
+
+    /**
+     * Return the duration which <code>percentile</code> percent of the durations do not exceed.
+     *
+     * @param percentile from 0 to 100, e.g. 99 for the 99th percentile
+     * @return the duration in nanoseconds (the highest value of its bucket), 0 if nothing was recorded
+     */
+    public long getPercentile(double percentile) {
+        long[] snapshot = new long[counts.length()];
+        long count = 0;
+        for (int bucket = 0; bucket < snapshot.length; bucket++) {
+            snapshot[bucket] = counts.get(bucket);
+            count += snapshot[bucket];
+        }
+        if (count == 0) {
+            return 0;
+        }
+        long rank = Math.max(1, (long) Math.ceil(percentile / 100 * count));
+        for (int bucket = 0; bucket < snapshot.length; bucket++) {
+            rank -= snapshot[bucket];
+            if (rank <= 0) {
+                return highestValue(bucket);
+            }
+        }
+        return highestValue(snapshot.length - 1);
+    }
+
+    /**
+     * @return the longest duration recorded (the highest value of its bucket), 0 if nothing was recorded
+     */
+    public long getMax() {
+        return getPercentile(100);
+    }
+
+    /**
+     * Forget all durations.
+     */
+    public void reset() {
+        for (int bucket = 0; bucket < counts.length(); bucket++) {
+            counts.set(bucket, 0);
+        }
+    }
+
+    static int bucket(long value) {
+        if (value < 2 * SUB_BUCKETS) {
+            return (int) value;
+        }
+        int shift = Long.SIZE - 1 - Long.numberOfLeadingZeros(value) - SUB_BUCKET_BITS;
+        return (shift << SUB_BUCKET_BITS) + (int) (value >>> shift);
+    }
+
+    static long highestValue(int bucket) {
+        if (bucket < 2 * SUB_BUCKETS) {
+            return bucket;
+        }
+        int shift = (bucket >>> SUB_BUCKET_BITS) - 1;
+        long top = (bucket & (SUB_BUCKETS - 1)) + SUB_BUCKETS;
+        return ((top + 1) << shift) - 1;
+    }
+
+    @Override
+    public String toString() {
+        return String.format("p50 %d us, p99 %d us, max %d us (%d)", getPercentile(50) / 1000,
+                getPercentile(99) / 1000, getMax() / 1000, getCount());
+    }
+}
@@ -0,0 +1,234 @@
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.SplittableRandom;
+
+/**
+ * Load a {@link GameServer} with many connections playing random games.
+ *
+ * <p>Every connection plays games for both colors (<code>NEW XO</code>), sends a random valid move,
+ * waits for its reply and sends the next one, and starts a new game when one has ended. All connections
+ * are served by one thread with a {@link Selector}. The round trip of each move, from sending it to
+ * reading its MOVED reply, is recorded in a {@link LatencyHistogram}. A connection which fails or is closed
+ * by the server is counted as an error and dropped, the others go on playing.
+ */
+public class LoadGenerator {
+
+    private final InetSocketAddress address;
+    private final int sessions;
+    private final long seed;
+
+    private long games;
+    private long moves;
+    private long errors;
+    private final LatencyHistogram latency = new LatencyHistogram();
+
+    /**
+     * One connection and its copy of the game.
+     */
+    private static class Session {
+        final SocketChannel channel;
+        final ByteBuffer input = ByteBuffer.allocate(256);
+        final SplittableRandom random;
+        Board board = new Board();
+        long sent;
+
+        Session(SocketChannel channel, SplittableRandom random) {
+            this.channel = channel;
+            this.random = random;
+        }
+    }
+
+    /**
+     * @param address  the address of the server
+     * @param sessions the number of connections
+     * @param seed     the seed of the random moves
+     */
+    public LoadGenerator(InetSocketAddress address, int sessions, long seed) {
+        this.address = address;
+        this.sessions = sessions;
+        this.seed = seed;
+    }
+
+    /**
+     * Open the connections and play until the time is up, then close them.
+     *
+     * @param millis the time to play
+     * @throws IOException if the connections cannot be opened
+     */
+    public void run(long millis) throws IOException {
+        List<SocketChannel> channels = new ArrayList<>();
+        try (Selector selector = Selector.open()) {
+            for (int i = 0; i < sessions; i++) {
+                SocketChannel channel = SocketChannel.open();
+                channels.add(channel);
+                channel.configureBlocking(false);
+                channel.connect(address);
+                channel.register(selector, SelectionKey.OP_CONNECT, new Session(channel, new SplittableRandom(seed + i)));
+            }
+            long end = System.currentTimeMillis() + millis;
+            for (long now = System.currentTimeMillis(); now < end; now = System.currentTimeMillis()) {
+                selector.select(end - now);
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+                    Session session = (Session) key.attachment();
+                    try {
+                        if (key.isConnectable()) {
+                            session.channel.finishConnect();
+                            session.channel.socket().setTcpNoDelay(true);
+                            key.interestOps(SelectionKey.OP_READ);
+                            send(session, "NEW XO");
+                        } else if (key.isReadable()) {
+                            read(session);
+                        }
+                    } catch (IOException e) {
+                        //closed by the server, for example as idle: the other connections go on
+                        errors++;
+                        key.cancel();
+                        session.channel.close();
+                    }
+                }
+            }
+        } finally {
+            for (SocketChannel channel : channels) {
+                channel.close();
+            }
+        }
+    }
+
+    public long getGames() {
+        return games;
+    }
+
+    public long getMoves() {
+        return moves;
+    }
+
+    /**
+     * @return the number of ERROR replies and of connections which failed or were closed by the server
+     */
+    public long getErrors() {
+        return errors;
+    }
+
+    /**
+     * @return the round trips of the moves
+     */
+    public LatencyHistogram getLatency() {
+        return latency;
+    }
+
+    private void read(Session session) throws IOException {
+        ByteBuffer input = session.input;
+        if (session.channel.read(input) < 0) {
+            throw new IOException("Connection closed by the server");
+        }
+        input.flip();
+        int start = 0;
+        for (int i = 0; i < input.limit(); i++) {
+            if (input.get(i) == '\n') {
+                handle(session, new String(input.array(), start, i - start, StandardCharsets.US_ASCII));
+                start = i + 1;
+            }
+        }
+        input.position(start);
+        input.compact();
+    }
+
+    private void handle(Session session, String line) throws IOException {
+        String[] words = line.split(" ");
+        switch (words[0]) {
+            case "GAME":
+                session.board = new Board();
+                sendMove(session, Board.DARK);
+                break;
+            case "MOVED":
+                latency.record(System.nanoTime() - session.sent);
+                moves++;
+                session.board.flip(words[1].charAt(0), Disk.getDisk(words[2]));
+                char next = words[3].charAt(0);
+                if (next != Board.NO_PIECE) {
+                    sendMove(session, next);
+                }
+                break;
+            case "OVER":
+                games++;
+                send(session, "NEW XO");
+                break;
+            case "ERROR":
+                errors++;
+                send(session, "NEW XO");
+                break;
+            default:
+                break;
+        }
+    }
+
+    private void sendMove(Session session, char player) throws IOException {
+        long legalMoves = session.board.getMoves(player);
+        for (int skip = session.random.nextInt(Long.bitCount(legalMoves)); skip > 0; skip--) {
+            legalMoves &= legalMoves - 1;
+        }
+        session.sent = System.nanoTime();
+        send(session, "MOVE " + Disk.getUserMove(Long.numberOfTrailingZeros(legalMoves)));
+    }
+
+    private static void send(Session session, String line) throws IOException {
+        ByteBuffer buffer = ByteBuffer.wrap((line + "\n").getBytes(StandardCharsets.US_ASCII));
+        //a command is far smaller than the socket buffer, which is empty as each command waits for its reply
+        while (buffer.hasRemaining()) {
+            session.channel.write(buffer);
+        }
+    }
+
+    /**
+     * Usage: LoadGenerator [--host host] [--port port] [--sessions count] [--seconds seconds] [--seed seed]<p>
+     * Play against a running {@link GameServer} and print the games, moves per second and round trip latency.
+     * Many sessions need a high limit of open files (<code>ulimit -n</code>) on both sides.
+     *
+     * @param args the command line arguments
+     * @throws IOException if the connections cannot be opened
+     */
+    public static void main(String[] args) throws IOException {
+        String host = "localhost";
+        int port = GameServer.DEFAULT_PORT;
+        int sessions = 10_000;
+        long seconds = 10;
+        long seed = 1;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--host":
+                    host = args[++i];
+                    break;
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--sessions":
+                    sessions = Integer.parseInt(args[++i]);
+                    break;
+                case "--seconds":
+                    seconds = Long.parseLong(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        LoadGenerator generator = new LoadGenerator(new InetSocketAddress(host, port), sessions, seed);
+        generator.run(seconds * 1000);
+        System.out.printf("%d sessions, %d games, %d moves (%d/s), %d errors, round trip %s %n", sessions,
+                generator.getGames(), generator.getMoves(), generator.getMoves() / Math.max(1, seconds),
+                generator.getErrors(), generator.getLatency());
+    }
+}
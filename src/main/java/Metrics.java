@@ -0,0 +1,276 @@
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counters of the rules, replays and searches, to see where the time goes in a long run.
+ *
+ * <p>The counters are only kept when the JVM is started with <code>-Dothello.metrics=true</code>. Every
+ * call is guarded by <code>if (Metrics.ENABLED)</code>, a constant the JIT compiler folds, so when it is
+ * false the guarded code is removed and costs nothing. The counters are {@link LongAdder}s, which threads
+ * add to without contending for one cache line; durations go to {@link LatencyHistogram}s.
+ *
+ * <p>With <code>-Dothello.metrics.file=metrics.txt</code> a {@link #snapshot()} is written to the file
+ * every <code>othello.metrics.period</code> milliseconds (10000 by default) and when the JVM exits.
+ *
+ * <p>Independent of the switch, every search and every completed game is a JDK Flight Recorder event
+ * (<code>othello.Search</code>, <code>othello.Game</code>, see {@link FlightEvents}) when the JVM has
+ * a Flight Recorder. Events cost nothing until a recording enables them, e.g. with
+ * <code>-XX:StartFlightRecording=filename=run.jfr</code>.
+ */
+public final class Metrics {
+
+    /* True to keep the counters, set by the system property othello.metrics */
+    public static final boolean ENABLED = Boolean.getBoolean("othello.metrics");
+
+    /* True if the JVM has a Flight Recorder (jdk.jfr, Java 11 and later) */
+    static final boolean FLIGHT_RECORDER = hasFlightRecorder();
+
+    /* The most disks one move can flip */
+    static final int MAX_FLIPS = 18;
+
+    private static final long DEFAULT_PERIOD_MILLIS = 10_000;
+
+    private static final LongAdder MOVE_GENERATIONS = new LongAdder();
+    private static final LongAdder MOVES_GENERATED = new LongAdder();
+    private static final LongAdder MOVES_MADE = new LongAdder();
+    private static final LongAdder FLIPS = new LongAdder();
+    private static final LongAdder[] FLIPS_PER_MOVE = new LongAdder[MAX_FLIPS + 1];
+    private static final LongAdder AVAILABLE_MOVE_UPDATES = new LongAdder();
+    private static final LongAdder FLIP_CHECKS = new LongAdder();
+    private static final LongAdder SEARCH_NODES = new LongAdder();
+    private static final LongAdder GAMES = new LongAdder();
+    private static final LatencyHistogram REPLAY_LATENCY = new LatencyHistogram();
+    private static final LatencyHistogram SEARCH_LATENCY = new LatencyHistogram();
+
+    /* The start of the counting, for the rates */
+    private static volatile long startNanos = System.nanoTime();
+
+    static {
+        for (int flips = 0; flips <= MAX_FLIPS; flips++) {
+            FLIPS_PER_MOVE[flips] = new LongAdder();
+        }
+        String file = System.getProperty("othello.metrics.file");
+        if (ENABLED && file != null) {
+            Path path = Paths.get(file);
+            exportTo(path, Long.getLong("othello.metrics.period", DEFAULT_PERIOD_MILLIS));
+            Runtime.getRuntime().addShutdownHook(new Thread(() -> write(path), "metrics-exit"));
+        }
+    }
+
+    private Metrics() {
+    }
+
+    private static boolean hasFlightRecorder() {
+        try {
+            Class.forName("jdk.jfr.Event");
+            return true;
+        } catch (ClassNotFoundException | LinkageError e) {
+            return false;
+        }
+    }
+
+    /**
+     * The legal moves of a player were generated (see {@link Board#getMoves(char)}).
+     *
+     * @param moves the number of legal moves
+     */
+    static void movesGenerated(int moves) {
+        MOVE_GENERATIONS.increment();
+        MOVES_GENERATED.add(moves);
+    }
+
+    /**
+     * A move was made (see {@link Board#makeMove(char, int)}).
+     *
+     * @param flips the number of flipped disks
+     */
+    static void moveMade(int flips) {
+        MOVES_MADE.increment();
+        FLIPS.add(flips);
+        FLIPS_PER_MOVE[Math.min(flips, MAX_FLIPS)].increment();
+    }
+
+    /**
+     * The moves were asked for as {@link Disk} lists (see {@link Board#updateAvailableMoves()}).
+     */
+    static void availableMovesUpdated() {
+        AVAILABLE_MOVE_UPDATES.increment();
+    }
+
+    /**
+     * One move was checked (see {@link Board#canFlip(char, Disk)}).
+     */
+    static void flipChecked() {
+        FLIP_CHECKS.increment();
+    }
+
+    /**
+     * A game was replayed (see {@link GameReplay} and {@link GameRecord#play(Board)}).
+     *
+     * @param nanos the time of the replay
+     */
+    static void gameReplayed(long nanos) {
+        REPLAY_LATENCY.record(nanos);
+    }
+
+    /**
+     * A search ended. Counted if enabled, and a Flight Recorder event.
+     *
+     * @param engine the name of the engine
+     * @param move   the best move, -1 if none
+     * @param depth  the depth of the last complete iteration, 0 for a move of the opening book
+     * @param score  the score of the best move
+     * @param nodes  the nodes visited
+     * @param nanos  the time of the search
+     */
+    static void searchFinished(String engine, int move, int depth, int score, long nodes, long nanos) {
+        if (ENABLED) {
+            SEARCH_NODES.add(nodes);
+            SEARCH_LATENCY.record(nanos);
+        }
+        if (FLIGHT_RECORDER) {
+            FlightEvents.search(engine, move, depth, score, nodes, nanos);
+        }
+    }
+
+    /**
+     * A game ended. Counted if enabled, and a Flight Recorder event.
+     *
+     * @param darkDisks  the disks of DARK player
+     * @param lightDisks the disks of LIGHT player
+     * @param moves      the moves of the game, without passes
+     */
+    static void gameCompleted(int darkDisks, int lightDisks, int moves) {
+        if (ENABLED) {
+            GAMES.increment();
+        }
+        if (FLIGHT_RECORDER) {
+            FlightEvents.game(darkDisks, lightDisks, moves);
+        }
+    }
+
+    /**
+     * Set all counters back to 0 and restart the rates.
+     */
+    public static void reset() {
+        for (LongAdder adder : new LongAdder[]{MOVE_GENERATIONS, MOVES_GENERATED, MOVES_MADE, FLIPS,
+                AVAILABLE_MOVE_UPDATES, FLIP_CHECKS, SEARCH_NODES, GAMES}) {
+            adder.reset();
+        }
+        for (LongAdder adder : FLIPS_PER_MOVE) {
+            adder.reset();
+        }
+        REPLAY_LATENCY.reset();
+        SEARCH_LATENCY.reset();
+        startNanos = System.nanoTime();
+    }
+
+    /**
+     * Return the counters as <code>name=value</code> lines, durations in microseconds, e.g.
+     * <pre>
+     * moves.made=1843200
+     * moves.per.second=2470000
+     * flips.per.move=0:0,1:700012,2:501233,...
+     * </pre>
+     *
+     * @return the snapshot of the counters
+     */
+    public static String snapshot() {
+        long nanos = Math.max(1, System.nanoTime() - startNanos);
+        long movesMade = MOVES_MADE.sum();
+        StringBuilder flipsPerMove = new StringBuilder();
+        for (int flips = 0; flips <= MAX_FLIPS; flips++) {
+            flipsPerMove.append(flips == 0 ? "" : ",").append(flips).append(':').append(FLIPS_PER_MOVE[flips].sum());
+        }
+        StringBuilder text = new StringBuilder();
+        line(text, "enabled", ENABLED);
+        line(text, "elapsed.ms", nanos / 1_000_000L);
+        line(text, "moves.generations", MOVE_GENERATIONS.sum());
+        line(text, "moves.generated", MOVES_GENERATED.sum());
+        line(text, "moves.made", movesMade);
+        line(text, "moves.per.second", movesMade * 1_000_000_000L / nanos);
+        line(text, "flips", FLIPS.sum());
+        line(text, "flips.per.move", flipsPerMove);
+        line(text, "board.updateAvailableMoves", AVAILABLE_MOVE_UPDATES.sum());
+        line(text, "board.canFlip", FLIP_CHECKS.sum());
+        histogram(text, "replay", REPLAY_LATENCY);
+        histogram(text, "search", SEARCH_LATENCY);
+        line(text, "search.nodes", SEARCH_NODES.sum());
+        line(text, "games", GAMES.sum());
+        return text.toString();
+    }
+
+    private static void line(StringBuilder text, String name, Object value) {
+        text.append(name).append('=').append(value).append(System.lineSeparator());
+    }
+
+    private static void histogram(StringBuilder text, String name, LatencyHistogram histogram) {
+        line(text, name + ".count", histogram.getCount());
+        line(text, name + ".p50.us", histogram.getPercentile(50) / 1000);
+        line(text, name + ".p99.us", histogram.getPercentile(99) / 1000);
+        line(text, name + ".max.us", histogram.getMax() / 1000);
+    }
+
+    /**
+     * Write a {@link #snapshot()} to the file every <code>periodMillis</code> until closed. The file is
+     * replaced at once, a reader never sees half a snapshot. A snapshot which cannot be written is reported
+     * on the standard error, the next ones are still tried.
+     *
+     * @param file         the file, replaced by every snapshot
+     * @param periodMillis the time between two snapshots
+     * @return closes the export, after the snapshot being written if any
+     */
+    public static Closeable exportTo(Path file, long periodMillis) {
+        ScheduledExecutorService executor = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "metrics-export");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.scheduleAtFixedRate(() -> {
+            try {
+                write(file);
+            } catch (RuntimeException e) {
+                //an exception would cancel the later snapshots
+                System.err.println("Cannot write the metrics to " + file + ": " + e);
+            }
+        }, periodMillis, periodMillis, TimeUnit.MILLISECONDS);
+        return () -> {
+            executor.shutdown();
+            try {
+                executor.awaitTermination(1, TimeUnit.MINUTES);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        };
+    }
+
+    /**
+     * Write a {@link #snapshot()} to the file, replacing it.
+     *
+     * @param file the file
+     */
+    static void write(Path file) {
+        try {
+            Path parent = file.toAbsolutePath().getParent();
+            Path temporary = Files.createTempFile(parent, file.getFileName().toString(), ".tmp");
+            try {
+                Files.write(temporary, snapshot().getBytes(StandardCharsets.US_ASCII));
+                Files.move(temporary, file, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            } finally {
+                Files.deleteIfExists(temporary);
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+}
@@ -0,0 +1,511 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Computer player choosing the move which wins the most random games (Monte Carlo Tree Search with UCT).
+ *
+ * <p>Every playout walks down the tree from the root, at each node to the child with the best
+ * <code>wins / visits + exploration * sqrt(ln(parent visits) / visits)</code>, expands the node it ends on
+ * and plays the rest of the game at random. The result, 1 for a win, 1/2 for a tie, goes back up the path.
+ * The answer is the move played most often. Random moves may be guided: take a corner when there is one,
+ * and do not give one away by playing next to an empty corner diagonally.
+ *
+ * <p>All threads share one tree (tree parallelism). A thread going down adds a virtual loss to every
+ * node of its path, so the others spread to other moves until its result is in. The tree is a pool of
+ * nodes in primitive arrays allocated once: the children of a node are a block of consecutive nodes,
+ * claimed by one atomic addition; visits and wins (in half points) are atomic ints. When the pool is full
+ * the tree stops growing and the playouts go on from its leaves. Each thread plays its random games on
+ * two 64-bit masks with {@link BitBoard} and its own {@link FastRandom}, without allocating anything.
+ */
+public class MonteCarloSearch implements Engine {
+
+    /* The exploration constant of UCT, sqrt(2) in theory, less plays better in Othello */
+    public static final double DEFAULT_EXPLORATION = 1.0;
+
+    /* The nodes of the tree, about 14 bytes each */
+    public static final int DEFAULT_TREE_NODES = 1 << 20;
+
+    /* The visits added while a playout is on its way, counted as losses */
+    static final int VIRTUAL_LOSS = 3;
+
+    /* The move of a pass, the only child of a node whose player has no valid move */
+    static final int PASS = BitBoard.SQUARES;
+
+    /* The root node, node 0 is unused so 0 can mean "no children yet" */
+    private static final int ROOT = 1;
+
+    /* firstChild of a node being expanded by another thread, and of a node at the end of the game */
+    private static final int EXPANDING = -1;
+    private static final int GAME_OVER = -2;
+
+    /* Check the clock once every (PLAYOUTS_PER_CHECK + 1) playouts */
+    private static final int PLAYOUTS_PER_CHECK = 15;
+
+    private static final long CORNERS = 0x8100000000000081L;
+
+    private final int threads;
+    private final ForkJoinPool pool;
+    private long maxMillis;
+    private long maxPlayouts;
+    private double exploration = DEFAULT_EXPLORATION;
+    private boolean guided;
+    private long seed = 1;
+
+    /* The node pool */
+    private final int capacity;
+    private final AtomicIntegerArray firstChild;
+    private final byte[] childCount;
+    private final byte[] move;
+    private final AtomicIntegerArray visits;
+    private final AtomicIntegerArray wins;
+    private final AtomicInteger nextNode = new AtomicInteger();
+    private volatile boolean full;
+
+    /* The search in progress */
+    private long rootOwn;
+    private long rootOpp;
+    private long deadline;
+    private final AtomicLong playouts = new AtomicLong();
+    private final AtomicInteger maxTreeDepth = new AtomicInteger();
+    private AtomicBoolean stopped;
+
+    /* Result of the last search */
+    private int bestMove;
+    private int score;
+    private int depth;
+    private long elapsedNanos;
+
+    /**
+     * @param threads     the number of threads, 1 plays in the calling thread
+     * @param maxMillis   the time budget per move in milliseconds, 0 for no limit
+     * @param maxPlayouts the number of random games per move, at least one limit must be set
+     */
+    public MonteCarloSearch(int threads, long maxMillis, long maxPlayouts) {
+        this(threads, maxMillis, maxPlayouts, DEFAULT_TREE_NODES);
+    }
+
+    /**
+     * @param threads     the number of threads, 1 plays in the calling thread
+     * @param maxMillis   the time budget per move in milliseconds, 0 for no limit
+     * @param maxPlayouts the number of random games per move, at least one limit must be set
+     * @param treeNodes   the size of the node pool
+     */
+    public MonteCarloSearch(int threads, long maxMillis, long maxPlayouts, int treeNodes) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be at least 1: " + threads);
+        }
+        if (treeNodes < 2 + PASS) {
+            throw new IllegalArgumentException("Too few tree nodes: " + treeNodes);
+        }
+        this.threads = threads;
+        this.pool = threads > 1 ? new ForkJoinPool(threads) : null;
+        this.maxMillis = maxMillis;
+        this.maxPlayouts = maxPlayouts;
+        this.capacity = treeNodes;
+        firstChild = new AtomicIntegerArray(treeNodes);
+        childCount = new byte[treeNodes];
+        move = new byte[treeNodes];
+        visits = new AtomicIntegerArray(treeNodes);
+        wins = new AtomicIntegerArray(treeNodes);
+    }
+
+    public int getThreads() {
+        return threads;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+    @Override
+    public void setMaxMillis(long maxMillis) {
+        this.maxMillis = maxMillis;
+    }
+
+    public long getMaxPlayouts() {
+        return maxPlayouts;
+    }
+
+    public void setMaxPlayouts(long maxPlayouts) {
+        this.maxPlayouts = maxPlayouts;
+    }
+
+    public double getExploration() {
+        return exploration;
+    }
+
+    /**
+     * @param exploration the weight of the less visited moves in UCT, see {@link #DEFAULT_EXPLORATION}
+     */
+    public void setExploration(double exploration) {
+        this.exploration = exploration;
+    }
+
+    public boolean isGuided() {
+        return guided;
+    }
+
+    /**
+     * @param guided true to take corners and avoid the squares diagonal to empty corners in the random games
+     */
+    public void setGuided(boolean guided) {
+        this.guided = guided;
+    }
+
+    /**
+     * @param seed the seed of the random games; with one thread the same seed plays the same moves
+     */
+    public void setSeed(long seed) {
+        this.seed = seed;
+    }
+
+    /**
+     * Stop the threads of the search.
+     */
+    @Override
+    public void shutdown() {
+        if (pool != null) {
+            pool.shutdown();
+        }
+    }
+
+    @Override
+    public int findBestMove(Board board, char player) {
+        long start = System.nanoTime();
+        rootOwn = board.getDisks(player);
+        rootOpp = board.getDisks(Board.getOpponent(player));
+        deadline = maxMillis > 0 ? start + maxMillis * 1_000_000L : Long.MAX_VALUE;
+        playouts.set(0);
+        maxTreeDepth.set(0);
+        stopped = new AtomicBoolean();
+        full = false;
+        nextNode.set(ROOT + 1);
+        initNode(ROOT, PASS);
+        bestMove = -1;
+        score = 0;
+        depth = 0;
+
+        if (BitBoard.moves(rootOwn, rootOpp) != 0) {
+            if (pool == null) {
+                new Worker(seed).run();
+            } else {
+                List<ForkJoinTask<?>> tasks = new ArrayList<>(threads);
+                for (int i = 0; i < threads; i++) {
+                    tasks.add(pool.submit(new Worker(seed + i)));
+                }
+                for (ForkJoinTask<?> task : tasks) {
+                    task.join();
+                }
+            }
+            int best = firstChild.get(ROOT);
+            for (int child = best + 1; child < firstChild.get(ROOT) + childCount[ROOT]; child++) {
+                if (visits.get(child) > visits.get(best)) {
+                    best = child;
+                }
+            }
+            bestMove = move[best];
+            score = visits.get(best) == 0 ? 50 : 50 * wins.get(best) / visits.get(best);
+            depth = maxTreeDepth.get();
+        }
+        elapsedNanos = System.nanoTime() - start;
+        Metrics.searchFinished("MonteCarloSearch", bestMove, depth, score, playouts.get(), elapsedNanos);
+        return bestMove;
+    }
+
+    private void initNode(int node, int square) {
+        move[node] = (byte) square;
+        childCount[node] = 0;
+        visits.set(node, 0);
+        wins.set(node, 0);
+        firstChild.set(node, 0);
+    }
+
+    /**
+     * Give the node its children, unless another thread is doing it or the pool is full.
+     *
+     * @return true if the node has children now
+     */
+    private boolean expand(int node, long own, long opp) {
+        if (full || !firstChild.compareAndSet(node, 0, EXPANDING)) {
+            return false;
+        }
+        long legalMoves = BitBoard.moves(own, opp);
+        if (legalMoves == 0 && BitBoard.moves(opp, own) == 0) {
+            firstChild.set(node, GAME_OVER);
+            return false;
+        }
+        int count = legalMoves == 0 ? 1 : Long.bitCount(legalMoves);
+        int first = nextNode.getAndAdd(count);
+        if (first + count > capacity) {
+            full = true;
+            firstChild.set(node, 0);
+            return false;
+        }
+        if (legalMoves == 0) {
+            initNode(first, PASS);
+        }
+        for (int child = first; legalMoves != 0; legalMoves &= legalMoves - 1) {
+            initNode(child++, Long.numberOfTrailingZeros(legalMoves));
+        }
+        childCount[node] = (byte) count;
+        //publishes the children to the other threads
+        firstChild.set(node, first);
+        return true;
+    }
+
+    /**
+     * Return the child with the best upper confidence bound, the first unvisited child if there is one.
+     */
+    private int select(int node) {
+        int first = firstChild.get(node);
+        int end = first + childCount[node];
+        double logVisits = Math.log(Math.max(1, visits.get(node)));
+        int best = first;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for (int child = first; child < end; child++) {
+            int childVisits = visits.get(child);
+            if (childVisits == 0) {
+                return child;
+            }
+            double value = wins.get(child) / (2.0 * childVisits) + exploration * Math.sqrt(logVisits / childVisits);
+            if (value > bestValue) {
+                bestValue = value;
+                best = child;
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Play at random to the end of the game.
+     *
+     * @return 2 if the player to move (<code>own</code>) wins, 1 for a tie, 0 if it loses
+     */
+    int playout(long own, long opp, FastRandom random) {
+        boolean swapped = false;
+        while (true) {
+            long legalMoves = BitBoard.moves(own, opp);
+            if (legalMoves == 0) {
+                if (BitBoard.moves(opp, own) == 0) {
+                    break;
+                }
+            } else {
+                int square = guided ? guidedMove(legalMoves, own | opp, random) : randomMove(legalMoves, random);
+                long flipped = BitBoard.flips(own, opp, square);
+                own |= flipped | (1L << square);
+                opp &= ~flipped;
+            }
+            long next = opp;
+            opp = own;
+            own = next;
+            swapped = !swapped;
+        }
+        int difference = Long.bitCount(own) - Long.bitCount(opp);
+        if (swapped) {
+            difference = -difference;
+        }
+        return difference > 0 ? 2 : difference == 0 ? 1 : 0;
+    }
+
+    private static int randomMove(long moves, FastRandom random) {
+        for (int skip = random.nextInt(Long.bitCount(moves)); skip > 0; skip--) {
+            moves &= moves - 1;
+        }
+        return Long.numberOfTrailingZeros(moves);
+    }
+
+    /**
+     * A random corner if there is one, else a random move which is not diagonal to an empty corner if there
+     * is one, else any random move.
+     */
+    private static int guidedMove(long moves, long occupied, FastRandom random) {
+        long corners = moves & CORNERS;
+        if (corners != 0) {
+            return randomMove(corners, random);
+        }
+        long xSquares = 0;
+        if ((occupied & 1L) == 0) {
+            xSquares |= 1L << 9;
+        }
+        if ((occupied & (1L << 7)) == 0) {
+            xSquares |= 1L << 14;
+        }
+        if ((occupied & (1L << 56)) == 0) {
+            xSquares |= 1L << 49;
+        }
+        if ((occupied & (1L << 63)) == 0) {
+            xSquares |= 1L << 54;
+        }
+        long safe = moves & ~xSquares;
+        return randomMove(safe != 0 ? safe : moves, random);
+    }
+
+    /**
+     * The playouts of one thread.
+     */
+    private class Worker implements Runnable {
+        private final FastRandom random;
+        private final int[] path = new int[BitBoard.SQUARES * 2 + 2];
+
+        Worker(long seed) {
+            random = new FastRandom(seed);
+        }
+
+        @Override
+        public void run() {
+            for (long count = 0; !stopped.get(); count++) {
+                if ((count & PLAYOUTS_PER_CHECK) == 0 && System.nanoTime() >= deadline) {
+                    stopped.set(true);
+                    break;
+                }
+                if (playouts.incrementAndGet() > maxPlayouts) {
+                    playouts.decrementAndGet();
+                    stopped.set(true);
+                    break;
+                }
+                playOnce();
+            }
+        }
+
+        private void playOnce() {
+            long own = rootOwn;
+            long opp = rootOpp;
+            int length = 0;
+            int node = ROOT;
+            path[length++] = node;
+            visits.addAndGet(node, VIRTUAL_LOSS);
+            while (true) {
+                int first = firstChild.get(node);
+                if (first == 0 && (node == ROOT || visits.get(node) > VIRTUAL_LOSS)) {
+                    //a leaf visited before grows children
+                    if (expand(node, own, opp)) {
+                        first = firstChild.get(node);
+                    }
+                }
+                if (first <= 0) {
+                    break;
+                }
+                node = select(node);
+                int square = move[node];
+                if (square != PASS) {
+                    long flipped = BitBoard.flips(own, opp, square);
+                    own |= flipped | (1L << square);
+                    opp &= ~flipped;
+                }
+                long next = opp;
+                opp = own;
+                own = next;
+                path[length++] = node;
+                visits.addAndGet(node, VIRTUAL_LOSS);
+            }
+            if (length - 1 > maxTreeDepth.get()) {
+                maxTreeDepth.accumulateAndGet(length - 1, Math::max);
+            }
+
+            //the result for the player to move at the leaf, the wins of a node count for the player who moved
+            int result = playout(own, opp, random);
+            for (int i = length - 1; i >= 0; i--) {
+                result = 2 - result;
+                wins.addAndGet(path[i], result);
+                visits.addAndGet(path[i], 1 - VIRTUAL_LOSS);
+            }
+        }
+    }
+
+    /**
+     * @return the square index of the best move found by the last search, -1 if there was none
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * @return the winning chance of the best move in percent, from the random games of the last search
+     */
+    @Override
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return the deepest node of the tree reached by the last search
+     */
+    @Override
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return the number of random games played by the last search
+     */
+    @Override
+    public long getNodes() {
+        return playouts.get();
+    }
+
+    /**
+     * @return the visits of the root, the playouts once all of them are back
+     */
+    int getRootVisits() {
+        return visits.get(ROOT);
+    }
+
+    /**
+     * @return the number of nodes of the tree built by the last search
+     */
+    public int getTreeNodes() {
+        return Math.min(nextNode.get(), capacity) - ROOT;
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000L;
+    }
+
+    /**
+     * @return the random games played per second by all threads in the last search
+     */
+    public long getPlayoutsPerSecond() {
+        return elapsedNanos == 0 ? 0 : playouts.get() * 1_000_000_000L / elapsedNanos;
+    }
+
+    /**
+     * Usage: MonteCarloSearch [--threads count] [--time millis] [--guided]<p>
+     * Search the initial position and print the best move and the random games per second.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        long millis = 5000;
+        boolean guided = false;
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--time":
+                    millis = Long.parseLong(args[++i]);
+                    break;
+                case "--guided":
+                    guided = true;
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        MonteCarloSearch search = new MonteCarloSearch(threads, millis, Long.MAX_VALUE);
+        search.setGuided(guided);
+        int move = search.findBestMove(new Board(), Board.DARK);
+        System.out.printf("%s (%d%%) after %d playouts on %d threads in %d ms, %d playouts/s, %d tree nodes %n",
+                Disk.getUserMove(move), search.getScore(), search.getNodes(), threads, search.getElapsedMillis(),
+                search.getPlayoutsPerSecond(), search.getTreeNodes());
+        search.shutdown();
+    }
+}
@@ -0,0 +1,83 @@
+import java.util.Arrays;
+
+/**
+ * The score of one legal move found by {@link Search#analyze(Board, char, AnalysisListener)}, with the
+ * moves both players are expected to play after it.
+ */
+public final class MoveAnalysis {
+
+    private final int move;
+    private final int depth;
+    private final int score;
+    private final int[] principalVariation;
+
+    /**
+     * @param move               the square index of the move
+     * @param depth              the depth searched, in plies including the move
+     * @param score              the score from the point of view of the player making the move
+     * @param principalVariation the move and the expected replies, passes left out
+     */
+    public MoveAnalysis(int move, int depth, int score, int[] principalVariation) {
+        this.move = move;
+        this.depth = depth;
+        this.score = score;
+        this.principalVariation = principalVariation;
+    }
+
+    /**
+     * @return the square index of the move
+     */
+    public int getMove() {
+        return move;
+    }
+
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return the score from the point of view of the player making the move, see {@link Search}
+     */
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return the square indexes of the move and the expected replies, passes left out
+     */
+    public int[] getPrincipalVariation() {
+        return principalVariation.clone();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) {
+            return true;
+        }
+        if (!(o instanceof MoveAnalysis)) {
+            return false;
+        }
+        MoveAnalysis analysis = (MoveAnalysis) o;
+        return move == analysis.move && depth == analysis.depth && score == analysis.score
+                && Arrays.equals(principalVariation, analysis.principalVariation);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * (31 * (31 * move + depth) + score) + Arrays.hashCode(principalVariation);
+    }
+
+    /**
+     * @return e.g. "3d depth 4 score 1250: 3d,3c,4c,5c"
+     */
+    @Override
+    public String toString() {
+        StringBuilder text = new StringBuilder();
+        text.append(Disk.getUserMove(move)).append(" depth ").append(depth).append(" score ").append(score)
+                .append(": ");
+        for (int i = 0; i < principalVariation.length; i++) {
+            text.append(i == 0 ? "" : ",").append(Disk.getUserMove(principalVariation[i]));
+        }
+        return text.toString();
+    }
+}
@@ -0,0 +1,342 @@
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Opening book: the moves played from positions of a game corpus and how they ended.
+ *
+ * <p>The book is a binary file of fixed-size entries sorted by position hash. It is memory-mapped when
+ * opened and searched in place with binary search, so opening a book costs the same whatever its size.
+ * <pre>
+ * header, 16 bytes: magic "OBK1", version, number of entries, unused
+ * entry,  24 bytes: position hash (long), move, games, points, disk sum (int each)
+ * </pre>
+ * A position is stored once for all its symmetric positions: the hash is the hash of the canonical
+ * position of the disks of the player to move and of the opponent (see {@link Symmetry#canonicalHash(long, long)}),
+ * and the move is transformed the same way. <code>points</code> counts 2 per game won
+ * and 1 per game drawn by the player to move, <code>disk sum</code> adds up the final disk differences
+ * from the point of view of the player to move. Moves which are symmetric in a symmetric position, like
+ * the four first moves, are stored as one. Numbers are big-endian.
+ */
+public class OpeningBook {
+
+    private static final int MAGIC = 0x4F424B31;
+    private static final int VERSION = 2;
+    private static final int HEADER_BYTES = 16;
+    private static final int ENTRY_BYTES = 24;
+
+    /* Number of moves of each game put into the book by default */
+    public static final int DEFAULT_PLIES = 20;
+
+    /**
+     * The statistics of one move of a book position.
+     */
+    public static class BookMove {
+        private final int square;
+        private int games;
+        private int points;
+        private int diskSum;
+
+        BookMove(int square, int games, int points, int diskSum) {
+            this.square = square;
+            this.games = games;
+            this.points = points;
+            this.diskSum = diskSum;
+        }
+
+        /**
+         * @return the square index of the move
+         */
+        public int getSquare() {
+            return square;
+        }
+
+        public int getGames() {
+            return games;
+        }
+
+        /**
+         * @return 2 per game won and 1 per game drawn after the move
+         */
+        public int getPoints() {
+            return points;
+        }
+
+        /**
+         * @return the share of points won after the move, from 0 to 1
+         */
+        public double getScore() {
+            return points / (2.0 * games);
+        }
+
+        /**
+         * @return the average final disk difference after the move
+         */
+        public double getAverageDiskDifference() {
+            return (double) diskSum / games;
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s: %d games, %.1f%%, %+.1f disks", Disk.getUserMove(square), games,
+                    100 * getScore(), getAverageDiskDifference());
+        }
+    }
+
+    private final MappedByteBuffer buffer;
+    private final int entries;
+
+    private OpeningBook(MappedByteBuffer buffer) throws IOException {
+        if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+            throw new IOException("Not an opening book");
+        }
+        if (buffer.getInt(4) != VERSION) {
+            throw new IOException("Unknown opening book version: " + buffer.getInt(4));
+        }
+        entries = buffer.getInt(8);
+        if ((long) HEADER_BYTES + (long) entries * ENTRY_BYTES > buffer.capacity()) {
+            throw new IOException("Opening book is truncated");
+        }
+        this.buffer = buffer;
+    }
+
+    /**
+     * Open a book written by {@link #build(Path, Path, int)}.
+     *
+     * @param path the book file
+     * @return the book
+     * @throws IOException if the file cannot be read or is not a book
+     */
+    public static OpeningBook open(Path path) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            return new OpeningBook(channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size()));
+        }
+    }
+
+    /**
+     * @return the number of entries, one per position and move
+     */
+    public int size() {
+        return entries;
+    }
+
+    /**
+     * Return the book moves of the position.
+     *
+     * @param board  the current board
+     * @param player the player to move
+     * @return the moves played from the position, empty if it is not in the book
+     */
+    public List<BookMove> getMoves(Board board, char player) {
+        long own = board.getDisks(player);
+        long opp = board.getDisks(Board.getOpponent(player));
+        int transform = Symmetry.canonicalTransform(own, opp);
+        long hash = Symmetry.hash(transform, own, opp);
+        int inverse = Symmetry.inverse(transform);
+        List<BookMove> moves = new ArrayList<>();
+        for (int index = lowerBound(hash); index < entries && hashAt(index) == hash; index++) {
+            int offset = HEADER_BYTES + index * ENTRY_BYTES;
+            int square = buffer.getInt(offset + 8);
+            if (square < 0 || square >= BitBoard.SQUARES) {
+                //a corrupt entry
+                continue;
+            }
+            moves.add(new BookMove(Symmetry.square(inverse, square),
+                    buffer.getInt(offset + 12), buffer.getInt(offset + 16), buffer.getInt(offset + 20)));
+        }
+        return moves;
+    }
+
+    /**
+     * Return the book move with the best score, the most played one among equal scores.
+     *
+     * @param board  the current board
+     * @param player the player to move
+     * @return the square index of the move, -1 if the position is not in the book
+     */
+    public int findMove(Board board, char player) {
+        BookMove best = null;
+        for (BookMove move : getMoves(board, player)) {
+            //compare points / games without division
+            if (best == null || (long) move.points * best.games > (long) best.points * move.games
+                    || (long) move.points * best.games == (long) best.points * move.games && move.games > best.games) {
+                best = move;
+            }
+        }
+        return best == null ? -1 : best.square;
+    }
+
+    private long hashAt(int index) {
+        return SortedHashes.hashAt(buffer, HEADER_BYTES, ENTRY_BYTES, index);
+    }
+
+    private int lowerBound(long hash) {
+        return SortedHashes.lowerBound(buffer, HEADER_BYTES, ENTRY_BYTES, entries, hash);
+    }
+
+    /**
+     * Return the move in the canonical position. If the position is symmetric itself, several transforms
+     * give the canonical position: the symmetric moves are stored as one, the smallest square.
+     */
+    private static int canonicalSquare(long own, long opp, int transform, int square) {
+        long hash = Symmetry.hash(transform, own, opp);
+        int canonicalSquare = Symmetry.square(transform, square);
+        for (int other = transform + 1; other < Symmetry.COUNT; other++) {
+            if (Symmetry.hash(other, own, opp) == hash) {
+                canonicalSquare = Math.min(canonicalSquare, Symmetry.square(other, square));
+            }
+        }
+        return canonicalSquare;
+    }
+
+    /**
+     * Build a book from a corpus of games. Only the games played to their end are used, see {@link GameReplay}.
+     *
+     * @param corpus the games, one per line, written as comma separated moves
+     * @param book   the book file to write
+     * @param plies  the number of moves of each game put into the book
+     * @return the number of games used
+     * @throws IOException if the corpus cannot be read or the book cannot be written
+     */
+    public static int build(Path corpus, Path book, int plies) throws IOException {
+        Map<Long, List<BookMove>> positions = new HashMap<>();
+        Board board = new Board();
+        int games = 0;
+        try (BufferedReader reader = Files.newBufferedReader(corpus, StandardCharsets.US_ASCII)) {
+            String line;
+            while ((line = reader.readLine()) != null) {
+                if (GameReplay.status(GameReplay.replay(line)) == GameReplay.VALID) {
+                    addGame(positions, board, line, plies);
+                    games++;
+                }
+            }
+        }
+        write(positions, book);
+        return games;
+    }
+
+    private static void addGame(Map<Long, List<BookMove>> positions, Board board, String game, int plies) {
+        String[] moves = game.split(",");
+        //replay the whole game for the result, then undo it to walk the positions from the start
+        board.reset();
+        char[] players = new char[moves.length];
+        char player = Board.DARK;
+        for (int ply = 0; ply < moves.length; ply++) {
+            if (board.getMoves(player) == 0) {
+                player = Board.getOpponent(player);
+            }
+            players[ply] = player;
+            board.makeMove(player, BitBoard.square(Disk.getDisk(moves[ply])));
+            player = Board.getOpponent(player);
+        }
+        int darkDifference = Long.bitCount(board.getDisks(Board.DARK)) - Long.bitCount(board.getDisks(Board.LIGHT));
+        while (board.getMoveCount() > 0) {
+            board.undoMove();
+        }
+
+        for (int ply = 0; ply < Math.min(plies, moves.length); ply++) {
+            char mover = players[ply];
+            long own = board.getDisks(mover);
+            long opp = board.getDisks(Board.getOpponent(mover));
+            int transform = Symmetry.canonicalTransform(own, opp);
+            int square = BitBoard.square(Disk.getDisk(moves[ply]));
+            int canonicalSquare = canonicalSquare(own, opp, transform, square);
+            int difference = mover == Board.DARK ? darkDifference : -darkDifference;
+
+            List<BookMove> bookMoves = positions.computeIfAbsent(Symmetry.hash(transform, own, opp),
+                    hash -> new ArrayList<>(2));
+            BookMove bookMove = null;
+            for (BookMove candidate : bookMoves) {
+                if (candidate.square == canonicalSquare) {
+                    bookMove = candidate;
+                }
+            }
+            if (bookMove == null) {
+                bookMove = new BookMove(canonicalSquare, 0, 0, 0);
+                bookMoves.add(bookMove);
+            }
+            bookMove.games++;
+            bookMove.points += difference > 0 ? 2 : difference == 0 ? 1 : 0;
+            bookMove.diskSum += difference;
+
+            board.makeMove(mover, square);
+        }
+    }
+
+    private static void write(Map<Long, List<BookMove>> positions, Path book) throws IOException {
+        long[] hashes = new long[positions.size()];
+        int count = 0;
+        int entries = 0;
+        for (Map.Entry<Long, List<BookMove>> position : positions.entrySet()) {
+            hashes[count++] = position.getKey();
+            entries += position.getValue().size();
+        }
+        //sort unsigned: flip the sign bit, sort signed, flip back
+        for (int i = 0; i < count; i++) {
+            hashes[i] ^= Long.MIN_VALUE;
+        }
+        Arrays.sort(hashes);
+
+        try (FileChannel channel = FileChannel.open(book, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer output = ByteBuffer.allocate(64 * 1024);
+            output.putInt(MAGIC).putInt(VERSION).putInt(entries).putInt(0);
+            for (int i = 0; i < count; i++) {
+                long hash = hashes[i] ^ Long.MIN_VALUE;
+                List<BookMove> bookMoves = positions.get(hash);
+                bookMoves.sort((a, b) -> Integer.compare(a.square, b.square));
+                for (BookMove bookMove : bookMoves) {
+                    if (output.remaining() < ENTRY_BYTES) {
+                        flush(channel, output);
+                    }
+                    output.putLong(hash).putInt(bookMove.square).putInt(bookMove.games)
+                            .putInt(bookMove.points).putInt(bookMove.diskSum);
+                }
+            }
+            flush(channel, output);
+        }
+    }
+
+    private static void flush(FileChannel channel, ByteBuffer output) throws IOException {
+        output.flip();
+        while (output.hasRemaining()) {
+            channel.write(output);
+        }
+        output.clear();
+    }
+
+    /**
+     * Usage: OpeningBook corpus book [plies]<p>
+     * Build <code>book</code> from the games of <code>corpus</code>, using the first <code>plies</code>
+     * moves of each game (20 by default).
+     *
+     * @param args the command line arguments
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: OpeningBook corpus book [plies]");
+            return;
+        }
+        int plies = args.length > 2 ? Integer.parseInt(args[2]) : DEFAULT_PLIES;
+        long start = System.nanoTime();
+        int games = build(Paths.get(args[0]), Paths.get(args[1]), plies);
+        OpeningBook book = open(Paths.get(args[1]));
+        System.out.printf("%d games, %d entries in %d ms %n", games, book.size(),
+                (System.nanoTime() - start) / 1_000_000L);
+        System.out.println("Initial position: " + book.getMoves(new Board(), Board.DARK));
+    }
+
+}
@@ -1,6 +1,9 @@
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
 import java.util.Arrays;
+import java.util.Collections;
 import java.util.List;
-import java.util.Random;
 import java.util.Scanner;
 
 /**
@@ -54,8 +57,22 @@ public class Othello {
      * @return the game  board status
      */
     public static String playGame(String moves) {
-        Board board = new Board();
-        char currentPlayer = Board.DARK; //The 'X' takes first move
+        return playGame(moves, null, "");
+    }
+
+    /**
+     * Return game board status after all moves processed, like {@link #playGame(String)},
+     * but the moves of <code>enginePlayers</code> are chosen by the computer player.
+     *
+     * @param moves         the inputs of the players not moved by the engine, null to read them from keyboard
+     * @param engine        the computer player
+     * @param enginePlayers the players moved by the engine, e.g. "X", "O" or "XO"
+     * @return the game  board status
+     */
+    public static String playGame(String moves, Engine engine, String enginePlayers) {
+        Referee referee = new Referee();
+        referee.addListener(new ConsoleListener());
+        Board board = referee.getBoard();
 
         String[] providedMoves = null;
         int provided_move_index = 0;
@@ -64,45 +81,107 @@ public class Othello {
         }
 
         Scanner keyboard = new Scanner(System.in);
-        String targetMove = null;
-        while (true) {
-            if (!board.hasAvailableMove(currentPlayer)) {
-                currentPlayer = Board.getOpponent(currentPlayer);
-                System.out.printf("No valid move after '%s', give turn to %s %n", targetMove.trim(), currentPlayer);
-                continue;
+        while (!referee.isGameOver()) {
+            char currentPlayer = referee.getPlayer();
+            String targetMove;
+            if (engine != null && enginePlayers.indexOf(currentPlayer) >= 0) {
+                targetMove = nextMoveFromEngine(board, currentPlayer, engine);
+            } else if (providedMoves != null) {
+                if (provided_move_index >= providedMoves.length) {
+                    break;
+                }
+                targetMove = providedMoves[provided_move_index++];
+            } else {
+                targetMove = nextMoveFromUser(board, currentPlayer, keyboard);
             }
 
+            //the referee reports invalid moves, the user is asked again but the provided moves end
+            if (referee.play(targetMove) == Referee.Outcome.INVALID && providedMoves != null) {
+                break;
+            }
+        }
+        return board.getBoardInfo();
+    }
+
+    /**
+     * Return game board status after all moves processed, like {@link #playGame(String)}, on a board of
+     * another size (see {@link SizedBoard}). Both players are people, the engines only play on 8*8.
+     *
+     * @param size  the number of rows and columns, even, from 4 to 16
+     * @param moves all players inputs, null to read them from keyboard
+     * @return the game  board status
+     */
+    public static String playGame(int size, String moves) {
+        SizedBoard board = SizedBoard.create(size);
+        String[] providedMoves = moves == null ? null : moves.split(",");
+        int providedMoveIndex = 0;
+
+        Scanner keyboard = new Scanner(System.in);
+        char player = Board.DARK;
+        while (!board.isGameOver()) {
+            String targetMove;
             if (providedMoves != null) {
-                targetMove = nextValidMoveFromInput(board, currentPlayer, providedMoves, provided_move_index++);
-                if (targetMove == null) {
+                if (providedMoveIndex >= providedMoves.length) {
                     break;
                 }
+                targetMove = providedMoves[providedMoveIndex++];
             } else {
-                targetMove = nextValidMoveFromUser(board, currentPlayer, keyboard);
+                System.out.println(board.getBoardInfo());
+                System.out.printf("Player %s move: ", player);
+                targetMove = keyboard.next();
             }
 
-            board.flip(currentPlayer, Disk.getDisk(targetMove));
-            currentPlayer = Board.getOpponent(currentPlayer);
+            int square = board.parseSquare(targetMove);
+            if (!board.isValidMove(player, square)) {
+                System.out.printf("Invalid move: %s !  %n", targetMove);
+                if (providedMoves != null) {
+                    break;
+                }
+                continue;
+            }
+            board.makeMove(player, square);
+            char opponent = Board.getOpponent(player);
             if (board.isGameOver()) {
-                board.endGame();
-                break;
+                System.out.println("No further moves available");
+                System.out.printf("%s %n", board.getResult());
+            } else if (!board.hasAvailableMove(opponent)) {
+                System.out.printf("No valid move after '%s', give turn to %s %n", board.getUserMove(square), player);
+            } else {
+                player = opponent;
             }
         }
         return board.getBoardInfo();
     }
 
-
-    private static String nextValidMoveFromInput(Board board, char player,
-                                                 String[] provided_moves, int moveIndex) {
-        if (moveIndex >= provided_moves.length) {
-            return null;
+    /**
+     * Print the score of every legal move of the player to move after <code>moves</code>, each one as soon as
+     * it is searched, deeper and deeper until the budget of the search is used up.
+     *
+     * @param moves  the moves leading to the position, comma separated, empty for the initial position
+     * @param search the search and its budget
+     * @return the scores of the deepest complete iteration, best first
+     */
+    public static List<MoveAnalysis> analyze(String moves, Search search) {
+        Referee referee = new Referee();
+        for (String move : moves.split(",")) {
+            if (!move.trim().isEmpty() && referee.play(move) == Referee.Outcome.INVALID) {
+                throw new IllegalArgumentException("Invalid move: " + move);
+            }
         }
-        String targetMove = provided_moves[moveIndex];
-        if (board.validateMove(player, targetMove)) {
-            return targetMove;
-        } else {
-            return null;
+        if (referee.isGameOver()) {
+            return Collections.emptyList();
         }
+        return search.analyze(referee.getBoard(), referee.getPlayer(), new AnalysisListener() {
+            @Override
+            public void moveAnalyzed(MoveAnalysis analysis) {
+                System.out.println(analysis);
+            }
+
+            @Override
+            public void depthCompleted(int depth, List<MoveAnalysis> analyses) {
+                System.out.printf("Depth %d: best %s %n", depth, analyses.get(0));
+            }
+        });
     }
 
     /**
@@ -111,23 +190,176 @@ public class Othello {
      * @param board    the game board
      * @param player   the current player
      * @param keyboard
-     * @return the valid move
+     * @return the move, not validated yet
      */
-    private static String nextValidMoveFromUser(Board board, char player, Scanner keyboard) {
-        String userMove = null;
-        do {
-            System.out.println(board.getBoardInfo());
-            System.out.printf("Player %s move: ", player);
-            userMove = keyboard.next();
-        } while (!board.validateMove(player, userMove));
-        return userMove;
+    private static String nextMoveFromUser(Board board, char player, Scanner keyboard) {
+        System.out.println(board.getBoardInfo());
+        System.out.printf("Player %s move: ", player);
+        return keyboard.next();
     }
 
-    public static void main(String[] args) {
-        if (args != null && args.length >= 1) {
-            System.out.println(Othello.playGame(args[0]));
+    /**
+     * Ask the computer player for its move.
+     *
+     * @param board  the game board
+     * @param player the current player
+     * @param engine the computer player
+     * @return the move of the engine
+     */
+    private static String nextMoveFromEngine(Board board, char player, Engine engine) {
+        int square = engine.findBestMove(board, player);
+        String move = Disk.getUserMove(square);
+        System.out.printf("Player %s move: %s (depth %d, score %d, %d nodes in %d ms) %n", player, move,
+                engine.getDepth(), engine.getScore(), engine.getNodes(), engine.getElapsedMillis());
+        return move;
+    }
+
+    /**
+     * Return the players moved by the engine for the <code>--engine</code> option.
+     *
+     * @param option X, O, XO (or dark, light, both)
+     * @return the players moved by the engine
+     */
+    private static String enginePlayers(String option) {
+        switch (option.toLowerCase()) {
+            case "dark":
+            case "x":
+                return String.valueOf(Board.DARK);
+            case "light":
+            case "o":
+                return String.valueOf(Board.LIGHT);
+            case "both":
+            case "xo":
+            case "ox":
+                return "" + Board.DARK + Board.LIGHT;
+            default:
+                throw new IllegalArgumentException("Unknown engine player: " + option);
+        }
+    }
+
+    /**
+     * Usage: Othello [--engine X|O|XO] [--time millis] [--nodes count] [--hash megabytes] [--threads count]
+     * [--book file] [--weights file] [--cache file] [--cache-size megabytes] [--mcts] [--analyze] [--size size]
+     * [moves]<p>
+     * <code>--cache</code> keeps the results of the searches in a file for the next runs, see {@link AnalysisCache};
+     * <code>--cache-size</code> is the size of a new file.
+     * <code>--analyze</code> prints the scores of all moves after the given moves instead of playing.
+     * <code>--mcts</code> plays with {@link MonteCarloSearch} instead of alpha-beta, <code>--nodes</code> being
+     * the random games per move and <code>--hash</code> not used; it cannot be combined with <code>--book</code>,
+     * <code>--cache</code> and <code>--analyze</code>.
+     * <code>--size</code> plays on a board of another even size from 4 to 16, without engines.
+     *
+     * @param args the command line arguments
+     * @throws IOException if the opening book, the evaluation weights or the analysis cache cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        String moves = null;
+        String enginePlayers = "";
+        long maxMillis = 1000;
+        long maxNodes = Long.MAX_VALUE;
+        int hashMegabytes = Search.DEFAULT_HASH_MEGABYTES;
+        int threads = 1;
+        OpeningBook openingBook = null;
+        Path cachePath = null;
+        int cacheMegabytes = AnalysisCache.DEFAULT_MEGABYTES;
+        int size = Board.BOARD_SIZE;
+        boolean monteCarlo = false;
+        boolean analyze = false;
+        for (int i = 0; args != null && i < args.length; i++) {
+            switch (args[i]) {
+                case "--engine":
+                    enginePlayers = enginePlayers(args[++i]);
+                    break;
+                case "--time":
+                    maxMillis = Long.parseLong(args[++i]);
+                    break;
+                case "--nodes":
+                    maxNodes = Long.parseLong(args[++i]);
+                    break;
+                case "--hash":
+                    hashMegabytes = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--book":
+                    openingBook = OpeningBook.open(Paths.get(args[++i]));
+                    break;
+                case "--weights":
+                    Evaluator.load(Paths.get(args[++i]));
+                    break;
+                case "--cache":
+                    cachePath = Paths.get(args[++i]);
+                    break;
+                case "--cache-size":
+                    cacheMegabytes = Integer.parseInt(args[++i]);
+                    break;
+                case "--size":
+                    size = Integer.parseInt(args[++i]);
+                    break;
+                case "--mcts":
+                    monteCarlo = true;
+                    break;
+                case "--analyze":
+                    analyze = true;
+                    break;
+                default:
+                    if (args[i].startsWith("--")) {
+                        throw new IllegalArgumentException("Unknown option: " + args[i]);
+                    }
+                    moves = args[i];
+            }
+        }
+        if (monteCarlo && (openingBook != null || cachePath != null || analyze)) {
+            throw new IllegalArgumentException("--mcts plays without --book, --cache and --analyze");
+        }
+        if (size != Board.BOARD_SIZE) {
+            if (!enginePlayers.isEmpty()) {
+                throw new IllegalArgumentException("The engines only play on the " + Board.BOARD_SIZE + "*"
+                        + Board.BOARD_SIZE + " board");
+            }
+            String board = Othello.playGame(size, moves);
+            if (moves != null) {
+                System.out.println(board);
+            }
+            return;
+        }
+        AnalysisCache analysisCache = cachePath == null ? null : AnalysisCache.open(cachePath, cacheMegabytes);
+        if (analyze) {
+            Search search = new Search(maxMillis, maxNodes, new TranspositionTable(hashMegabytes));
+            search.setAnalysisCache(analysisCache);
+            analyze(moves == null ? "" : moves, search);
+            if (analysisCache != null) {
+                analysisCache.close();
+            }
+            return;
+        }
+        Engine engine;
+        if (monteCarlo) {
+            //keeps its own tree, the transposition table is only allocated for the alpha-beta searches
+            engine = new MonteCarloSearch(threads, maxMillis, maxNodes);
         } else {
-            Othello.playGame();
+            TranspositionTable transpositionTable = new TranspositionTable(hashMegabytes);
+            if (threads > 1) {
+                ParallelSearch parallelSearch = new ParallelSearch(threads, maxMillis, maxNodes, transpositionTable);
+                parallelSearch.setOpeningBook(openingBook);
+                parallelSearch.setAnalysisCache(analysisCache);
+                engine = parallelSearch;
+            } else {
+                Search search = new Search(maxMillis, maxNodes, transpositionTable);
+                search.setOpeningBook(openingBook);
+                search.setAnalysisCache(analysisCache);
+                engine = search;
+            }
+        }
+        if (moves != null) {
+            System.out.println(Othello.playGame(moves, engine, enginePlayers));
+        } else {
+            Othello.playGame(null, engine, enginePlayers);
+        }
+        engine.shutdown();
+        if (analysisCache != null) {
+            analysisCache.close();
         }
     }
 
@@ -0,0 +1,251 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Computer player searching on several threads at once (Lazy SMP).
+ *
+ * <p>Every thread runs its own {@link Search} with its own copy of the board, and all of them share
+ * one {@link TranspositionTable}, so a thread finds the positions the others have already searched.
+ * Half of the helper threads start one ply deeper to spread the work. When the main thread is done
+ * the helpers are stopped and the deepest completed result is answered.
+ *
+ * <p>The table is shared without locks: every entry is checked against its hash when read, so an entry
+ * half written by another thread is ignored. A new generation of the table is started once per move, not
+ * by every thread.
+ */
+public class ParallelSearch implements Engine {
+
+    private final ForkJoinPool pool;
+
+    /* One search per thread, worker 0 is the main thread */
+    private final Search[] workers;
+
+    /* Result of the last search */
+    private int bestMove;
+    private int score;
+    private int depth;
+    private long elapsedNanos;
+
+    /**
+     * @param threads            the number of threads
+     * @param maxMillis          the time budget per move in milliseconds
+     * @param maxNodes           the node budget per move for all threads together
+     * @param transpositionTable the table shared by all threads
+     */
+    public ParallelSearch(int threads, long maxMillis, long maxNodes, TranspositionTable transpositionTable) {
+        if (threads < 1) {
+            throw new IllegalArgumentException("Number of threads must be at least 1: " + threads);
+        }
+        pool = new ForkJoinPool(threads);
+        workers = new Search[threads];
+        for (int i = 0; i < threads; i++) {
+            workers[i] = new Search(maxMillis, Math.max(1, maxNodes / threads), transpositionTable);
+            workers[i].setDepthOffset(i % 2);
+            workers[i].setParallelWorker(true);
+        }
+    }
+
+    public int getThreads() {
+        return workers.length;
+    }
+
+    @Override
+    public void setMaxMillis(long maxMillis) {
+        for (Search worker : workers) {
+            worker.setMaxMillis(maxMillis);
+        }
+    }
+
+    public void setMaxNodes(long maxNodes) {
+        for (Search worker : workers) {
+            worker.setMaxNodes(Math.max(1, maxNodes / workers.length));
+        }
+    }
+
+    public void setMaxDepth(int maxDepth) {
+        for (Search worker : workers) {
+            worker.setMaxDepth(maxDepth);
+        }
+    }
+
+    /**
+     * @param openingBook the book moves are played without searching, null for none
+     */
+    public void setOpeningBook(OpeningBook openingBook) {
+        for (Search worker : workers) {
+            worker.setOpeningBook(openingBook);
+        }
+    }
+
+    /**
+     * @param analysisCache the results of earlier searches, see {@link Search#setAnalysisCache(AnalysisCache)};
+     *                      null for none
+     */
+    public void setAnalysisCache(AnalysisCache analysisCache) {
+        for (Search worker : workers) {
+            worker.setAnalysisCache(analysisCache);
+        }
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return workers[0].getTranspositionTable();
+    }
+
+    @Override
+    public int findBestMove(Board board, char player) {
+        long start = System.nanoTime();
+        //once for all workers, entries stored by the others this move must not look old
+        getTranspositionTable().newSearch();
+        AtomicBoolean stopSignal = new AtomicBoolean();
+        List<ForkJoinTask<Integer>> tasks = new ArrayList<>(workers.length);
+        for (Search worker : workers) {
+            worker.setStopSignal(stopSignal);
+            tasks.add(pool.submit(() -> worker.findBestMove(board, player)));
+        }
+        tasks.get(0).join();
+        stopSignal.set(true);
+        Search best = workers[0];
+        for (int i = 1; i < workers.length; i++) {
+            tasks.get(i).join();
+            if (workers[i].getDepth() > best.getDepth()) {
+                best = workers[i];
+            }
+        }
+        bestMove = best.getBestMove();
+        score = best.getScore();
+        depth = best.getDepth();
+        elapsedNanos = System.nanoTime() - start;
+        Metrics.searchFinished("ParallelSearch", bestMove, depth, score, getNodes(), elapsedNanos);
+        return bestMove;
+    }
+
+    /**
+     * Stop the threads of the search.
+     */
+    @Override
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /**
+     * @return the square index of the best move found by the last search, -1 if there was none
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    @Override
+    public int getScore() {
+        return score;
+    }
+
+    @Override
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return the number of nodes visited by all threads in the last search
+     */
+    @Override
+    public long getNodes() {
+        long nodes = 0;
+        for (Search worker : workers) {
+            nodes += worker.getNodes();
+        }
+        return nodes;
+    }
+
+    @Override
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000L;
+    }
+
+    /**
+     * @return the nodes visited per second by all threads in the last search
+     */
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : getNodes() * 1_000_000_000L / elapsedNanos;
+    }
+
+    /**
+     * @return the nodes visited per second by each thread in the last search
+     */
+    public long[] getNodesPerSecondPerThread() {
+        long[] nodesPerSecond = new long[workers.length];
+        for (int i = 0; i < workers.length; i++) {
+            nodesPerSecond[i] = workers[i].getNodesPerSecond();
+        }
+        return nodesPerSecond;
+    }
+
+    /**
+     * Return how many times faster <code>threads</code> threads reach <code>depth</code> than one thread,
+     * each starting with an empty transposition table.
+     *
+     * @param board     the position to search
+     * @param player    the player to move
+     * @param depth     the depth to reach
+     * @param threads   the number of threads
+     * @param megabytes the memory budget of the transposition table
+     * @return the time of one thread divided by the time of all threads
+     */
+    public static double measureSpeedup(Board board, char player, int depth, int threads, int megabytes) {
+        Search single = new Search(0, Long.MAX_VALUE, new TranspositionTable(megabytes));
+        single.setMaxDepth(depth);
+        long start = System.nanoTime();
+        single.findBestMove(board, player);
+        long singleNanos = System.nanoTime() - start;
+
+        ParallelSearch parallel = new ParallelSearch(threads, 0, Long.MAX_VALUE, new TranspositionTable(megabytes));
+        parallel.setMaxDepth(depth);
+        try {
+            start = System.nanoTime();
+            parallel.findBestMove(board, player);
+            return (double) singleNanos / Math.max(1, System.nanoTime() - start);
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    /**
+     * Usage: ParallelSearch threads depth [moves]<p>
+     * Search the position after <code>moves</code> to <code>depth</code> with one and with
+     * <code>threads</code> threads and print the speedup and the nodes per second of each thread.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        int threads = args.length > 0 ? Integer.parseInt(args[0]) : Runtime.getRuntime().availableProcessors();
+        int depth = args.length > 1 ? Integer.parseInt(args[1]) : 12;
+        Board board = new Board();
+        char player = Board.DARK;
+        if (args.length > 2) {
+            for (String move : args[2].split(",")) {
+                if (!board.hasAvailableMove(player)) {
+                    player = Board.getOpponent(player);
+                }
+                board.flip(player, Disk.getDisk(move));
+                player = Board.getOpponent(player);
+            }
+        }
+        System.out.printf("Speedup with %d threads at depth %d: %.2f %n", threads, depth,
+                measureSpeedup(board, player, depth, threads, Search.DEFAULT_HASH_MEGABYTES));
+
+        ParallelSearch search = new ParallelSearch(threads, 0, Long.MAX_VALUE,
+                new TranspositionTable(Search.DEFAULT_HASH_MEGABYTES));
+        search.setMaxDepth(depth);
+        search.findBestMove(board, player);
+        search.shutdown();
+        System.out.printf("%d nodes in %d ms, %d nodes/s %n", search.getNodes(), search.getElapsedMillis(),
+                search.getNodesPerSecond());
+        long[] nodesPerSecond = search.getNodesPerSecondPerThread();
+        for (int i = 0; i < nodesPerSecond.length; i++) {
+            System.out.printf("Thread %d: %d nodes/s %n", i, nodesPerSecond[i]);
+        }
+    }
+
+}
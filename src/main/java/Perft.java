@@ -0,0 +1,310 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+
+/**
+ * Perft: count the positions of the game tree to a given depth, to check and time the move generation
+ * of {@link BitBoard}.
+ *
+ * <p>A pass is a ply of its own, and a game which ended before the depth counts as one leaf at every
+ * deeper ply, like in the usual reference counts (see {@link #REFERENCE}). One walk of the tree counts
+ * all depths up to the deepest. The subtrees near the root are split into tasks of a {@link ForkJoinPool},
+ * the rest of each subtree is walked on its thread with the disks in locals, and the last ply is only
+ * counted, not played.
+ *
+ * <p>Optionally the distinct positions of each ply are counted too: a position is stored once for all its
+ * symmetric positions (see {@link Symmetry#canonicalTransform(long, long)}) in a concurrent set per ply.
+ * This needs every position to be played and memory for each distinct one, so it is much slower.
+ */
+public class Perft {
+
+    /* Leaves from the initial position at each depth, from 0 */
+    public static final long[] REFERENCE = {1, 4, 12, 56, 244, 1396, 8200, 55092, 390216, 3005288, 24571284,
+            212258800L, 1939886636L, 18429641748L};
+
+    /* Subtrees with more plies left are split into tasks */
+    private static final int SEQUENTIAL_PLIES = 5;
+
+    /**
+     * The counts of one perft run.
+     */
+    public static class Result {
+        private final long[] leaves;
+        private final long[] distinct;
+        private final long nodes;
+        private final long elapsedNanos;
+
+        Result(long[] leaves, long[] distinct, long nodes, long elapsedNanos) {
+            this.leaves = leaves;
+            this.distinct = distinct;
+            this.nodes = nodes;
+            this.elapsedNanos = elapsedNanos;
+        }
+
+        /**
+         * @return the deepest depth counted
+         */
+        public int getDepth() {
+            return leaves.length - 1;
+        }
+
+        /**
+         * @param depth the depth, from 0
+         * @return the number of leaves of the tree of that depth
+         */
+        public long getLeaves(int depth) {
+            return leaves[depth];
+        }
+
+        /**
+         * @param depth the ply, from 0
+         * @return the number of distinct positions at that ply, symmetric positions counted once; -1 if
+         * they were not counted
+         */
+        public long getDistinct(int depth) {
+            return distinct == null ? -1 : distinct[depth];
+        }
+
+        /**
+         * @return the number of positions counted at all plies
+         */
+        public long getNodes() {
+            return nodes;
+        }
+
+        public long getElapsedMillis() {
+            return elapsedNanos / 1_000_000;
+        }
+
+        public long getNodesPerSecond() {
+            return elapsedNanos == 0 ? 0 : (long) (nodes * 1e9 / elapsedNanos);
+        }
+    }
+
+    /**
+     * A position with the disks turned to the canonical position.
+     */
+    private static final class CanonicalPosition {
+        private final long own;
+        private final long opp;
+        private final boolean darkToMove;
+
+        CanonicalPosition(long own, long opp, boolean darkToMove) {
+            int transform = Symmetry.canonicalTransform(own, opp);
+            this.own = Symmetry.transform(transform, own);
+            this.opp = Symmetry.transform(transform, opp);
+            this.darkToMove = darkToMove;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (!(o instanceof CanonicalPosition)) {
+                return false;
+            }
+            CanonicalPosition position = (CanonicalPosition) o;
+            return own == position.own && opp == position.opp && darkToMove == position.darkToMove;
+        }
+
+        @Override
+        public int hashCode() {
+            return Long.hashCode(Zobrist.mix(own ^ Zobrist.mix(opp)) ^ (darkToMove ? 1 : 0));
+        }
+    }
+
+    /**
+     * The walk of one subtree. The counts are per ply from the root of the whole tree: the positions
+     * reached, and the games which ended there.
+     */
+    private static final class Walk extends RecursiveTask<long[][]> {
+        private static final long serialVersionUID = 1L;
+
+        private final long own;
+        private final long opp;
+        private final boolean darkToMove;
+        private final int ply;
+        private final int depth;
+        private final List<Set<CanonicalPosition>> positions;
+
+        private long[] reached;
+        private long[] ended;
+
+        Walk(long own, long opp, boolean darkToMove, int ply, int depth, List<Set<CanonicalPosition>> positions) {
+            this.own = own;
+            this.opp = opp;
+            this.darkToMove = darkToMove;
+            this.ply = ply;
+            this.depth = depth;
+            this.positions = positions;
+        }
+
+        @Override
+        protected long[][] compute() {
+            reached = new long[depth + 1];
+            ended = new long[depth + 1];
+            if (depth - ply <= SEQUENTIAL_PLIES) {
+                walk(own, opp, darkToMove, ply);
+                return new long[][]{reached, ended};
+            }
+            reached[ply]++;
+            if (positions != null) {
+                positions.get(ply).add(new CanonicalPosition(own, opp, darkToMove));
+            }
+            long moves = BitBoard.moves(own, opp);
+            Walk[] children;
+            if (moves != 0) {
+                children = new Walk[Long.bitCount(moves)];
+                int count = 0;
+                for (; moves != 0; moves &= moves - 1) {
+                    int square = Long.numberOfTrailingZeros(moves);
+                    long flipped = BitBoard.flips(own, opp, square);
+                    children[count++] = new Walk(opp & ~flipped, own | flipped | (1L << square), !darkToMove,
+                            ply + 1, depth, positions);
+                }
+            } else if (BitBoard.moves(opp, own) != 0) {
+                children = new Walk[]{new Walk(opp, own, !darkToMove, ply + 1, depth, positions)};
+            } else {
+                ended[ply]++;
+                return new long[][]{reached, ended};
+            }
+            invokeAll(children);
+            for (Walk child : children) {
+                long[][] counts = child.join();
+                for (int i = ply + 1; i <= depth; i++) {
+                    reached[i] += counts[0][i];
+                    ended[i] += counts[1][i];
+                }
+            }
+            return new long[][]{reached, ended};
+        }
+
+        private void walk(long own, long opp, boolean darkToMove, int ply) {
+            reached[ply]++;
+            if (positions != null) {
+                positions.get(ply).add(new CanonicalPosition(own, opp, darkToMove));
+            }
+            if (ply == depth) {
+                return;
+            }
+            long moves = BitBoard.moves(own, opp);
+            if (moves == 0) {
+                if (BitBoard.moves(opp, own) != 0) {
+                    walk(opp, own, !darkToMove, ply + 1);
+                } else {
+                    ended[ply]++;
+                }
+                return;
+            }
+            if (ply + 1 == depth && positions == null) {
+                //the leaves are only counted
+                reached[depth] += Long.bitCount(moves);
+                return;
+            }
+            for (; moves != 0; moves &= moves - 1) {
+                int square = Long.numberOfTrailingZeros(moves);
+                long flipped = BitBoard.flips(own, opp, square);
+                walk(opp & ~flipped, own | flipped | (1L << square), !darkToMove, ply + 1);
+            }
+        }
+    }
+
+    /**
+     * Count the leaves of the game trees of all depths up to <code>depth</code>.
+     *
+     * @param board    the root position, it is not changed
+     * @param player   the player to move
+     * @param depth    the deepest depth
+     * @param threads  the number of threads
+     * @param distinct also count the distinct positions of each ply
+     * @return the counts
+     */
+    public static Result count(Board board, char player, int depth, int threads, boolean distinct) {
+        long start = System.nanoTime();
+        List<Set<CanonicalPosition>> positions = null;
+        if (distinct) {
+            positions = new ArrayList<>(depth + 1);
+            for (int i = 0; i <= depth; i++) {
+                positions.add(ConcurrentHashMap.newKeySet());
+            }
+        }
+        long[][] counts;
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try {
+            counts = pool.invoke(new Walk(board.getDisks(player), board.getDisks(Board.getOpponent(player)),
+                    player == Board.DARK, 0, depth, positions));
+        } finally {
+            pool.shutdown();
+        }
+        //a game which ended is a leaf of all deeper trees
+        long[] leaves = Arrays.copyOf(counts[0], depth + 1);
+        long endedBefore = 0;
+        for (int i = 0; i <= depth; i++) {
+            leaves[i] += endedBefore;
+            endedBefore += counts[1][i];
+        }
+        long[] distinctCounts = null;
+        if (distinct) {
+            distinctCounts = new long[depth + 1];
+            for (int i = 0; i <= depth; i++) {
+                distinctCounts[i] = positions.get(i).size();
+            }
+        }
+        return new Result(leaves, distinctCounts, Arrays.stream(counts[0]).sum(), System.nanoTime() - start);
+    }
+
+    /**
+     * Usage: Perft [--threads count] [--distinct] depth [moves]<p>
+     * Print the leaves of each depth from the position after the moves, and check them against
+     * {@link #REFERENCE} from the initial position.
+     *
+     * @param args the command line arguments
+     */
+    public static void main(String[] args) {
+        int threads = Runtime.getRuntime().availableProcessors();
+        boolean distinct = false;
+        int depth = -1;
+        String moves = "";
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--distinct":
+                    distinct = true;
+                    break;
+                default:
+                    if (depth < 0) {
+                        depth = Integer.parseInt(args[i]);
+                    } else {
+                        moves = args[i];
+                    }
+            }
+        }
+        if (depth < 0) {
+            throw new IllegalArgumentException("Usage: Perft [--threads count] [--distinct] depth [moves]");
+        }
+        Referee referee = new Referee();
+        for (String move : moves.split(",")) {
+            if (!move.trim().isEmpty() && referee.play(move) == Referee.Outcome.INVALID) {
+                throw new IllegalArgumentException("Invalid move: " + move);
+            }
+        }
+        Result result = count(referee.getBoard(), referee.getPlayer(), depth, threads, distinct);
+        boolean initial = moves.trim().isEmpty();
+        for (int i = 1; i <= depth; i++) {
+            System.out.printf("depth %2d: %,18d leaves", i, result.getLeaves(i));
+            if (distinct) {
+                System.out.printf(", %,14d distinct positions", result.getDistinct(i));
+            }
+            if (initial && i < REFERENCE.length && result.getLeaves(i) != REFERENCE[i]) {
+                System.out.printf(" WRONG, expected %,d", REFERENCE[i]);
+            }
+            System.out.println();
+        }
+        System.out.printf("%,d positions in %d ms on %d threads, %,d positions/s %n", result.getNodes(),
+                result.getElapsedMillis(), threads, result.getNodesPerSecond());
+    }
+}
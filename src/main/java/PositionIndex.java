@@ -0,0 +1,612 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Index of the positions of a game record file (see {@link GameRecord}): which games reached a position,
+ * at which ply, which move was played next and how the game ended.
+ *
+ * <p>The index is a directory of segment files. Each segment indexes a range of games of the record file
+ * and is a sorted array of fixed-size entries, memory-mapped when the index is opened and searched in place
+ * with binary search:
+ * <pre>
+ * header, 56 bytes: magic "OPX1", version (int each), first game, number of games, number of entries,
+ *                  positions of the next game and of the last game in the record file,
+ *                  hash of the last game (see {@link GameRecord#hashCode()}) (long each)
+ * entry,  16 bytes: position hash (long), game (int), ply, next move, dark disks at the end, flags (byte each)
+ * </pre>
+ * Like in the {@link OpeningBook}, a position is stored once for all its symmetric positions: the hash is
+ * the canonical hash of the disks of the player to move and of the opponent (see
+ * {@link Symmetry#canonicalTransform(long, long)}) and the next move is transformed the same way, -1 after
+ * the last move. The flags are 1 if dark is to move. Entries of the same position are in game order.
+ * Numbers are big-endian.
+ *
+ * <p>{@link #update(Path, Path)} indexes the games added to the record file since the last update into
+ * new segments, so the index grows with the record file without being rebuilt: new games are appended to
+ * the record file (see {@link GameRecordWriter#GameRecordWriter(Path, boolean)}) and the update reads it
+ * from the position after the last game indexed, once the last game indexed is found unchanged at its
+ * position. When there are more than
+ * {@link #MAX_SEGMENTS} segments, they are merged into one. The merged segment replaces the first one
+ * before the others are deleted; if that stops half way, {@link #open(Path)} skips the segments whose games
+ * are all in the merged segment, and the next update or compaction deletes them. Opening an index to query it
+ * never changes the directory, so it is safe while another process updates it.
+ */
+public class PositionIndex {
+
+    private static final int MAGIC = 0x4F505831;
+    private static final int VERSION = 4;
+    private static final int HEADER_BYTES = 56;
+    private static final int ENTRY_BYTES = 16;
+    private static final String SUFFIX = ".opx";
+
+    /* The most entries of a new segment, sorted in memory before they are written */
+    static final int SEGMENT_ENTRIES = 1 << 22;
+
+    /* The most entries of a segment, a mapped file is at most 2 GB */
+    private static final long MAX_ENTRIES = (Integer.MAX_VALUE - HEADER_BYTES) / ENTRY_BYTES;
+
+    /* The most segments before they are merged */
+    public static final int MAX_SEGMENTS = 8;
+
+    /**
+     * One game through the position.
+     */
+    public static class Occurrence {
+        private final int game;
+        private final int ply;
+        private final int move;
+        private final char player;
+        private final int darkDisks;
+
+        Occurrence(int game, int ply, int move, char player, int darkDisks) {
+            this.game = game;
+            this.ply = ply;
+            this.move = move;
+            this.player = player;
+            this.darkDisks = darkDisks;
+        }
+
+        /**
+         * @return the number of the game in the record file, from 0
+         */
+        public int getGame() {
+            return game;
+        }
+
+        /**
+         * @return the number of moves played before the position
+         */
+        public int getPly() {
+            return ply;
+        }
+
+        /**
+         * @return the square index of the next move, on the board as it was asked for, -1 if the game ended here
+         */
+        public int getMove() {
+            return move;
+        }
+
+        /**
+         * @return the player to move in the game, which may differ from the one asked for
+         */
+        public char getPlayer() {
+            return player;
+        }
+
+        /**
+         * @return the disks of the dark player at the end of the game
+         */
+        public int getDarkDisks() {
+            return darkDisks;
+        }
+
+        @Override
+        public String toString() {
+            return "game " + game + " ply " + ply + ": " + (move < 0 ? "end" : Disk.getUserMove(move))
+                    + ", dark disks " + darkDisks;
+        }
+    }
+
+    /**
+     * One mapped segment file.
+     */
+    private static class Segment {
+        final Path path;
+        final MappedByteBuffer buffer;
+        final long firstGame;
+        final long games;
+        final int entries;
+        final long recordsEnd;
+        final long lastGame;
+        final long lastGameHash;
+
+        Segment(Path path) throws IOException {
+            this.path = path;
+            try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+                buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, channel.size());
+            }
+            if (buffer.capacity() < HEADER_BYTES || buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a position index segment: " + path);
+            }
+            if (buffer.getInt(4) != VERSION) {
+                throw new IOException("Unknown position index version: " + buffer.getInt(4));
+            }
+            firstGame = buffer.getLong(8);
+            games = buffer.getLong(16);
+            long count = buffer.getLong(24);
+            if (HEADER_BYTES + count * ENTRY_BYTES != buffer.capacity()) {
+                throw new IOException("Position index segment is truncated: " + path);
+            }
+            entries = (int) count;
+            recordsEnd = buffer.getLong(32);
+            lastGame = buffer.getLong(40);
+            lastGameHash = buffer.getLong(48);
+        }
+
+        long hashAt(int index) {
+            return SortedHashes.hashAt(buffer, HEADER_BYTES, ENTRY_BYTES, index);
+        }
+
+        int lowerBound(long hash) {
+            return SortedHashes.lowerBound(buffer, HEADER_BYTES, ENTRY_BYTES, entries, hash);
+        }
+    }
+
+    private final List<Segment> segments;
+
+    private PositionIndex(List<Segment> segments) {
+        this.segments = segments;
+    }
+
+    /**
+     * Open the index in the directory.
+     *
+     * @param directory the index directory, an empty or missing directory is an empty index
+     * @return the index
+     * @throws IOException if a segment cannot be read or the segments do not cover the games one after the other
+     */
+    public static PositionIndex open(Path directory) throws IOException {
+        return new PositionIndex(load(directory, new ArrayList<>()));
+    }
+
+    /**
+     * Open the index to change it, and delete the segments merged by a compaction which stopped before
+     * deleting them.
+     */
+    private static PositionIndex openForUpdate(Path directory) throws IOException {
+        List<Segment> merged = new ArrayList<>();
+        PositionIndex index = new PositionIndex(load(directory, merged));
+        for (Segment segment : merged) {
+            Files.deleteIfExists(segment.path);
+        }
+        return index;
+    }
+
+    /**
+     * Read the segments of the directory in game order.
+     *
+     * @param merged the segments whose games are all in an earlier segment, which are skipped
+     */
+    private static List<Segment> load(Path directory, List<Segment> merged) throws IOException {
+        List<Segment> found = new ArrayList<>();
+        if (Files.isDirectory(directory)) {
+            try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory, "*" + SUFFIX)) {
+                for (Path path : paths) {
+                    found.add(new Segment(path));
+                }
+            }
+        }
+        //by first game, the segment with more games first
+        found.sort((first, second) -> first.firstGame != second.firstGame
+                ? Long.compare(first.firstGame, second.firstGame) : Long.compare(second.games, first.games));
+        List<Segment> segments = new ArrayList<>(found.size());
+        long games = 0;
+        for (Segment segment : found) {
+            if (segment.firstGame < games && segment.firstGame + segment.games <= games) {
+                merged.add(segment);
+                continue;
+            }
+            if (segment.firstGame != games) {
+                throw new IOException("Position index segments do not follow each other: " + segment.path);
+            }
+            segments.add(segment);
+            games += segment.games;
+        }
+        return segments;
+    }
+
+    /**
+     * @return the number of games indexed
+     */
+    public long getGames() {
+        return segments.isEmpty() ? 0 : segments.get(segments.size() - 1).firstGame
+                + segments.get(segments.size() - 1).games;
+    }
+
+    /**
+     * @return the number of positions indexed, once per game through the position
+     */
+    public long size() {
+        long entries = 0;
+        for (Segment segment : segments) {
+            entries += segment.entries;
+        }
+        return entries;
+    }
+
+    public int getSegmentCount() {
+        return segments.size();
+    }
+
+    /**
+     * Return the games which reached the position or a symmetric one, in game order.
+     *
+     * @param board  the current board
+     * @param player the player to move
+     * @return the games through the position
+     */
+    public List<Occurrence> find(Board board, char player) {
+        long own = board.getDisks(player);
+        long opp = board.getDisks(Board.getOpponent(player));
+        int transform = Symmetry.canonicalTransform(own, opp);
+        long hash = Symmetry.hash(transform, own, opp);
+        int inverse = Symmetry.inverse(transform);
+        List<Occurrence> occurrences = new ArrayList<>();
+        for (Segment segment : segments) {
+            for (int index = segment.lowerBound(hash); index < segment.entries && segment.hashAt(index) == hash;
+                 index++) {
+                int offset = HEADER_BYTES + index * ENTRY_BYTES;
+                ByteBuffer buffer = segment.buffer;
+                int move = buffer.get(offset + 13);
+                occurrences.add(new Occurrence(buffer.getInt(offset + 8), buffer.get(offset + 12),
+                        move < 0 ? -1 : Symmetry.square(inverse, move),
+                        (buffer.get(offset + 15) & 1) != 0 ? Board.DARK : Board.LIGHT, buffer.get(offset + 14)));
+            }
+        }
+        return occurrences;
+    }
+
+    /**
+     * Return the number of games which reached the position or a symmetric one.
+     *
+     * @param board  the current board
+     * @param player the player to move
+     * @return the number of games through the position
+     */
+    public long count(Board board, char player) {
+        long own = board.getDisks(player);
+        long opp = board.getDisks(Board.getOpponent(player));
+        long hash = Symmetry.hash(Symmetry.canonicalTransform(own, opp), own, opp);
+        long count = 0;
+        for (Segment segment : segments) {
+            for (int index = segment.lowerBound(hash); index < segment.entries && segment.hashAt(index) == hash;
+                 index++) {
+                count++;
+            }
+        }
+        return count;
+    }
+
+    /**
+     * Index the games of the record file which are not indexed yet, and merge the segments if there are
+     * more than {@link #MAX_SEGMENTS}. Games with an invalid move are indexed up to it.
+     *
+     * @param records   the record file, games are only ever appended to it
+     * @param directory the index directory, created if missing
+     * @return the number of games added to the index
+     * @throws IOException if a file cannot be read or written, or the record file does not start with the games
+     *                     indexed
+     */
+    public static long update(Path records, Path directory) throws IOException {
+        Files.createDirectories(directory);
+        PositionIndex index = openForUpdate(directory);
+        long firstGame = index.getGames();
+        long game = firstGame;
+        Builder builder = new Builder(directory, firstGame);
+        Board board = new Board();
+        try (GameRecordReader reader = new GameRecordReader(records)) {
+            if (firstGame > 0) {
+                //skip the games indexed before without reading them, but the last one, which must not have changed
+                Segment last = index.segments.get(index.segments.size() - 1);
+                GameRecord record = null;
+                if (reader.getGames() >= firstGame) {
+                    reader.seek(last.lastGame);
+                    record = reader.read();
+                }
+                if (record == null || record.hashCode() != last.lastGameHash || reader.getOffset() != last.recordsEnd) {
+                    throw new IOException("The record file does not start with the indexed games: " + records);
+                }
+            }
+            while (true) {
+                long offset = reader.getOffset();
+                GameRecord record = reader.read();
+                if (record == null) {
+                    break;
+                }
+                if (game > Integer.MAX_VALUE) {
+                    throw new IOException("Too many games to index");
+                }
+                builder.add((int) game++, record, board, offset, reader.getOffset());
+            }
+        }
+        builder.flush();
+        if (open(directory).getSegmentCount() > MAX_SEGMENTS) {
+            compact(directory);
+        }
+        return game - firstGame;
+    }
+
+    /**
+     * Merge all segments into one, if it is not too large for one file.
+     *
+     * @param directory the index directory
+     * @return true if the segments were merged
+     * @throws IOException if a segment cannot be read or written
+     */
+    public static boolean compact(Path directory) throws IOException {
+        List<Segment> segments = openForUpdate(directory).segments;
+        long entries = 0;
+        for (Segment segment : segments) {
+            entries += segment.entries;
+        }
+        if (segments.size() < 2 || entries > MAX_ENTRIES) {
+            return false;
+        }
+        Segment first = segments.get(0);
+        Segment last = segments.get(segments.size() - 1);
+        try (SegmentWriter writer = new SegmentWriter(directory, first.firstGame,
+                last.firstGame + last.games - first.firstGame, entries, last.recordsEnd, last.lastGame,
+                last.lastGameHash)) {
+            //merge the sorted segments, the earlier games first among equal hashes
+            int[] next = new int[segments.size()];
+            for (long written = 0; written < entries; written++) {
+                int best = -1;
+                for (int i = 0; i < segments.size(); i++) {
+                    Segment segment = segments.get(i);
+                    if (next[i] < segment.entries && (best < 0 || Long.compareUnsigned(segment.hashAt(next[i]),
+                            segments.get(best).hashAt(next[best])) < 0)) {
+                        best = i;
+                    }
+                }
+                Segment segment = segments.get(best);
+                int offset = HEADER_BYTES + next[best]++ * ENTRY_BYTES;
+                writer.write(segment.buffer.getLong(offset), segment.buffer.getLong(offset + 8));
+            }
+        }
+        for (Segment segment : segments) {
+            if (segment != first) {
+                //another process may have deleted it since the merged segment is in place
+                Files.deleteIfExists(segment.path);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Collect the entries of new games and write them as sorted segments.
+     */
+    private static class Builder {
+        private final Path directory;
+        private long[] hashes = new long[1024];
+        private long[] values = new long[1024];
+        private int count;
+        private long firstGame;
+        private long nextGame;
+        private long recordsEnd;
+        private long lastGame;
+        private long lastGameHash;
+
+        Builder(Path directory, long firstGame) {
+            this.directory = directory;
+            this.firstGame = firstGame;
+            this.nextGame = firstGame;
+        }
+
+        /**
+         * @param offset     the position of the game in the record file
+         * @param recordsEnd the position of the next game in the record file
+         */
+        void add(int game, GameRecord record, Board board, long offset, long recordsEnd) throws IOException {
+            int needed = count + record.getMoveCount() + 1;
+            if (needed > SEGMENT_ENTRIES) {
+                flush();
+            } else if (needed > hashes.length) {
+                int capacity = Math.min(SEGMENT_ENTRIES, 2 * hashes.length);
+                hashes = Arrays.copyOf(hashes, capacity);
+                values = Arrays.copyOf(values, capacity);
+            }
+            board.reset();
+            char player = Board.DARK;
+            int ply = 0;
+            for (; ply <= record.getMoveCount(); ply++) {
+                long legalMoves = board.getMoves(player);
+                if (legalMoves == 0) {
+                    player = Board.getOpponent(player);
+                    legalMoves = board.getMoves(player);
+                }
+                int move = ply < record.getMoveCount() ? record.getMove(ply) : -1;
+                boolean valid = move >= 0 && (legalMoves & (1L << move)) != 0;
+                long own = board.getDisks(player);
+                long opp = board.getDisks(Board.getOpponent(player));
+                int transform = Symmetry.canonicalTransform(own, opp);
+                hashes[count] = Symmetry.hash(transform, own, opp);
+                int canonicalMove = valid ? Symmetry.square(transform, move) : 0xFF;
+                values[count] = (long) game << 32 | ply << 24 | canonicalMove << 16
+                        | (record.getDarkDisks() & 0xFF) << 8 | (player == Board.DARK ? 1 : 0);
+                count++;
+                if (!valid) {
+                    break;
+                }
+                board.makeMove(player, move);
+                player = Board.getOpponent(player);
+            }
+            nextGame = game + 1L;
+            this.recordsEnd = recordsEnd;
+            lastGame = offset;
+            lastGameHash = record.hashCode();
+        }
+
+        void flush() throws IOException {
+            if (nextGame == firstGame) {
+                return;
+            }
+            sort(hashes, values, count);
+            try (SegmentWriter writer = new SegmentWriter(directory, firstGame, nextGame - firstGame, count,
+                    recordsEnd, lastGame, lastGameHash)) {
+                for (int i = 0; i < count; i++) {
+                    writer.write(hashes[i], values[i]);
+                }
+            }
+            count = 0;
+            firstGame = nextGame;
+        }
+    }
+
+    /**
+     * Sort the entries by hash, compared unsigned, keeping the order of equal hashes: a radix sort
+     * of 16 bits per pass.
+     */
+    static void sort(long[] hashes, long[] values, int count) {
+        long[] sourceHashes = hashes;
+        long[] sourceValues = values;
+        long[] targetHashes = new long[count];
+        long[] targetValues = new long[count];
+        int[] starts = new int[(1 << 16) + 1];
+        for (int shift = 0; shift < Long.SIZE; shift += 16) {
+            Arrays.fill(starts, 0);
+            for (int i = 0; i < count; i++) {
+                starts[(int) (sourceHashes[i] >>> shift & 0xFFFF) + 1]++;
+            }
+            for (int digit = 0; digit < 1 << 16; digit++) {
+                starts[digit + 1] += starts[digit];
+            }
+            for (int i = 0; i < count; i++) {
+                int target = starts[(int) (sourceHashes[i] >>> shift & 0xFFFF)]++;
+                targetHashes[target] = sourceHashes[i];
+                targetValues[target] = sourceValues[i];
+            }
+            long[] swap = sourceHashes;
+            sourceHashes = targetHashes;
+            targetHashes = swap;
+            swap = sourceValues;
+            sourceValues = targetValues;
+            targetValues = swap;
+        }
+        //an even number of passes leaves the result in the given arrays
+    }
+
+    /**
+     * Write a segment to a temporary file and move it into place when closed, so a segment is complete
+     * or missing.
+     */
+    private static class SegmentWriter implements AutoCloseable {
+        private final Path path;
+        private final Path temporary;
+        private final FileChannel channel;
+        private final ByteBuffer buffer = ByteBuffer.allocateDirect(64 * 1024);
+
+        SegmentWriter(Path directory, long firstGame, long games, long entries, long recordsEnd, long lastGame,
+                      long lastGameHash) throws IOException {
+            path = directory.resolve(String.format("%012d%s", firstGame, SUFFIX));
+            temporary = directory.resolve(path.getFileName() + ".tmp");
+            channel = FileChannel.open(temporary, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                    StandardOpenOption.TRUNCATE_EXISTING);
+            buffer.putInt(MAGIC).putInt(VERSION).putLong(firstGame).putLong(games).putLong(entries)
+                    .putLong(recordsEnd).putLong(lastGame).putLong(lastGameHash);
+        }
+
+        void write(long hash, long value) throws IOException {
+            if (buffer.remaining() < ENTRY_BYTES) {
+                flush();
+            }
+            buffer.putLong(hash).putLong(value);
+        }
+
+        private void flush() throws IOException {
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                channel.write(buffer);
+            }
+            buffer.clear();
+        }
+
+        @Override
+        public void close() throws IOException {
+            try {
+                flush();
+            } finally {
+                channel.close();
+            }
+            Files.move(temporary, path, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        }
+    }
+
+    /**
+     * Usage: PositionIndex update games.ogr index | find index moves | compact index<p>
+     * <code>update</code> indexes the new games of a record file; <code>find</code> prints the games through
+     * the position after the comma separated moves and how often each next move was played.
+     *
+     * @param args the command line arguments
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2) {
+            System.err.println("Usage: PositionIndex update games.ogr index | find index moves | compact index");
+            return;
+        }
+        long start = System.nanoTime();
+        switch (args[0]) {
+            case "update":
+                long games = update(Paths.get(args[1]), Paths.get(args[2]));
+                PositionIndex index = open(Paths.get(args[2]));
+                System.out.printf("%d games added, %d games and %d positions in %d segments, %d ms %n", games,
+                        index.getGames(), index.size(), index.getSegmentCount(),
+                        (System.nanoTime() - start) / 1_000_000L);
+                break;
+            case "find":
+                Referee referee = new Referee();
+                if (args.length > 2) {
+                    for (String move : args[2].split(",")) {
+                        if (referee.play(move) == Referee.Outcome.INVALID) {
+                            throw new IllegalArgumentException("Invalid move: " + move);
+                        }
+                    }
+                }
+                PositionIndex positions = open(Paths.get(args[1]));
+                start = System.nanoTime();
+                List<Occurrence> occurrences = positions.find(referee.getBoard(), referee.getPlayer());
+                long nanos = System.nanoTime() - start;
+                Map<String, Integer> moves = new TreeMap<>();
+                for (Occurrence occurrence : occurrences) {
+                    moves.merge(occurrence.getMove() < 0 ? "end" : Disk.getUserMove(occurrence.getMove()), 1,
+                            Integer::sum);
+                }
+                System.out.printf("%d games in %d us %n", occurrences.size(), nanos / 1000);
+                for (Map.Entry<String, Integer> move : moves.entrySet()) {
+                    System.out.printf("%s %d %n", move.getKey(), move.getValue());
+                }
+                for (int i = 0; i < Math.min(20, occurrences.size()); i++) {
+                    System.out.println(occurrences.get(i));
+                }
+                break;
+            case "compact":
+                System.out.println(compact(Paths.get(args[1])) ? "Merged" : "Nothing to merge");
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command: " + args[0]);
+        }
+    }
+}
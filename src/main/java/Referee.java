@@ -0,0 +1,147 @@
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Play a game by the rules: check each move, make it on the {@link Board}, pass a player without a valid
+ * move and end the game when neither player can move.
+ *
+ * <p>The referee prints nothing. Every move returns its {@link Outcome}, and the events are sent to the
+ * {@link GameListener}s, so the same game can be played on the console (see {@link ConsoleListener}),
+ * on a server or in a test.
+ */
+public class Referee {
+
+    /**
+     * The outcome of a move.
+     */
+    public enum Outcome {
+        /* The move is not valid (or the game is over), nothing changed */
+        INVALID,
+        /* The move was made, the opponent is to move */
+        NEXT,
+        /* The move was made, the opponent has no valid move and the same player moves again */
+        PASS,
+        /* The move was made and ended the game */
+        GAME_OVER
+    }
+
+    private final Board board;
+    private char player;
+    private final List<GameListener> listeners = new ArrayList<>();
+
+    /**
+     * Start a game from the initial position.
+     */
+    public Referee() {
+        this(new Board(), Board.DARK);
+    }
+
+    /**
+     * Continue a game.
+     *
+     * @param board  the board, changed by the moves
+     * @param player the player to move, passed if it has no valid move
+     */
+    public Referee(Board board, char player) {
+        this.board = board;
+        this.player = player;
+        if (board.isGameOver()) {
+            this.player = Board.NO_PIECE;
+        } else if (!board.hasAvailableMove(player)) {
+            this.player = Board.getOpponent(player);
+        }
+    }
+
+    /**
+     * @param listener receives the events of the game from now on
+     */
+    public void addListener(GameListener listener) {
+        listeners.add(listener);
+    }
+
+    public void removeListener(GameListener listener) {
+        listeners.remove(listener);
+    }
+
+    public Board getBoard() {
+        return board;
+    }
+
+    /**
+     * @return the player to move, {@link Board#NO_PIECE} if the game is over
+     */
+    public char getPlayer() {
+        return player;
+    }
+
+    public boolean isGameOver() {
+        return player == Board.NO_PIECE;
+    }
+
+    /**
+     * @return the disks of both players, the final result if the game is over
+     */
+    public GameResult getResult() {
+        return board.getResult();
+    }
+
+    /**
+     * Make a move for the player to move.
+     *
+     * @param move the coordinate of the move, e.g. 3d or d3
+     * @return the outcome of the move
+     */
+    public Outcome play(String move) {
+        if (isGameOver() || !board.validateMove(player, move)) {
+            for (GameListener listener : listeners) {
+                listener.invalidMove(player, move);
+            }
+            return Outcome.INVALID;
+        }
+        return makeMove(BitBoard.square(Disk.getDisk(move)));
+    }
+
+    /**
+     * Make a move for the player to move.
+     *
+     * @param square the square index of the move (see {@link BitBoard})
+     * @return the outcome of the move
+     */
+    public Outcome play(int square) {
+        if (isGameOver() || square < 0 || square >= BitBoard.SQUARES
+                || (board.getMoves(player) & (1L << square)) == 0) {
+            for (GameListener listener : listeners) {
+                listener.invalidMove(player, square < 0 || square >= BitBoard.SQUARES ? String.valueOf(square)
+                        : Disk.getUserMove(square));
+            }
+            return Outcome.INVALID;
+        }
+        return makeMove(square);
+    }
+
+    private Outcome makeMove(int square) {
+        char mover = player;
+        board.makeMove(mover, square);
+        for (GameListener listener : listeners) {
+            listener.moveMade(mover, square, board);
+        }
+        char opponent = Board.getOpponent(mover);
+        if (board.isGameOver()) {
+            player = Board.NO_PIECE;
+            GameResult result = board.getResult();
+            Metrics.gameCompleted(result.getDarkDisks(), result.getLightDisks(), board.getMoveCount());
+            for (GameListener listener : listeners) {
+                listener.gameOver(result);
+            }
+            return Outcome.GAME_OVER;
+        }
+        if (!board.hasAvailableMove(opponent)) {
+            for (GameListener listener : listeners) {
+                listener.passed(opponent);
+            }
+            return Outcome.PASS;
+        }
+        player = opponent;
+        return Outcome.NEXT;
+    }
+}
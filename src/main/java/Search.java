@@ -0,0 +1,605 @@
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Computer player: negamax alpha-beta search with iterative deepening.
+ *
+ * <p>The search runs on a private copy of the {@link Board} and walks the tree with
+ * {@link Board#makeMove(char, int)} / {@link Board#undoMove()}, so it allocates nothing per node.
+ * It deepens one ply at a time until the time or node budget is used up and answers
+ * the best move of the deepest completed iteration.
+ *
+ * <p>Scores are from the point of view of the player to move. A finished game scores
+ * the disk difference times {@link #GAME_OVER_SCALE}, so any won game is better than
+ * any evaluation (see {@link Evaluator}), with the shared weights or with weights of its own.
+ */
+public class Search implements Engine {
+
+    /* The score of one disk difference in a finished game */
+    public static final int GAME_OVER_SCALE = 100_000;
+
+    /* Bigger than any score */
+    public static final int INFINITY = 100 * GAME_OVER_SCALE;
+
+    /* Maximum search depth in plies, enough to reach the end of any game */
+    public static final int MAX_DEPTH = BitBoard.SQUARES;
+
+    /* Maximum distance from the root including passes */
+    private static final int MAX_PLY = 2 * MAX_DEPTH + 2;
+
+    /* Check the clock once every (NODES_PER_CHECK + 1) nodes */
+    private static final int NODES_PER_CHECK = 1023;
+
+    /* The time budget per move in milliseconds */
+    private long maxMillis;
+
+    /* The node budget per move */
+    private long maxNodes;
+
+    /* The deepest iteration to run */
+    private int maxDepth = MAX_DEPTH;
+
+    /* Memory budget of the default transposition table in megabytes */
+    public static final int DEFAULT_HASH_MEGABYTES = 16;
+
+    /* Positions searched before, kept between searches */
+    private TranspositionTable transpositionTable;
+
+    /* Moves answered without searching, may be null */
+    private OpeningBook openingBook;
+
+    /* The evaluation weights, null for the shared weights of the Evaluator */
+    private short[] weights;
+
+    /* Results of searches of earlier runs, may be null */
+    private AnalysisCache analysisCache;
+
+    /* Set by another thread to stop the search, may be null */
+    private AtomicBoolean stopSignal;
+
+    /* The first iteration searches 1 + depthOffset plies */
+    private int depthOffset;
+
+    /* Run by a ParallelSearch, which starts the table generation and reports the search itself */
+    private boolean parallelWorker;
+
+    /* Move lists of each ply, preallocated so the search does not allocate */
+    private final int[][] moves = new int[MAX_PLY][BitBoard.SQUARES];
+    private final int[][] moveScores = new int[MAX_PLY][BitBoard.SQUARES];
+
+    /* State of the running search */
+    private Board board;
+    private long nodes;
+    private long deadline;
+    private boolean stopped;
+
+    /* Result of the last search */
+    private int bestMove;
+    private int score;
+    private int depth;
+    private long elapsedNanos;
+
+    /**
+     * @param maxMillis the time budget per move in milliseconds
+     * @param maxNodes  the node budget per move
+     */
+    public Search(long maxMillis, long maxNodes) {
+        this(maxMillis, maxNodes, new TranspositionTable(DEFAULT_HASH_MEGABYTES));
+    }
+
+    /**
+     * @param maxMillis          the time budget per move in milliseconds
+     * @param maxNodes           the node budget per move
+     * @param transpositionTable the table of positions searched before
+     */
+    public Search(long maxMillis, long maxNodes, TranspositionTable transpositionTable) {
+        this.maxMillis = maxMillis;
+        this.maxNodes = maxNodes;
+        this.transpositionTable = transpositionTable;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis;
+    }
+
+    @Override
+    public void setMaxMillis(long maxMillis) {
+        this.maxMillis = maxMillis;
+    }
+
+    public long getMaxNodes() {
+        return maxNodes;
+    }
+
+    public void setMaxNodes(long maxNodes) {
+        this.maxNodes = maxNodes;
+    }
+
+    public int getMaxDepth() {
+        return maxDepth;
+    }
+
+    public void setMaxDepth(int maxDepth) {
+        this.maxDepth = Math.min(maxDepth, MAX_DEPTH);
+    }
+
+    public TranspositionTable getTranspositionTable() {
+        return transpositionTable;
+    }
+
+    public void setTranspositionTable(TranspositionTable transpositionTable) {
+        this.transpositionTable = transpositionTable;
+    }
+
+    /**
+     * @return the evaluation weights of this search, null if it uses the shared weights of the {@link Evaluator}
+     */
+    public short[] getWeights() {
+        return weights;
+    }
+
+    /**
+     * @param weights the evaluation weights (see {@link Evaluator#read(java.nio.file.Path)}), not changed by the
+     *                search so searches can share them; null for the shared weights of the {@link Evaluator}
+     */
+    public void setWeights(short[] weights) {
+        if (weights != null) {
+            Evaluator.checkWeights(weights);
+        }
+        this.weights = weights;
+    }
+
+    public AnalysisCache getAnalysisCache() {
+        return analysisCache;
+    }
+
+    /**
+     * @param analysisCache the results of earlier searches, also of other runs: a position found there is
+     *                      answered at once if it was searched deep enough, else only searched deeper;
+     *                      null for none
+     */
+    public void setAnalysisCache(AnalysisCache analysisCache) {
+        this.analysisCache = analysisCache;
+    }
+
+    public OpeningBook getOpeningBook() {
+        return openingBook;
+    }
+
+    /**
+     * @param openingBook the book moves are played without searching, null for none
+     */
+    public void setOpeningBook(OpeningBook openingBook) {
+        this.openingBook = openingBook;
+    }
+
+    /**
+     * @param stopSignal the search stops as soon as it is set, e.g. by another thread; null for none
+     */
+    public void setStopSignal(AtomicBoolean stopSignal) {
+        this.stopSignal = stopSignal;
+    }
+
+    /**
+     * @param depthOffset the number of plies the first iteration searches deeper than 1
+     */
+    public void setDepthOffset(int depthOffset) {
+        this.depthOffset = depthOffset;
+    }
+
+    /**
+     * @param parallelWorker true if the search is one thread of a {@link ParallelSearch}
+     */
+    void setParallelWorker(boolean parallelWorker) {
+        this.parallelWorker = parallelWorker;
+    }
+
+    /**
+     * Return the best move for the player on current board, within the time and node budget.
+     * A move of the opening book is answered at once, with depth 0.
+     *
+     * @param position the current board, it is not changed
+     * @param player   the player to move
+     * @return the square index of the best move, -1 if the player has no valid move
+     */
+    @Override
+    public int findBestMove(Board position, char player) {
+        long start = System.nanoTime();
+        startSearch(position, start);
+        if (openingBook != null) {
+            bestMove = openingBook.findMove(board, player);
+            //a corrupt book or a hash collision may give a move which is not valid here, then search
+            if (bestMove >= 0 && (board.getMoves(player) & (1L << bestMove)) != 0) {
+                elapsedNanos = System.nanoTime() - start;
+                board = null;
+                if (!parallelWorker) {
+                    Metrics.searchFinished("Search", bestMove, 0, 0, 0, elapsedNanos);
+                }
+                return bestMove;
+            }
+            bestMove = -1;
+        }
+        if (!parallelWorker) {
+            transpositionTable.newSearch();
+        }
+
+        long legalMoves = board.getMoves(player);
+        int cachedMove = probeCache(player, legalMoves);
+        int count = orderMoves(player, legalMoves, 0, 0, cachedMove);
+        if (count > 0) {
+            bestMove = moves[0][0];
+            int empties = BitBoard.SQUARES - Long.bitCount(board.getDisks(Board.DARK) | board.getDisks(Board.LIGHT));
+            int cachedDepth = depth;
+            //a position searched before is only searched deeper
+            int firstIteration = Math.max(1 + depthOffset, cachedDepth + 1);
+            if (cachedDepth >= Math.min(maxDepth, empties)) {
+                firstIteration = Integer.MAX_VALUE;
+            }
+            for (int iteration = firstIteration; iteration <= maxDepth && !stopped; iteration++) {
+                int iterationScore = searchRoot(player, iteration, count);
+                if (stopped) {
+                    break;
+                }
+                bestMove = moves[0][0];
+                score = iterationScore;
+                depth = iteration;
+                if (iteration >= empties) {
+                    //The whole game is searched, the score is exact
+                    break;
+                }
+            }
+            if (depth > cachedDepth) {
+                storeCache(player);
+            }
+        }
+        elapsedNanos = System.nanoTime() - start;
+        board = null;
+        if (!parallelWorker) {
+            Metrics.searchFinished("Search", bestMove, depth, score, nodes, elapsedNanos);
+        }
+        return bestMove;
+    }
+
+    /**
+     * Take the result of an earlier search of the position from the analysis cache, if its move is valid.
+     *
+     * @return the cached move, -1 if there is none
+     */
+    private int probeCache(char player, long legalMoves) {
+        if (analysisCache == null) {
+            return -1;
+        }
+        long entry = analysisCache.probe(board.getDisks(player), board.getDisks(Board.getOpponent(player)));
+        int move = entry == 0 ? -1 : TranspositionTable.move(entry);
+        if (move < 0 || TranspositionTable.bound(entry) != TranspositionTable.EXACT
+                || (legalMoves & (1L << move)) == 0) {
+            return -1;
+        }
+        bestMove = move;
+        score = TranspositionTable.score(entry);
+        depth = TranspositionTable.depth(entry);
+        return move;
+    }
+
+    private void storeCache(char player) {
+        if (analysisCache != null) {
+            analysisCache.store(board.getDisks(player), board.getDisks(Board.getOpponent(player)), depth,
+                    TranspositionTable.EXACT, score, bestMove);
+        }
+    }
+
+    private void startSearch(Board position, long start) {
+        board = new Board(position);
+        nodes = 0;
+        deadline = maxMillis > 0 ? start + maxMillis * 1_000_000L : Long.MAX_VALUE;
+        stopped = false;
+        bestMove = -1;
+        score = 0;
+        depth = 0;
+    }
+
+    /**
+     * Score every legal move, not only the best one (multi-PV). The search deepens one ply at a time like
+     * {@link #findBestMove(Board, char)}, within the same budgets, but searches each move with a full window
+     * so every score is exact at its depth, and hands each result to the listener as soon as the move is
+     * searched. The moves are searched best first, by their scores of the previous iteration.
+     *
+     * @param position the current board, it is not changed
+     * @param player   the player to move
+     * @param listener receives each result as it is found, null for none
+     * @return the results of the deepest complete iteration, best first, empty if the player has no valid move
+     */
+    public List<MoveAnalysis> analyze(Board position, char player, AnalysisListener listener) {
+        long start = System.nanoTime();
+        startSearch(position, start);
+        transpositionTable.newSearch();
+        char opponent = Board.getOpponent(player);
+        long legalMoves = board.getMoves(player);
+        int cachedMove = probeCache(player, legalMoves);
+        int cachedDepth = depth;
+        int[] rootMoves = Arrays.copyOf(moves[0], orderMoves(player, legalMoves, 0, 0, cachedMove));
+        bestMove = -1;
+        score = 0;
+        depth = 0;
+        int empties = BitBoard.SQUARES - Long.bitCount(board.getDisks(Board.DARK) | board.getDisks(Board.LIGHT));
+        List<MoveAnalysis> completed = Collections.emptyList();
+        for (int iteration = 1; iteration <= maxDepth && rootMoves.length > 0 && !stopped; iteration++) {
+            List<MoveAnalysis> analyses = new ArrayList<>(rootMoves.length);
+            for (int square : rootMoves) {
+                board.makeMove(player, square);
+                int value = -negamax(opponent, iteration - 1, -INFINITY, INFINITY, 1);
+                int[] variation = stopped ? null : principalVariation(square, opponent, iteration);
+                board.undoMove();
+                if (stopped) {
+                    break;
+                }
+                MoveAnalysis analysis = new MoveAnalysis(square, iteration, value, variation);
+                analyses.add(analysis);
+                if (listener != null) {
+                    listener.moveAnalyzed(analysis);
+                }
+            }
+            if (stopped) {
+                break;
+            }
+            analyses.sort((first, second) -> Integer.compare(second.getScore(), first.getScore()));
+            for (int i = 0; i < rootMoves.length; i++) {
+                rootMoves[i] = analyses.get(i).getMove();
+            }
+            completed = Collections.unmodifiableList(analyses);
+            bestMove = rootMoves[0];
+            score = analyses.get(0).getScore();
+            depth = iteration;
+            if (listener != null) {
+                listener.depthCompleted(iteration, completed);
+            }
+            if (iteration >= empties) {
+                //The whole game is searched, the scores are exact
+                break;
+            }
+        }
+        if (depth > cachedDepth) {
+            storeCache(player);
+        }
+        elapsedNanos = System.nanoTime() - start;
+        board = null;
+        return completed;
+    }
+
+    /**
+     * Return the move and the best replies after it stored in the transposition table, at most
+     * <code>length</code> moves. The board is the position after <code>square</code>, it is given back unchanged.
+     */
+    private int[] principalVariation(int square, char player, int length) {
+        int[] variation = new int[length];
+        variation[0] = square;
+        int count = 1;
+        while (count < length) {
+            long legalMoves = board.getMoves(player);
+            if (legalMoves == 0) {
+                if (board.getMoves(Board.getOpponent(player)) == 0) {
+                    break;
+                }
+                player = Board.getOpponent(player);
+                continue;
+            }
+            long entry = transpositionTable.probe(board.getHash(player));
+            int move = entry == 0 ? -1 : TranspositionTable.move(entry);
+            if (move < 0 || (legalMoves & (1L << move)) == 0) {
+                break;
+            }
+            board.makeMove(player, move);
+            variation[count++] = move;
+            player = Board.getOpponent(player);
+        }
+        for (int i = 1; i < count; i++) {
+            board.undoMove();
+        }
+        return Arrays.copyOf(variation, count);
+    }
+
+    /**
+     * Search all root moves to <code>depth</code> and move the best one to the front
+     * so the next iteration searches it first.
+     */
+    private int searchRoot(char player, int depth, int count) {
+        char opponent = Board.getOpponent(player);
+        int alpha = -INFINITY;
+        int best = 0;
+        for (int i = 0; i < count; i++) {
+            board.makeMove(player, moves[0][i]);
+            int value;
+            if (i == 0) {
+                value = -negamax(opponent, depth - 1, -INFINITY, -alpha, 1);
+            } else {
+                value = -negamax(opponent, depth - 1, -alpha - 1, -alpha, 1);
+                if (value > alpha) {
+                    value = -negamax(opponent, depth - 1, -INFINITY, -alpha, 1);
+                }
+            }
+            board.undoMove();
+            if (stopped) {
+                break;
+            }
+            if (value > alpha) {
+                alpha = value;
+                best = i;
+            }
+        }
+        int bestSquare = moves[0][best];
+        System.arraycopy(moves[0], 0, moves[0], 1, best);
+        moves[0][0] = bestSquare;
+        return alpha;
+    }
+
+    private int negamax(char player, int depth, int alpha, int beta, int ply) {
+        if ((++nodes & NODES_PER_CHECK) == 0) {
+            checkLimits();
+        }
+        if (stopped) {
+            return 0;
+        }
+        char opponent = Board.getOpponent(player);
+        long legalMoves = board.getMoves(player);
+        if (legalMoves == 0) {
+            if (board.getMoves(opponent) == 0) {
+                return finalScore(player);
+            }
+            return -negamax(opponent, depth, -beta, -alpha, ply + 1);
+        }
+        if (depth == 0) {
+            return weights == null ? Evaluator.evaluate(board.getDisks(player), board.getDisks(opponent))
+                    : Evaluator.evaluate(weights, board.getDisks(player), board.getDisks(opponent));
+        }
+
+        long hash = board.getHash(player);
+        long entry = transpositionTable.probe(hash);
+        int hashMove = -1;
+        if (entry != 0) {
+            hashMove = TranspositionTable.move(entry);
+            if (TranspositionTable.depth(entry) >= depth) {
+                int bound = TranspositionTable.bound(entry);
+                int value = TranspositionTable.score(entry);
+                if (bound == TranspositionTable.EXACT
+                        || bound == TranspositionTable.LOWER && value >= beta
+                        || bound == TranspositionTable.UPPER && value <= alpha) {
+                    return value;
+                }
+            }
+        }
+
+        int originalAlpha = alpha;
+        int count = orderMoves(player, legalMoves, depth, ply, hashMove);
+        int best = -INFINITY;
+        int bestMove = -1;
+        for (int i = 0; i < count; i++) {
+            board.makeMove(player, moves[ply][i]);
+            int value;
+            if (i == 0) {
+                value = -negamax(opponent, depth - 1, -beta, -alpha, ply + 1);
+            } else {
+                //principal variation search: prove the move is worse with a null window first
+                value = -negamax(opponent, depth - 1, -alpha - 1, -alpha, ply + 1);
+                if (value > alpha && value < beta) {
+                    value = -negamax(opponent, depth - 1, -beta, -alpha, ply + 1);
+                }
+            }
+            board.undoMove();
+            if (stopped) {
+                return 0;
+            }
+            if (value > best) {
+                best = value;
+                bestMove = moves[ply][i];
+                if (value > alpha) {
+                    alpha = value;
+                    if (alpha >= beta) {
+                        break;
+                    }
+                }
+            }
+        }
+        int bound = best <= originalAlpha ? TranspositionTable.UPPER
+                : best >= beta ? TranspositionTable.LOWER : TranspositionTable.EXACT;
+        transpositionTable.store(hash, depth, bound, best, bestMove);
+        return best;
+    }
+
+    /**
+     * Fill the move list of <code>ply</code>, most promising moves first: the best move
+     * of an earlier search of the position, good squares, and away from the leaves
+     * moves which leave the opponent few replies.
+     *
+     * @return the number of moves
+     */
+    private int orderMoves(char player, long legalMoves, int depth, int ply, int hashMove) {
+        long own = board.getDisks(player);
+        long opp = board.getDisks(Board.getOpponent(player));
+        int[] squares = moves[ply];
+        int[] scores = moveScores[ply];
+        int count = 0;
+        for (long bits = legalMoves; bits != 0; bits &= bits - 1) {
+            int square = Long.numberOfTrailingZeros(bits);
+            int value = Evaluator.squareWeight(square);
+            if (square == hashMove) {
+                value = INFINITY;
+            } else if (depth >= 2) {
+                long flipped = BitBoard.flips(own, opp, square);
+                long opponentMoves = BitBoard.moves(opp & ~flipped, own | flipped | (1L << square));
+                value -= 16 * Long.bitCount(opponentMoves);
+            }
+            //insertion sort, best first
+            int i = count++;
+            while (i > 0 && scores[i - 1] < value) {
+                squares[i] = squares[i - 1];
+                scores[i] = scores[i - 1];
+                i--;
+            }
+            squares[i] = square;
+            scores[i] = value;
+        }
+        return count;
+    }
+
+    private int finalScore(char player) {
+        int diff = Long.bitCount(board.getDisks(player)) - Long.bitCount(board.getDisks(Board.getOpponent(player)));
+        return diff * GAME_OVER_SCALE;
+    }
+
+    private void checkLimits() {
+        if (nodes >= maxNodes || System.nanoTime() >= deadline
+                || stopSignal != null && stopSignal.get()) {
+            stopped = true;
+        }
+    }
+
+    /**
+     * @return the square index of the best move found by the last search, -1 if there was none
+     */
+    public int getBestMove() {
+        return bestMove;
+    }
+
+    /**
+     * @return the score of the best move found by the last search
+     */
+    @Override
+    public int getScore() {
+        return score;
+    }
+
+    /**
+     * @return the depth of the deepest completed iteration of the last search
+     */
+    @Override
+    public int getDepth() {
+        return depth;
+    }
+
+    /**
+     * @return the number of nodes visited by the last search
+     */
+    @Override
+    public long getNodes() {
+        return nodes;
+    }
+
+    /**
+     * @return the duration of the last search in milliseconds
+     */
+    @Override
+    public long getElapsedMillis() {
+        return elapsedNanos / 1_000_000L;
+    }
+
+    /**
+     * @return the nodes visited per second by the last search
+     */
+    public long getNodesPerSecond() {
+        return elapsedNanos == 0 ? 0 : nodes * 1_000_000_000L / elapsedNanos;
+    }
+
+}
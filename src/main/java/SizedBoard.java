@@ -0,0 +1,526 @@
+import java.util.Arrays;
+
+/**
+ * An Othello board of any even size from 4*4 to 16*16, for the variants of the game (6*6 is solved,
+ * 10*10 is played as Grand Othello).
+ *
+ * <p>Squares are numbered row by row like on the 8*8 {@link Board}, <code>row * size + column</code>, and
+ * written row first or column first with the columns from 'a' (e.g. 3d, d3 or 10j). The representation
+ * is picked by {@link #create(int)}: up to 8*8 each side is one 64-bit mask, larger boards keep each side
+ * as an array of 64-bit words. Both find all legal moves at once by shifting whole masks along the eight
+ * {@link Disk#ALL_DIRECTIONS}, like {@link BitBoard}, and neither allocates while playing.
+ *
+ * <p>The engines, the opening book and the game files stay on the 8*8 {@link Board}, whose square
+ * index fits their 64-bit masks and one byte per move.
+ */
+public abstract class SizedBoard {
+
+    public static final int MIN_SIZE = 4;
+    public static final int MAX_SIZE = 16;
+
+    final int size;
+    final int squares;
+
+    SizedBoard(int size) {
+        this.size = size;
+        this.squares = size * size;
+    }
+
+    /**
+     * Create a board at the start of the game, the four disks in the center like on {@link Board#Board()}.
+     *
+     * @param size the number of rows and columns, even, from {@link #MIN_SIZE} to {@link #MAX_SIZE}
+     * @return the board, one 64-bit mask per side up to 8*8, else one array of words per side
+     */
+    public static SizedBoard create(int size) {
+        if (size < MIN_SIZE || size > MAX_SIZE || size % 2 != 0) {
+            throw new IllegalArgumentException("The board size must be even, from " + MIN_SIZE + " to "
+                    + MAX_SIZE + ": " + size);
+        }
+        return size * size <= Long.SIZE ? new Small(size) : new Large(size);
+    }
+
+    public int getSize() {
+        return size;
+    }
+
+    /**
+     * @return the number of squares, size * size
+     */
+    public int getSquares() {
+        return squares;
+    }
+
+    /**
+     * Put the board back to the start of the game.
+     */
+    public void reset() {
+        clear();
+        int center = size / 2;
+        put(Board.LIGHT, (center - 1) * size + center - 1);
+        put(Board.DARK, (center - 1) * size + center);
+        put(Board.DARK, center * size + center - 1);
+        put(Board.LIGHT, center * size + center);
+    }
+
+    /**
+     * @param square the square index
+     * @return the player of the disk on the square, {@link Board#NO_PIECE} if it is empty
+     */
+    public abstract char getPlayer(int square);
+
+    /**
+     * @param player the player
+     * @return the number of disks of the player
+     */
+    public abstract int getDiskCount(char player);
+
+    /**
+     * Write the legal moves of the player to <code>moves</code>, in the order of the squares.
+     *
+     * @param player the current player
+     * @param moves  receives the square indexes, {@link #getSquares()} long is always enough
+     * @return the number of legal moves
+     */
+    public abstract int getMoves(char player, int[] moves);
+
+    /**
+     * @param player the current player
+     * @return true if the player has a valid move
+     */
+    public abstract boolean hasAvailableMove(char player);
+
+    /* Remove all disks */
+    abstract void clear();
+
+    /* Put a disk of the player on the square, replacing the disk of the opponent if there is one */
+    abstract void put(char player, int square);
+
+    /**
+     * @param player the current player
+     * @param square the square index, any int
+     * @return true if the square is empty and the move turns over at least one disk
+     */
+    public boolean isValidMove(char player, int square) {
+        return square >= 0 && square < squares && getPlayer(square) == Board.NO_PIECE
+                && flip(player, square, false) > 0;
+    }
+
+    /**
+     * Put a disk of the player on <code>square</code> and turn over the opponent's disks.<p>
+     * The square is expected to be empty, the move itself is not validated.
+     *
+     * @param player the current player
+     * @param square the square index of the new disk
+     * @return the number of flipped disks
+     */
+    public int makeMove(char player, int square) {
+        int flipped = flip(player, square, true);
+        put(player, square);
+        return flipped;
+    }
+
+    /**
+     * Count the opponent's disks between the square and the disks of the player, walking each direction
+     * square by square, and turn them over if <code>turn</code> is true.
+     */
+    private int flip(char player, int square, boolean turn) {
+        char opponent = Board.getOpponent(player);
+        int row = square / size;
+        int column = square % size;
+        int flipped = 0;
+        for (Disk direction : Disk.ALL_DIRECTIONS) {
+            int dx = direction.getX();
+            int dy = direction.getY();
+            int x = row + dx;
+            int y = column + dy;
+            int count = 0;
+            while (isOnBoard(x, y) && getPlayer(x * size + y) == opponent) {
+                x += dx;
+                y += dy;
+                count++;
+            }
+            if (count > 0 && isOnBoard(x, y) && getPlayer(x * size + y) == player) {
+                flipped += count;
+                for (int i = 1; turn && i <= count; i++) {
+                    put(player, (row + i * dx) * size + column + i * dy);
+                }
+            }
+        }
+        return flipped;
+    }
+
+    private boolean isOnBoard(int x, int y) {
+        return x >= 0 && x < size && y >= 0 && y < size;
+    }
+
+    /**
+     * @return true if neither player has a valid move (this includes a full board)
+     */
+    public boolean isGameOver() {
+        return !hasAvailableMove(Board.DARK) && !hasAvailableMove(Board.LIGHT);
+    }
+
+    /**
+     * @return the disks of both players
+     */
+    public GameResult getResult() {
+        return new GameResult(getDiskCount(Board.DARK), getDiskCount(Board.LIGHT));
+    }
+
+    /**
+     * Return the coordinate of the square, row first (e.g. 3d or 10j).
+     *
+     * @param square the square index
+     * @return the coordinate
+     */
+    public String getUserMove(int square) {
+        return (square / size + 1) + String.valueOf((char) ('a' + square % size));
+    }
+
+    /**
+     * Return the square index of a coordinate written as row+column or column+row (e.g. 3d, d3 or 10j).
+     *
+     * @param move the coordinate
+     * @return the square index, -1 if it is no coordinate on this board
+     */
+    public int parseSquare(String move) {
+        String text = move.trim().toLowerCase();
+        if (text.length() < 2 || text.length() > 3) {
+            return -1;
+        }
+        boolean columnFirst = Character.isLetter(text.charAt(0));
+        int column = (columnFirst ? text.charAt(0) : text.charAt(text.length() - 1)) - 'a';
+        String rowText = columnFirst ? text.substring(1) : text.substring(0, text.length() - 1);
+        int row = 0;
+        for (int i = 0; i < rowText.length(); i++) {
+            char digit = rowText.charAt(i);
+            if (digit < '0' || digit > '9' || (i == 0 && digit == '0')) {
+                return -1;
+            }
+            row = row * 10 + digit - '0';
+        }
+        row--;
+        return isOnBoard(row, column) ? row * size + column : -1;
+    }
+
+    /**
+     * Return current status of board, like {@link Board#getBoardInfo()}.
+     *
+     * @return The current result of board as String.
+     */
+    public String getBoardInfo() {
+        String rowFormat = "%" + String.valueOf(size).length() + "d ";
+        StringBuilder boardInfo = new StringBuilder();
+        for (int x = 0; x < size; x++) {
+            boardInfo.append(String.format(rowFormat, x + 1));
+            for (int y = 0; y < size; y++) {
+                boardInfo.append(getPlayer(x * size + y)).append(" ");
+            }
+            boardInfo.append(System.lineSeparator());
+        }
+        boardInfo.append(String.format(rowFormat, 0).replace('0', ' '));
+        for (int y = 0; y < size; y++) {
+            boardInfo.append(y == 0 ? "" : " ").append((char) ('a' + y));
+        }
+        boardInfo.append(System.lineSeparator());
+        return boardInfo.toString();
+    }
+
+    /**
+     * A board of at most 64 squares, one mask per side.
+     */
+    static final class Small extends SizedBoard {
+
+        /* The squares of the board */
+        private final long full;
+
+        /* The squares off the first and last column, lines of disks along a row or diagonal stay inside */
+        private final long innerColumns;
+
+        private long dark;
+        private long light;
+
+        Small(int size) {
+            super(size);
+            full = squares == Long.SIZE ? -1L : (1L << squares) - 1;
+            long firstColumn = 0;
+            for (int row = 0; row < size; row++) {
+                firstColumn |= 1L << row * size;
+            }
+            innerColumns = full & ~firstColumn & ~(firstColumn << size - 1);
+            reset();
+        }
+
+        /**
+         * Return the legal moves of the side <code>own</code> as a bit mask, like {@link BitBoard#moves}.
+         */
+        long moves(long own, long opp) {
+            long inner = opp & innerColumns;
+            long moves = lines(own, inner, 1) | lines(own, opp, size) | lines(own, inner, size - 1)
+                    | lines(own, inner, size + 1);
+            return moves & full & ~(own | opp);
+        }
+
+        /**
+         * Return the squares after a line of <code>opp</code> disks starting next to an <code>own</code> disk,
+         * in both directions along <code>shift</code>. A line is at most size - 2 disks long.
+         */
+        private long lines(long own, long opp, int shift) {
+            int doubleShift = shift << 1;
+            long up = opp & (own << shift);
+            up |= opp & (up << shift);
+            long upPairs = opp & (opp << shift);
+
+            long down = opp & (own >>> shift);
+            down |= opp & (down >>> shift);
+            long downPairs = opp & (opp >>> shift);
+            for (int length = 2; length < size - 2; length += 2) {
+                up |= upPairs & (up << doubleShift);
+                down |= downPairs & (down >>> doubleShift);
+            }
+            return (up << shift) | (down >>> shift);
+        }
+
+        private long moves(char player) {
+            return player == Board.DARK ? moves(dark, light) : moves(light, dark);
+        }
+
+        @Override
+        public char getPlayer(int square) {
+            long bit = 1L << square;
+            return (dark & bit) != 0 ? Board.DARK : (light & bit) != 0 ? Board.LIGHT : Board.NO_PIECE;
+        }
+
+        @Override
+        public int getDiskCount(char player) {
+            return Long.bitCount(player == Board.DARK ? dark : light);
+        }
+
+        @Override
+        public int getMoves(char player, int[] moves) {
+            int count = 0;
+            for (long bits = moves(player); bits != 0; bits &= bits - 1) {
+                moves[count++] = Long.numberOfTrailingZeros(bits);
+            }
+            return count;
+        }
+
+        @Override
+        public boolean hasAvailableMove(char player) {
+            return moves(player) != 0;
+        }
+
+        @Override
+        void clear() {
+            dark = 0;
+            light = 0;
+        }
+
+        @Override
+        void put(char player, int square) {
+            long bit = 1L << square;
+            if (player == Board.DARK) {
+                dark |= bit;
+                light &= ~bit;
+            } else {
+                light |= bit;
+                dark &= ~bit;
+            }
+        }
+    }
+
+    /**
+     * A board of more than 64 squares, four 64-bit words per side, enough for 16*16; square <code>s</code>
+     * is bit <code>s % 64</code> of word <code>s / 64</code>, the words past the last square stay 0. The
+     * words are kept in local variables while the moves are found, so nothing is allocated or looped over,
+     * and a line of disks stops growing as soon as it is complete, as lines are short on a large board.
+     */
+    static final class Large extends SizedBoard {
+
+        /* The words of a mask */
+        static final int WORDS = 4;
+
+        /* The squares of the board */
+        private final long[] full = new long[WORDS];
+
+        /* The squares off the first and last column, lines of disks along a row or diagonal stay inside */
+        private final long[] innerColumns = new long[WORDS];
+
+        private final long[] dark = new long[WORDS];
+        private final long[] light = new long[WORDS];
+
+        /* The legal moves found by findMoves, one field per word */
+        private long moves0;
+        private long moves1;
+        private long moves2;
+        private long moves3;
+
+        Large(int size) {
+            super(size);
+            for (int square = 0; square < squares; square++) {
+                full[square / Long.SIZE] |= 1L << square;
+                if (square % size != 0 && square % size != size - 1) {
+                    innerColumns[square / Long.SIZE] |= 1L << square;
+                }
+            }
+            reset();
+        }
+
+        /**
+         * Add to the moves the squares after a line of <code>opp</code> disks starting next to an
+         * <code>own</code> disk, towards higher squares by <code>shift</code> (0 &lt; shift &lt; 64).
+         */
+        private void linesUp(long own0, long own1, long own2, long own3,
+                             long opp0, long opp1, long opp2, long opp3, int shift) {
+            int back = Long.SIZE - shift;
+            long line0 = opp0 & own0 << shift;
+            long line1 = opp1 & (own1 << shift | own0 >>> back);
+            long line2 = opp2 & (own2 << shift | own1 >>> back);
+            long line3 = opp3 & (own3 << shift | own2 >>> back);
+            while ((line0 | line1 | line2 | line3) != 0) {
+                long next0 = line0 | opp0 & line0 << shift;
+                long next1 = line1 | opp1 & (line1 << shift | line0 >>> back);
+                long next2 = line2 | opp2 & (line2 << shift | line1 >>> back);
+                long next3 = line3 | opp3 & (line3 << shift | line2 >>> back);
+                if (next0 == line0 && next1 == line1 && next2 == line2 && next3 == line3) {
+                    break;
+                }
+                line0 = next0;
+                line1 = next1;
+                line2 = next2;
+                line3 = next3;
+            }
+            moves0 |= line0 << shift;
+            moves1 |= line1 << shift | line0 >>> back;
+            moves2 |= line2 << shift | line1 >>> back;
+            moves3 |= line3 << shift | line2 >>> back;
+        }
+
+        /**
+         * Like {@link #linesUp}, towards lower squares.
+         */
+        private void linesDown(long own0, long own1, long own2, long own3,
+                               long opp0, long opp1, long opp2, long opp3, int shift) {
+            int back = Long.SIZE - shift;
+            long line0 = opp0 & (own0 >>> shift | own1 << back);
+            long line1 = opp1 & (own1 >>> shift | own2 << back);
+            long line2 = opp2 & (own2 >>> shift | own3 << back);
+            long line3 = opp3 & own3 >>> shift;
+            while ((line0 | line1 | line2 | line3) != 0) {
+                long next0 = line0 | opp0 & (line0 >>> shift | line1 << back);
+                long next1 = line1 | opp1 & (line1 >>> shift | line2 << back);
+                long next2 = line2 | opp2 & (line2 >>> shift | line3 << back);
+                long next3 = line3 | opp3 & line3 >>> shift;
+                if (next0 == line0 && next1 == line1 && next2 == line2 && next3 == line3) {
+                    break;
+                }
+                line0 = next0;
+                line1 = next1;
+                line2 = next2;
+                line3 = next3;
+            }
+            moves0 |= line0 >>> shift | line1 << back;
+            moves1 |= line1 >>> shift | line2 << back;
+            moves2 |= line2 >>> shift | line3 << back;
+            moves3 |= line3 >>> shift;
+        }
+
+        /**
+         * Find the legal moves of the side <code>own</code>.
+         */
+        private void findMoves(long[] own, long[] opp) {
+            long own0 = own[0];
+            long own1 = own[1];
+            long own2 = own[2];
+            long own3 = own[3];
+            long opp0 = opp[0];
+            long opp1 = opp[1];
+            long opp2 = opp[2];
+            long opp3 = opp[3];
+            long inner0 = opp0 & innerColumns[0];
+            long inner1 = opp1 & innerColumns[1];
+            long inner2 = opp2 & innerColumns[2];
+            long inner3 = opp3 & innerColumns[3];
+            moves0 = 0;
+            moves1 = 0;
+            moves2 = 0;
+            moves3 = 0;
+            linesUp(own0, own1, own2, own3, inner0, inner1, inner2, inner3, 1);
+            linesDown(own0, own1, own2, own3, inner0, inner1, inner2, inner3, 1);
+            linesUp(own0, own1, own2, own3, inner0, inner1, inner2, inner3, size - 1);
+            linesDown(own0, own1, own2, own3, inner0, inner1, inner2, inner3, size - 1);
+            linesUp(own0, own1, own2, own3, inner0, inner1, inner2, inner3, size + 1);
+            linesDown(own0, own1, own2, own3, inner0, inner1, inner2, inner3, size + 1);
+            linesUp(own0, own1, own2, own3, opp0, opp1, opp2, opp3, size);
+            linesDown(own0, own1, own2, own3, opp0, opp1, opp2, opp3, size);
+            moves0 &= full[0] & ~(own0 | opp0);
+            moves1 &= full[1] & ~(own1 | opp1);
+            moves2 &= full[2] & ~(own2 | opp2);
+            moves3 &= full[3] & ~(own3 | opp3);
+        }
+
+        private void findMoves(char player) {
+            if (player == Board.DARK) {
+                findMoves(dark, light);
+            } else {
+                findMoves(light, dark);
+            }
+        }
+
+        @Override
+        public char getPlayer(int square) {
+            int word = square / Long.SIZE;
+            long bit = 1L << square;
+            return (dark[word] & bit) != 0 ? Board.DARK : (light[word] & bit) != 0 ? Board.LIGHT : Board.NO_PIECE;
+        }
+
+        @Override
+        public int getDiskCount(char player) {
+            long[] disks = player == Board.DARK ? dark : light;
+            return Long.bitCount(disks[0]) + Long.bitCount(disks[1]) + Long.bitCount(disks[2])
+                    + Long.bitCount(disks[3]);
+        }
+
+        @Override
+        public int getMoves(char player, int[] legalMoves) {
+            findMoves(player);
+            int count = addSquares(moves0, 0, legalMoves, 0);
+            count = addSquares(moves1, Long.SIZE, legalMoves, count);
+            count = addSquares(moves2, 2 * Long.SIZE, legalMoves, count);
+            return addSquares(moves3, 3 * Long.SIZE, legalMoves, count);
+        }
+
+        private static int addSquares(long bits, int first, int[] squares, int count) {
+            for (; bits != 0; bits &= bits - 1) {
+                squares[count++] = first + Long.numberOfTrailingZeros(bits);
+            }
+            return count;
+        }
+
+        @Override
+        public boolean hasAvailableMove(char player) {
+            findMoves(player);
+            return (moves0 | moves1 | moves2 | moves3) != 0;
+        }
+
+        @Override
+        void clear() {
+            Arrays.fill(dark, 0);
+            Arrays.fill(light, 0);
+        }
+
+        @Override
+        void put(char player, int square) {
+            int word = square / Long.SIZE;
+            long bit = 1L << square;
+            if (player == Board.DARK) {
+                dark[word] |= bit;
+                light[word] &= ~bit;
+            } else {
+                light[word] |= bit;
+                dark[word] &= ~bit;
+            }
+        }
+    }
+}
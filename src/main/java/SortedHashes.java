@@ -0,0 +1,42 @@
+import java.nio.ByteBuffer;
+
+/**
+ * Binary search in a file of fixed-size entries sorted by the position hash at their start, compared
+ * unsigned, like the {@link OpeningBook} and the segments of the {@link PositionIndex}.
+ */
+final class SortedHashes {
+
+    private SortedHashes() {
+    }
+
+    /**
+     * @return the hash of the entry <code>index</code>
+     */
+    static long hashAt(ByteBuffer buffer, int headerBytes, int entryBytes, int index) {
+        return buffer.getLong(headerBytes + index * entryBytes);
+    }
+
+    /**
+     * Return the first entry whose hash is not less than <code>hash</code>, comparing unsigned.
+     *
+     * @param buffer      the mapped file
+     * @param headerBytes the bytes before the first entry
+     * @param entryBytes  the bytes of one entry
+     * @param entries     the number of entries
+     * @param hash        the hash searched
+     * @return the index of the entry, <code>entries</code> if all hashes are less
+     */
+    static int lowerBound(ByteBuffer buffer, int headerBytes, int entryBytes, int entries, long hash) {
+        int low = 0;
+        int high = entries;
+        while (low < high) {
+            int middle = (low + high) >>> 1;
+            if (Long.compareUnsigned(hashAt(buffer, headerBytes, entryBytes, middle), hash) < 0) {
+                low = middle + 1;
+            } else {
+                high = middle;
+            }
+        }
+        return low;
+    }
+}
@@ -0,0 +1,204 @@
+/**
+ * The 8 symmetries of the board: the rotations and reflections which map the board onto itself.
+ *
+ * <p>A transform is a number from 0 to 7. Its bits are applied in this order: 4 swaps rows and
+ * columns (reflection on the 1a-8h diagonal), 1 mirrors the columns (a and h), 2 mirrors the rows (1 and 8).
+ * Transform 0 is the identity.
+ *
+ * <p>Sets of squares are transformed with a few shifts and masks each (see {@link #transpose(long)}), so
+ * finding the canonical position of the 8 symmetric ones (see {@link #canonicalTransform(long, long)})
+ * costs about as much as a move generation. Symmetric positions share their entries in the
+ * {@link OpeningBook} and the {@link PositionIndex} this way; moves are mapped to the canonical position
+ * with {@link #square(int, int)} and back with {@link #originalSquare(int, int)}.
+ */
+public final class Symmetry {
+
+    public static final int COUNT = 8;
+
+    /* SQUARES[transform][square] is the square the transform moves square to */
+    private static final int[][] SQUARES = new int[COUNT][BitBoard.SQUARES];
+
+    private static final int[] INVERSE = new int[COUNT];
+
+    /* Mixed into the opponent's disks, so own and opponent's disks do not cancel out */
+    private static final long CANONICAL_SEED = 0x9E3779B97F4A7C15L;
+
+    static {
+        for (int transform = 0; transform < COUNT; transform++) {
+            for (int square = 0; square < BitBoard.SQUARES; square++) {
+                int x = square / Board.BOARD_SIZE;
+                int y = square % Board.BOARD_SIZE;
+                if ((transform & 4) != 0) {
+                    int swap = x;
+                    x = y;
+                    y = swap;
+                }
+                if ((transform & 1) != 0) {
+                    y = Board.BOARD_SIZE - 1 - y;
+                }
+                if ((transform & 2) != 0) {
+                    x = Board.BOARD_SIZE - 1 - x;
+                }
+                SQUARES[transform][square] = x * Board.BOARD_SIZE + y;
+            }
+        }
+        for (int transform = 0; transform < COUNT; transform++) {
+            for (int inverse = 0; inverse < COUNT; inverse++) {
+                boolean identity = true;
+                for (int square = 0; square < BitBoard.SQUARES && identity; square++) {
+                    identity = SQUARES[inverse][SQUARES[transform][square]] == square;
+                }
+                if (identity) {
+                    INVERSE[transform] = inverse;
+                }
+            }
+        }
+    }
+
+    private Symmetry() {
+    }
+
+    /**
+     * @param transform the transform, 0 to 7
+     * @param square    the square index
+     * @return the square index <code>square</code> is moved to
+     */
+    public static int square(int transform, int square) {
+        return SQUARES[transform][square];
+    }
+
+    /**
+     * @param transform the transform, 0 to 7
+     * @return the transform which undoes <code>transform</code>
+     */
+    public static int inverse(int transform) {
+        return INVERSE[transform];
+    }
+
+    /**
+     * @param bits a set of squares
+     * @return the squares mirrored on the middle of the columns (1a to 1h)
+     */
+    public static long mirrorColumns(long bits) {
+        bits = ((bits >>> 1) & 0x5555555555555555L) | ((bits & 0x5555555555555555L) << 1);
+        bits = ((bits >>> 2) & 0x3333333333333333L) | ((bits & 0x3333333333333333L) << 2);
+        return ((bits >>> 4) & 0x0F0F0F0F0F0F0F0FL) | ((bits & 0x0F0F0F0F0F0F0F0FL) << 4);
+    }
+
+    /**
+     * @param bits a set of squares
+     * @return the squares mirrored on the middle of the rows (1a to 8a)
+     */
+    public static long mirrorRows(long bits) {
+        return Long.reverseBytes(bits);
+    }
+
+    /**
+     * @param bits a set of squares
+     * @return the squares reflected on the 1a-8h diagonal, rows become columns
+     */
+    public static long transpose(long bits) {
+        long swap = 0x0F0F0F0F00000000L & (bits ^ (bits << 28));
+        bits ^= swap ^ (swap >>> 28);
+        swap = 0x3333000033330000L & (bits ^ (bits << 14));
+        bits ^= swap ^ (swap >>> 14);
+        swap = 0x5500550055005500L & (bits ^ (bits << 7));
+        return bits ^ swap ^ (swap >>> 7);
+    }
+
+    /**
+     * @param transform the transform, 0 to 7
+     * @param square    the square index in the transformed position
+     * @return the square index <code>square</code> was moved from
+     */
+    public static int originalSquare(int transform, int square) {
+        return SQUARES[INVERSE[transform]][square];
+    }
+
+    /**
+     * @param transform the transform, 0 to 7
+     * @param disk      a square on the board
+     * @return the square <code>disk</code> is moved to
+     */
+    public static Disk disk(int transform, Disk disk) {
+        return Disk.getDisk(SQUARES[transform][BitBoard.square(disk)]);
+    }
+
+    /**
+     * @param transform the transform, 0 to 7
+     * @param disk      a square of the transformed position
+     * @return the square <code>disk</code> was moved from
+     */
+    public static Disk originalDisk(int transform, Disk disk) {
+        return Disk.getDisk(originalSquare(transform, BitBoard.square(disk)));
+    }
+
+    /**
+     * @param transform the transform, 0 to 7
+     * @param bits      a set of squares
+     * @return the squares <code>bits</code> are moved to
+     */
+    public static long transform(int transform, long bits) {
+        if ((transform & 4) != 0) {
+            bits = transpose(bits);
+        }
+        if ((transform & 1) != 0) {
+            bits = mirrorColumns(bits);
+        }
+        if ((transform & 2) != 0) {
+            bits = mirrorRows(bits);
+        }
+        return bits;
+    }
+
+    /**
+     * Return the transform to the canonical position: of the 8 symmetric positions the one with the smallest
+     * disks of the player to move, then the smallest disks of the opponent (compared unsigned).
+     * All symmetric positions have the same canonical position. If the position is symmetric itself,
+     * several transforms give it, the lowest one is returned.
+     *
+     * @param own the disks of the player to move
+     * @param opp the disks of the opponent
+     * @return the transform to the canonical position
+     */
+    public static int canonicalTransform(long own, long opp) {
+        int best = 0;
+        long bestOwn = own;
+        long bestOpp = opp;
+        for (int transform = 1; transform < COUNT; transform++) {
+            long transformedOwn = transform(transform, own);
+            int order = Long.compareUnsigned(transformedOwn, bestOwn);
+            if (order < 0 || order == 0 && Long.compareUnsigned(transform(transform, opp), bestOpp) < 0) {
+                best = transform;
+                bestOwn = transformedOwn;
+                bestOpp = transform(transform, opp);
+            }
+        }
+        return best;
+    }
+
+    /**
+     * Return the hash of the transformed position.
+     *
+     * @param transform the transform, 0 to 7
+     * @param own       the disks of the player to move
+     * @param opp       the disks of the opponent
+     * @return the hash
+     */
+    public static long hash(int transform, long own, long opp) {
+        return Zobrist.mix(transform(transform, own) ^ Zobrist.mix(transform(transform, opp) ^ CANONICAL_SEED));
+    }
+
+    /**
+     * Return the hash of the canonical position (see {@link #canonicalTransform(long, long)}), the same for
+     * all symmetric positions.
+     *
+     * @param own the disks of the player to move
+     * @param opp the disks of the opponent
+     * @return the hash
+     */
+    public static long canonicalHash(long own, long opp) {
+        return hash(canonicalTransform(own, opp), own, opp);
+    }
+
+}
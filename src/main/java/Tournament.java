@@ -0,0 +1,632 @@
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+import java.util.function.Supplier;
+
+/**
+ * Play many games between engines at once and compare their strength.
+ *
+ * <p>Every pair of players plays every opening twice, once with each color, so neither gets the better
+ * side of an opening. The games run on a fixed pool of threads; each thread keeps its own engine for
+ * each player, since an engine searches one position at a time. The engines are shut down when the
+ * games are played, so engines with threads of their own, like a {@link MonteCarloSearch}, do not outlive
+ * the tournament; their threads add to the threads of the tournament. For each pair the result is counted
+ * as wins, draws and losses of the first player, the Elo difference with its 95% error bar, and the
+ * nodes per second of each player.
+ *
+ * <p>With a {@link TimeControl} each player has a clock per game: the engine gets a share of its remaining
+ * time for each move, and loses the game if its clock runs out. Without one the engines keep their own
+ * budget per move. An engine which answers an invalid move loses the game too.
+ *
+ * <p>The players differ in their search settings: depth, time, nodes, hash size, opening book and evaluation
+ * weights (see {@link Evaluator}), so two sets of trained weights can be compared. A player without weights
+ * of its own evaluates with the shared weights.
+ */
+public class Tournament {
+
+    /**
+     * A named engine configuration.
+     */
+    public static class Player {
+        private final String name;
+        private final Supplier<Engine> factory;
+
+        /* The engine of each thread */
+        private final Map<Thread, Engine> engines = new ConcurrentHashMap<>();
+
+        /**
+         * @param name    the name of the player in the results
+         * @param engines creates the engine of the player, once per thread
+         */
+        public Player(String name, Supplier<Engine> engines) {
+            this.name = name;
+            this.factory = engines;
+        }
+
+        public String getName() {
+            return name;
+        }
+
+        /**
+         * @return the engine of the player for the current thread
+         */
+        Engine getEngine() {
+            return engines.computeIfAbsent(Thread.currentThread(), thread -> factory.get());
+        }
+
+        /**
+         * Shut down the engines created so far, the next games create new ones.
+         */
+        void shutdown() {
+            for (Engine engine : engines.values()) {
+                engine.shutdown();
+            }
+            engines.clear();
+        }
+
+        /**
+         * Create a player searching with {@link Search} from a specification like
+         * <code>name:depth=6,time=100,nodes=100000,hash=16,book=book.bin,weights=weights.bin</code>.
+         * All settings are optional; without depth, time and nodes the player searches 4 plies, and without
+         * weights it evaluates with the shared weights of the {@link Evaluator}.
+         * <code>mcts=threads</code> plays with {@link MonteCarloSearch} instead, nodes being the random games
+         * per move (10000 without time and nodes), and <code>guided=true</code> guides its random games;
+         * it does not evaluate positions, so it takes no weights.
+         *
+         * @param specification the name and the settings
+         * @return the player
+         * @throws IOException if the opening book or the weights cannot be read
+         */
+        public static Player parse(String specification) throws IOException {
+            int colon = specification.indexOf(':');
+            String name = colon < 0 ? specification : specification.substring(0, colon);
+            int depth = Search.MAX_DEPTH;
+            long maxMillis = 0;
+            long maxNodes = Long.MAX_VALUE;
+            int hash = Search.DEFAULT_HASH_MEGABYTES;
+            OpeningBook book = null;
+            short[] weights = null;
+            int mctsThreads = 0;
+            boolean guided = false;
+            if (colon >= 0 && colon < specification.length() - 1) {
+                for (String setting : specification.substring(colon + 1).split(",")) {
+                    String[] keyValue = setting.split("=", 2);
+                    if (keyValue.length != 2) {
+                        throw new IllegalArgumentException("Invalid setting of " + name + ": " + setting);
+                    }
+                    switch (keyValue[0].trim()) {
+                        case "depth":
+                            depth = Integer.parseInt(keyValue[1].trim());
+                            break;
+                        case "time":
+                            maxMillis = Long.parseLong(keyValue[1].trim());
+                            break;
+                        case "nodes":
+                            maxNodes = Long.parseLong(keyValue[1].trim());
+                            break;
+                        case "hash":
+                            hash = Integer.parseInt(keyValue[1].trim());
+                            break;
+                        case "book":
+                            book = OpeningBook.open(Paths.get(keyValue[1].trim()));
+                            break;
+                        case "weights":
+                            weights = Evaluator.read(Paths.get(keyValue[1].trim()));
+                            break;
+                        case "mcts":
+                            mctsThreads = Integer.parseInt(keyValue[1].trim());
+                            break;
+                        case "guided":
+                            guided = Boolean.parseBoolean(keyValue[1].trim());
+                            break;
+                        default:
+                            throw new IllegalArgumentException("Unknown setting of " + name + ": " + setting);
+                    }
+                }
+            }
+            if (mctsThreads > 0) {
+                if (weights != null) {
+                    throw new IllegalArgumentException("Monte Carlo player " + name + " takes no weights");
+                }
+                int threads = mctsThreads;
+                long millis = maxMillis;
+                long playouts = maxMillis == 0 && maxNodes == Long.MAX_VALUE ? 10_000 : maxNodes;
+                boolean guidedPlayouts = guided;
+                return new Player(name, () -> {
+                    MonteCarloSearch search = new MonteCarloSearch(threads, millis, playouts);
+                    search.setGuided(guidedPlayouts);
+                    return search;
+                });
+            }
+            if (depth == Search.MAX_DEPTH && maxMillis == 0 && maxNodes == Long.MAX_VALUE) {
+                depth = 4;
+            }
+            int maxDepth = depth;
+            long millis = maxMillis;
+            long nodes = maxNodes;
+            int megabytes = hash;
+            OpeningBook openingBook = book;
+            short[] evaluation = weights;
+            return new Player(name, () -> {
+                Search search = new Search(millis, nodes, new TranspositionTable(megabytes));
+                search.setMaxDepth(maxDepth);
+                search.setOpeningBook(openingBook);
+                search.setWeights(evaluation);
+                return search;
+            });
+        }
+    }
+
+    /**
+     * The time of each player for a game: a base time and an increment per move.
+     */
+    public static class TimeControl {
+        private final long baseMillis;
+        private final long incrementMillis;
+
+        public TimeControl(long baseMillis, long incrementMillis) {
+            this.baseMillis = baseMillis;
+            this.incrementMillis = incrementMillis;
+        }
+
+        /**
+         * @param text the base time and the increment in milliseconds, like <code>10000+100</code>
+         * @return the time control
+         */
+        public static TimeControl parse(String text) {
+            int plus = text.indexOf('+');
+            return plus < 0 ? new TimeControl(Long.parseLong(text.trim()), 0)
+                    : new TimeControl(Long.parseLong(text.substring(0, plus).trim()),
+                    Long.parseLong(text.substring(plus + 1).trim()));
+        }
+
+        public long getBaseMillis() {
+            return baseMillis;
+        }
+
+        public long getIncrementMillis() {
+            return incrementMillis;
+        }
+
+        /**
+         * Return the time budget of the next move: the remaining time shared by the moves still to come.
+         *
+         * @param remainingMillis the time left on the clock
+         * @param empties         the number of empty squares
+         * @return the time budget in milliseconds, at least 1
+         */
+        long moveBudget(long remainingMillis, int empties) {
+            int movesLeft = (empties + 1) / 2;
+            return Math.max(1, remainingMillis / (movesLeft + 2) + incrementMillis / 2);
+        }
+
+        @Override
+        public String toString() {
+            return baseMillis + "+" + incrementMillis;
+        }
+    }
+
+    /**
+     * The result of one game.
+     */
+    public static class Game {
+        private final int dark;
+        private final int light;
+        private final String opening;
+        private int darkDisks;
+        private int lightDisks;
+
+        /* The player whose clock ran out, NO_PIECE if none did */
+        private char timeForfeit = Board.NO_PIECE;
+
+        /* The player whose engine answered an invalid move, NO_PIECE if none did */
+        private char invalidMove = Board.NO_PIECE;
+
+        /* Nodes and time of the dark [0] and light [1] player */
+        private final long[] nodes = new long[2];
+        private final long[] nanos = new long[2];
+
+        Game(int dark, int light, String opening) {
+            this.dark = dark;
+            this.light = light;
+            this.opening = opening;
+        }
+
+        /**
+         * @return the index of the dark player
+         */
+        public int getDark() {
+            return dark;
+        }
+
+        /**
+         * @return the index of the light player
+         */
+        public int getLight() {
+            return light;
+        }
+
+        public String getOpening() {
+            return opening;
+        }
+
+        public int getDarkDisks() {
+            return darkDisks;
+        }
+
+        public int getLightDisks() {
+            return lightDisks;
+        }
+
+        public char getTimeForfeit() {
+            return timeForfeit;
+        }
+
+        /**
+         * @return the player whose engine answered an invalid move and lost the game, NO_PIECE if none did
+         */
+        public char getInvalidMove() {
+            return invalidMove;
+        }
+
+        /**
+         * @return 1 if dark won, 0.5 for a tie and 0 if light won
+         */
+        public double getDarkScore() {
+            char loser = timeForfeit != Board.NO_PIECE ? timeForfeit : invalidMove;
+            if (loser != Board.NO_PIECE) {
+                return loser == Board.DARK ? 0 : 1;
+            }
+            return darkDisks > lightDisks ? 1 : darkDisks == lightDisks ? 0.5 : 0;
+        }
+    }
+
+    /**
+     * The results of the games between two players, from the point of view of the first one.
+     */
+    public static class Result {
+        private final Player first;
+        private final Player second;
+        private int wins;
+        private int draws;
+        private int losses;
+
+        /* Nodes and time of the first [0] and second [1] player */
+        private final long[] nodes = new long[2];
+        private final long[] nanos = new long[2];
+
+        Result(Player first, Player second) {
+            this.first = first;
+            this.second = second;
+        }
+
+        private void add(Game game, boolean firstIsDark) {
+            double score = firstIsDark ? game.getDarkScore() : 1 - game.getDarkScore();
+            if (score == 1) {
+                wins++;
+            } else if (score == 0) {
+                losses++;
+            } else {
+                draws++;
+            }
+            int firstSide = firstIsDark ? 0 : 1;
+            nodes[0] += game.nodes[firstSide];
+            nanos[0] += game.nanos[firstSide];
+            nodes[1] += game.nodes[1 - firstSide];
+            nanos[1] += game.nanos[1 - firstSide];
+        }
+
+        public Player getFirst() {
+            return first;
+        }
+
+        public Player getSecond() {
+            return second;
+        }
+
+        public int getWins() {
+            return wins;
+        }
+
+        public int getDraws() {
+            return draws;
+        }
+
+        public int getLosses() {
+            return losses;
+        }
+
+        public int getGames() {
+            return wins + draws + losses;
+        }
+
+        /**
+         * @return the points of the first player per game, a draw is half a point
+         */
+        public double getScore() {
+            return getGames() == 0 ? 0.5 : (wins + 0.5 * draws) / getGames();
+        }
+
+        /**
+         * @return the Elo difference of the first player to the second one, infinite if one won all games
+         */
+        public double getElo() {
+            return elo(getScore());
+        }
+
+        /**
+         * @return the half width of the 95% confidence interval of the Elo difference, infinite if one player
+         * won all games
+         */
+        public double getEloError() {
+            int games = getGames();
+            if (games < 2 || wins == games || losses == games) {
+                return Double.POSITIVE_INFINITY;
+            }
+            double score = getScore();
+            double variance = (wins * (1 - score) * (1 - score) + draws * (0.5 - score) * (0.5 - score)
+                    + losses * score * score) / games;
+            double margin = 1.96 * Math.sqrt(variance / games);
+            return (elo(Math.min(1, score + margin)) - elo(Math.max(0, score - margin))) / 2;
+        }
+
+        /**
+         * @param second false for the first player, true for the second one
+         * @return the nodes per second of the player over all games
+         */
+        public long getNodesPerSecond(boolean second) {
+            int player = second ? 1 : 0;
+            return nanos[player] == 0 ? 0 : nodes[player] * 1_000_000_000L / nanos[player];
+        }
+
+        @Override
+        public String toString() {
+            return String.format("%s vs %s: %d games, +%d =%d -%d, score %.1f%%, Elo %+.0f +/- %.0f, "
+                            + "%d vs %d nodes/s",
+                    first.getName(), second.getName(), getGames(), wins, draws, losses, 100 * getScore(),
+                    getElo(), getEloError(), getNodesPerSecond(false), getNodesPerSecond(true));
+        }
+    }
+
+    private final List<Player> players;
+    private final List<String> openings;
+    private final TimeControl timeControl;
+    private final int threads;
+
+    /**
+     * @param players     the players, every pair of them plays
+     * @param openings    the openings as comma separated moves, each is played with both colors
+     * @param timeControl the clock of each game, null to keep the budget of the engines
+     * @param threads     the number of games played at once
+     */
+    public Tournament(List<Player> players, List<String> openings, TimeControl timeControl, int threads) {
+        if (players.size() < 2) {
+            throw new IllegalArgumentException("A tournament needs at least 2 players");
+        }
+        this.players = players;
+        this.openings = openings;
+        this.timeControl = timeControl;
+        this.threads = threads;
+    }
+
+    /**
+     * Play all games.
+     *
+     * @return the results of each pair of players, in the order of the players
+     */
+    public List<Result> run() {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        List<ForkJoinTask<Game>> tasks = new ArrayList<>();
+        try {
+            for (int first = 0; first < players.size(); first++) {
+                for (int second = first + 1; second < players.size(); second++) {
+                    for (String opening : openings) {
+                        int dark = first;
+                        int light = second;
+                        tasks.add(pool.submit(() -> playGame(dark, light, opening)));
+                        tasks.add(pool.submit(() -> playGame(light, dark, opening)));
+                    }
+                }
+            }
+            List<Result> results = new ArrayList<>();
+            for (int first = 0; first < players.size(); first++) {
+                for (int second = first + 1; second < players.size(); second++) {
+                    results.add(new Result(players.get(first), players.get(second)));
+                }
+            }
+            for (ForkJoinTask<Game> task : tasks) {
+                Game game = task.join();
+                int first = Math.min(game.dark, game.light);
+                int second = Math.max(game.dark, game.light);
+                //the index of the pair in the results
+                int pair = first * (2 * players.size() - first - 1) / 2 + second - first - 1;
+                results.get(pair).add(game, game.dark == first);
+            }
+            return results;
+        } finally {
+            pool.shutdown();
+            for (Player player : players) {
+                player.shutdown();
+            }
+        }
+    }
+
+    /**
+     * Play one game from the opening.
+     *
+     * @param dark    the index of the dark player
+     * @param light   the index of the light player
+     * @param opening the first moves, comma separated
+     * @return the result
+     */
+    Game playGame(int dark, int light, String opening) {
+        Game game = new Game(dark, light, opening);
+        Engine[] engines = {players.get(dark).getEngine(), players.get(light).getEngine()};
+        long[] remainingMillis = new long[2];
+        if (timeControl != null) {
+            remainingMillis[0] = timeControl.getBaseMillis();
+            remainingMillis[1] = timeControl.getBaseMillis();
+        }
+
+        Board board = new Board();
+        char player = Board.DARK;
+        for (String move : opening.isEmpty() ? new String[0] : opening.split(",")) {
+            if (!board.hasAvailableMove(player)) {
+                player = Board.getOpponent(player);
+            }
+            if (!board.validateMove(player, move)) {
+                throw new IllegalArgumentException("Invalid move " + move + " in opening " + opening);
+            }
+            board.flip(player, Disk.getDisk(move));
+            player = Board.getOpponent(player);
+        }
+
+        while (!board.isGameOver()) {
+            if (!board.hasAvailableMove(player)) {
+                player = Board.getOpponent(player);
+            }
+            int side = player == Board.DARK ? 0 : 1;
+            Engine engine = engines[side];
+            if (timeControl != null) {
+                int empties = BitBoard.SQUARES - Long.bitCount(board.getDisks(Board.DARK) | board.getDisks(Board.LIGHT));
+                engine.setMaxMillis(timeControl.moveBudget(remainingMillis[side], empties));
+            }
+            long start = System.nanoTime();
+            int square = engine.findBestMove(board, player);
+            long elapsed = System.nanoTime() - start;
+            game.nodes[side] += engine.getNodes();
+            game.nanos[side] += elapsed;
+            if (timeControl != null) {
+                remainingMillis[side] -= elapsed / 1_000_000L;
+                if (remainingMillis[side] < 0) {
+                    game.timeForfeit = player;
+                    break;
+                }
+                remainingMillis[side] += timeControl.getIncrementMillis();
+            }
+            if (square < 0 || (board.getMoves(player) & (1L << square)) == 0) {
+                game.invalidMove = player;
+                break;
+            }
+            board.makeMove(player, square);
+            player = Board.getOpponent(player);
+        }
+        game.darkDisks = Long.bitCount(board.getDisks(Board.DARK));
+        game.lightDisks = Long.bitCount(board.getDisks(Board.LIGHT));
+        if (game.timeForfeit == Board.NO_PIECE && game.invalidMove == Board.NO_PIECE) {
+            //the event names the winner by the disks, which a forfeit does not decide
+            Metrics.gameCompleted(game.darkDisks, game.lightDisks, board.getMoveCount());
+        }
+        return game;
+    }
+
+    /**
+     * Return every position after <code>plies</code> moves from the start, one of each set of symmetric
+     * positions (see {@link Symmetry}), as the moves leading to it.
+     *
+     * @param plies the number of moves of each opening
+     * @return the openings, comma separated moves
+     */
+    public static List<String> openings(int plies) {
+        List<String> openings = new ArrayList<>();
+        addOpenings(new Board(), Board.DARK, plies, new ArrayList<>(), new HashSet<>(), openings);
+        return openings;
+    }
+
+    private static void addOpenings(Board board, char player, int plies, List<String> moves, Set<Long> seen,
+                                    List<String> openings) {
+        if (moves.size() == plies) {
+            if (seen.add(board.getCanonicalHash(Board.DARK))) {
+                openings.add(String.join(",", moves));
+            }
+            return;
+        }
+        long legalMoves = board.getMoves(player);
+        if (legalMoves == 0) {
+            //a finished game before the end of the opening is kept as it is
+            if (board.getMoves(Board.getOpponent(player)) == 0) {
+                openings.add(String.join(",", moves));
+                return;
+            }
+            player = Board.getOpponent(player);
+            legalMoves = board.getMoves(player);
+        }
+        for (long bits = legalMoves; bits != 0; bits &= bits - 1) {
+            int square = Long.numberOfTrailingZeros(bits);
+            board.makeMove(player, square);
+            moves.add(Disk.getUserMove(square));
+            addOpenings(board, Board.getOpponent(player), plies, moves, seen, openings);
+            moves.remove(moves.size() - 1);
+            board.undoMove();
+        }
+    }
+
+    /**
+     * Return the Elo difference giving the expected score.
+     *
+     * @param score the points per game, from 0 to 1
+     * @return the Elo difference, infinite for a score of 0 or 1
+     */
+    public static double elo(double score) {
+        return -400 * Math.log10(1 / score - 1);
+    }
+
+    /**
+     * Usage: Tournament --player spec --player spec [--player spec...] [--openings plies] [--clock base+increment]
+     * [--threads count] [--weights file]<p>
+     * Every pair of players plays all openings of <code>plies</code> moves (4 by default) with both colors.
+     * A player is given as <code>name:depth=6,time=100,nodes=100000,hash=16,book=book.bin,weights=weights.bin</code>,
+     * see {@link Player#parse(String)}; <code>--weights</code> sets the weights of the players without their own.
+     *
+     * @param args the command line arguments
+     * @throws IOException if an opening book or the weights cannot be read
+     */
+    public static void main(String[] args) throws IOException {
+        List<Player> players = new ArrayList<>();
+        int plies = 4;
+        TimeControl timeControl = null;
+        int threads = Runtime.getRuntime().availableProcessors();
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--player":
+                    players.add(Player.parse(args[++i]));
+                    break;
+                case "--openings":
+                    plies = Integer.parseInt(args[++i]);
+                    break;
+                case "--clock":
+                    timeControl = TimeControl.parse(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--weights":
+                    Evaluator.load(Paths.get(args[++i]));
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        if (players.size() < 2) {
+            System.err.println("Usage: Tournament --player spec --player spec [--player spec...] [--openings plies]"
+                    + " [--clock base+increment] [--threads count] [--weights file]");
+            return;
+        }
+        List<String> openings = openings(plies);
+        long start = System.nanoTime();
+        List<Result> results = new Tournament(players, openings, timeControl, threads).run();
+        System.out.printf("%d openings of %d moves, clock %s, %d threads, %d ms %n", openings.size(), plies,
+                timeControl == null ? "none" : timeControl, threads, (System.nanoTime() - start) / 1_000_000L);
+        for (Result result : results) {
+            System.out.println(result);
+        }
+    }
+
+}
@@ -0,0 +1,398 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.ForkJoinTask;
+
+/**
+ * Fit the weights of the {@link Evaluator} to self-play games.
+ *
+ * <p>{@link #generate(Path, int, int, int, int, long)} plays engine against engine on several threads:
+ * a few random moves, then moves of a shallow {@link Search}, and from a given number of empty squares
+ * the perfect moves of the {@link EndgameSolver}. Each position is labelled with the final disk difference
+ * of its game from the point of view of the player to move, which is exact from the endgame on.
+ *
+ * <p>The samples are streamed to a file and read back in chunks, so the training set does not have to fit
+ * on the heap:
+ * <pre>
+ * header, 16 bytes: magic "OSP1", version, unused
+ * sample, 17 bytes: disks of the player to move (long), disks of the opponent (long), label (byte)
+ * </pre>
+ *
+ * <p>{@link #fit(Path, int, int, double)} fits the weights by least squares with gradient descent: every
+ * epoch reads all samples on several threads, each adding up the gradient of its part in its own array,
+ * and the step of each weight is divided by the number of samples using it. The fitted weights score
+ * {@link #SCORE_PER_DISK} per disk of final difference.
+ */
+public final class Training {
+
+    /* The score of one disk of final difference with fitted weights */
+    public static final int SCORE_PER_DISK = 100;
+
+    private static final int MAGIC = 0x4F535031;
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 16;
+    private static final int SAMPLE_BYTES = 17;
+
+    /* Samples read at once */
+    private static final int CHUNK_SAMPLES = 64 * 1024;
+
+    /* Games played between two writes, per thread */
+    private static final int GAMES_PER_TASK = 16;
+
+    /* Random moves at the start of each game, so the games differ */
+    public static final int RANDOM_PLIES = 8;
+
+    private Training() {
+    }
+
+    /**
+     * Play games and write their positions to a sample file.
+     *
+     * @param output         the sample file
+     * @param games          the number of games
+     * @param threads        the number of threads
+     * @param depth          the depth of the search choosing the moves
+     * @param exactEmpties   the number of empty squares from which the games are played perfectly
+     * @param seed           the seed of the random moves
+     * @return the number of samples written
+     * @throws IOException if the file cannot be written
+     */
+    public static long generate(Path output, int games, int threads, int depth, int exactEmpties, long seed)
+            throws IOException {
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        long samples = 0;
+        try (FileChannel channel = FileChannel.open(output, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            header.putInt(MAGIC).putInt(VERSION).putLong(0).flip();
+            write(channel, header);
+
+            int next = 0;
+            while (next < games) {
+                //one batch of tasks per round, written in order while the next batch is not started yet
+                List<ForkJoinTask<ByteBuffer>> tasks = new ArrayList<>();
+                for (int t = 0; t < threads && next < games; t++) {
+                    int first = next;
+                    int count = Math.min(GAMES_PER_TASK, games - next);
+                    next += count;
+                    tasks.add(pool.submit(() -> playGames(first, count, depth, exactEmpties, seed)));
+                }
+                for (ForkJoinTask<ByteBuffer> task : tasks) {
+                    ByteBuffer buffer = task.join();
+                    samples += buffer.remaining() / SAMPLE_BYTES;
+                    write(channel, buffer);
+                }
+            }
+        } finally {
+            pool.shutdown();
+        }
+        return samples;
+    }
+
+    /**
+     * Play the games <code>first</code> to <code>first + count - 1</code> and return their samples.
+     */
+    private static ByteBuffer playGames(int first, int count, int depth, int exactEmpties, long seed) {
+        Search search = new Search(0, Long.MAX_VALUE, new TranspositionTable(1));
+        search.setMaxDepth(depth);
+        EndgameSolver solver = new EndgameSolver(new TranspositionTable(4));
+        ByteBuffer samples = ByteBuffer.allocate(count * BitBoard.SQUARES * SAMPLE_BYTES);
+        long[] own = new long[BitBoard.SQUARES];
+        long[] opp = new long[BitBoard.SQUARES];
+        char[] players = new char[BitBoard.SQUARES];
+        for (int game = first; game < first + count; game++) {
+            SplittableRandom random = new SplittableRandom(seed + game);
+            Board board = new Board();
+            char player = Board.DARK;
+            int positions = 0;
+            while (true) {
+                long moves = board.getMoves(player);
+                if (moves == 0) {
+                    player = Board.getOpponent(player);
+                    moves = board.getMoves(player);
+                    if (moves == 0) {
+                        break;
+                    }
+                }
+                own[positions] = board.getDisks(player);
+                opp[positions] = board.getDisks(Board.getOpponent(player));
+                players[positions++] = player;
+
+                int empties = Long.bitCount(~(own[positions - 1] | opp[positions - 1]));
+                int square;
+                if (board.getMoveCount() < RANDOM_PLIES) {
+                    square = randomMove(moves, random);
+                } else if (empties <= exactEmpties) {
+                    square = solver.findBestMove(board, player);
+                } else {
+                    square = search.findBestMove(board, player);
+                }
+                board.makeMove(player, square);
+                player = Board.getOpponent(player);
+            }
+            int darkDifference = Long.bitCount(board.getDisks(Board.DARK)) - Long.bitCount(board.getDisks(Board.LIGHT));
+            for (int i = 0; i < positions; i++) {
+                samples.putLong(own[i]).putLong(opp[i]).put((byte) (players[i] == Board.DARK ? darkDifference : -darkDifference));
+            }
+        }
+        samples.flip();
+        return samples;
+    }
+
+    private static int randomMove(long moves, SplittableRandom random) {
+        for (int skip = random.nextInt(Long.bitCount(moves)); skip > 0; skip--) {
+            moves &= moves - 1;
+        }
+        return Long.numberOfTrailingZeros(moves);
+    }
+
+    /**
+     * Fit the weights of the evaluator to the samples, starting from zero, and install them
+     * (see {@link Evaluator#setWeights(short[])}).
+     *
+     * @param input        the sample file
+     * @param epochs       the number of passes over the samples
+     * @param threads      the number of threads
+     * @param learningRate the share of the gradient step taken, about 1 / {@link Evaluator#FEATURES}
+     *                     and more for fewer, sparser samples
+     * @return the root mean square error of the last epoch in disks
+     * @throws IOException if the file cannot be read
+     */
+    public static double fit(Path input, int epochs, int threads, double learningRate) throws IOException {
+        int size = Evaluator.PHASES * Evaluator.PHASE_SIZE;
+        float[] weights = new float[size];
+        double error = 0;
+        ForkJoinPool pool = new ForkJoinPool(threads);
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            long samples = samples(channel);
+            if (samples == 0) {
+                throw new IOException("No samples in " + input);
+            }
+            long[] ranges = new long[threads + 1];
+            for (int t = 0; t <= threads; t++) {
+                ranges[t] = samples * t / threads;
+            }
+
+            //the number of samples using each weight
+            double[] counts = reduce(pool, threads, t -> pass(channel, ranges[t], ranges[t + 1], null, size));
+            for (int epoch = 0; epoch < epochs; epoch++) {
+                double[] gradient = reduce(pool, threads,
+                        t -> pass(channel, ranges[t], ranges[t + 1], weights, size));
+                for (int i = 0; i < size; i++) {
+                    if (counts[i] > 0) {
+                        weights[i] -= learningRate * gradient[i] / counts[i];
+                    }
+                }
+                error = Math.sqrt(gradient[size] / samples) / SCORE_PER_DISK;
+            }
+        } finally {
+            pool.shutdown();
+        }
+
+        short[] fitted = new short[size];
+        for (int i = 0; i < size; i++) {
+            fitted[i] = (short) Math.max(Short.MIN_VALUE, Math.min(Short.MAX_VALUE, Math.round(weights[i])));
+        }
+        Evaluator.setWeights(fitted);
+        return error;
+    }
+
+    private interface Pass {
+        double[] run(int thread) throws IOException;
+    }
+
+    /**
+     * Run the pass of each thread and add up their arrays.
+     */
+    private static double[] reduce(ForkJoinPool pool, int threads, Pass pass) throws IOException {
+        List<ForkJoinTask<double[]>> tasks = new ArrayList<>(threads);
+        for (int t = 0; t < threads; t++) {
+            int thread = t;
+            tasks.add(pool.submit(() -> pass.run(thread)));
+        }
+        double[] sum = null;
+        for (ForkJoinTask<double[]> task : tasks) {
+            double[] part = task.join();
+            if (sum == null) {
+                sum = part;
+            } else {
+                for (int i = 0; i < sum.length; i++) {
+                    sum[i] += part[i];
+                }
+            }
+        }
+        return sum;
+    }
+
+    /**
+     * Read the samples <code>from</code> to <code>to</code> (exclusive). Without weights, count the samples
+     * using each weight; with weights, add up the gradient of the squared error of each weight, and the
+     * squared error itself in the last element.
+     */
+    private static double[] pass(FileChannel channel, long from, long to, float[] weights, int size)
+            throws IOException {
+        double[] result = new double[size + 1];
+        int[] features = new int[Evaluator.FEATURES];
+        ByteBuffer buffer = ByteBuffer.allocate(CHUNK_SAMPLES * SAMPLE_BYTES);
+        for (long chunk = from; chunk < to; chunk += CHUNK_SAMPLES) {
+            buffer.clear();
+            buffer.limit((int) (Math.min(CHUNK_SAMPLES, to - chunk) * SAMPLE_BYTES));
+            long position = HEADER_BYTES + chunk * SAMPLE_BYTES;
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, position + buffer.position()) < 0) {
+                    throw new IOException("The sample file is truncated");
+                }
+            }
+            buffer.flip();
+            while (buffer.hasRemaining()) {
+                long own = buffer.getLong();
+                long opp = buffer.getLong();
+                int label = buffer.get();
+                Evaluator.features(own, opp, features);
+                int base = Evaluator.phase(own, opp) * Evaluator.PHASE_SIZE;
+                if (weights == null) {
+                    for (int feature : features) {
+                        result[base + feature]++;
+                    }
+                    continue;
+                }
+                double error = -label * SCORE_PER_DISK;
+                for (int feature : features) {
+                    error += weights[base + feature];
+                }
+                for (int feature : features) {
+                    result[base + feature] += error;
+                }
+                result[size] += error * error;
+            }
+        }
+        return result;
+    }
+
+    /**
+     * @return the number of samples of the file
+     */
+    private static long samples(FileChannel channel) throws IOException {
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+        while (header.hasRemaining() && channel.read(header, header.position()) >= 0) {
+            //read the whole header
+        }
+        header.flip();
+        if (header.remaining() < HEADER_BYTES || header.getInt() != MAGIC) {
+            throw new IOException("Not a sample file");
+        }
+        if (header.getInt() != VERSION) {
+            throw new IOException("Unknown sample file version");
+        }
+        return (channel.size() - HEADER_BYTES) / SAMPLE_BYTES;
+    }
+
+    /**
+     * Read all samples of the file: the disks of the player to move, of the opponent, and the label.
+     *
+     * @param input  the sample file
+     * @param own    filled with the disks of the player to move, at least as long as the number of samples
+     * @param opp    filled with the disks of the opponent
+     * @param labels filled with the final disk differences
+     * @return the number of samples
+     * @throws IOException if the file cannot be read
+     */
+    public static int readSamples(Path input, long[] own, long[] opp, int[] labels) throws IOException {
+        try (FileChannel channel = FileChannel.open(input, StandardOpenOption.READ)) {
+            int samples = (int) Math.min(own.length, samples(channel));
+            ByteBuffer buffer = ByteBuffer.allocate(samples * SAMPLE_BYTES);
+            while (buffer.hasRemaining() && channel.read(buffer, HEADER_BYTES + buffer.position()) >= 0) {
+                //read all samples
+            }
+            buffer.flip();
+            for (int i = 0; i < samples; i++) {
+                own[i] = buffer.getLong();
+                opp[i] = buffer.getLong();
+                labels[i] = buffer.get();
+            }
+            return samples;
+        }
+    }
+
+    private static void write(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+    }
+
+    /**
+     * Usage:<pre>
+     * Training generate samples [--games count] [--threads count] [--depth plies] [--exact empties]
+     *          [--seed number] [--weights file]
+     * Training fit samples weights [--epochs count] [--threads count] [--rate learningRate]
+     * </pre>
+     * <code>generate</code> plays games with the given weights (or the default ones) and writes their positions,
+     * <code>fit</code> fits the weights to the positions and writes them.
+     *
+     * @param args the command line arguments
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 2 || !"generate".equals(args[0]) && !("fit".equals(args[0]) && args.length > 2)) {
+            System.err.println("Usage: Training generate samples [--games count] [--threads count] [--depth plies]"
+                    + " [--exact empties] [--seed number] [--weights file]");
+            System.err.println("       Training fit samples weights [--epochs count] [--threads count]"
+                    + " [--rate learningRate]");
+            return;
+        }
+        int games = 1000;
+        int threads = Runtime.getRuntime().availableProcessors();
+        int depth = 4;
+        int exactEmpties = 12;
+        long seed = 1;
+        int epochs = 100;
+        double learningRate = 1.0 / Evaluator.FEATURES;
+        for (int i = "fit".equals(args[0]) ? 3 : 2; i < args.length; i++) {
+            switch (args[i]) {
+                case "--games":
+                    games = Integer.parseInt(args[++i]);
+                    break;
+                case "--threads":
+                    threads = Integer.parseInt(args[++i]);
+                    break;
+                case "--depth":
+                    depth = Integer.parseInt(args[++i]);
+                    break;
+                case "--exact":
+                    exactEmpties = Integer.parseInt(args[++i]);
+                    break;
+                case "--seed":
+                    seed = Long.parseLong(args[++i]);
+                    break;
+                case "--weights":
+                    Evaluator.load(Paths.get(args[++i]));
+                    break;
+                case "--epochs":
+                    epochs = Integer.parseInt(args[++i]);
+                    break;
+                case "--rate":
+                    learningRate = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option: " + args[i]);
+            }
+        }
+        long start = System.nanoTime();
+        if ("generate".equals(args[0])) {
+            long samples = generate(Paths.get(args[1]), games, threads, depth, exactEmpties, seed);
+            System.out.printf("%d games, %d samples in %d ms %n", games, samples, (System.nanoTime() - start) / 1_000_000L);
+        } else {
+            double error = fit(Paths.get(args[1]), epochs, threads, learningRate);
+            Evaluator.save(Paths.get(args[2]));
+            System.out.printf("%d epochs in %d ms, error %.2f disks %n", epochs, (System.nanoTime() - start) / 1_000_000L, error);
+        }
+    }
+
+}
@@ -0,0 +1,224 @@
+import java.util.Arrays;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-size hash table of searched positions (see {@link Search}).
+ *
+ * <p>The table is one <code>long[]</code> of buckets with two entries each. The first entry of a bucket
+ * keeps the deepest search (it is only replaced by an equal or deeper search, or once it is left over
+ * from an older search), the second entry is always replaced. Every entry is two longs: the
+ * position hash XOR-ed with the data, and the data itself, so a probe only accepts an entry whose
+ * two halves match.
+ *
+ * <p>The data of an entry packs:
+ * <pre>
+ * bits  0..31 score
+ * bits 32..38 depth
+ * bits 39..40 bound (UPPER, LOWER or EXACT)
+ * bits 41..47 best move (square index, 127 for none)
+ * bits 48..55 generation of the search which stored it
+ * </pre>
+ * A probe which misses returns 0, no stored data is 0 since the bound is never 0.
+ */
+public class TranspositionTable {
+
+    /* The score is at most the stored value, the search failed low */
+    public static final int UPPER = 1;
+
+    /* The score is at least the stored value, the search failed high */
+    public static final int LOWER = 2;
+
+    /* The stored value is the exact score */
+    public static final int EXACT = 3;
+
+    /* Bytes used by one bucket: two entries of two longs */
+    public static final int BUCKET_BYTES = 4 * Long.BYTES;
+
+    private static final int NO_MOVE = 127;
+
+    private final long[] table;
+
+    /* Number of buckets minus one, the number of buckets is a power of two */
+    private final int bucketMask;
+
+    /* Generation of the running search, entries of older generations are replaced first */
+    private int generation;
+
+    /* Statistics, counted by all threads sharing the table */
+    private final LongAdder probes = new LongAdder();
+    private final LongAdder hits = new LongAdder();
+    private final LongAdder collisions = new LongAdder();
+    private final LongAdder used = new LongAdder();
+
+    /**
+     * Create a table using at most <code>megabytes</code> of memory.
+     *
+     * @param megabytes the memory budget in megabytes
+     */
+    public TranspositionTable(int megabytes) {
+        long buckets = Long.highestOneBit(Math.max(1, (long) megabytes * 1024 * 1024 / BUCKET_BYTES));
+        buckets = Math.min(buckets, Integer.highestOneBit((Integer.MAX_VALUE - 8) / 4));
+        table = new long[(int) buckets * 4];
+        bucketMask = (int) buckets - 1;
+    }
+
+    /**
+     * Start a new search: entries stored so far may be replaced by shallower ones.
+     */
+    public void newSearch() {
+        generation = (generation + 1) & 0xFF;
+    }
+
+    /**
+     * Remove all entries and reset the statistics.
+     */
+    public void clear() {
+        Arrays.fill(table, 0);
+        probes.reset();
+        hits.reset();
+        collisions.reset();
+        used.reset();
+    }
+
+    /**
+     * Return the data stored for the position.
+     *
+     * @param hash the hash of the position (see {@link Board#getHash(char)})
+     * @return the data of the entry, 0 if the position is not stored
+     */
+    public long probe(long hash) {
+        int index = bucket(hash);
+        probes.increment();
+        for (int entry = index; entry < index + 4; entry += 2) {
+            long data = table[entry + 1];
+            if ((table[entry] ^ data) == hash && data != 0) {
+                hits.increment();
+                return data;
+            }
+        }
+        if (table[index + 1] != 0 && table[index + 3] != 0) {
+            collisions.increment();
+        }
+        return 0;
+    }
+
+    /**
+     * Store the result of a search.
+     *
+     * @param hash  the hash of the position
+     * @param depth the depth of the search
+     * @param bound UPPER, LOWER or EXACT
+     * @param score the score
+     * @param move  the square index of the best move, -1 for none
+     */
+    public void store(long hash, int depth, int bound, int score, int move) {
+        int index = bucket(hash);
+        long data = data(depth, bound, score, move, generation);
+        long deepData = table[index + 1];
+        int entry;
+        if (deepData == 0 || (table[index] ^ deepData) == hash
+                || depth >= depth(deepData) || generation(deepData) != generation) {
+            entry = index;
+        } else {
+            entry = index + 2;
+        }
+        if (table[entry + 1] == 0) {
+            used.increment();
+        }
+        table[entry] = hash ^ data;
+        table[entry + 1] = data;
+    }
+
+    /**
+     * Pack the data of an entry, see the layout above.
+     */
+    static long data(int depth, int bound, int score, int move, int generation) {
+        return (score & 0xFFFFFFFFL)
+                | (long) depth << 32
+                | (long) bound << 39
+                | (long) (move < 0 ? NO_MOVE : move) << 41
+                | (long) generation << 48;
+    }
+
+    private int bucket(long hash) {
+        return ((int) (hash ^ (hash >>> 32)) & bucketMask) << 2;
+    }
+
+    public static int score(long data) {
+        return (int) data;
+    }
+
+    public static int depth(long data) {
+        return (int) (data >>> 32) & 0x7F;
+    }
+
+    public static int bound(long data) {
+        return (int) (data >>> 39) & 0x3;
+    }
+
+    /**
+     * @param data the data of an entry
+     * @return the square index of the best move, -1 for none
+     */
+    public static int move(long data) {
+        int move = (int) (data >>> 41) & 0x7F;
+        return move == NO_MOVE ? -1 : move;
+    }
+
+    /**
+     * @return the generation of the running search, from 0 to 255
+     */
+    int getGeneration() {
+        return generation;
+    }
+
+    private static int generation(long data) {
+        return (int) (data >>> 48) & 0xFF;
+    }
+
+    /**
+     * @return the number of entries the table can hold
+     */
+    public int getCapacity() {
+        return table.length / 2;
+    }
+
+    public long getProbes() {
+        return probes.sum();
+    }
+
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * @return the share of probes which found their position
+     */
+    public double getHitRate() {
+        long probeCount = probes.sum();
+        return probeCount == 0 ? 0 : (double) hits.sum() / probeCount;
+    }
+
+    /**
+     * @return the share of probes which missed although both entries of the bucket were taken
+     * by other positions
+     */
+    public double getCollisionRate() {
+        long probeCount = probes.sum();
+        return probeCount == 0 ? 0 : (double) collisions.sum() / probeCount;
+    }
+
+    /**
+     * @return the share of entries in use
+     */
+    public double getFillRate() {
+        return (double) used.sum() / getCapacity();
+    }
+
+    @Override
+    public String toString() {
+        return String.format("TranspositionTable{capacity=%d, fill=%.1f%%, hits=%.1f%%, collisions=%.1f%%}",
+                getCapacity(), 100 * getFillRate(), 100 * getHitRate(), 100 * getCollisionRate());
+    }
+
+}
@@ -0,0 +1,212 @@
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.Arrays;
+
+/**
+ * Convert the game databases of the French Othello federation (WTHOR, <code>.wtb</code> files) to and from
+ * {@link GameRecord} files.
+ * <pre>
+ * header, 16 bytes: creation century, year, month, day (byte each), number of games (int),
+ *                   unused (short), year of the games (short), board size, game type, depth of the
+ *                   theoretical score, unused (byte each)
+ * game, 68 bytes:   tournament, dark player, light player (short each), dark disks, theoretical dark
+ *                   disks (byte each), 60 moves (byte each) written as 10 * row + column, 0 after the last one
+ * </pre>
+ * Numbers are little-endian. The names of the players and tournaments are in other files of the database,
+ * the records keep their numbers. A database holds the games of one year, the records are dated January 1
+ * of it (<code>yyyy0000</code>, day and month unknown).
+ */
+public final class Wthor {
+
+    static final int HEADER_BYTES = 16;
+    static final int GAME_BYTES = 68;
+    static final int MOVES = 60;
+
+    /* Games read or written at once */
+    private static final int GAMES_PER_BUFFER = 4096;
+
+    private Wthor() {
+    }
+
+    /**
+     * Append the games of a WTHOR database to a record file.
+     *
+     * @param wtb    the database
+     * @param writer the record file
+     * @return the number of games
+     * @throws IOException if the database cannot be read or is no WTHOR database
+     */
+    public static long importFile(Path wtb, GameRecordWriter writer) throws IOException {
+        try (FileChannel channel = FileChannel.open(wtb, StandardOpenOption.READ)) {
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            readFully(channel, header);
+            long games = header.getInt(4) & 0xFFFFFFFFL;
+            int year = header.getShort(10);
+            int boardSize = header.get(12);
+            if ((boardSize != 0 && boardSize != Board.BOARD_SIZE)
+                    || channel.size() != HEADER_BYTES + games * GAME_BYTES) {
+                throw new IOException("Not a WTHOR database of 8x8 games: " + wtb);
+            }
+            ByteBuffer buffer = ByteBuffer.allocateDirect(GAMES_PER_BUFFER * GAME_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            byte[] moves = new byte[MOVES];
+            for (long game = 0; game < games; game += GAMES_PER_BUFFER) {
+                buffer.clear();
+                buffer.limit((int) Math.min(GAMES_PER_BUFFER, games - game) * GAME_BYTES);
+                readFully(channel, buffer);
+                while (buffer.hasRemaining()) {
+                    int tournament = buffer.getShort() & 0xFFFF;
+                    int darkPlayer = buffer.getShort() & 0xFFFF;
+                    int lightPlayer = buffer.getShort() & 0xFFFF;
+                    int darkDisks = buffer.get();
+                    buffer.get(); //the theoretical score is not kept
+                    buffer.get(moves);
+                    int count = 0;
+                    while (count < MOVES && moves[count] != 0) {
+                        int square = square(moves[count]);
+                        if (square < 0) {
+                            throw new IOException("Invalid move " + moves[count] + " in game " + (game + 1));
+                        }
+                        moves[count++] = (byte) square;
+                    }
+                    writer.write(new GameRecord(year * 10000, tournament, darkPlayer, lightPlayer, darkDisks,
+                            Arrays.copyOf(moves, count)));
+                }
+            }
+            return games;
+        }
+    }
+
+    /**
+     * Write the games of a record file as a WTHOR database.
+     *
+     * @param reader the record file
+     * @param wtb    the database, replaced if it exists
+     * @return the number of games
+     * @throws IOException if a file cannot be read or written
+     */
+    public static long exportFile(GameRecordReader reader, Path wtb) throws IOException {
+        try (FileChannel channel = FileChannel.open(wtb, StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocateDirect(GAMES_PER_BUFFER * GAME_BYTES)
+                    .order(ByteOrder.LITTLE_ENDIAN);
+            channel.position(HEADER_BYTES);
+            long games = 0;
+            int year = 0;
+            for (GameRecord record = reader.read(); record != null; record = reader.read()) {
+                if (games == 0) {
+                    year = record.getDate() / 10000;
+                }
+                if (buffer.remaining() < GAME_BYTES) {
+                    writeFully(channel, buffer);
+                }
+                buffer.putShort((short) record.getTournament())
+                        .putShort((short) record.getDarkPlayer())
+                        .putShort((short) record.getLightPlayer())
+                        .put((byte) record.getDarkDisks())
+                        .put((byte) record.getDarkDisks());
+                for (int i = 0; i < MOVES; i++) {
+                    buffer.put(i < record.getMoveCount() ? (byte) wthorMove(record.getMove(i)) : 0);
+                }
+                games++;
+            }
+            writeFully(channel, buffer);
+
+            LocalDate today = LocalDate.now();
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+            header.put((byte) (today.getYear() / 100))
+                    .put((byte) (today.getYear() % 100))
+                    .put((byte) today.getMonthValue())
+                    .put((byte) today.getDayOfMonth())
+                    .putInt((int) games)
+                    .putShort((short) 0)
+                    .putShort((short) year)
+                    .put((byte) Board.BOARD_SIZE)
+                    .put((byte) 0)
+                    .put((byte) 0)
+                    .put((byte) 0);
+            header.flip();
+            channel.write(header, 0);
+            return games;
+        }
+    }
+
+    /**
+     * @param move a WTHOR move, 10 * row + column, from 11 (1a) to 88 (8h)
+     * @return the square index, -1 if it is no square
+     */
+    static int square(int move) {
+        int row = move / 10 - 1;
+        int column = move % 10 - 1;
+        if (row < 0 || row >= Board.BOARD_SIZE || column < 0 || column >= Board.BOARD_SIZE) {
+            return -1;
+        }
+        return row * Board.BOARD_SIZE + column;
+    }
+
+    /**
+     * @param square a square index
+     * @return the WTHOR move, 10 * row + column
+     */
+    static int wthorMove(int square) {
+        return (square / Board.BOARD_SIZE + 1) * 10 + square % Board.BOARD_SIZE + 1;
+    }
+
+    private static void readFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining()) {
+            if (channel.read(buffer) < 0) {
+                throw new IOException("The WTHOR database is truncated");
+            }
+        }
+        buffer.flip();
+    }
+
+    private static void writeFully(FileChannel channel, ByteBuffer buffer) throws IOException {
+        buffer.flip();
+        while (buffer.hasRemaining()) {
+            channel.write(buffer);
+        }
+        buffer.clear();
+    }
+
+    /**
+     * Usage: Wthor import games.ogr WTH_2001.wtb [WTH_2002.wtb...] | export games.ogr WTH_2001.wtb<p>
+     * <code>import</code> converts WTHOR databases and appends their games to a record file, which
+     * {@link PositionIndex#update(Path, Path)} can then index, <code>export</code> a record file to a WTHOR database.
+     *
+     * @param args the command line arguments
+     * @throws IOException if a file cannot be read or written
+     */
+    public static void main(String[] args) throws IOException {
+        if (args.length < 3 || args[0].equals("export") && args.length != 3) {
+            System.err.println("Usage: Wthor import games.ogr WTH_2001.wtb [WTH_2002.wtb...]"
+                    + " | export games.ogr WTH_2001.wtb");
+            return;
+        }
+        long start = System.nanoTime();
+        long games = 0;
+        switch (args[0]) {
+            case "import":
+                try (GameRecordWriter writer = new GameRecordWriter(Paths.get(args[1]), true)) {
+                    for (int i = 2; i < args.length; i++) {
+                        games += importFile(Paths.get(args[i]), writer);
+                    }
+                }
+                break;
+            case "export":
+                try (GameRecordReader reader = new GameRecordReader(Paths.get(args[1]))) {
+                    games = exportFile(reader, Paths.get(args[2]));
+                }
+                break;
+            default:
+                throw new IllegalArgumentException("Unknown command: " + args[0]);
+        }
+        System.out.printf("%d games in %d ms %n", games, (System.nanoTime() - start) / 1_000_000L);
+    }
+}
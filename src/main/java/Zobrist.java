@@ -0,0 +1,90 @@
+/**
+ * Zobrist keys to identify positions by a 64-bit hash.
+ *
+ * <p>The hash of a position is the XOR of one random key per disk (by square and player),
+ * so {@link Board} keeps it up to date by XOR-ing the keys of the placed and flipped disks only.
+ * The keys are generated from a fixed seed, so a hash is the same in every run.
+ */
+public final class Zobrist {
+
+    /* XOR-ed into the hash when LIGHT is to move */
+    public static final long LIGHT_TO_MOVE;
+
+    private static final long[] DARK_KEYS = new long[BitBoard.SQUARES];
+    private static final long[] LIGHT_KEYS = new long[BitBoard.SQUARES];
+
+    /* DARK_KEYS ^ LIGHT_KEYS, the change of the hash when a disk is turned over */
+    private static final long[] FLIP_KEYS = new long[BitBoard.SQUARES];
+
+    static {
+        long seed = 0x4F7468656C6C6FL;
+        for (int square = 0; square < BitBoard.SQUARES; square++) {
+            seed = nextKey(seed);
+            DARK_KEYS[square] = mix(seed);
+            seed = nextKey(seed);
+            LIGHT_KEYS[square] = mix(seed);
+            FLIP_KEYS[square] = DARK_KEYS[square] ^ LIGHT_KEYS[square];
+        }
+        LIGHT_TO_MOVE = mix(nextKey(seed));
+    }
+
+    private Zobrist() {
+    }
+
+    private static long nextKey(long seed) {
+        return seed + 0x9E3779B97F4A7C15L;
+    }
+
+    /**
+     * The SplitMix64 finalizer.
+     */
+    static long mix(long z) {
+        z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+        z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+        return z ^ (z >>> 31);
+    }
+
+    /**
+     * Return the key of a disk of the player on the square.
+     *
+     * @param player the player
+     * @param square the square index
+     * @return the key of the disk
+     */
+    public static long key(char player, int square) {
+        return player == Board.DARK ? DARK_KEYS[square] : LIGHT_KEYS[square];
+    }
+
+    /**
+     * Return the change of the hash when all <code>flipped</code> disks are turned over.
+     *
+     * @param flipped the flipped disks
+     * @return the keys of the flipped disks XOR-ed together
+     */
+    public static long flipKey(long flipped) {
+        long key = 0;
+        for (long bits = flipped; bits != 0; bits &= bits - 1) {
+            key ^= FLIP_KEYS[Long.numberOfTrailingZeros(bits)];
+        }
+        return key;
+    }
+
+    /**
+     * Return the hash of the position, computed from scratch.
+     *
+     * @param dark  the disks of DARK player
+     * @param light the disks of LIGHT player
+     * @return the hash of the position
+     */
+    public static long hash(long dark, long light) {
+        long hash = 0;
+        for (long bits = dark; bits != 0; bits &= bits - 1) {
+            hash ^= DARK_KEYS[Long.numberOfTrailingZeros(bits)];
+        }
+        for (long bits = light; bits != 0; bits &= bits - 1) {
+            hash ^= LIGHT_KEYS[Long.numberOfTrailingZeros(bits)];
+        }
+        return hash;
+    }
+
+}
@@ -0,0 +1,141 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+
+import static org.junit.Assert.*;
+
+public class AnalysisCacheTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void storeAndProbe() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("cache.oac");
+        AnalysisCache cache = AnalysisCache.open(path, 1);
+        assertEquals(1024 * 1024 / 16, cache.getCapacity());
+        assertEquals(64 + 1024 * 1024, Files.size(path));
+
+        Board board = SearchTest.play(SearchTest.MIDGAME);
+        long own = board.getDisks(Board.DARK);
+        long opp = board.getDisks(Board.LIGHT);
+        assertEquals(0, cache.probe(own, opp));
+        int move = Long.numberOfTrailingZeros(board.getMoves(Board.DARK));
+        cache.store(own, opp, 9, TranspositionTable.EXACT, -1234, move);
+        long data = cache.probe(own, opp);
+        assertEquals(9, TranspositionTable.depth(data));
+        assertEquals(TranspositionTable.EXACT, TranspositionTable.bound(data));
+        assertEquals(-1234, TranspositionTable.score(data));
+        assertEquals(move, TranspositionTable.move(data));
+
+        //every symmetric position finds the entry, with the move turned the same way
+        for (int transform = 1; transform < Symmetry.COUNT; transform++) {
+            data = cache.probe(Symmetry.transform(transform, own), Symmetry.transform(transform, opp));
+            assertEquals(-1234, TranspositionTable.score(data));
+            assertEquals(Symmetry.square(transform, move), TranspositionTable.move(data));
+        }
+        //the other player to move is another position
+        assertEquals(0, cache.probe(opp, own));
+
+        //a shallower search does not replace the entry, a deeper one does
+        cache.store(own, opp, 3, TranspositionTable.LOWER, 5, -1);
+        assertEquals(9, TranspositionTable.depth(cache.probe(own, opp)));
+        cache.store(own, opp, 12, TranspositionTable.UPPER, 5, -1);
+        data = cache.probe(own, opp);
+        assertEquals(12, TranspositionTable.depth(data));
+        assertEquals(-1, TranspositionTable.move(data));
+        assertEquals(2, cache.getStores());
+        cache.close();
+    }
+
+    @Test
+    public void sharedAndPersistent() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("cache.oac");
+        AnalysisCache first = AnalysisCache.open(path, 1);
+        AnalysisCache second = AnalysisCache.open(path, 4);
+        //the existing file keeps its size
+        assertEquals(first.getCapacity(), second.getCapacity());
+        first.store(0x10L, 0x20L, 5, TranspositionTable.EXACT, 77, 3);
+        assertEquals(77, TranspositionTable.score(second.probe(0x10L, 0x20L)));
+        first.close();
+        second.close();
+        assertEquals(77, TranspositionTable.score(AnalysisCache.open(path, 1).probe(0x10L, 0x20L)));
+    }
+
+    @Test
+    public void tornSlotIsMiss() throws IOException {
+        Path path = folder.getRoot().toPath().resolve("cache.oac");
+        AnalysisCache cache = AnalysisCache.open(path, 1);
+        cache.store(0x10L, 0x20L, 5, TranspositionTable.EXACT, 77, 3);
+        cache.close();
+        //change the data half of the only used slot, as if the process died while writing it
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer slot = ByteBuffer.allocate(16);
+            for (long position = 64; position < channel.size(); position += 16) {
+                slot.clear();
+                channel.read(slot, position);
+                if (slot.getLong(8) != 0) {
+                    slot.putLong(8, slot.getLong(8) + 1).rewind();
+                    channel.write(slot, position);
+                }
+            }
+        }
+        assertEquals(0, AnalysisCache.open(path, 1).probe(0x10L, 0x20L));
+    }
+
+    @Test(expected = IOException.class)
+    public void notACache() throws IOException {
+        Path path = folder.newFile("cache.oac").toPath();
+        Files.write(path, new byte[128]);
+        AnalysisCache.open(path, 1);
+    }
+
+    @Test
+    public void warmCacheAnswersAtOnce() throws IOException {
+        AnalysisCache cache = AnalysisCache.open(folder.getRoot().toPath().resolve("cache.oac"), 1);
+        Board board = SearchTest.play(SearchTest.MIDGAME);
+        Search search = new Search(0, Long.MAX_VALUE);
+        search.setAnalysisCache(cache);
+        search.setMaxDepth(5);
+        int move = search.findBestMove(board, Board.DARK);
+        int score = search.getScore();
+        assertTrue(search.getNodes() > 0);
+
+        //another run: a new search with an empty transposition table
+        Search warm = new Search(0, Long.MAX_VALUE);
+        warm.setAnalysisCache(cache);
+        warm.setMaxDepth(5);
+        assertEquals(move, warm.findBestMove(board, Board.DARK));
+        assertEquals(score, warm.getScore());
+        assertEquals(5, warm.getDepth());
+        assertEquals(0, warm.getNodes());
+
+        //a deeper search goes on from the cached depth and stores its result
+        warm.setMaxDepth(6);
+        warm.findBestMove(board, Board.DARK);
+        assertEquals(6, warm.getDepth());
+        assertEquals(6, TranspositionTable.depth(cache.probe(board.getDisks(Board.DARK),
+                board.getDisks(Board.LIGHT))));
+    }
+
+    @Test
+    public void endgameIsExactFromCache() throws IOException {
+        AnalysisCache cache = AnalysisCache.open(folder.getRoot().toPath().resolve("cache.oac"), 1);
+        Board board = SearchTest.play(SearchTest.ENDGAME);
+        Search search = new Search(0, Long.MAX_VALUE);
+        search.setAnalysisCache(cache);
+        search.analyze(board, Board.DARK, null);
+        Search warm = new Search(0, Long.MAX_VALUE);
+        warm.setAnalysisCache(cache);
+        warm.findBestMove(board, Board.DARK);
+        assertEquals(0, warm.getNodes());
+        assertEquals(SearchTest.minimax(board, Board.DARK, false), warm.getScore());
+    }
+}
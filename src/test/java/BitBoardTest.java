@@ -0,0 +1,89 @@
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class BitBoardTest {
+
+    private static long bits(String... coordinates) {
+        long bits = 0;
+        for (String coordinate : coordinates) {
+            bits |= 1L << BitBoard.square(Disk.getDisk(coordinate));
+        }
+        return bits;
+    }
+
+    @Test
+    public void moves() {
+        assertEquals(bits("3d", "4c", "5f", "6e"),
+                BitBoard.moves(BitBoard.INITIAL_DARK, BitBoard.INITIAL_LIGHT));
+        assertEquals(bits("3e", "4f", "5c", "6d"),
+                BitBoard.moves(BitBoard.INITIAL_LIGHT, BitBoard.INITIAL_DARK));
+        assertEquals(0, BitBoard.moves(BitBoard.INITIAL_DARK, 0));
+    }
+
+    @Test
+    public void flips() {
+        assertEquals(bits("4d"), BitBoard.flips(BitBoard.INITIAL_DARK, BitBoard.INITIAL_LIGHT,
+                BitBoard.square(Disk.getDisk("3d"))));
+        assertEquals(0, BitBoard.flips(BitBoard.INITIAL_DARK, BitBoard.INITIAL_LIGHT,
+                BitBoard.square(Disk.getDisk("1a"))));
+        // a line of opponent's disks wrapping from column 'h' to the next row must not flip
+        assertEquals(0, BitBoard.flips(bits("2b"), bits("1h", "2a"), BitBoard.square(Disk.getDisk("1g"))));
+        assertEquals(bits("1b", "1c", "1d", "1e", "1f", "1g"),
+                BitBoard.flips(bits("1h"), bits("1b", "1c", "1d", "1e", "1f", "1g"),
+                        BitBoard.square(Disk.getDisk("1a"))));
+    }
+
+    @Test
+    public void shift() {
+        for (int direction = 0; direction < Disk.ALL_DIRECTIONS.length; direction++) {
+            long shifted = BitBoard.shift(bits("4d"), direction);
+            Disk expected = Disk.getDisk("4d").nextDisk(Disk.ALL_DIRECTIONS[direction]);
+            assertEquals(1L << BitBoard.square(expected), shifted);
+        }
+        assertEquals(0, BitBoard.shift(BitBoard.COLUMN_H, 2));
+        assertEquals(0, BitBoard.shift(BitBoard.COLUMN_A, 6));
+    }
+
+    /**
+     * Return the flipped disks by walking the board disk by disk.
+     */
+    private static long walkFlips(long own, long opp, int square) {
+        long flipped = 0;
+        for (Disk direction : Disk.ALL_DIRECTIONS) {
+            long line = 0;
+            Disk next = new Disk(square / 8, square % 8).nextDisk(direction);
+            while (Board.isDiskInBoard(next) && (opp & (1L << BitBoard.square(next))) != 0) {
+                line |= 1L << BitBoard.square(next);
+                next.move(direction);
+            }
+            if (Board.isDiskInBoard(next) && (own & (1L << BitBoard.square(next))) != 0) {
+                flipped |= line;
+            }
+        }
+        return flipped;
+    }
+
+    @Test
+    public void randomPositions() {
+        Random random = new Random(42);
+        for (int i = 0; i < 2000; i++) {
+            long occupied = random.nextLong() | random.nextLong();
+            long own = occupied & random.nextLong();
+            long opp = occupied & ~own;
+            long moves = 0;
+            for (int square = 0; square < BitBoard.SQUARES; square++) {
+                long flipped = walkFlips(own, opp, square);
+                if ((occupied & (1L << square)) == 0) {
+                    assertEquals(flipped, BitBoard.flips(own, opp, square));
+                    if (flipped != 0) {
+                        moves |= 1L << square;
+                    }
+                }
+            }
+            assertEquals(moves, BitBoard.moves(own, opp));
+        }
+    }
+}
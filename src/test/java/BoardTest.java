@@ -1,6 +1,9 @@
 import org.junit.Test;
 
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
 import java.util.function.BinaryOperator;
 
@@ -34,6 +37,23 @@ public class BoardTest {
         testHasAvailableMove(Board.DARK, board, new String[]{"6b", "6c", "6d", "6e", "6f"});
     }
 
+    /**
+     * Method: getMoves(char player)
+     */
+    @Test
+    public void testGetMoves() throws Exception {
+        Board board = new Board();
+        long darkMoves = board.getMoves(Board.DARK);
+        assertEquals(BitBoard.moves(BitBoard.INITIAL_DARK, BitBoard.INITIAL_LIGHT), darkMoves);
+        board.flip(Board.DARK, Disk.getDisk("3d"));
+        assertEquals(BitBoard.moves(board.getDisks(Board.LIGHT), board.getDisks(Board.DARK)),
+                board.getMoves(Board.LIGHT));
+        assertNotEquals(darkMoves, board.getMoves(Board.DARK));
+        board.setPlayer(Board.NO_PIECE, Disk.getDisk("3d"));
+        board.setPlayer(Board.LIGHT, Disk.getDisk("4d"));
+        assertEquals(darkMoves, board.getMoves(Board.DARK));
+    }
+
     /**
      * Method: validateMove(char turn, Disk targetDisk, Map<Character, List<Disk>> allAvailableMoves)
      */
@@ -65,6 +85,51 @@ public class BoardTest {
         assertEquals(board.getBoardInfo(), expected);
     }
 
+    /**
+     * Method: makeMove(char player, int square), undoMove()
+     */
+    @Test
+    public void testUndoMove() throws Exception {
+        Board board = new Board();
+        String start = board.getBoardInfo();
+        board.flip(Board.DARK, Disk.getDisk("3d"));
+        String afterFirstMove = board.getBoardInfo();
+        long flipped = board.makeMove(Board.LIGHT, BitBoard.square(Disk.getDisk("5c")));
+        assertEquals(1L << BitBoard.square(Disk.getDisk("5d")), flipped);
+        assertEquals(2, board.getMoveCount());
+        assertEquals(Arrays.asList("X-3d", "O-5c"), board.getHistory());
+
+        board.undoMove();
+        assertEquals(afterFirstMove, board.getBoardInfo());
+        assertEquals(Arrays.asList("X-3d"), board.getHistory());
+        board.undoMove();
+        assertEquals(start, board.getBoardInfo());
+        assertEquals(BitBoard.moves(BitBoard.INITIAL_DARK, BitBoard.INITIAL_LIGHT), board.getMoves(Board.DARK));
+        assertEquals(0, board.getMoveCount());
+    }
+
+    /**
+     * Method: getHash(char player)
+     */
+    @Test
+    public void testGetHash() throws Exception {
+        Board board = new Board();
+        long start = board.getHash(Board.DARK);
+        assertEquals(Zobrist.hash(BitBoard.INITIAL_DARK, BitBoard.INITIAL_LIGHT), start);
+        assertNotEquals(start, board.getHash(Board.LIGHT));
+        board.flip(Board.DARK, Disk.getDisk("3d"));
+        board.flip(Board.LIGHT, Disk.getDisk("5c"));
+        assertEquals(Zobrist.hash(board.getDisks(Board.DARK), board.getDisks(Board.LIGHT)), board.getHash(Board.DARK));
+        board.undoMove();
+        board.undoMove();
+        assertEquals(start, board.getHash(Board.DARK));
+    }
+
+    @Test(expected = IllegalStateException.class)
+    public void testUndoMoveWithoutMove() throws Exception {
+        new Board().undoMove();
+    }
+
     /**
      * Method: isGameOver(Map<Character, List<Disk>> allAvailableMoves)
      */
@@ -109,4 +174,43 @@ public class BoardTest {
 
     }
 
-} 
+    /**
+     * Method: validateMove(char player, String move), isGameOver()
+     */
+    @Test
+    public void testRulesPrintNothing() throws Exception {
+        PrintStream out = System.out;
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        System.setOut(new PrintStream(printed));
+        try {
+            Board board = new Board();
+            assertFalse(board.validateMove(Board.DARK, "1a"));
+            assertFalse(board.validateMove(Board.DARK, "xyz"));
+            assertTrue(board.validateMove(Board.DARK, "3d"));
+            assertFalse(board.isGameOver());
+        } finally {
+            System.setOut(out);
+        }
+        assertEquals("", printed.toString());
+    }
+
+    /**
+     * Method: getCanonicalHash(char player)
+     */
+    @Test
+    public void testGetCanonicalHash() throws Exception {
+        //the four first moves give symmetric positions
+        long hash = 0;
+        for (String move : new String[]{"3d", "4c", "5f", "6e"}) {
+            Board board = new Board();
+            board.flip(Board.DARK, Disk.getDisk(move));
+            if (hash == 0) {
+                hash = board.getCanonicalHash(Board.LIGHT);
+            }
+            assertEquals(hash, board.getCanonicalHash(Board.LIGHT));
+            assertNotEquals(hash, board.getCanonicalHash(Board.DARK));
+        }
+        assertNotEquals(hash, new Board().getCanonicalHash(Board.LIGHT));
+    }
+
+}
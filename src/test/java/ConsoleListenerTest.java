@@ -0,0 +1,34 @@
+import org.junit.Test;
+
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+
+import static org.junit.Assert.*;
+
+public class ConsoleListenerTest {
+
+    @Test
+    public void print() {
+        ByteArrayOutputStream printed = new ByteArrayOutputStream();
+        ConsoleListener listener = new ConsoleListener(new PrintStream(printed, true));
+        listener.invalidMove(Board.DARK, "1a");
+        listener.moveMade(Board.DARK, BitBoard.square(Disk.getDisk("3d")), new Board());
+        listener.passed(Board.LIGHT);
+        listener.gameOver(new GameResult(40, 24));
+        listener.gameOver(new GameResult(30, 30));
+        String n = System.lineSeparator();
+        assertEquals("Invalid move: 1a !  " + n
+                + "No valid move after '3d', give turn to X " + n
+                + "No further moves available" + n + "Game over. Player 'X' wins. (40 vs 24) " + n
+                + "No further moves available" + n + "The game ends in a tie. (30 vs 30) " + n, printed.toString());
+    }
+
+    @Test
+    public void result() {
+        GameResult result = new GameResult(20, 44);
+        assertEquals(Board.LIGHT, result.getWinner());
+        assertEquals(-24, result.getDiskDifference());
+        assertEquals("Game over. Player 'O' wins. (44 vs 20)", result.toString());
+        assertEquals(Board.NO_PIECE, new GameResult(32, 32).getWinner());
+    }
+}
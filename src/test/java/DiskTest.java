@@ -34,4 +34,31 @@ public class DiskTest {
         assertEquals(Disk.getDisk("h8"), new Disk(7, 7));
         assertEquals(Disk.getDisk("aa"), null);
     }
+
+    @Test
+    public void getUserMove() {
+        assertEquals("1a", Disk.getUserMove(new Disk(0, 0)));
+        assertEquals("3d", Disk.getUserMove(Disk.getDisk("d3")));
+        assertEquals("8h", Disk.getUserMove(63));
+        assertNull(Disk.getUserMove(new Disk(9, 9)));
+        assertEquals("5f", Disk.getUserMove(Disk.getDisk(" F5 ")));
+        assertNull(Disk.getDisk("f5x"));
+        assertNull(Disk.getDisk("i1"));
+    }
+
+    @Test
+    public void rays() {
+        for (int direction = 0; direction < Disk.ALL_DIRECTIONS.length; direction++) {
+            for (Disk disk : Disk.getAllDisksOnBoard()) {
+                Disk next = disk.nextDisk(Disk.ALL_DIRECTIONS[direction]);
+                for (int square : Disk.RAYS[direction][BitBoard.square(disk)]) {
+                    assertEquals(Disk.getDisk(square), next);
+                    next.move(Disk.ALL_DIRECTIONS[direction]);
+                }
+                assertFalse(Board.isDiskInBoard(next));
+            }
+        }
+        assertEquals(7, Disk.RAYS[0][0].length);
+        assertEquals(0, Disk.RAYS[4][0].length);
+    }
 }
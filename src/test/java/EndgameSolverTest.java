@@ -0,0 +1,92 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+/**
+ * EndgameSolver Tester.
+ */
+public class EndgameSolverTest {
+
+    /* The moves of the game in SearchTest after its endgame position, to the end of the game */
+    private static final String[] LAST_MOVES = {"1a", "1d", "8f", "4h", "1b", "2h", "3a", "4a", "8g", "7b"};
+
+    /**
+     * Return the player to move after <code>moves</code>.
+     */
+    private static char playerToMove(String moves) {
+        Board board = new Board();
+        char player = Board.DARK;
+        for (String move : moves.split(",")) {
+            if (!board.hasAvailableMove(player)) {
+                player = Board.getOpponent(player);
+            }
+            board.flip(player, Disk.getDisk(move));
+            player = Board.getOpponent(player);
+        }
+        return board.hasAvailableMove(player) ? player : Board.getOpponent(player);
+    }
+
+    @Test
+    public void solveIsExact() {
+        Board board = SearchTest.play(SearchTest.ENDGAME);
+        EndgameSolver solver = new EndgameSolver();
+        int score = solver.solve(board, Board.DARK);
+        assertEquals(SearchTest.minimax(board, Board.DARK, false) / Search.GAME_OVER_SCALE, score);
+        assertEquals(10, solver.getDepth());
+        assertTrue(solver.getNodes() > 0);
+
+        int move = solver.getBestMove();
+        assertNotEquals(0, board.getMoves(Board.DARK) & (1L << move));
+        board.makeMove(Board.DARK, move);
+        assertEquals(score, -SearchTest.minimax(board, Board.LIGHT, false) / Search.GAME_OVER_SCALE);
+    }
+
+    @Test
+    public void solveLastEmpties() {
+        EndgameSolver solver = new EndgameSolver();
+        String moves = SearchTest.ENDGAME;
+        for (String move : LAST_MOVES) {
+            moves += ", " + move;
+            Board board = SearchTest.play(moves);
+            char player = playerToMove(moves);
+            int expected = SearchTest.minimax(board, player, false) / Search.GAME_OVER_SCALE;
+            assertEquals(moves, expected, solver.solve(board, player));
+            assertEquals(moves, Integer.signum(expected), solver.solveWinLossDraw(board, player));
+        }
+    }
+
+    @Test
+    public void solveWinLossDraw() {
+        Board board = SearchTest.play(SearchTest.ENDGAME);
+        EndgameSolver solver = new EndgameSolver();
+        int score = solver.solve(board, Board.DARK);
+        long nodes = solver.getNodes();
+        assertEquals(Integer.signum(score), solver.solveWinLossDraw(board, Board.DARK));
+        assertTrue(solver.getNodes() <= nodes);
+    }
+
+    @Test
+    public void solveAgreesWithSearch() {
+        //16 empty squares
+        String moves = SearchTest.ENDGAME.substring(0, SearchTest.ENDGAME.lastIndexOf(", 2c"));
+        Board board = SearchTest.play(moves);
+        char player = playerToMove(moves);
+        Search search = new Search(0, Long.MAX_VALUE);
+        search.findBestMove(board, player);
+        EndgameSolver solver = new EndgameSolver();
+        assertEquals(search.getScore() / Search.GAME_OVER_SCALE, solver.solve(board, player));
+        assertEquals(16, solver.getDepth());
+        assertEquals(SearchTest.play(moves).getDisks(player), board.getDisks(player));
+    }
+
+    @Test
+    public void solveWithoutMove() {
+        Board board = new Board();
+        board.setPlayer(Board.NO_PIECE, Disk.getDisk("4d"));
+        board.setPlayer(Board.NO_PIECE, Disk.getDisk("5e"));
+        EndgameSolver solver = new EndgameSolver();
+        assertEquals(2, solver.solve(board, Board.DARK));
+        assertEquals(-1, solver.getBestMove());
+    }
+
+}
@@ -0,0 +1,170 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Evaluator Tester.
+ */
+public class EvaluatorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private short[] weights;
+
+    @Before
+    public void before() {
+        weights = Evaluator.getWeights();
+    }
+
+    @After
+    public void after() {
+        Evaluator.setWeights(weights);
+    }
+
+    /**
+     * Return random positions: the disks of the player to move and of the opponent, alternately.
+     */
+    private static long[] randomPositions(int count) {
+        Random random = new Random(42);
+        long[] positions = new long[2 * count];
+        for (int i = 0; i < count; i++) {
+            long occupied = random.nextLong() | random.nextLong();
+            long own = occupied & random.nextLong();
+            positions[2 * i] = own;
+            positions[2 * i + 1] = occupied & ~own;
+        }
+        return positions;
+    }
+
+    @Test
+    public void evaluateIsSumOfFeatures() {
+        Random random = new Random(7);
+        short[] randomWeights = new short[Evaluator.PHASES * Evaluator.PHASE_SIZE];
+        for (int i = 0; i < randomWeights.length; i++) {
+            randomWeights[i] = (short) (random.nextInt(2001) - 1000);
+        }
+        Evaluator.setWeights(randomWeights);
+
+        long[] positions = randomPositions(1000);
+        int[] features = new int[Evaluator.FEATURES];
+        for (int i = 0; i < positions.length; i += 2) {
+            long own = positions[i];
+            long opp = positions[i + 1];
+            Evaluator.features(own, opp, features);
+            int base = Evaluator.phase(own, opp) * Evaluator.PHASE_SIZE;
+            int sum = 0;
+            for (int feature : features) {
+                assertTrue(feature >= 0 && feature < Evaluator.PHASE_SIZE);
+                sum += randomWeights[base + feature];
+            }
+            assertEquals(sum, Evaluator.evaluate(own, opp));
+        }
+    }
+
+    @Test
+    public void defaultWeights() {
+        long[] positions = randomPositions(1000);
+        for (int i = 0; i < positions.length; i += 2) {
+            long own = positions[i];
+            long opp = positions[i + 1];
+            int expected = 0;
+            for (int square = 0; square < BitBoard.SQUARES; square++) {
+                expected += Evaluator.squareWeight(square)
+                        * (int) (((own >>> square) & 1) - ((opp >>> square) & 1));
+            }
+            expected += 8 * (Long.bitCount(BitBoard.moves(own, opp)) - Long.bitCount(BitBoard.moves(opp, own)));
+            //each weight is rounded
+            assertEquals(expected, Evaluator.evaluate(own, opp), Evaluator.FEATURES / 2.0);
+        }
+    }
+
+    @Test
+    public void patterns() {
+        int[] empty = new int[Evaluator.FEATURES];
+        Evaluator.features(0, 0, empty);
+        int[] features = new int[Evaluator.FEATURES];
+
+        //1a is the first square of two edges, a corner and the long diagonal
+        Evaluator.features(1L, 0, features);
+        assertArrayEquals(new int[]{1, 1, 0, 0, 1, 0, 0, 0}, differences(features, empty, 0, 8));
+        assertEquals(1, features[20] - empty[20]);
+        assertEquals(0, features[21] - empty[21]);
+
+        //an opponent's disk on 8h is the last square of two edges and the first of its corner
+        Evaluator.features(0, 1L << 63, features);
+        assertArrayEquals(new int[]{0, 0, 2 * 2187, 2 * 2187, 0, 0, 0, 2},
+                differences(features, empty, 0, 8));
+
+        //b2 is an X square of two edges
+        Evaluator.features(1L << 9, 0, features);
+        assertArrayEquals(new int[]{6561, 6561, 0, 0, 81, 0, 0, 0}, differences(features, empty, 0, 8));
+    }
+
+    private static int[] differences(int[] features, int[] empty, int from, int to) {
+        int[] differences = new int[to - from];
+        for (int i = from; i < to; i++) {
+            differences[i - from] = features[i] - empty[i];
+        }
+        return differences;
+    }
+
+    @Test
+    public void phase() {
+        assertEquals(0, Evaluator.phase(BitBoard.INITIAL_DARK, BitBoard.INITIAL_LIGHT));
+        assertEquals(Evaluator.PHASES - 1, Evaluator.phase(-1L, 0));
+        assertEquals(0, Evaluator.phase(0, 0));
+    }
+
+    @Test
+    public void saveAndLoad() throws Exception {
+        short[] changed = Evaluator.getWeights();
+        changed[0] = 1234;
+        changed[changed.length - 1] = -4321;
+        Evaluator.setWeights(changed);
+        File file = folder.newFile();
+        Evaluator.save(file.toPath());
+        assertEquals(16 + 2L * changed.length, file.length());
+
+        Evaluator.setWeights(weights);
+        Evaluator.load(file.toPath());
+        assertArrayEquals(changed, Evaluator.getWeights());
+    }
+
+    @Test
+    public void readKeepsSharedWeights() throws Exception {
+        short[] changed = Evaluator.getWeights();
+        changed[0] = 1234;
+        Evaluator.setWeights(changed);
+        File file = folder.newFile();
+        Evaluator.save(file.toPath());
+        Evaluator.setWeights(weights);
+
+        short[] read = Evaluator.read(file.toPath());
+        assertArrayEquals(changed, read);
+        assertArrayEquals(weights, Evaluator.getWeights());
+        //the 4 edges of the empty board read the first weight
+        assertEquals(Evaluator.evaluate(0, 0) + 4 * (1234 - weights[0]), Evaluator.evaluate(read, 0, 0));
+    }
+
+    @Test(expected = IOException.class)
+    public void loadInvalidFile() throws Exception {
+        File file = folder.newFile();
+        Files.write(file.toPath(), new byte[100]);
+        Evaluator.load(file.toPath());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void setWeightsOfWrongSize() {
+        Evaluator.setWeights(new short[10]);
+    }
+}
@@ -0,0 +1,32 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class FastRandomTest {
+
+    @Test
+    public void sameSeedSameNumbers() {
+        FastRandom first = new FastRandom(42);
+        FastRandom second = new FastRandom(42);
+        for (int i = 0; i < 100; i++) {
+            assertEquals(first.nextLong(), second.nextLong());
+        }
+        assertNotEquals(new FastRandom(1).nextLong(), new FastRandom(2).nextLong());
+    }
+
+    @Test
+    public void nextIntIsUniform() {
+        FastRandom random = new FastRandom(7);
+        int[] counts = new int[10];
+        for (int i = 0; i < 100_000; i++) {
+            counts[random.nextInt(counts.length)]++;
+        }
+        for (int count : counts) {
+            assertEquals(10_000, count, 500);
+        }
+        for (int bound = 1; bound < 70; bound++) {
+            int value = random.nextInt(bound);
+            assertTrue(value >= 0 && value < bound);
+        }
+    }
+}
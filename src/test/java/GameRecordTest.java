@@ -0,0 +1,114 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class GameRecordTest {
+
+    private static final String GAME = "4c, 3e, 2f, 5c, 6f, 3b, 6d, " +
+            "7e, 4f, 6e, 7d, 6g, 2a, 6c, 6b, 7c, 7g, 2e, 6h, 3d, 8d, 3c, 7f, " +
+            "7a, 2d, 5f, 3f, 3g, 6a, 8c, 2g, 8h, 5g, 1f, 7h, 1g, 8b, 4g, 3h, 1c, " +
+            "5b, 5h, 1h, 4b, 2c, 8e, 5a, 8a, 1e, 2b, 1a, 1d, 8f, 4h, 1b, 2h, 3a, 4a, 8g, 7b";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void parse() {
+        GameRecord record = GameRecord.parse(GAME);
+        assertEquals(60, record.getMoveCount());
+        assertEquals(22, record.getDarkDisks());
+        assertEquals(BitBoard.square(Disk.getDisk("4c")), record.getMove(0));
+        assertEquals(GAME.replace(" ", ""), record.toMoves());
+        assertNull(GameRecord.parse("f5,1a"));
+        assertNull(GameRecord.parse("f5,zz"));
+        assertEquals(0, GameRecord.parse("").getMoveCount());
+    }
+
+    @Test
+    public void play() {
+        Board board = new Board();
+        assertTrue(GameRecord.parse(GAME).play(board));
+        assertEquals(Othello.playGame(GAME), board.getBoardInfo());
+        assertEquals(GameRecord.parse(GAME), GameRecord.of(board, 0, 0, 0));
+
+        byte f5 = (byte) BitBoard.square(Disk.getDisk("5f"));
+        GameRecord invalid = new GameRecord(0, 0, 0, 0, 0, new byte[]{f5, 0});
+        assertFalse(invalid.play(board));
+        assertEquals(1, board.getMoveCount());
+    }
+
+    @Test
+    public void writeAndRead() throws IOException {
+        Path file = folder.newFile("games.ogr").toPath();
+        List<GameRecord> records = new ArrayList<>();
+        records.add(GameRecord.parse(GAME));
+        records.add(new GameRecord(20201010, 65535, 1, 40000, 33, new byte[]{37, 29}));
+        //more than one buffer
+        for (int i = 0; i < 2000; i++) {
+            records.add(new GameRecord(19770000 + i, i, i + 1, i + 2, i % 65, new byte[i % (GameRecord.MAX_MOVES + 1)]));
+        }
+        try (GameRecordWriter writer = new GameRecordWriter(file)) {
+            for (GameRecord record : records) {
+                writer.write(record);
+            }
+            assertEquals(records.size(), writer.getGames());
+        }
+        List<GameRecord> read = new ArrayList<>();
+        try (GameRecordReader reader = new GameRecordReader(file)) {
+            assertEquals(records.size(), reader.getGames());
+            for (GameRecord record = reader.read(); record != null; record = reader.read()) {
+                read.add(record);
+            }
+        }
+        assertEquals(records, read);
+    }
+
+    @Test
+    public void append() throws IOException {
+        Path file = folder.newFile("games.ogr").toPath();
+        GameRecord first = GameRecord.parse(GAME);
+        GameRecord second = new GameRecord(20201010, 1, 2, 3, 33, new byte[]{37, 29});
+        try (GameRecordWriter writer = new GameRecordWriter(file, true)) {
+            writer.write(first);
+        }
+        try (GameRecordWriter writer = new GameRecordWriter(file, true)) {
+            writer.write(second);
+            assertEquals(2, writer.getGames());
+        }
+        try (GameRecordReader reader = new GameRecordReader(file)) {
+            assertEquals(2, reader.getGames());
+            assertEquals(first, reader.read());
+            assertEquals(second, reader.read());
+            assertNull(reader.read());
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void readInvalidFile() throws IOException {
+        Path file = folder.newFile("games.csv").toPath();
+        Files.write(file, GAME.getBytes());
+        new GameRecordReader(file).close();
+    }
+
+    @Test(expected = IOException.class)
+    public void readTruncatedFile() throws IOException {
+        Path file = folder.newFile("games.ogr").toPath();
+        try (GameRecordWriter writer = new GameRecordWriter(file)) {
+            writer.write(GameRecord.parse(GAME));
+        }
+        byte[] bytes = Files.readAllBytes(file);
+        Files.write(file, Arrays.copyOf(bytes, bytes.length - 1));
+        try (GameRecordReader reader = new GameRecordReader(file)) {
+            reader.read();
+        }
+    }
+}
@@ -0,0 +1,66 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.io.StringWriter;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class GameReplayTest {
+
+    /* The full game in OthelloTest, LIGHT wins 42 to 22 */
+    private static final String GAME = SearchTest.ENDGAME + ", 1a, 1d, 8f, 4h, 1b, 2h, 3a, 4a, 8g, 7b";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void replay() {
+        int result = GameReplay.replay(GAME);
+        assertEquals(GameReplay.VALID, GameReplay.status(result));
+        assertEquals(60, GameReplay.ply(result));
+        assertEquals(22, GameReplay.darkCount(result));
+        assertEquals(42, GameReplay.lightCount(result));
+
+        result = GameReplay.replay("f5, 6f, F7");
+        assertEquals(GameReplay.INCOMPLETE, GameReplay.status(result));
+        assertEquals(3, GameReplay.ply(result));
+
+        result = GameReplay.replay("f5,6f,a1");
+        assertEquals(GameReplay.INVALID, GameReplay.status(result));
+        assertEquals(3, GameReplay.ply(result));
+        assertEquals(3, GameReplay.darkCount(result));
+        assertEquals(3, GameReplay.lightCount(result));
+
+        assertEquals(GameReplay.INVALID, GameReplay.status(GameReplay.replay("f5,6ff")));
+        assertEquals(GameReplay.INVALID, GameReplay.status(GameReplay.replay("f5,,6f")));
+        assertEquals(GameReplay.INVALID, GameReplay.status(GameReplay.replay(GAME + ",1a")));
+    }
+
+    @Test
+    public void replayFile() throws Exception {
+        File input = folder.newFile("games.csv");
+        StringBuilder games = new StringBuilder();
+        for (int i = 0; i < 500; i++) {
+            games.append(GAME).append("\r\n").append("f5,6f,a1\n").append("\n").append("f5,6f\n");
+        }
+        Files.write(input.toPath(), games.toString().getBytes(StandardCharsets.US_ASCII));
+
+        StringWriter output = new StringWriter();
+        GameReplay.Summary summary = GameReplay.replayFile(input.toPath(), output, 3);
+        assertEquals(1500, summary.getGames());
+        assertEquals(500, summary.getCount(GameReplay.VALID));
+        assertEquals(500, summary.getCount(GameReplay.INCOMPLETE));
+        assertEquals(500, summary.getCount(GameReplay.INVALID));
+
+        String[] lines = output.toString().split("\n");
+        assertEquals(1500, lines.length);
+        assertEquals("1,VALID,60,22,42,O", lines[0]);
+        assertEquals("2,INVALID,3,3,3,", lines[1]);
+        assertEquals("4,INCOMPLETE,2,3,3,", lines[2]);
+        assertEquals("1997,VALID,60,22,42,O", lines[1497]);
+    }
+}
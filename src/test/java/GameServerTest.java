@@ -0,0 +1,233 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Test;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.PrintWriter;
+import java.net.InetSocketAddress;
+import java.net.Socket;
+import java.net.SocketException;
+import java.nio.channels.SocketChannel;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.Assert.*;
+
+public class GameServerTest {
+
+    private GameServer server;
+    private Thread thread;
+
+    private static class Client implements AutoCloseable {
+        final Socket socket;
+        final BufferedReader in;
+        final PrintWriter out;
+
+        Client(int port) throws IOException {
+            socket = new Socket("localhost", port);
+            socket.setSoTimeout(5000);
+            in = new BufferedReader(new InputStreamReader(socket.getInputStream(), StandardCharsets.US_ASCII));
+            out = new PrintWriter(socket.getOutputStream(), true);
+        }
+
+        String command(String line) throws IOException {
+            out.println(line);
+            return in.readLine();
+        }
+
+        @Override
+        public void close() throws IOException {
+            socket.close();
+        }
+    }
+
+    private void start(long idleMillis) throws IOException {
+        server = new GameServer(new InetSocketAddress("localhost", 0), idleMillis);
+        thread = new Thread(server);
+        thread.start();
+    }
+
+    @Before
+    public void setUp() throws IOException {
+        start(GameServer.DEFAULT_IDLE_MILLIS);
+    }
+
+    @After
+    public void tearDown() throws InterruptedException {
+        server.close();
+        thread.join();
+    }
+
+    @Test
+    public void playBothColors() throws IOException {
+        try (Client client = new Client(server.getPort())) {
+            assertEquals("GAME 1 XO", client.command("NEW XO"));
+            assertEquals("MOVED X 3d O", client.command("MOVE d3"));
+            assertEquals("ERROR invalid move 1a", client.command("MOVE 1a"));
+            assertEquals("MOVED O 3c X", client.command("move 3c"));
+            Board board = new Board();
+            board.flip(Board.DARK, Disk.getDisk("3d"));
+            board.flip(Board.LIGHT, Disk.getDisk("3c"));
+            StringBuilder squares = new StringBuilder("BOARD ");
+            for (int square = 0; square < BitBoard.SQUARES; square++) {
+                squares.append(board.getPlayer(Disk.getDisk(square)));
+            }
+            assertEquals(squares + " X", client.command("BOARD"));
+            assertEquals("ERROR unknown command PASS", client.command("PASS"));
+            assertEquals(2, server.getMoveCount());
+            //the invalid move is processed too
+            assertEquals(3, server.getLatency().getCount());
+            assertTrue(client.command("STATS").startsWith("STATS 1 1 2 "));
+        }
+    }
+
+    @Test
+    public void playEachColor() throws IOException {
+        try (Client dark = new Client(server.getPort()); Client light = new Client(server.getPort())) {
+            assertEquals("ERROR no game", dark.command("MOVE 3d"));
+            assertEquals("GAME 1 X", dark.command("NEW"));
+            assertEquals("ERROR no game 2", light.command("JOIN 2"));
+            assertEquals("GAME 1 O", light.command("JOIN 1"));
+            assertEquals("JOINED O", dark.in.readLine());
+            assertEquals("ERROR not your move", light.command("MOVE 3c"));
+            assertEquals("MOVED X 3d O", dark.command("MOVE 3d"));
+            assertEquals("MOVED X 3d O", light.in.readLine());
+            assertEquals("ERROR game 1 is full", new Client(server.getPort()).command("JOIN 1"));
+            light.out.println("QUIT");
+            assertEquals("LEFT", dark.in.readLine());
+            assertNull(light.in.readLine());
+        }
+    }
+
+    @Test
+    public void playToTheEnd() throws IOException {
+        Board board = new Board();
+        try (Client client = new Client(server.getPort())) {
+            assertEquals("GAME 1 XO", client.command("NEW XO"));
+            char player = Board.DARK;
+            while (true) {
+                String move = Disk.getUserMove(Long.numberOfTrailingZeros(board.getMoves(player)));
+                board.flip(player, Disk.getDisk(move));
+                String[] reply = client.command("MOVE " + move).split(" ");
+                assertEquals("MOVED", reply[0]);
+                player = reply[3].charAt(0);
+                if (player == Board.NO_PIECE) {
+                    break;
+                }
+                assertTrue(board.hasAvailableMove(player));
+            }
+            assertTrue(board.isGameOver());
+            assertEquals("OVER " + Long.bitCount(board.getDisks(Board.DARK)) + " "
+                    + Long.bitCount(board.getDisks(Board.LIGHT)), client.in.readLine());
+            assertEquals("ERROR game over", client.command("MOVE 3d"));
+        }
+    }
+
+    @Test
+    public void evictIdle() throws IOException, InterruptedException {
+        tearDown();
+        start(200);
+        try (Client client = new Client(server.getPort())) {
+            assertEquals("GAME 1 X", client.command("NEW X"));
+            assertEquals("ERROR idle", client.in.readLine());
+            assertNull(client.in.readLine());
+        }
+        assertEquals(0, server.getGameCount());
+    }
+
+    @Test
+    public void closeClientNotReading() throws IOException, InterruptedException {
+        try (Client client = new Client(server.getPort())) {
+            assertEquals("GAME 1 X", client.command("NEW X"));
+            //a BOARD reply is about 80 bytes, far more than the socket buffers and the queue hold
+            try {
+                for (int i = 0; i < 200_000 && server.getSessionCount() > 0; i++) {
+                    client.out.print("BOARD\n");
+                    if (i % 1000 == 0) {
+                        client.out.flush();
+                    }
+                }
+                client.out.flush();
+            } catch (RuntimeException e) {
+                //the server closed the connection
+            }
+            for (int i = 0; i < 500 && server.getSessionCount() > 0; i++) {
+                Thread.sleep(10);
+            }
+            assertEquals(0, server.getSessionCount());
+            //the commands the server did not read may reset the connection before the last reply arrives
+            try {
+                String line;
+                String last = null;
+                while ((line = client.in.readLine()) != null) {
+                    last = line;
+                }
+                assertEquals("ERROR too many replies not read", last);
+            } catch (SocketException e) {
+                //reset
+            }
+        }
+        assertEquals(0, server.getGameCount());
+    }
+
+    /**
+     * Start a server which fails to set up its first connection.
+     */
+    private void startFailingFirst() throws IOException {
+        server = new GameServer(new InetSocketAddress("localhost", 0), GameServer.DEFAULT_IDLE_MILLIS) {
+            private boolean failed;
+
+            @Override
+            void configure(SocketChannel channel) throws IOException {
+                if (!failed) {
+                    failed = true;
+                    throw new IOException("Too many open files");
+                }
+                super.configure(channel);
+            }
+        };
+        thread = new Thread(server);
+        thread.start();
+    }
+
+    @Test
+    public void acceptFailureKeepsServing() throws IOException, InterruptedException {
+        tearDown();
+        startFailingFirst();
+        try (Client refused = new Client(server.getPort())) {
+            try {
+                assertNull(refused.command("NEW X"));
+            } catch (SocketException e) {
+                //reset
+            }
+        }
+        try (Client client = new Client(server.getPort())) {
+            assertEquals("GAME 1 X", client.command("NEW X"));
+            assertEquals("MOVED X 3d O", client.command("MOVE 3d"));
+        }
+        assertTrue(thread.isAlive());
+        assertEquals(1, server.getAcceptFailures());
+    }
+
+    @Test
+    public void loadGenerator() throws IOException {
+        LoadGenerator generator = new LoadGenerator(new InetSocketAddress("localhost", server.getPort()), 50, 1);
+        generator.run(1000);
+        assertEquals(0, generator.getErrors());
+        assertTrue(generator.getMoves() > 0);
+        assertTrue(generator.getLatency().getPercentile(99) > 0);
+        assertTrue(server.getMoveCount() >= generator.getMoves());
+        assertTrue(server.getLatency().getPercentile(99) > 0);
+    }
+
+    @Test
+    public void loadGeneratorGoesOnWithoutClosedConnection() throws IOException, InterruptedException {
+        tearDown();
+        startFailingFirst();
+        LoadGenerator generator = new LoadGenerator(new InetSocketAddress("localhost", server.getPort()), 10, 1);
+        generator.run(500);
+        assertEquals(1, generator.getErrors());
+        assertTrue(generator.getGames() > 0);
+    }
+}
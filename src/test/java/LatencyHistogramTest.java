@@ -0,0 +1,34 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class LatencyHistogramTest {
+
+    @Test
+    public void buckets() {
+        for (long value = 0; value < 1 << 20; value++) {
+            int bucket = LatencyHistogram.bucket(value);
+            assertTrue(value <= LatencyHistogram.highestValue(bucket));
+            assertTrue(bucket == 0 || value > LatencyHistogram.highestValue(bucket - 1));
+            //at most 1/16 too much
+            assertTrue(LatencyHistogram.highestValue(bucket) - value <= value / 16);
+        }
+        assertEquals(Long.MAX_VALUE, LatencyHistogram.highestValue(LatencyHistogram.bucket(Long.MAX_VALUE)));
+    }
+
+    @Test
+    public void percentiles() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        assertEquals(0, histogram.getPercentile(99));
+        for (long value = 1; value <= 1000; value++) {
+            histogram.record(value * 1000);
+        }
+        assertEquals(1000, histogram.getCount());
+        assertEquals(500_000, histogram.getPercentile(50), 500_000 / 16);
+        assertEquals(990_000, histogram.getPercentile(99), 990_000 / 16);
+        assertEquals(1_000_000, histogram.getMax(), 1_000_000 / 16);
+        assertTrue(histogram.getPercentile(50) >= 500_000);
+        histogram.reset();
+        assertEquals(0, histogram.getCount());
+    }
+}
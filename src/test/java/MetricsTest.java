@@ -0,0 +1,131 @@
+import jdk.jfr.Recording;
+import jdk.jfr.consumer.RecordedEvent;
+import jdk.jfr.consumer.RecordingFile;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.Closeable;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class MetricsTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void snapshot() {
+        Metrics.reset();
+        Metrics.movesGenerated(4);
+        Metrics.moveMade(1);
+        Metrics.moveMade(3);
+        Metrics.moveMade(3);
+        Metrics.availableMovesUpdated();
+        Metrics.flipChecked();
+        Metrics.flipChecked();
+        Metrics.gameReplayed(5000);
+        String snapshot = Metrics.snapshot();
+        assertTrue(snapshot, snapshot.contains("moves.generations=1" + System.lineSeparator()));
+        assertTrue(snapshot.contains("moves.generated=4"));
+        assertTrue(snapshot.contains("moves.made=3"));
+        assertTrue(snapshot.contains("flips=7"));
+        assertTrue(snapshot.contains("flips.per.move=0:0,1:1,2:0,3:2,4:0"));
+        assertTrue(snapshot.contains("board.updateAvailableMoves=1"));
+        assertTrue(snapshot.contains("board.canFlip=2"));
+        assertTrue(snapshot.contains("replay.count=1"));
+        assertTrue(snapshot.contains("replay.p50.us=5"));
+        Metrics.reset();
+        assertTrue(Metrics.snapshot().contains("moves.made=0"));
+    }
+
+    @Test
+    public void export() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("metrics.txt");
+        Metrics.write(file);
+        assertTrue(new String(Files.readAllBytes(file), StandardCharsets.US_ASCII).contains("moves.made="));
+        Files.delete(file);
+        try (Closeable export = Metrics.exportTo(file, 10)) {
+            for (int i = 0; i < 500 && !Files.exists(file); i++) {
+                Thread.sleep(10);
+            }
+            assertTrue(Files.exists(file));
+        }
+        //only the snapshot, no temporary file is left
+        assertEquals(1, folder.getRoot().list().length);
+    }
+
+    @Test
+    public void exportGoesOnAfterFailure() throws Exception {
+        Path directory = folder.getRoot().toPath().resolve("missing");
+        Path file = directory.resolve("metrics.txt");
+        try (Closeable export = Metrics.exportTo(file, 10)) {
+            //the first snapshots fail while the directory does not exist
+            Thread.sleep(50);
+            Files.createDirectory(directory);
+            for (int i = 0; i < 500 && !Files.exists(file); i++) {
+                Thread.sleep(10);
+            }
+            assertTrue(Files.exists(file));
+        }
+        assertEquals(1, directory.toFile().list().length);
+    }
+
+    @Test
+    public void oneEventPerParallelSearch() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("parallel.jfr");
+        ParallelSearch search = new ParallelSearch(3, 0, Long.MAX_VALUE, new TranspositionTable(1));
+        try (Recording recording = new Recording()) {
+            recording.enable("othello.Search");
+            recording.start();
+            search.setMaxDepth(2);
+            search.findBestMove(new Board(), Board.DARK);
+            recording.stop();
+            recording.dump(file);
+        } finally {
+            search.shutdown();
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        assertEquals(1, events.size());
+        assertEquals("ParallelSearch", events.get(0).getString("engine"));
+        assertEquals(2, events.get(0).getInt("depth"));
+    }
+
+    @Test
+    public void flightRecorderEvents() throws Exception {
+        assertTrue(Metrics.FLIGHT_RECORDER);
+        Path file = folder.getRoot().toPath().resolve("run.jfr");
+        try (Recording recording = new Recording()) {
+            recording.enable("othello.Search");
+            recording.enable("othello.Game");
+            recording.start();
+            Search search = new Search(0, Long.MAX_VALUE);
+            search.setMaxDepth(2);
+            search.findBestMove(new Board(), Board.DARK);
+            Metrics.gameCompleted(40, 24, 60);
+            recording.stop();
+            recording.dump(file);
+        }
+        List<RecordedEvent> events = RecordingFile.readAllEvents(file);
+        RecordedEvent searchEvent = null;
+        RecordedEvent gameEvent = null;
+        for (RecordedEvent event : events) {
+            if (event.getEventType().getName().equals("othello.Search")) {
+                searchEvent = event;
+            } else if (event.getEventType().getName().equals("othello.Game")) {
+                gameEvent = event;
+            }
+        }
+        assertNotNull(searchEvent);
+        assertEquals("Search", searchEvent.getString("engine"));
+        assertEquals(2, searchEvent.getInt("depth"));
+        assertTrue(searchEvent.getLong("nodes") > 0);
+        assertNotNull(gameEvent);
+        assertEquals("X", gameEvent.getString("winner"));
+        assertEquals(60, gameEvent.getInt("moves"));
+    }
+}
@@ -0,0 +1,77 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class MonteCarloSearchTest {
+
+    @Test
+    public void findsWinningEndgameMove() {
+        Board board = SearchTest.play(SearchTest.ENDGAME);
+        EndgameSolver solver = new EndgameSolver();
+        int best = Integer.signum(solver.solve(board, Board.DARK));
+
+        MonteCarloSearch search = new MonteCarloSearch(1, 0, 20_000);
+        int move = search.findBestMove(board, Board.DARK);
+        assertNotEquals(0, board.getMoves(Board.DARK) & (1L << move));
+        assertEquals(20_000, search.getNodes());
+        assertTrue(search.getDepth() > 1);
+        board.makeMove(Board.DARK, move);
+        assertEquals(best, -solver.solveWinLossDraw(board, Board.LIGHT));
+    }
+
+    @Test
+    public void sameSeedSameMove() {
+        MonteCarloSearch first = new MonteCarloSearch(1, 0, 2000);
+        MonteCarloSearch second = new MonteCarloSearch(1, 0, 2000);
+        second.setGuided(true);
+        first.setGuided(true);
+        assertEquals(first.findBestMove(new Board(), Board.DARK), second.findBestMove(new Board(), Board.DARK));
+        assertEquals(first.getScore(), second.getScore());
+        assertEquals(first.getTreeNodes(), second.getTreeNodes());
+    }
+
+    @Test
+    public void threadsShareTheTree() {
+        MonteCarloSearch search = new MonteCarloSearch(4, 0, 10_000);
+        try {
+            Board board = new Board();
+            int move = search.findBestMove(board, Board.DARK);
+            assertNotEquals(0, board.getMoves(Board.DARK) & (1L << move));
+            assertEquals(10_000, search.getNodes());
+            //all virtual losses are taken back: every playout went through the root once
+            assertEquals(10_000, search.getRootVisits());
+            assertTrue(search.getScore() > 0 && search.getScore() < 100);
+        } finally {
+            search.shutdown();
+        }
+    }
+
+    @Test
+    public void fullPool() {
+        MonteCarloSearch search = new MonteCarloSearch(1, 0, 5000, 100);
+        Board board = new Board();
+        int move = search.findBestMove(board, Board.DARK);
+        assertNotEquals(0, board.getMoves(Board.DARK) & (1L << move));
+        assertTrue(search.getTreeNodes() <= 100);
+        assertEquals(5000, search.getRootVisits());
+    }
+
+    @Test
+    public void noMove() {
+        Board board = SearchTest.play(SearchTest.ENDGAME);
+        for (String move : new String[]{"1a", "1d", "8f", "4h", "1b", "2h", "3a", "4a", "8g", "7b"}) {
+            board.flip(board.validateMove(Board.DARK, move) ? Board.DARK : Board.LIGHT, Disk.getDisk(move));
+        }
+        assertEquals(-1, new MonteCarloSearch(1, 0, 100).findBestMove(board, Board.DARK));
+    }
+
+    @Test
+    public void playoutResult() {
+        MonteCarloSearch search = new MonteCarloSearch(1, 0, 1);
+        FastRandom random = new FastRandom(3);
+        //the game is over: the result is final
+        assertEquals(2, search.playout(-1L, 0, random));
+        assertEquals(0, search.playout(0xFFL, -1L << 8, random));
+        assertEquals(1, search.playout(0xFFFFFFFFL, -1L << 32, random));
+    }
+}
@@ -0,0 +1,119 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class OpeningBookTest {
+
+    /* The full game in OthelloTest, LIGHT wins 42 to 22 */
+    private static final String GAME = SearchTest.ENDGAME + ", 1a, 1d, 8f, 4h, 1b, 2h, 3a, 4a, 8g, 7b";
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private OpeningBook build(String games, int plies) throws Exception {
+        File corpus = folder.newFile();
+        File book = folder.newFile();
+        Files.write(corpus.toPath(), games.getBytes(StandardCharsets.US_ASCII));
+        OpeningBook.build(corpus.toPath(), book.toPath(), plies);
+        return OpeningBook.open(book.toPath());
+    }
+
+    @Test
+    public void lookup() throws Exception {
+        //the incomplete and the invalid game are left out
+        OpeningBook book = build(GAME + "\nf5,6f,F7\nf5,6f,a1\n", 4);
+        assertEquals(4, book.size());
+
+        Board board = new Board();
+        List<OpeningBook.BookMove> moves = book.getMoves(board, Board.DARK);
+        assertEquals(1, moves.size());
+        OpeningBook.BookMove move = moves.get(0);
+        assertEquals(1, move.getGames());
+        assertEquals(0, move.getPoints());
+        assertEquals(-20, move.getAverageDiskDifference(), 0);
+
+        //the book move or one of its symmetric moves
+        int square = book.findMove(board, Board.DARK);
+        assertNotEquals(0, board.getMoves(Board.DARK) & (1L << square));
+
+        board = SearchTest.play("4c");
+        assertEquals("3e", Disk.getUserMove(book.findMove(board, Board.LIGHT)));
+        assertEquals(1.0, book.getMoves(board, Board.LIGHT).get(0).getScore(), 0);
+
+        board = SearchTest.play("4c, 3e, 2f, 5c");
+        assertEquals(-1, book.findMove(board, Board.DARK));
+        assertTrue(book.getMoves(board, Board.DARK).isEmpty());
+    }
+
+    @Test
+    public void symmetricLookup() throws Exception {
+        OpeningBook book = build(GAME + "\n", 4);
+        //3d is 4c reflected on the 1a-8h diagonal, so the answer is 3e reflected
+        Board board = SearchTest.play("3d");
+        assertEquals("5c", Disk.getUserMove(book.findMove(board, Board.LIGHT)));
+        //5f is 4c rotated by 180 degrees
+        board = SearchTest.play("5f, 6d");
+        assertEquals("7c", Disk.getUserMove(book.findMove(board, Board.DARK)));
+    }
+
+    @Test
+    public void statistics() throws Exception {
+        //the game and the game reflected on the 1a-8h diagonal share their positions
+        StringBuilder reflected = new StringBuilder();
+        for (String move : GAME.split(",")) {
+            reflected.append(Disk.getUserMove(Symmetry.square(4, BitBoard.square(Disk.getDisk(move))))).append(',');
+        }
+        reflected.setLength(reflected.length() - 1);
+        OpeningBook book = build(GAME + "\n" + reflected + "\n", 2);
+        assertEquals(2, book.size());
+        List<OpeningBook.BookMove> moves = book.getMoves(SearchTest.play("4c"), Board.LIGHT);
+        assertEquals(1, moves.size());
+        assertEquals(2, moves.get(0).getGames());
+        assertEquals("3e", Disk.getUserMove(moves.get(0).getSquare()));
+        assertEquals(4, moves.get(0).getPoints());
+        assertEquals(20, moves.get(0).getAverageDiskDifference(), 0);
+    }
+
+    @Test
+    public void corruptMoves() throws Exception {
+        File corpus = folder.newFile();
+        File file = folder.newFile();
+        Files.write(corpus.toPath(), (GAME + "\n").getBytes(StandardCharsets.US_ASCII));
+        OpeningBook.build(corpus.toPath(), file.toPath(), 4);
+        Board board = new Board();
+        for (int move : new int[]{99, 27}) {
+            //every move of the book on a square out of the board, then on a taken center square
+            try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.WRITE)) {
+                for (long offset = 16 + 8; offset < channel.size(); offset += 24) {
+                    channel.write(ByteBuffer.allocate(4).putInt(0, move), offset);
+                }
+            }
+            OpeningBook book = OpeningBook.open(file.toPath());
+            Search search = new Search(0, Long.MAX_VALUE);
+            search.setOpeningBook(book);
+            search.setMaxDepth(2);
+            int square = search.findBestMove(board, Board.DARK);
+            //searched instead of played from the book
+            assertNotEquals(0, board.getMoves(Board.DARK) & (1L << square));
+            assertEquals(2, search.getDepth());
+        }
+        assertEquals(1, OpeningBook.open(file.toPath()).getMoves(board, Board.DARK).size());
+    }
+
+    @Test(expected = java.io.IOException.class)
+    public void openInvalidFile() throws Exception {
+        File file = folder.newFile();
+        Files.write(file.toPath(), "4c, 3e".getBytes(StandardCharsets.US_ASCII));
+        OpeningBook.open(file.toPath());
+    }
+}
@@ -0,0 +1,14 @@
+import org.junit.Test;
+
+public class OthelloOptionsTest {
+
+    @Test(expected = IllegalArgumentException.class)
+    public void unknownOption() throws Exception {
+        Othello.main(new String[]{"--thread", "4"});
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void monteCarloWithCache() throws Exception {
+        Othello.main(new String[]{"--mcts", "--cache", "never-created.oac"});
+    }
+}
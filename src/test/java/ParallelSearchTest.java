@@ -0,0 +1,50 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class ParallelSearchTest {
+
+    @Test
+    public void findBestMove() {
+        Board board = SearchTest.play(SearchTest.MIDGAME);
+        ParallelSearch search = new ParallelSearch(3, 0, Long.MAX_VALUE, new TranspositionTable(4));
+        try {
+            search.setMaxDepth(6);
+            int square = search.findBestMove(board, Board.DARK);
+            assertNotEquals(0, board.getMoves(Board.DARK) & (1L << square));
+            assertEquals(6, search.getDepth());
+            assertEquals(3, search.getNodesPerSecondPerThread().length);
+            assertTrue(search.getNodes() > 0);
+        } finally {
+            search.shutdown();
+        }
+    }
+
+    @Test
+    public void sameExactScoreAsOneThread() {
+        Board board = SearchTest.play(SearchTest.ENDGAME);
+        Search single = new Search(0, Long.MAX_VALUE);
+        single.findBestMove(board, Board.DARK);
+        ParallelSearch parallel = new ParallelSearch(2, 0, Long.MAX_VALUE, new TranspositionTable(4));
+        try {
+            parallel.findBestMove(board, Board.DARK);
+            assertEquals(single.getScore(), parallel.getScore());
+        } finally {
+            parallel.shutdown();
+        }
+    }
+
+    @Test
+    public void oneGenerationPerMove() {
+        TranspositionTable table = new TranspositionTable(4);
+        ParallelSearch search = new ParallelSearch(4, 0, Long.MAX_VALUE, table);
+        try {
+            search.setMaxDepth(3);
+            int generation = table.getGeneration();
+            search.findBestMove(new Board(), Board.DARK);
+            assertEquals(generation + 1, table.getGeneration());
+        } finally {
+            search.shutdown();
+        }
+    }
+}
@@ -0,0 +1,86 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.Assert.*;
+
+public class PerftTest {
+
+    /**
+     * Count the leaves by playing every move on the {@link Board}: a pass is a ply, a finished game is a leaf.
+     */
+    static long leaves(Board board, char player, int depth, List<Set<String>> positions, int ply) {
+        if (positions != null) {
+            positions.get(ply).add(board.getCanonicalHash(player) + "" + player);
+        }
+        if (depth == 0) {
+            return 1;
+        }
+        char opponent = Board.getOpponent(player);
+        long moves = board.getMoves(player);
+        if (moves == 0) {
+            return board.getMoves(opponent) == 0 ? 1 : leaves(board, opponent, depth - 1, positions, ply + 1);
+        }
+        long count = 0;
+        for (; moves != 0; moves &= moves - 1) {
+            board.makeMove(player, Long.numberOfTrailingZeros(moves));
+            count += leaves(board, opponent, depth - 1, positions, ply + 1);
+            board.undoMove();
+        }
+        return count;
+    }
+
+    @Test
+    public void referenceCounts() {
+        Perft.Result result = Perft.count(new Board(), Board.DARK, 9, 2, false);
+        assertEquals(9, result.getDepth());
+        long nodes = 0;
+        for (int depth = 0; depth <= 9; depth++) {
+            assertEquals(Perft.REFERENCE[depth], result.getLeaves(depth));
+            nodes += Perft.REFERENCE[depth];
+        }
+        assertEquals(nodes, result.getNodes());
+        assertEquals(-1, result.getDistinct(9));
+    }
+
+    @Test
+    public void sameAsBoard() {
+        Board board = SearchTest.play(SearchTest.MIDGAME);
+        Perft.Result result = Perft.count(board, Board.DARK, 7, 3, false);
+        for (int depth = 0; depth <= 7; depth++) {
+            assertEquals(leaves(board, Board.DARK, depth, null, 0), result.getLeaves(depth));
+        }
+    }
+
+    @Test
+    public void passesAndGameEnd() {
+        //10 empty squares: the games end within 12 plies, some with passes
+        Board board = SearchTest.play(SearchTest.ENDGAME);
+        for (int threads = 1; threads <= 2; threads++) {
+            Perft.Result result = Perft.count(board, Board.DARK, 12, threads, false);
+            for (int depth = 0; depth <= 12; depth++) {
+                assertEquals(leaves(board, Board.DARK, depth, null, 0), result.getLeaves(depth));
+            }
+        }
+    }
+
+    @Test
+    public void distinctPositions() {
+        Board board = new Board();
+        List<Set<String>> positions = new ArrayList<>();
+        for (int ply = 0; ply <= 7; ply++) {
+            positions.add(new HashSet<>());
+        }
+        leaves(board, Board.DARK, 7, positions, 0);
+        Perft.Result result = Perft.count(board, Board.DARK, 7, 2, true);
+        for (int ply = 0; ply <= 7; ply++) {
+            assertEquals(positions.get(ply).size(), result.getDistinct(ply));
+            assertEquals(Perft.REFERENCE[ply], result.getLeaves(ply));
+        }
+        //the 4 first moves are symmetric
+        assertEquals(1, result.getDistinct(1));
+    }
+}
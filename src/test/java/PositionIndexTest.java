@@ -0,0 +1,251 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.DirectoryStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+public class PositionIndexTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static GameRecord randomGame(SplittableRandom random) {
+        Board board = new Board();
+        char player = Board.DARK;
+        while (!board.isGameOver()) {
+            long moves = board.getMoves(player);
+            if (moves == 0) {
+                player = Board.getOpponent(player);
+                continue;
+            }
+            for (int skip = random.nextInt(Long.bitCount(moves)); skip > 0; skip--) {
+                moves &= moves - 1;
+            }
+            board.makeMove(player, Long.numberOfTrailingZeros(moves));
+            player = Board.getOpponent(player);
+        }
+        return GameRecord.of(board, 20201010, 1, 2);
+    }
+
+    private static GameRecord transform(GameRecord record, int transform) {
+        byte[] moves = new byte[record.getMoveCount()];
+        for (int i = 0; i < moves.length; i++) {
+            moves[i] = (byte) Symmetry.square(transform, record.getMove(i));
+        }
+        return new GameRecord(record.getDate(), 0, 0, 0, record.getDarkDisks(), moves);
+    }
+
+    private static void write(Path file, List<GameRecord> records) throws IOException {
+        try (GameRecordWriter writer = new GameRecordWriter(file)) {
+            for (GameRecord record : records) {
+                writer.write(record);
+            }
+        }
+    }
+
+    private static void append(Path file, GameRecord record) throws IOException {
+        try (GameRecordWriter writer = new GameRecordWriter(file, true)) {
+            writer.write(record);
+        }
+    }
+
+    @Test
+    public void find() throws IOException {
+        SplittableRandom random = new SplittableRandom(1);
+        List<GameRecord> records = new ArrayList<>();
+        GameRecord game = randomGame(random);
+        records.add(game);
+        //reflected on the 1h-8a diagonal, which keeps the initial position
+        records.add(transform(game, 7));
+        records.add(randomGame(random));
+        Path file = folder.newFile("games.ogr").toPath();
+        write(file, records);
+        Path directory = folder.getRoot().toPath().resolve("index");
+        assertEquals(3, PositionIndex.update(file, directory));
+
+        PositionIndex index = PositionIndex.open(directory);
+        assertEquals(3, index.getGames());
+        assertEquals(3 + records.get(0).getMoveCount() + records.get(1).getMoveCount()
+                + records.get(2).getMoveCount(), index.size());
+        Board board = new Board();
+        assertEquals(3, index.count(board, Board.DARK));
+
+        //the position of the game after 10 moves, which the transformed game reached too
+        Referee referee = new Referee();
+        for (int ply = 0; ply < 10; ply++) {
+            referee.play(game.getMove(ply));
+        }
+        List<PositionIndex.Occurrence> occurrences = index.find(referee.getBoard(), referee.getPlayer());
+        assertTrue(occurrences.size() >= 2);
+        PositionIndex.Occurrence first = occurrences.get(0);
+        assertEquals(0, first.getGame());
+        assertEquals(10, first.getPly());
+        assertEquals(referee.getPlayer(), first.getPlayer());
+        assertEquals(game.getDarkDisks(), first.getDarkDisks());
+        //the next move of both games on the board asked for
+        assertEquals(game.getMove(10), first.getMove());
+        assertEquals(1, occurrences.get(1).getGame());
+        assertEquals(game.getMove(10), occurrences.get(1).getMove());
+
+        //the end of the game
+        assertTrue(game.play(board));
+        occurrences = index.find(board, Board.DARK);
+        assertEquals(-1, occurrences.get(0).getMove());
+        assertEquals(game.getMoveCount(), occurrences.get(0).getPly());
+    }
+
+    @Test
+    public void updateAndCompact() throws IOException {
+        SplittableRandom random = new SplittableRandom(2);
+        List<GameRecord> records = new ArrayList<>();
+        Path file = folder.newFile("games.ogr").toPath();
+        Path directory = folder.newFolder("index").toPath();
+        for (int update = 1; update <= PositionIndex.MAX_SEGMENTS; update++) {
+            for (int i = 0; i < 5; i++) {
+                records.add(randomGame(random));
+                append(file, records.get(records.size() - 1));
+            }
+            assertEquals(5, PositionIndex.update(file, directory));
+            assertEquals(update, PositionIndex.open(directory).getSegmentCount());
+        }
+        assertEquals(0, PositionIndex.update(file, directory));
+        PositionIndex index = PositionIndex.open(directory);
+        List<PositionIndex.Occurrence> before = index.find(new Board(), Board.DARK);
+        assertEquals(records.size(), before.size());
+        for (int game = 0; game < records.size(); game++) {
+            assertEquals(game, before.get(game).getGame());
+        }
+
+        //one more segment is merged
+        records.add(randomGame(random));
+        append(file, records.get(records.size() - 1));
+        assertEquals(1, PositionIndex.update(file, directory));
+        index = PositionIndex.open(directory);
+        assertEquals(1, index.getSegmentCount());
+        assertEquals(records.size(), index.getGames());
+        List<PositionIndex.Occurrence> after = index.find(new Board(), Board.DARK);
+        assertEquals(records.size(), after.size());
+        for (int game = 0; game < records.size(); game++) {
+            assertEquals(game, after.get(game).getGame());
+        }
+        assertFalse(PositionIndex.compact(directory));
+    }
+
+    @Test
+    public void compactionStoppedHalfWay() throws IOException {
+        SplittableRandom random = new SplittableRandom(4);
+        List<GameRecord> records = new ArrayList<>();
+        Path file = folder.newFile("games.ogr").toPath();
+        Path directory = folder.newFolder("index").toPath();
+        for (int update = 0; update < 3; update++) {
+            records.add(randomGame(random));
+            append(file, records.get(records.size() - 1));
+            PositionIndex.update(file, directory);
+        }
+        Path saved = folder.newFolder("saved").toPath();
+        List<Path> segments = new ArrayList<>();
+        try (DirectoryStream<Path> paths = Files.newDirectoryStream(directory)) {
+            for (Path path : paths) {
+                segments.add(path.getFileName());
+                Files.copy(path, saved.resolve(path.getFileName()));
+            }
+        }
+        assertEquals(3, segments.size());
+        assertTrue(PositionIndex.compact(directory));
+        //as if the merged segments had not been deleted yet
+        for (Path segment : segments) {
+            if (!Files.exists(directory.resolve(segment))) {
+                Files.copy(saved.resolve(segment), directory.resolve(segment));
+            }
+        }
+        PositionIndex index = PositionIndex.open(directory);
+        assertEquals(1, index.getSegmentCount());
+        assertEquals(3, index.getGames());
+        assertEquals(3, index.count(new Board(), Board.DARK));
+        //opening to read leaves the files, the next update deletes them
+        assertEquals(3, directory.toFile().list().length);
+        assertEquals(0, PositionIndex.update(file, directory));
+        assertEquals(1, directory.toFile().list().length);
+        assertEquals(3, PositionIndex.open(directory).getGames());
+    }
+
+    @Test
+    public void updateSkipsIndexedGames() throws IOException {
+        SplittableRandom random = new SplittableRandom(5);
+        List<GameRecord> records = new ArrayList<>();
+        Path file = folder.newFile("games.ogr").toPath();
+        Path directory = folder.newFolder("index").toPath();
+        records.add(randomGame(random));
+        records.add(randomGame(random));
+        write(file, records);
+        assertEquals(2, PositionIndex.update(file, directory));
+        append(file, randomGame(random));
+        //break the first game: it must not be read again
+        try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(new byte[]{127}), 16 + GameRecord.HEADER_BYTES - 1);
+        }
+        assertEquals(1, PositionIndex.update(file, directory));
+        PositionIndex index = PositionIndex.open(directory);
+        assertEquals(3, index.getGames());
+        assertEquals(3, index.count(new Board(), Board.DARK));
+    }
+
+    @Test
+    public void rewrittenRecordFile() throws IOException {
+        SplittableRandom random = new SplittableRandom(6);
+        List<GameRecord> records = new ArrayList<>();
+        Path file = folder.newFile("games.ogr").toPath();
+        Path directory = folder.newFolder("index").toPath();
+        records.add(randomGame(random));
+        records.add(randomGame(random));
+        write(file, records);
+        assertEquals(2, PositionIndex.update(file, directory));
+        //other games in place of the indexed ones
+        records.set(1, randomGame(random));
+        records.add(randomGame(random));
+        write(file, records);
+        try {
+            PositionIndex.update(file, directory);
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("The record file does not start with the indexed games"));
+        }
+        //fewer games than indexed
+        write(file, records.subList(0, 1));
+        try {
+            PositionIndex.update(file, directory);
+            fail();
+        } catch (IOException e) {
+            assertTrue(e.getMessage().startsWith("The record file does not start with the indexed games"));
+        }
+        assertEquals(2, PositionIndex.open(directory).getGames());
+    }
+
+    @Test
+    public void sort() {
+        SplittableRandom random = new SplittableRandom(3);
+        int count = 10000;
+        long[] hashes = new long[count];
+        long[] values = new long[count];
+        for (int i = 0; i < count; i++) {
+            hashes[i] = random.nextInt(100) * 0x0123456789ABCDEFL;
+            values[i] = i;
+        }
+        PositionIndex.sort(hashes, values, count);
+        for (int i = 1; i < count; i++) {
+            int order = Long.compareUnsigned(hashes[i - 1], hashes[i]);
+            assertTrue(order < 0 || order == 0 && values[i - 1] < values[i]);
+        }
+    }
+}
@@ -0,0 +1,102 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.SplittableRandom;
+
+import static org.junit.Assert.*;
+
+public class RefereeTest {
+
+    /**
+     * Record the events as text.
+     */
+    private static class Recorder implements GameListener {
+        final List<String> events = new ArrayList<>();
+
+        @Override
+        public void moveMade(char player, int square, Board board) {
+            events.add(player + "-" + Disk.getUserMove(square));
+        }
+
+        @Override
+        public void invalidMove(char player, String move) {
+            events.add("invalid " + player + "-" + move);
+        }
+
+        @Override
+        public void passed(char player) {
+            events.add("pass " + player);
+        }
+
+        @Override
+        public void gameOver(GameResult result) {
+            events.add("over " + result.getDarkDisks() + "-" + result.getLightDisks());
+        }
+    }
+
+    @Test
+    public void play() {
+        Referee referee = new Referee();
+        Recorder recorder = new Recorder();
+        referee.addListener(recorder);
+        assertEquals(Board.DARK, referee.getPlayer());
+        assertEquals(Referee.Outcome.NEXT, referee.play("d3"));
+        assertEquals(Board.LIGHT, referee.getPlayer());
+        assertEquals(Referee.Outcome.INVALID, referee.play("1a"));
+        assertEquals(Referee.Outcome.INVALID, referee.play("xyz"));
+        assertEquals(Referee.Outcome.INVALID, referee.play(-1));
+        assertEquals(Board.LIGHT, referee.getPlayer());
+        assertEquals(Referee.Outcome.NEXT, referee.play(BitBoard.square(Disk.getDisk("3c"))));
+        assertEquals(Board.DARK, referee.getPlayer());
+        assertEquals(2, referee.getBoard().getMoveCount());
+        assertEquals(Arrays.asList("X-3d", "invalid O-1a", "invalid O-xyz", "invalid O--1", "O-3c"), recorder.events);
+    }
+
+    @Test
+    public void passAndGameOver() {
+        SplittableRandom random = new SplittableRandom(1);
+        int passes = 0;
+        for (int game = 0; game < 100; game++) {
+            Referee referee = new Referee();
+            Recorder recorder = new Recorder();
+            referee.addListener(recorder);
+            Board board = new Board();
+            char player = Board.DARK;
+            Referee.Outcome outcome = Referee.Outcome.NEXT;
+            while (outcome != Referee.Outcome.GAME_OVER) {
+                assertEquals(player, referee.getPlayer());
+                long moves = board.getMoves(player);
+                for (int skip = random.nextInt(Long.bitCount(moves)); skip > 0; skip--) {
+                    moves &= moves - 1;
+                }
+                int square = Long.numberOfTrailingZeros(moves);
+                board.makeMove(player, square);
+                outcome = referee.play(square);
+                char opponent = Board.getOpponent(player);
+                if (board.isGameOver()) {
+                    assertEquals(Referee.Outcome.GAME_OVER, outcome);
+                } else if (board.hasAvailableMove(opponent)) {
+                    assertEquals(Referee.Outcome.NEXT, outcome);
+                    player = opponent;
+                } else {
+                    assertEquals(Referee.Outcome.PASS, outcome);
+                    assertEquals("pass " + opponent, recorder.events.get(recorder.events.size() - 1));
+                    passes++;
+                }
+            }
+            assertTrue(referee.isGameOver());
+            assertEquals(Board.NO_PIECE, referee.getPlayer());
+            assertEquals(Referee.Outcome.INVALID, referee.play("3d"));
+            GameResult result = referee.getResult();
+            assertEquals(Long.bitCount(board.getDisks(Board.DARK)), result.getDarkDisks());
+            assertEquals(Long.bitCount(board.getDisks(Board.LIGHT)), result.getLightDisks());
+            int events = recorder.events.size();
+            assertEquals("over " + result.getDarkDisks() + "-" + result.getLightDisks(),
+                    recorder.events.get(events - 2));
+            assertEquals("invalid " + Board.NO_PIECE + "-3d", recorder.events.get(events - 1));
+        }
+        assertTrue(passes > 0);
+    }
+}
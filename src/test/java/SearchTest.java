@@ -0,0 +1,171 @@
+import org.junit.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+/**
+ * Search Tester.
+ */
+public class SearchTest {
+
+    /* The first 22 moves of the game in OthelloTest */
+    static final String MIDGAME = "4c, 3e, 2f, 5c, 6f, 3b, 6d, " +
+            "7e, 4f, 6e, 7d, 6g, 2a, 6c, 6b, 7c, 7g, 2e, 6h, 3d, 8d, 3c";
+
+    /* The same game with 10 empty squares left, DARK to move */
+    static final String ENDGAME = MIDGAME + ", 7f, 7a, 2d, 5f, 3f, 3g, 6a, 8c, 2g, 8h, 5g, 1f, 7h, 1g, " +
+            "8b, 4g, 3h, 1c, 5b, 5h, 1h, 4b, 2c, 8e, 5a, 8a, 1e, 2b";
+
+    static Board play(String moves) {
+        Board board = new Board();
+        char player = Board.DARK;
+        for (String move : moves.split(",")) {
+            if (!board.hasAvailableMove(player)) {
+                player = Board.getOpponent(player);
+            }
+            assertTrue(board.validateMove(player, move));
+            board.flip(player, Disk.getDisk(move));
+            player = Board.getOpponent(player);
+        }
+        return board;
+    }
+
+    /**
+     * Return the exact score of the position by plain minimax over the whole game.
+     */
+    static int minimax(Board board, char player, boolean passed) {
+        long moves = board.getMoves(player);
+        char opponent = Board.getOpponent(player);
+        if (moves == 0) {
+            if (passed) {
+                int diff = Long.bitCount(board.getDisks(player)) - Long.bitCount(board.getDisks(opponent));
+                return diff * Search.GAME_OVER_SCALE;
+            }
+            return -minimax(board, opponent, true);
+        }
+        int best = -Search.INFINITY;
+        for (long bits = moves; bits != 0; bits &= bits - 1) {
+            board.makeMove(player, Long.numberOfTrailingZeros(bits));
+            best = Math.max(best, -minimax(board, opponent, false));
+            board.undoMove();
+        }
+        return best;
+    }
+
+    @Test
+    public void findBestMove() {
+        Board board = new Board();
+        Search search = new Search(0, Long.MAX_VALUE);
+        search.setMaxDepth(4);
+        int square = search.findBestMove(board, Board.DARK);
+        assertNotEquals(0, board.getMoves(Board.DARK) & (1L << square));
+        assertEquals(4, search.getDepth());
+        assertTrue(search.getNodes() > 0);
+        assertEquals(BitBoard.INITIAL_DARK, board.getDisks(Board.DARK));
+    }
+
+    @Test
+    public void findBestMoveWithoutMove() {
+        Board board = new Board();
+        board.setPlayer(Board.NO_PIECE, Disk.getDisk("4d"));
+        board.setPlayer(Board.NO_PIECE, Disk.getDisk("5e"));
+        assertEquals(-1, new Search(0, Long.MAX_VALUE).findBestMove(board, Board.DARK));
+    }
+
+    @Test
+    public void endgameIsExact() {
+        Board board = play(ENDGAME);
+        Search search = new Search(0, Long.MAX_VALUE);
+        search.findBestMove(board, Board.DARK);
+        assertEquals(10, search.getDepth());
+        assertEquals(minimax(board, Board.DARK, false), search.getScore());
+    }
+
+    @Test
+    public void nodeBudget() {
+        Search search = new Search(0, 5000);
+        int square = search.findBestMove(play(MIDGAME), Board.DARK);
+        assertTrue(square >= 0);
+        assertTrue(search.getNodes() < 5000 + 1024);
+    }
+
+    @Test
+    public void midgameDepthTen() {
+        Search search = new Search(0, Long.MAX_VALUE);
+        search.setMaxDepth(10);
+        search.findBestMove(play(MIDGAME), Board.DARK);
+        assertEquals(10, search.getDepth());
+    }
+
+    @Test
+    public void analyzeScoresEveryMove() {
+        Board board = play(ENDGAME);
+        List<MoveAnalysis> streamed = new ArrayList<>();
+        List<Integer> depths = new ArrayList<>();
+        Search search = new Search(0, Long.MAX_VALUE);
+        List<MoveAnalysis> analyses = search.analyze(board, Board.DARK, new AnalysisListener() {
+            @Override
+            public void moveAnalyzed(MoveAnalysis analysis) {
+                streamed.add(analysis);
+            }
+
+            @Override
+            public void depthCompleted(int depth, List<MoveAnalysis> completed) {
+                depths.add(depth);
+                assertEquals(Long.bitCount(board.getMoves(Board.DARK)), completed.size());
+            }
+        });
+        int count = Long.bitCount(board.getMoves(Board.DARK));
+        assertEquals(count, analyses.size());
+        assertEquals(10, search.getDepth());
+        assertEquals(10, depths.size());
+        assertEquals(10 * count, streamed.size());
+        assertEquals(analyses.get(0).getMove(), search.getBestMove());
+        //every score is exact at the end of the game, and the best first
+        for (int i = 0; i < count; i++) {
+            MoveAnalysis analysis = analyses.get(i);
+            assertEquals(10, analysis.getDepth());
+            assertTrue(i == 0 || analysis.getScore() <= analyses.get(i - 1).getScore());
+            Board after = new Board(board);
+            after.makeMove(Board.DARK, analysis.getMove());
+            assertEquals(-minimax(after, Board.LIGHT, false), analysis.getScore());
+
+            int[] variation = analysis.getPrincipalVariation();
+            assertEquals(analysis.getMove(), variation[0]);
+            Board replay = new Board(board);
+            char player = Board.DARK;
+            for (int square : variation) {
+                if (!replay.hasAvailableMove(player)) {
+                    player = Board.getOpponent(player);
+                }
+                assertNotEquals(0, replay.getMoves(player) & (1L << square));
+                replay.makeMove(player, square);
+                player = Board.getOpponent(player);
+            }
+        }
+        assertEquals(minimax(board, Board.DARK, false), analyses.get(0).getScore());
+    }
+
+    @Test
+    public void analyzeWithinBudget() {
+        List<MoveAnalysis> streamed = new ArrayList<>();
+        Search search = new Search(0, 20_000);
+        List<MoveAnalysis> analyses = search.analyze(play(MIDGAME), Board.DARK, streamed::add);
+        assertFalse(analyses.isEmpty());
+        //the moves of the interrupted iteration were streamed, not returned
+        assertTrue(streamed.size() >= analyses.size() * search.getDepth());
+        assertEquals(search.getDepth(), analyses.get(0).getDepth());
+    }
+
+    @Test
+    public void analyzeWithoutMove() {
+        Board board = new Board();
+        board.setPlayer(Board.NO_PIECE, Disk.getDisk("4d"));
+        board.setPlayer(Board.NO_PIECE, Disk.getDisk("5e"));
+        Search search = new Search(0, Long.MAX_VALUE);
+        assertTrue(search.analyze(board, Board.DARK, null).isEmpty());
+        assertEquals(-1, search.getBestMove());
+    }
+}
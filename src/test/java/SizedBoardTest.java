@@ -0,0 +1,138 @@
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+public class SizedBoardTest {
+
+    @Test
+    public void sizes() {
+        for (int size = SizedBoard.MIN_SIZE; size <= SizedBoard.MAX_SIZE; size += 2) {
+            SizedBoard board = SizedBoard.create(size);
+            assertEquals(size <= 8, board instanceof SizedBoard.Small);
+            assertEquals(size * size, board.getSquares());
+            assertEquals(2, board.getDiskCount(Board.DARK));
+            assertEquals(2, board.getDiskCount(Board.LIGHT));
+            int[] moves = new int[board.getSquares()];
+            assertEquals(4, board.getMoves(Board.DARK, moves));
+            assertEquals(4, board.getMoves(Board.LIGHT, moves));
+        }
+        for (int size : new int[]{2, 5, 9, 18}) {
+            try {
+                SizedBoard.create(size);
+                fail("size " + size);
+            } catch (IllegalArgumentException e) {
+                //expected
+            }
+        }
+    }
+
+    @Test
+    public void sameAsBoard() {
+        Random random = new Random(11);
+        SizedBoard sized = SizedBoard.create(Board.BOARD_SIZE);
+        Board board = new Board();
+        int[] moves = new int[BitBoard.SQUARES];
+        for (int game = 0; game < 200; game++) {
+            sized.reset();
+            board.reset();
+            char player = Board.DARK;
+            while (!board.isGameOver()) {
+                if (!board.hasAvailableMove(player)) {
+                    player = Board.getOpponent(player);
+                }
+                int count = sized.getMoves(player, moves);
+                long expected = board.getMoves(player);
+                assertEquals(Long.bitCount(expected), count);
+                for (int i = 0; i < count; i++) {
+                    assertTrue((expected & (1L << moves[i])) != 0);
+                }
+                int square = moves[random.nextInt(count)];
+                assertEquals(Long.bitCount(board.makeMove(player, square)), sized.makeMove(player, square));
+                player = Board.getOpponent(player);
+            }
+            assertTrue(sized.isGameOver());
+            assertEquals(board.getBoardInfo(), sized.getBoardInfo());
+        }
+    }
+
+    @Test
+    public void randomGames() {
+        Random random = new Random(5);
+        for (int size = SizedBoard.MIN_SIZE; size <= SizedBoard.MAX_SIZE; size += 2) {
+            SizedBoard board = SizedBoard.create(size);
+            int[] moves = new int[board.getSquares()];
+            for (int game = 0; game < 20; game++) {
+                board.reset();
+                char player = Board.DARK;
+                while (!board.isGameOver()) {
+                    if (!board.hasAvailableMove(player)) {
+                        player = Board.getOpponent(player);
+                    }
+                    //the shifted masks find the same moves as walking every direction from every square
+                    int count = board.getMoves(player, moves);
+                    int index = 0;
+                    for (int square = 0; square < board.getSquares(); square++) {
+                        if (board.isValidMove(player, square)) {
+                            assertEquals(square, moves[index++]);
+                        }
+                    }
+                    assertEquals(index, count);
+                    int disks = board.getDiskCount(Board.DARK) + board.getDiskCount(Board.LIGHT);
+                    int flipped = board.makeMove(player, moves[random.nextInt(count)]);
+                    assertTrue(flipped > 0);
+                    assertEquals(disks + 1, board.getDiskCount(Board.DARK) + board.getDiskCount(Board.LIGHT));
+                    player = Board.getOpponent(player);
+                }
+                assertEquals(board.getResult().getDarkDisks(), board.getDiskCount(Board.DARK));
+            }
+        }
+    }
+
+    @Test
+    public void coordinates() {
+        SizedBoard board = SizedBoard.create(10);
+        assertEquals(99, board.parseSquare("10j"));
+        assertEquals(99, board.parseSquare(" J10 "));
+        assertEquals(23, board.parseSquare("3d"));
+        assertEquals(23, board.parseSquare("d3"));
+        assertEquals(-1, board.parseSquare("11a"));
+        assertEquals(-1, board.parseSquare("1k"));
+        assertEquals(-1, board.parseSquare("03d"));
+        assertEquals(-1, board.parseSquare("d"));
+        for (int square = 0; square < board.getSquares(); square++) {
+            assertEquals(square, board.parseSquare(board.getUserMove(square)));
+        }
+        assertEquals(SizedBoard.create(8).parseSquare("f5"), BitBoard.square(Disk.getDisk("f5")));
+    }
+
+    @Test
+    public void boardInfo() {
+        String expected = " 1 - - - - - - - - - - \n" +
+                " 2 - - - - - - - - - - \n" +
+                " 3 - - - - - - - - - - \n" +
+                " 4 - - - - - - - - - - \n" +
+                " 5 - - - - O X - - - - \n" +
+                " 6 - - - - X O - - - - \n" +
+                " 7 - - - - - - - - - - \n" +
+                " 8 - - - - - - - - - - \n" +
+                " 9 - - - - - - - - - - \n" +
+                "10 - - - - - - - - - - \n" +
+                "   a b c d e f g h i j\n";
+        assertEquals(expected.replace("\n", System.lineSeparator()), SizedBoard.create(10).getBoardInfo());
+        assertEquals(new Board().getBoardInfo(), SizedBoard.create(8).getBoardInfo());
+    }
+
+    @Test
+    public void playGame() {
+        String expected = "1 - - - - - - \n" +
+                "2 - - X - - - \n" +
+                "3 - - X X - - \n" +
+                "4 - - X O - - \n" +
+                "5 - - - - - - \n" +
+                "6 - - - - - - \n" +
+                "  a b c d e f\n";
+        assertEquals(expected.replace("\n", System.lineSeparator()), Othello.playGame(6, "2c"));
+    }
+}
@@ -0,0 +1,105 @@
+import org.junit.Test;
+
+import java.util.Random;
+
+import static org.junit.Assert.*;
+
+/**
+ * Symmetry Tester.
+ */
+public class SymmetryTest {
+
+    @Test
+    public void square() {
+        int square = BitBoard.square(Disk.getDisk("4c"));
+        assertEquals(square, Symmetry.square(0, square));
+        assertEquals("4f", Disk.getUserMove(Symmetry.square(1, square)));
+        assertEquals("5c", Disk.getUserMove(Symmetry.square(2, square)));
+        assertEquals("3d", Disk.getUserMove(Symmetry.square(4, square)));
+    }
+
+    @Test
+    public void inverse() {
+        for (int transform = 0; transform < Symmetry.COUNT; transform++) {
+            int inverse = Symmetry.inverse(transform);
+            for (int square = 0; square < BitBoard.SQUARES; square++) {
+                assertEquals(square, Symmetry.square(inverse, Symmetry.square(transform, square)));
+            }
+        }
+    }
+
+    @Test
+    public void transform() {
+        //the initial position is symmetric to the diagonals and to the rotation by 180 degrees
+        assertEquals(BitBoard.INITIAL_DARK, Symmetry.transform(4, BitBoard.INITIAL_DARK));
+        assertEquals(BitBoard.INITIAL_DARK, Symmetry.transform(3, BitBoard.INITIAL_DARK));
+        assertEquals(BitBoard.INITIAL_LIGHT, Symmetry.transform(1, BitBoard.INITIAL_DARK));
+        assertEquals(Long.bitCount(0x8040201008040201L), Long.bitCount(Symmetry.transform(2, 0x8040201008040201L)));
+        assertEquals(0x0102040810204080L, Symmetry.transform(1, 0x8040201008040201L));
+    }
+
+    @Test
+    public void bitTricks() {
+        Random random = new Random(42);
+        for (int i = 0; i < 1000; i++) {
+            long bits = random.nextLong();
+            for (int transform = 0; transform < Symmetry.COUNT; transform++) {
+                //square by square
+                long expected = 0;
+                for (int square = 0; square < BitBoard.SQUARES; square++) {
+                    if ((bits & (1L << square)) != 0) {
+                        expected |= 1L << Symmetry.square(transform, square);
+                    }
+                }
+                assertEquals(expected, Symmetry.transform(transform, bits));
+            }
+            assertEquals(Symmetry.transform(1, bits), Symmetry.mirrorColumns(bits));
+            assertEquals(Symmetry.transform(2, bits), Symmetry.mirrorRows(bits));
+            assertEquals(Symmetry.transform(4, bits), Symmetry.transpose(bits));
+        }
+    }
+
+    @Test
+    public void canonicalTransform() {
+        Random random = new Random(7);
+        for (int i = 0; i < 1000; i++) {
+            long own = random.nextLong() & random.nextLong();
+            long opp = random.nextLong() & ~own;
+            int transform = Symmetry.canonicalTransform(own, opp);
+            long canonicalOwn = Symmetry.transform(transform, own);
+            long canonicalOpp = Symmetry.transform(transform, opp);
+            long hash = Symmetry.canonicalHash(own, opp);
+            assertEquals(Symmetry.hash(transform, own, opp), hash);
+            for (int other = 0; other < Symmetry.COUNT; other++) {
+                long otherOwn = Symmetry.transform(other, own);
+                long otherOpp = Symmetry.transform(other, opp);
+                //the canonical position is the smallest one
+                int order = Long.compareUnsigned(canonicalOwn, otherOwn);
+                assertTrue(order < 0 || order == 0 && Long.compareUnsigned(canonicalOpp, otherOpp) <= 0);
+                //and the same for all symmetric positions
+                int symmetric = Symmetry.canonicalTransform(otherOwn, otherOpp);
+                assertEquals(canonicalOwn, Symmetry.transform(symmetric, otherOwn));
+                assertEquals(canonicalOpp, Symmetry.transform(symmetric, otherOpp));
+                assertEquals(hash, Symmetry.canonicalHash(otherOwn, otherOpp));
+            }
+            assertNotEquals(hash, Symmetry.canonicalHash(opp, own));
+        }
+        //the initial position is its own canonical position, the lowest transform of the symmetric ones
+        int transform = Symmetry.canonicalTransform(BitBoard.INITIAL_DARK, BitBoard.INITIAL_LIGHT);
+        assertEquals(BitBoard.INITIAL_DARK, Symmetry.transform(transform, BitBoard.INITIAL_DARK));
+        assertEquals(BitBoard.INITIAL_LIGHT, Symmetry.transform(transform, BitBoard.INITIAL_LIGHT));
+        assertEquals(0, transform);
+    }
+
+    @Test
+    public void disk() {
+        Disk disk = Disk.getDisk("4c");
+        assertEquals(Disk.getDisk("3d"), Symmetry.disk(4, disk));
+        for (int transform = 0; transform < Symmetry.COUNT; transform++) {
+            assertEquals(disk, Symmetry.originalDisk(transform, Symmetry.disk(transform, disk)));
+            for (int square = 0; square < BitBoard.SQUARES; square++) {
+                assertEquals(square, Symmetry.originalSquare(transform, Symmetry.square(transform, square)));
+            }
+        }
+    }
+}
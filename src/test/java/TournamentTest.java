@@ -0,0 +1,191 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.nio.file.Path;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.junit.Assert.*;
+
+public class TournamentTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private static Tournament.Player player(String name, int depth) {
+        return new Tournament.Player(name, () -> {
+            Search search = new Search(0, Long.MAX_VALUE, new TranspositionTable(1));
+            search.setMaxDepth(depth);
+            return search;
+        });
+    }
+
+    @Test
+    public void openings() {
+        assertEquals(Collections.singletonList(""), Tournament.openings(0));
+        //the 4 first moves are symmetric
+        assertEquals(1, Tournament.openings(1).size());
+        //perpendicular, diagonal and parallel
+        assertEquals(3, Tournament.openings(2).size());
+    }
+
+    @Test
+    public void elo() {
+        assertEquals(0, Tournament.elo(0.5), 1e-9);
+        assertEquals(400, Tournament.elo(10.0 / 11), 1e-9);
+        assertEquals(-Tournament.elo(0.75), Tournament.elo(0.25), 1e-9);
+    }
+
+    @Test
+    public void run() throws Exception {
+        List<Tournament.Player> players = Arrays.asList(player("weak", 1), player("strong", 3),
+                Tournament.Player.parse("parsed:depth=2,hash=1"));
+        List<String> openings = Tournament.openings(2);
+        List<Tournament.Result> results = new Tournament(players, openings, null, 2).run();
+        assertEquals(3, results.size());
+        assertEquals("weak", results.get(0).getFirst().getName());
+        assertEquals("strong", results.get(0).getSecond().getName());
+        assertEquals("parsed", results.get(1).getSecond().getName());
+        assertEquals("strong", results.get(2).getFirst().getName());
+        for (Tournament.Result result : results) {
+            assertEquals(2 * openings.size(), result.getGames());
+            assertEquals(result.getGames(), result.getWins() + result.getDraws() + result.getLosses());
+            assertTrue(result.getNodesPerSecond(false) > 0);
+            assertTrue(result.getNodesPerSecond(true) > 0);
+            assertTrue(result.getEloError() > 0);
+        }
+    }
+
+    @Test
+    public void playGame() {
+        List<Tournament.Player> players = Arrays.asList(player("a", 2), player("b", 2));
+        Tournament tournament = new Tournament(players, Collections.singletonList("3d,3c"), null, 1);
+        Tournament.Game game = tournament.playGame(0, 1, "3d,3c");
+        assertEquals(0, game.getDark());
+        assertEquals(1, game.getLight());
+        assertEquals(Board.NO_PIECE, game.getTimeForfeit());
+        assertTrue(game.getDarkDisks() + game.getLightDisks() > 4);
+    }
+
+    @Test
+    public void invalidMoveLoses() {
+        Tournament.Player broken = new Tournament.Player("broken", () -> new Engine() {
+            @Override
+            public int findBestMove(Board board, char player) {
+                //a corner, never valid at the start
+                return 0;
+            }
+
+            @Override
+            public int getScore() {
+                return 0;
+            }
+
+            @Override
+            public int getDepth() {
+                return 0;
+            }
+
+            @Override
+            public long getNodes() {
+                return 0;
+            }
+
+            @Override
+            public long getElapsedMillis() {
+                return 0;
+            }
+        });
+        Tournament tournament = new Tournament(Arrays.asList(broken, player("b", 1)),
+                Collections.singletonList(""), null, 1);
+        Tournament.Game game = tournament.playGame(0, 1, "");
+        assertEquals(Board.DARK, game.getInvalidMove());
+        assertEquals(Board.NO_PIECE, game.getTimeForfeit());
+        assertEquals(0, game.getDarkScore(), 0);
+        assertEquals(4, game.getDarkDisks() + game.getLightDisks());
+        game = tournament.playGame(1, 0, "");
+        assertEquals(Board.LIGHT, game.getInvalidMove());
+        assertEquals(1, game.getDarkScore(), 0);
+    }
+
+    @Test
+    public void timeControl() throws Exception {
+        Tournament.TimeControl timeControl = Tournament.TimeControl.parse("1000+10");
+        assertEquals(1000, timeControl.getBaseMillis());
+        assertEquals(10, timeControl.getIncrementMillis());
+        //a share of the 30 moves to come and half the increment
+        assertEquals(1000 / 32 + 5, timeControl.moveBudget(1000, 60));
+        assertEquals(5, timeControl.moveBudget(0, 60));
+
+        List<Tournament.Player> players = Arrays.asList(Tournament.Player.parse("a:time=1000"),
+                Tournament.Player.parse("b:time=1000"));
+        Tournament tournament = new Tournament(players, Collections.singletonList(""),
+                Tournament.TimeControl.parse("300+5"), 1);
+        Tournament.Game game = tournament.playGame(0, 1, "");
+        assertTrue(game.getTimeForfeit() != Board.NO_PIECE
+                || game.getDarkDisks() + game.getLightDisks() > 4);
+    }
+
+    @Test
+    public void monteCarloPlayer() throws Exception {
+        List<Tournament.Player> players = Arrays.asList(Tournament.Player.parse("mcts:mcts=1,nodes=200,guided=true"),
+                Tournament.Player.parse("search:depth=1"));
+        MonteCarloSearch engine = (MonteCarloSearch) players.get(0).getEngine();
+        assertEquals(200, engine.getMaxPlayouts());
+        assertTrue(engine.isGuided());
+        Tournament.Game game = new Tournament(players, Collections.singletonList(""), null, 1).playGame(0, 1, "");
+        assertTrue(game.getDarkDisks() + game.getLightDisks() > 4);
+    }
+
+    @Test
+    public void enginesAreShutDown() throws Exception {
+        List<Tournament.Player> players = Arrays.asList(Tournament.Player.parse("mcts:mcts=2,nodes=50"),
+                Tournament.Player.parse("search:depth=1"));
+        Engine engine = players.get(0).getEngine();
+        assertSame(engine, players.get(0).getEngine());
+        new Tournament(players, Collections.singletonList(SearchTest.ENDGAME), null, 2).run();
+        //the engines of the tournament are shut down and forgotten
+        assertNotSame(engine, players.get(0).getEngine());
+        try {
+            engine.findBestMove(new Board(), Board.DARK);
+            fail("the search threads are still running");
+        } catch (RuntimeException e) {
+            //expected, the pool of the engine refuses new searches
+        }
+    }
+
+    @Test
+    public void playerWeights() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("zero.bin");
+        short[] shared = Evaluator.getWeights();
+        Evaluator.setWeights(new short[shared.length]);
+        try {
+            Evaluator.save(file);
+        } finally {
+            Evaluator.setWeights(shared);
+        }
+        Search zero = (Search) Tournament.Player.parse("zero:depth=3,weights=" + file).getEngine();
+        Search plain = (Search) Tournament.Player.parse("plain:depth=3").getEngine();
+        assertNull(plain.getWeights());
+        //every position evaluates to 0 for the player with zero weights only
+        zero.findBestMove(new Board(), Board.DARK);
+        assertEquals(0, zero.getScore());
+        plain.findBestMove(new Board(), Board.DARK);
+        assertNotEquals(0, plain.getScore());
+        assertArrayEquals(shared, Evaluator.getWeights());
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void monteCarloPlayerWithWeights() throws Exception {
+        Path file = folder.getRoot().toPath().resolve("weights.bin");
+        Evaluator.save(file);
+        Tournament.Player.parse("mcts:mcts=1,weights=" + file);
+    }
+
+    @Test(expected = IllegalArgumentException.class)
+    public void parseUnknownSetting() throws Exception {
+        Tournament.Player.parse("a:speed=1");
+    }
+}
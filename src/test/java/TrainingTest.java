@@ -0,0 +1,90 @@
+import org.junit.After;
+import org.junit.Before;
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.File;
+import java.nio.file.Files;
+
+import static org.junit.Assert.*;
+
+public class TrainingTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    private short[] weights;
+
+    @Before
+    public void before() {
+        weights = Evaluator.getWeights();
+    }
+
+    @After
+    public void after() {
+        Evaluator.setWeights(weights);
+    }
+
+    private static Board board(long own, long opp, char player) {
+        Board board = new Board();
+        for (int square = 0; square < BitBoard.SQUARES; square++) {
+            char piece = (own >>> square & 1) != 0 ? player
+                    : (opp >>> square & 1) != 0 ? Board.getOpponent(player) : Board.NO_PIECE;
+            board.setPlayer(piece, Disk.getDisk(square));
+        }
+        return board;
+    }
+
+    @Test
+    public void generate() throws Exception {
+        File file = folder.newFile();
+        long samples = Training.generate(file.toPath(), 10, 2, 1, 8, 42);
+        assertTrue(samples > 10 * 50);
+        assertEquals(16 + 17 * samples, file.length());
+
+        long[] own = new long[(int) samples];
+        long[] opp = new long[(int) samples];
+        int[] labels = new int[(int) samples];
+        assertEquals(samples, Training.readSamples(file.toPath(), own, opp, labels));
+        //the first position of a game is the initial position
+        assertEquals(BitBoard.INITIAL_DARK, own[0]);
+        assertEquals(BitBoard.INITIAL_LIGHT, opp[0]);
+
+        //from 8 empty squares on the label is the exact score
+        EndgameSolver solver = new EndgameSolver();
+        int exact = 0;
+        for (int i = 0; i < samples; i++) {
+            if (Long.bitCount(~(own[i] | opp[i])) <= 8) {
+                assertEquals(solver.solve(board(own[i], opp[i], Board.DARK), Board.DARK), labels[i]);
+                exact++;
+            }
+        }
+        assertTrue(exact >= 10);
+
+        //the same seed plays the same games
+        File again = folder.newFile();
+        Training.generate(again.toPath(), 10, 1, 1, 8, 42);
+        assertArrayEquals(Files.readAllBytes(file.toPath()), Files.readAllBytes(again.toPath()));
+    }
+
+    @Test
+    public void fit() throws Exception {
+        File file = folder.newFile();
+        Training.generate(file.toPath(), 20, 2, 1, 8, 7);
+        double first = Training.fit(file.toPath(), 1, 2, 1.0 / Evaluator.FEATURES);
+        double error = Training.fit(file.toPath(), 30, 2, 1.0 / Evaluator.FEATURES);
+        assertTrue(error < first);
+
+        //the fitted weights are installed and score the samples
+        short[] fitted = Evaluator.getWeights();
+        assertNotEquals(weights[0], fitted[0] + 1);
+        int[] features = new int[Evaluator.FEATURES];
+        Evaluator.features(BitBoard.INITIAL_DARK, BitBoard.INITIAL_LIGHT, features);
+        int sum = 0;
+        for (int feature : features) {
+            sum += fitted[feature];
+        }
+        assertEquals(sum, Evaluator.evaluate(BitBoard.INITIAL_DARK, BitBoard.INITIAL_LIGHT));
+    }
+}
@@ -0,0 +1,51 @@
+import org.junit.Test;
+
+import static org.junit.Assert.*;
+
+public class TranspositionTableTest {
+
+    @Test
+    public void storeAndProbe() {
+        TranspositionTable table = new TranspositionTable(1);
+        assertEquals(0, table.probe(42L));
+        table.store(42L, 7, TranspositionTable.LOWER, -1234, 19);
+        long data = table.probe(42L);
+        assertEquals(7, TranspositionTable.depth(data));
+        assertEquals(TranspositionTable.LOWER, TranspositionTable.bound(data));
+        assertEquals(-1234, TranspositionTable.score(data));
+        assertEquals(19, TranspositionTable.move(data));
+
+        table.store(43L, 0, TranspositionTable.EXACT, 5, -1);
+        assertEquals(-1, TranspositionTable.move(table.probe(43L)));
+        assertEquals(0.5, table.getHitRate(), 0.34);
+    }
+
+    @Test
+    public void replacement() {
+        TranspositionTable table = new TranspositionTable(1);
+        long buckets = table.getCapacity() / 2;
+        //three positions in the same bucket
+        long deep = 1, shallow = 1 + buckets, other = 1 + 2 * buckets;
+        table.store(deep, 10, TranspositionTable.EXACT, 1, 1);
+        table.store(shallow, 2, TranspositionTable.EXACT, 2, 2);
+        table.store(other, 3, TranspositionTable.EXACT, 3, 3);
+        //the deep entry is kept, the always-replace entry holds the latest
+        assertNotEquals(0, table.probe(deep));
+        assertEquals(0, table.probe(shallow));
+        assertNotEquals(0, table.probe(other));
+        assertEquals(1.0 / 3, table.getCollisionRate(), 1e-9);
+
+        //a newer search may replace the deep entry
+        table.newSearch();
+        table.store(shallow, 2, TranspositionTable.EXACT, 2, 2);
+        assertEquals(0, table.probe(deep));
+        assertNotEquals(0, table.probe(shallow));
+        assertEquals(2.0 / table.getCapacity(), table.getFillRate(), 1e-9);
+    }
+
+    @Test
+    public void memoryBudget() {
+        TranspositionTable table = new TranspositionTable(1);
+        assertEquals(1024 * 1024 / TranspositionTable.BUCKET_BYTES * 2, table.getCapacity());
+    }
+}
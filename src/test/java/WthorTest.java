@@ -0,0 +1,80 @@
+import org.junit.Rule;
+import org.junit.Test;
+import org.junit.rules.TemporaryFolder;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import static org.junit.Assert.*;
+
+public class WthorTest {
+
+    @Rule
+    public TemporaryFolder folder = new TemporaryFolder();
+
+    @Test
+    public void squares() {
+        assertEquals(0, Wthor.square(11));
+        assertEquals(BitBoard.square(Disk.getDisk("5f")), Wthor.square(56));
+        assertEquals(63, Wthor.square(88));
+        assertEquals(-1, Wthor.square(9));
+        assertEquals(-1, Wthor.square(19));
+        for (int square = 0; square < BitBoard.SQUARES; square++) {
+            assertEquals(square, Wthor.square(Wthor.wthorMove(square)));
+        }
+    }
+
+    @Test
+    public void importFile() throws IOException {
+        //one game of 2001: tournament 7, players 12 and 345, 40 dark disks, moves f5 d6 c3
+        ByteBuffer bytes = ByteBuffer.allocate(Wthor.HEADER_BYTES + Wthor.GAME_BYTES).order(ByteOrder.LITTLE_ENDIAN);
+        bytes.put(new byte[]{20, 1, 10, 10}).putInt(1).putShort((short) 0).putShort((short) 2001)
+                .put((byte) 8).put((byte) 0).put((byte) 22).put((byte) 0);
+        bytes.putShort((short) 7).putShort((short) 12).putShort((short) 345).put((byte) 40).put((byte) 36)
+                .put(new byte[]{56, 64, 33});
+        Path wtb = folder.newFile("WTH_2001.wtb").toPath();
+        Files.write(wtb, bytes.array());
+
+        Path records = folder.newFile("games.ogr").toPath();
+        try (GameRecordWriter writer = new GameRecordWriter(records)) {
+            assertEquals(1, Wthor.importFile(wtb, writer));
+        }
+        try (GameRecordReader reader = new GameRecordReader(records)) {
+            GameRecord record = reader.read();
+            assertEquals(20010000, record.getDate());
+            assertEquals(7, record.getTournament());
+            assertEquals(12, record.getDarkPlayer());
+            assertEquals(345, record.getLightPlayer());
+            assertEquals(40, record.getDarkDisks());
+            assertEquals("5f,6d,3c", record.toMoves());
+            assertTrue(record.play(new Board()));
+            assertNull(reader.read());
+        }
+
+        //and back
+        Path exported = folder.newFile("WTH_copy.wtb").toPath();
+        try (GameRecordReader reader = new GameRecordReader(records)) {
+            assertEquals(1, Wthor.exportFile(reader, exported));
+        }
+        byte[] copy = Files.readAllBytes(exported);
+        assertEquals(bytes.capacity(), copy.length);
+        //the creation date and the theoretical score differ
+        for (int i = 4; i < bytes.capacity(); i++) {
+            if (i != 12 && i != 14 && i != Wthor.HEADER_BYTES + 7) {
+                assertEquals("byte " + i, bytes.get(i), copy[i]);
+            }
+        }
+    }
+
+    @Test(expected = IOException.class)
+    public void importInvalidFile() throws IOException {
+        Path wtb = folder.newFile("WTH_2001.wtb").toPath();
+        Files.write(wtb, new byte[Wthor.HEADER_BYTES + 10]);
+        try (GameRecordWriter writer = new GameRecordWriter(folder.newFile("games.ogr").toPath())) {
+            Wthor.importFile(wtb, writer);
+        }
+    }
+}